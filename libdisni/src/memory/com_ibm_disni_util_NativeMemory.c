@@ -0,0 +1,105 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+#define _GNU_SOURCE
+#include <jni.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/mman.h>
+#include <unistd.h>
+#include "com_ibm_disni_util_NativeMemory.h"
+
+#ifndef MAP_HUGETLB
+#define MAP_HUGETLB 0x40000
+#endif
+
+#ifndef MADV_HUGEPAGE
+#define MADV_HUGEPAGE 14
+#endif
+
+/* all mapping functions return the address of the mapping, or -errno on failure */
+
+JNIEXPORT jlong JNICALL Java_com_ibm_disni_util_NativeMemory__1mapHugetlbfs(JNIEnv *env, jclass c, jstring dir, jlong length){
+	char path[4096];
+	const char *dirname = (*env)->GetStringUTFChars(env, dir, NULL);
+	if (dirname == NULL){
+		return -ENOMEM;
+	}
+	snprintf(path, sizeof(path), "%s/disni.XXXXXX", dirname);
+	(*env)->ReleaseStringUTFChars(env, dir, dirname);
+
+	int fd = mkstemp(path);
+	if (fd < 0){
+		return -errno;
+	}
+	//the mapping keeps the file alive
+	unlink(path);
+	void *addr = mmap(NULL, (size_t) length, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, 0);
+	int err = errno;
+	close(fd);
+	if (addr == MAP_FAILED){
+		return -err;
+	}
+	return (jlong) addr;
+}
+
+JNIEXPORT jlong JNICALL Java_com_ibm_disni_util_NativeMemory__1mapAnonymousHuge(JNIEnv *env, jclass c, jlong length){
+	void *addr = mmap(NULL, (size_t) length, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS | MAP_HUGETLB | MAP_POPULATE, -1, 0);
+	if (addr == MAP_FAILED){
+		return -errno;
+	}
+	return (jlong) addr;
+}
+
+JNIEXPORT jlong JNICALL Java_com_ibm_disni_util_NativeMemory__1mapTransparentHuge(JNIEnv *env, jclass c, jlong length, jlong alignment){
+	//over-allocate to align the mapping to the huge page size, then trim
+	size_t total = (size_t) (length + alignment);
+	void *raw = mmap(NULL, total, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+	if (raw == MAP_FAILED){
+		return -errno;
+	}
+	uintptr_t start = ((uintptr_t) raw + alignment - 1) & ~((uintptr_t) alignment - 1);
+	uintptr_t end = start + length;
+	if (start > (uintptr_t) raw){
+		munmap(raw, start - (uintptr_t) raw);
+	}
+	if ((uintptr_t) raw + total > end){
+		munmap((void *) end, (uintptr_t) raw + total - end);
+	}
+	//advisory only, the mapping is usable with regular pages if THP is disabled
+	madvise((void *) start, (size_t) length, MADV_HUGEPAGE);
+	return (jlong) start;
+}
+
+JNIEXPORT jint JNICALL Java_com_ibm_disni_util_NativeMemory__1unmap(JNIEnv *env, jclass c, jlong address, jlong length){
+	if (munmap((void *) address, (size_t) length) < 0){
+		return -errno;
+	}
+	return 0;
+}
+
+JNIEXPORT jobject JNICALL Java_com_ibm_disni_util_NativeMemory__1wrap(JNIEnv *env, jclass c, jlong address, jint capacity){
+	return (*env)->NewDirectByteBuffer(env, (void *) address, (jlong) capacity);
+}
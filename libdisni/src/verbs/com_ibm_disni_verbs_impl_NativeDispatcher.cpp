@@ -50,7 +50,61 @@
 //#define MAX_WR 200;
 #define MAX_SGE 4;
 //#define N_CQE 200
-#define JVERBS_JNI_VERSION 32;
+#define JVERBS_JNI_VERSION 43;
+
+// struct identifiers used by _getStructLayout, must match NativeDispatcher
+#define JVERBS_STRUCT_SOCKADDR_IN 0
+#define JVERBS_STRUCT_IBV_SGE 1
+#define JVERBS_STRUCT_IBV_SEND_WR 2
+#define JVERBS_STRUCT_IBV_RECV_WR 3
+#define JVERBS_STRUCT_IBV_WC 4
+#define JVERBS_STRUCT_RDMA_UD_PARAM 5
+#define JVERBS_STRUCT_IBV_WC_TS 6
+#define JVERBS_STRUCT_ASYNC_EVENT 7
+#define JVERBS_STRUCT_IBV_DEVICE_ATTR 8
+#define JVERBS_STRUCT_IBV_PORT_ATTR 9
+#define JVERBS_STRUCT_IBV_QP_ATTR 10
+#define JVERBS_STRUCT_CONN_PARAM 11
+#define JVERBS_STRUCT_IBV_MW_BIND 12
+#define JVERBS_STRUCT_MAX_FIELDS 32
+
+// work completion slot of extended CQs, a plain ibv_wc followed by the
+// completion timestamp
+struct jverbs_wc_ts {
+  struct ibv_wc wc;
+  uint64_t completion_ts;
+};
+
+// async event as handed to Java, the event is acknowledged before returning
+struct jverbs_async_event {
+  int32_t event_type;
+  uint32_t element; // qp_num of qp events, port_num of port events
+  uint64_t obj_id;  // the cq, qp or srq the event refers to
+};
+
+// connection parameters of a cm event, the private data is copied as it is
+// only valid until the event is acknowledged
+#define JVERBS_MAX_PRIVATE_DATA 256
+struct jverbs_conn_param {
+  uint8_t private_data_len;
+  uint8_t responder_resources;
+  uint8_t initiator_depth;
+  uint8_t flow_control;
+  uint8_t retry_count;
+  uint8_t rnr_retry_count;
+  uint8_t srq;
+  uint32_t qp_num;
+  uint8_t private_data[JVERBS_MAX_PRIVATE_DATA];
+};
+
+// 0 selects the device maximum, larger values are clamped to it as
+// rdma_connect and rdma_accept reject them otherwise
+static uint8_t clampRdAtomic(jint requested, int device_max) {
+  if (requested <= 0 || requested > device_max) {
+    return (uint8_t)device_max;
+  }
+  return (uint8_t)requested;
+}
 
 // global resource id counter
 static unsigned long long counter = 0;
@@ -143,7 +197,7 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createEventChannel(
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _createId
- * Signature: (IIS)I
+ * Signature: (JS)J
  */
 JNIEXPORT jlong JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createId(JNIEnv *env,
@@ -156,7 +210,8 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createId(JNIEnv *env,
 
   cm_channel = (struct rdma_event_channel *)channel;
   if (cm_channel != NULL) {
-    int ret = rdma_create_id(cm_channel, &cm_listen_id, NULL, RDMA_PS_TCP);
+    int ret = rdma_create_id(cm_channel, &cm_listen_id, NULL,
+                             (enum rdma_port_space)rdma_ps);
     if (ret == 0) {
       obj_id = createObjectId(cm_listen_id);
       // obj_id = (unsigned long long) cm_listen_id;
@@ -177,16 +232,17 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createId(JNIEnv *env,
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _createQP
- * Signature: (IIJ)I
+ * Signature: (JJJJJIIII)J
  */
 JNIEXPORT jlong JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createQP(
     JNIEnv *env, jobject obj, jlong id, jlong pd, jlong sendcq, jlong recvcq,
-    jint qptype, jint maxsendwr, jint maxrecvwr, jint maxinline) {
+    jlong srq, jint qptype, jint maxsendwr, jint maxrecvwr, jint maxinline) {
   struct rdma_cm_id *cm_listen_id = NULL;
   struct ibv_pd *protection = NULL;
   struct ibv_cq *send_cq = NULL;
   struct ibv_cq *recv_cq = NULL;
+  struct ibv_srq *shared_rq = NULL;
   struct ibv_qp_init_attr qp_init_attr;
   unsigned long long obj_id = -1;
   int _maxsendwr = maxsendwr;
@@ -197,6 +253,7 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createQP(
   protection = (struct ibv_pd *)pd;
   send_cq = (struct ibv_cq *)sendcq;
   recv_cq = (struct ibv_cq *)recvcq;
+  shared_rq = (struct ibv_srq *)srq;
 
   if (cm_listen_id != NULL && protection != NULL && send_cq != NULL &&
       recv_cq != NULL) {
@@ -210,6 +267,12 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createQP(
     // qp_init_attr.qp_type = IBV_QPT_RC;
     qp_init_attr.send_cq = send_cq;
     qp_init_attr.recv_cq = recv_cq;
+    if (shared_rq != NULL) {
+      // receive work requests are taken from the shared receive queue
+      qp_init_attr.srq = shared_rq;
+      qp_init_attr.cap.max_recv_wr = 0;
+      qp_init_attr.cap.max_recv_sge = 0;
+    }
 
     int ret = rdma_create_qp(cm_listen_id, protection, &qp_init_attr);
     if (ret == 0) {
@@ -349,12 +412,12 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1resolveRoute(JNIEnv *env,
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _getCmEvent
- * Signature: (IJJJ)I
+ * Signature: (JJJJJI)I
  */
 JNIEXPORT jint JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getCmEvent(
     JNIEnv *env, jobject obj, jlong channel, jlong listen_id, jlong client_id,
-    jint timeout) {
+    jlong ud_param, jlong conn_param, jint timeout) {
   struct rdma_event_channel *cm_channel = NULL;
   struct rdma_cm_event *cm_event;
   jint event = -1;
@@ -384,6 +447,41 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getCmEvent(
         } else {
           *_client_id = -1;
         }
+
+        // the ud parameters (address handle attributes, remote qp and qkey)
+        // are only valid until the event is acknowledged
+        if (ud_param != 0 && cm_event->id != NULL &&
+            cm_event->id->ps == RDMA_PS_UDP &&
+            cm_event->event == RDMA_CM_EVENT_ESTABLISHED) {
+          memcpy((void *)ud_param, &cm_event->param.ud,
+                 sizeof(struct rdma_ud_param));
+        }
+
+        // connection parameters and private data of connection requests
+        // and responses
+        if (conn_param != 0 && cm_event->id != NULL &&
+            cm_event->id->ps != RDMA_PS_UDP &&
+            (cm_event->event == RDMA_CM_EVENT_CONNECT_REQUEST ||
+             cm_event->event == RDMA_CM_EVENT_CONNECT_RESPONSE ||
+             cm_event->event == RDMA_CM_EVENT_ESTABLISHED ||
+             cm_event->event == RDMA_CM_EVENT_REJECTED)) {
+          struct jverbs_conn_param *param =
+              (struct jverbs_conn_param *)conn_param;
+          struct rdma_conn_param *conn = &cm_event->param.conn;
+          param->responder_resources = conn->responder_resources;
+          param->initiator_depth = conn->initiator_depth;
+          param->flow_control = conn->flow_control;
+          param->retry_count = conn->retry_count;
+          param->rnr_retry_count = conn->rnr_retry_count;
+          param->srq = conn->srq;
+          param->qp_num = conn->qp_num;
+          param->private_data_len = 0;
+          if (conn->private_data != NULL) {
+            param->private_data_len = conn->private_data_len;
+            memcpy(param->private_data, conn->private_data,
+                   conn->private_data_len);
+          }
+        }
         rdma_ack_cm_event(cm_event);
       }
     }
@@ -395,22 +493,26 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getCmEvent(
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _connect
- * Signature: (IJ)V
+ * Signature: (JIIIIIJB)V
  */
 JNIEXPORT void JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1connect(
     JNIEnv *env, jobject obj, jlong id, jint retry, jint rnr_retry,
+    jint responder_resources, jint initiator_depth, jint flow_control,
     jlong private_data_addr, jbyte private_data_len) {
   struct rdma_cm_id *cm_listen_id = NULL;
   struct rdma_conn_param conn_param;
 
   cm_listen_id = (struct rdma_cm_id *)id;
-  struct ibv_device_attr dev_attr;
-  ibv_query_device(cm_listen_id->verbs, &dev_attr);
 
   if (cm_listen_id != NULL) {
+    struct ibv_device_attr dev_attr;
+    ibv_query_device(cm_listen_id->verbs, &dev_attr);
     memset(&conn_param, 0, sizeof(conn_param));
-    conn_param.initiator_depth = dev_attr.max_qp_rd_atom;
-    conn_param.responder_resources = dev_attr.max_qp_rd_atom;
+    conn_param.initiator_depth =
+        clampRdAtomic(initiator_depth, dev_attr.max_qp_init_rd_atom);
+    conn_param.responder_resources =
+        clampRdAtomic(responder_resources, dev_attr.max_qp_rd_atom);
+    conn_param.flow_control = (uint8_t)flow_control;
     conn_param.retry_count = (unsigned char)retry;
     conn_param.rnr_retry_count = (unsigned char)rnr_retry;
     conn_param.private_data = (void *)private_data_addr;
@@ -433,23 +535,33 @@ JNIEXPORT void JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1connect(
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _accept
- * Signature: (IJ)V
+ * Signature: (JIIIIIIJB)V
  */
 JNIEXPORT void JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1accept(
-    JNIEnv *env, jobject obj, jlong id, jint retry, jint rnr_retry) {
+    JNIEnv *env, jobject obj, jlong id, jint retry, jint rnr_retry,
+    jint responder_resources, jint initiator_depth, jint flow_control,
+    jint qpnum, jlong private_data_addr, jbyte private_data_len) {
   struct rdma_cm_id *cm_listen_id = NULL;
   struct rdma_conn_param conn_param;
 
   cm_listen_id = (struct rdma_cm_id *)id;
-  struct ibv_device_attr dev_attr;
-  ibv_query_device(cm_listen_id->verbs, &dev_attr);
 
   if (cm_listen_id != NULL) {
+    struct ibv_device_attr dev_attr;
+    ibv_query_device(cm_listen_id->verbs, &dev_attr);
     memset(&conn_param, 0, sizeof(conn_param));
-    conn_param.initiator_depth = dev_attr.max_qp_rd_atom;
-    conn_param.responder_resources = dev_attr.max_qp_rd_atom;
+    conn_param.initiator_depth =
+        clampRdAtomic(initiator_depth, dev_attr.max_qp_init_rd_atom);
+    conn_param.responder_resources =
+        clampRdAtomic(responder_resources, dev_attr.max_qp_rd_atom);
+    conn_param.flow_control = (uint8_t)flow_control;
     conn_param.retry_count = (unsigned char)retry;
     conn_param.rnr_retry_count = (unsigned char)rnr_retry;
+    conn_param.private_data = (void *)private_data_addr;
+    conn_param.private_data_len = (unsigned char)private_data_len;
+    // used for ids without a qp of their own, e.g., answering a UD
+    // resolution with the qp of a datagram endpoint
+    conn_param.qp_num = (uint32_t)qpnum;
     int ret = rdma_accept(cm_listen_id, &conn_param);
     log("j2c::accept: ret %i\n", ret);
     if (ret == 0) {
@@ -767,33 +879,113 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createCQ(
   return obj_id;
 }
 
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _createCQEx
+ * Signature: (JJIII)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createCQEx(
+    JNIEnv *env, jobject obj, jlong ctx, jlong channel, jint ncqe,
+    jint comp_vector, jint wc_flags) {
+  struct ibv_context *context = NULL;
+  struct ibv_comp_channel *comp_channel = NULL;
+  struct ibv_cq_init_attr_ex attr;
+  unsigned long long obj_id = -1;
+
+  context = (struct ibv_context *)ctx;
+  comp_channel = (struct ibv_comp_channel *)channel;
+
+  if (context != NULL && comp_channel != NULL) {
+    memset(&attr, 0, sizeof(attr));
+    attr.cqe = (uint32_t)ncqe;
+    attr.channel = comp_channel;
+    attr.comp_vector = (uint32_t)comp_vector;
+    attr.wc_flags = IBV_WC_STANDARD_FLAGS | (uint64_t)wc_flags;
+    struct ibv_cq_ex *cq_ex = ibv_create_cq_ex(context, &attr);
+    if (cq_ex != NULL) {
+      // the ibv_cq is the prefix of the ibv_cq_ex, all other cq verbs
+      // continue to work on it
+      struct ibv_cq *cq = ibv_cq_ex_to_cq(cq_ex);
+      obj_id = createObjectId(cq);
+      log("j2c::createCQEx: obj_id %p, cq %p, size %u, wc_flags %i\n",
+          (void *)obj_id, (void *)cq, ncqe, wc_flags);
+    } else {
+      log("j2c::createCQEx: ibv_create_cq_ex failed\n");
+      JNU_ThrowIOExceptionWithLastError(
+          env, "j2c::createCQEx: ibv_create_cq_ex failed");
+    }
+  } else {
+    log("j2c::createCQEx: context or comp_channel null\n");
+    JNU_ThrowIOException(env,
+                         "j2c::createCQEx: context or comp_channel null\n");
+  }
+
+  return obj_id;
+}
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _modifyQP
- * Signature: (IIJ)V
+ * Signature: (JJI)I
  */
-JNIEXPORT void JNICALL
+JNIEXPORT jint JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1modifyQP(JNIEnv *env,
                                                           jobject obj, jlong qp,
-                                                          jlong addr) {
-  struct ibv_qp *queuepair = NULL;
-  struct ibv_qp_attr attr;
-  int attr_mask;
+                                                          jlong addr,
+                                                          jint attr_mask) {
+  struct ibv_qp *queuepair = (struct ibv_qp *)qp;
+  struct ibv_qp_attr *attr = (struct ibv_qp_attr *)addr;
+  jint ret = -1;
 
-  queuepair = (struct ibv_qp *)qp;
-  if (queuepair != NULL) {
-    int ret = ibv_modify_qp(queuepair, &attr, attr_mask);
+  if (queuepair != NULL && attr != NULL) {
+    ret = ibv_modify_qp(queuepair, attr, attr_mask);
     if (ret == 0) {
-      log("j2c::modify_qp: ret %i\n", ret);
+      log("j2c::modify_qp: qpnum %u, mask %i\n", queuepair->qp_num,
+          attr_mask);
     } else {
       log("j2c::modify_qp: ibv_modify_qp failed\n");
       JNU_ThrowIOExceptionWithReturnCode(
           env, "j2c::modify_qp: ibv_modify_qp failed", ret);
     }
   } else {
-    log("j2c::modify_qp: queuepair null\n");
-    JNU_ThrowIOException(env, "j2c::modify_qp: queuepair null\n");
+    log("j2c::modify_qp: queuepair or attr null\n");
+    JNU_ThrowIOException(env, "j2c::modify_qp: queuepair or attr null\n");
   }
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryQP
+ * Signature: (JJI)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryQP(JNIEnv *env,
+                                                         jobject obj, jlong qp,
+                                                         jlong addr,
+                                                         jint attr_mask) {
+  struct ibv_qp *queuepair = (struct ibv_qp *)qp;
+  struct ibv_qp_attr *attr = (struct ibv_qp_attr *)addr;
+  struct ibv_qp_init_attr init_attr;
+  jint ret = -1;
+
+  if (queuepair != NULL && attr != NULL) {
+    ret = ibv_query_qp(queuepair, attr, attr_mask, &init_attr);
+    if (ret == 0) {
+      log("j2c::query_qp: qpnum %u, mask %i\n", queuepair->qp_num, attr_mask);
+    } else {
+      log("j2c::query_qp: ibv_query_qp failed\n");
+      JNU_ThrowIOExceptionWithReturnCode(
+          env, "j2c::query_qp: ibv_query_qp failed", ret);
+    }
+  } else {
+    log("j2c::query_qp: queuepair or attr null\n");
+    JNU_ThrowIOException(env, "j2c::query_qp: queuepair or attr null\n");
+  }
+
+  return ret;
 }
 
 /*
@@ -864,19 +1056,22 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1expPrefetchMr(
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _regMr
- * Signature: (IIJIJJJ)V
+ * Signature: (JJJIJJJ)J
  */
 JNIEXPORT jlong JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1regMr(
-    JNIEnv *env, jobject obj, jlong pd, jlong address, jint len, jint access,
+    JNIEnv *env, jobject obj, jlong pd, jlong address, jlong len, jint access,
     jlong lkey, jlong rkey, jlong handle) {
   struct ibv_pd *protection = NULL;
   void *addr = (void *)address;
+  // a negative length together with a null address registers an implicit
+  // on-demand paging region covering the whole address space
+  size_t length = len < 0 ? SIZE_MAX : (size_t)len;
   // jint ret = -1;
   unsigned long long obj_id = -1;
 
   protection = (struct ibv_pd *)pd;
   if (protection != NULL) {
-    struct ibv_mr *mr = ibv_reg_mr(protection, addr, len, access);
+    struct ibv_mr *mr = ibv_reg_mr(protection, addr, length, access);
     if (mr != NULL) {
       obj_id = createObjectId(mr);
 
@@ -1048,6 +1243,272 @@ JNIEXPORT jint JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1pollCQ(
   return ret;
 }
 
+static void read_wc_ex(struct ibv_cq_ex *cq_ex, struct jverbs_wc_ts *slot) {
+  struct ibv_wc *wc = &slot->wc;
+
+  memset(slot, 0, sizeof(*slot));
+  wc->wr_id = cq_ex->wr_id;
+  wc->status = cq_ex->status;
+  wc->vendor_err = ibv_wc_read_vendor_err(cq_ex);
+  wc->qp_num = ibv_wc_read_qp_num(cq_ex);
+  slot->completion_ts = ibv_wc_read_completion_ts(cq_ex);
+  if (wc->status != IBV_WC_SUCCESS) {
+    // only wr_id, status, vendor_err and qp_num are valid for failed requests
+    return;
+  }
+  wc->opcode = ibv_wc_read_opcode(cq_ex);
+  wc->byte_len = ibv_wc_read_byte_len(cq_ex);
+  wc->wc_flags = ibv_wc_read_wc_flags(cq_ex);
+  if (wc->wc_flags & IBV_WC_WITH_IMM) {
+    wc->imm_data = ibv_wc_read_imm_data(cq_ex);
+  }
+  wc->src_qp = ibv_wc_read_src_qp(cq_ex);
+  wc->slid = ibv_wc_read_slid(cq_ex);
+  wc->sl = ibv_wc_read_sl(cq_ex);
+  wc->dlid_path_bits = ibv_wc_read_dlid_path_bits(cq_ex);
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _pollCQEx
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1pollCQEx(JNIEnv *env,
+                                                          jobject obj, jlong cq,
+                                                          jint ne,
+                                                          jlong wc_list) {
+  struct jverbs_wc_ts *slots = (struct jverbs_wc_ts *)wc_list;
+  struct ibv_poll_cq_attr attr;
+  int num_entries = (int)ne;
+  jint ret = -1;
+
+  if (cq == 0) {
+    JNU_ThrowIOException(env, "j2c::pollCQEx: completionqueue null");
+    return ret;
+  }
+
+  // objects of extended CQs are the ibv_cq prefix of the ibv_cq_ex
+  struct ibv_cq_ex *cq_ex = (struct ibv_cq_ex *)cq;
+  memset(&attr, 0, sizeof(attr));
+  int err = ibv_start_poll(cq_ex, &attr);
+  if (err == ENOENT) {
+    return 0;
+  } else if (err != 0) {
+    return ret;
+  }
+  ret = 0;
+  while (err == 0) {
+    read_wc_ex(cq_ex, &slots[ret]);
+    ret++;
+    if (ret == num_entries) {
+      break;
+    }
+    err = ibv_next_poll(cq_ex);
+  }
+  ibv_end_poll(cq_ex);
+  if (err != 0 && err != ENOENT) {
+    ret = -1;
+  }
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryRtValues
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryRtValues(JNIEnv *env,
+                                                               jobject obj,
+                                                               jlong ctx) {
+  struct ibv_context *context = (struct ibv_context *)ctx;
+  struct ibv_values_ex values;
+  jlong ret = -1;
+
+  if (context == NULL) {
+    JNU_ThrowIOException(env, "j2c::queryRtValues: context null");
+    return ret;
+  }
+  memset(&values, 0, sizeof(values));
+  values.comp_mask = IBV_VALUES_MASK_RAW_CLOCK;
+  int err = ibv_query_rt_values_ex(context, &values);
+  if (err != 0) {
+    log("j2c::queryRtValues: ibv_query_rt_values_ex failed\n");
+    JNU_ThrowIOExceptionWithReturnCode(
+        env, "j2c::queryRtValues: ibv_query_rt_values_ex failed", err);
+    return ret;
+  }
+  // the raw clock is reported in cycles, spread over the timespec
+  ret = (jlong)values.raw_clock.tv_sec * 1000000000LL +
+        (jlong)values.raw_clock.tv_nsec;
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryCoreClock
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryCoreClock(JNIEnv *env,
+                                                                jobject obj,
+                                                                jlong ctx) {
+  struct ibv_context *context = (struct ibv_context *)ctx;
+  struct ibv_device_attr_ex attr;
+  jlong ret = -1;
+
+  if (context == NULL) {
+    JNU_ThrowIOException(env, "j2c::queryCoreClock: context null");
+    return ret;
+  }
+  memset(&attr, 0, sizeof(attr));
+  int err = ibv_query_device_ex(context, NULL, &attr);
+  if (err != 0) {
+    log("j2c::queryCoreClock: ibv_query_device_ex failed\n");
+    JNU_ThrowIOExceptionWithReturnCode(
+        env, "j2c::queryCoreClock: ibv_query_device_ex failed", err);
+    return ret;
+  }
+  ret = (jlong)attr.hca_core_clock;
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _getAsyncEvent
+ * Signature: (JJI)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getAsyncEvent(
+    JNIEnv *env, jobject obj, jlong ctx, jlong event_buf, jint timeout) {
+  struct ibv_context *context = (struct ibv_context *)ctx;
+  struct jverbs_async_event *_event = (struct jverbs_async_event *)event_buf;
+  struct ibv_async_event async_event;
+  jint event = -1;
+
+  if (context == NULL) {
+    JNU_ThrowIOException(env, "j2c::getAsyncEvent: context null");
+    return event;
+  }
+
+  struct pollfd pollfdasync;
+  pollfdasync.fd = context->async_fd;
+  pollfdasync.events = POLLIN;
+  pollfdasync.revents = 0;
+  int ret = poll(&pollfdasync, 1, (int)timeout);
+  if (ret <= 0) {
+    return event;
+  }
+  ret = ibv_get_async_event(context, &async_event);
+  if (ret != 0) {
+    log("j2c::getAsyncEvent: ibv_get_async_event failed\n");
+    return event;
+  }
+
+  event = async_event.event_type;
+  memset(_event, 0, sizeof(*_event));
+  _event->event_type = async_event.event_type;
+  switch (async_event.event_type) {
+  case IBV_EVENT_CQ_ERR:
+    _event->obj_id = createObjectId(async_event.element.cq);
+    break;
+  case IBV_EVENT_QP_FATAL:
+  case IBV_EVENT_QP_REQ_ERR:
+  case IBV_EVENT_QP_ACCESS_ERR:
+  case IBV_EVENT_COMM_EST:
+  case IBV_EVENT_SQ_DRAINED:
+  case IBV_EVENT_PATH_MIG:
+  case IBV_EVENT_PATH_MIG_ERR:
+  case IBV_EVENT_QP_LAST_WQE_REACHED:
+    _event->obj_id = createObjectId(async_event.element.qp);
+    _event->element = async_event.element.qp->qp_num;
+    break;
+  case IBV_EVENT_SRQ_ERR:
+  case IBV_EVENT_SRQ_LIMIT_REACHED:
+    _event->obj_id = createObjectId(async_event.element.srq);
+    break;
+  case IBV_EVENT_PORT_ACTIVE:
+  case IBV_EVENT_PORT_ERR:
+  case IBV_EVENT_LID_CHANGE:
+  case IBV_EVENT_PKEY_CHANGE:
+  case IBV_EVENT_SM_CHANGE:
+  case IBV_EVENT_CLIENT_REREGISTER:
+  case IBV_EVENT_GID_CHANGE:
+    _event->element = async_event.element.port_num;
+    break;
+  default:
+    break;
+  }
+  log("j2c::getAsyncEvent: event %s, element %u\n",
+      ibv_event_type_str(async_event.event_type), _event->element);
+  ibv_ack_async_event(&async_event);
+
+  return event;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryDevice
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryDevice(JNIEnv *env,
+                                                             jobject obj,
+                                                             jlong ctx,
+                                                             jlong attr) {
+  struct ibv_context *context = (struct ibv_context *)ctx;
+  struct ibv_device_attr *dev_attr = (struct ibv_device_attr *)attr;
+  jint ret = -1;
+
+  if (context != NULL && dev_attr != NULL) {
+    ret = ibv_query_device(context, dev_attr);
+    if (ret != 0) {
+      log("j2c::queryDevice: ibv_query_device failed\n");
+      JNU_ThrowIOExceptionWithReturnCode(
+          env, "j2c::queryDevice: ibv_query_device failed", ret);
+    }
+  } else {
+    log("j2c::queryDevice: context or attr null\n");
+    JNU_ThrowIOException(env, "j2c::queryDevice: context or attr null");
+  }
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryPort
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryPort(JNIEnv *env,
+                                                           jobject obj,
+                                                           jlong ctx,
+                                                           jint port,
+                                                           jlong attr) {
+  struct ibv_context *context = (struct ibv_context *)ctx;
+  struct ibv_port_attr *port_attr = (struct ibv_port_attr *)attr;
+  jint ret = -1;
+
+  if (context != NULL && port_attr != NULL) {
+    ret = ibv_query_port(context, (uint8_t)port, port_attr);
+    if (ret != 0) {
+      log("j2c::queryPort: ibv_query_port failed, port %i\n", port);
+      JNU_ThrowIOExceptionWithReturnCode(
+          env, "j2c::queryPort: ibv_query_port failed", ret);
+    }
+  } else {
+    log("j2c::queryPort: context or attr null\n");
+    JNU_ThrowIOException(env, "j2c::queryPort: context or attr null");
+  }
+
+  return ret;
+}
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _reqNotifyCQ
@@ -1075,6 +1536,37 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1reqNotifyCQ(JNIEnv *env,
   return ret;
 }
 
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _modifyCQ
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1modifyCQ(JNIEnv *env,
+                                                          jobject obj, jlong cq,
+                                                          jint count,
+                                                          jint period) {
+  jint ret = ENOSYS;
+
+#ifdef HAVE_IBV_MODIFY_CQ
+  struct ibv_cq *completionqueue = (struct ibv_cq *)cq;
+  struct ibv_modify_cq_attr attr;
+
+  if (completionqueue != NULL) {
+    memset(&attr, 0, sizeof(attr));
+    attr.attr_mask = IBV_CQ_ATTR_MODERATE;
+    attr.moderate.cq_count = (uint16_t)count;
+    attr.moderate.cq_period = (uint16_t)period;
+    ret = ibv_modify_cq(completionqueue, &attr);
+    log("j2c::modifyCQ: count %i, period %i, ret %i\n", count, period, ret);
+  } else {
+    JNU_ThrowIOException(env, "j2c::modifyCQ:  completionqueue null");
+  }
+#endif
+
+  return ret;
+}
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _ackCqEvent
@@ -1158,6 +1650,264 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1destroyCQ(JNIEnv *env,
   return ret;
 }
 
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _createSrq
+ * Signature: (JIII)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createSrq(JNIEnv *env,
+                                                           jobject obj, jlong pd,
+                                                           jint maxwr,
+                                                           jint maxsge,
+                                                           jint srqlimit) {
+  struct ibv_pd *protection = NULL;
+  struct ibv_srq_init_attr srq_init_attr;
+  unsigned long long obj_id = -1;
+
+  protection = (struct ibv_pd *)pd;
+  if (protection != NULL) {
+    memset(&srq_init_attr, 0, sizeof srq_init_attr);
+    srq_init_attr.attr.max_wr = maxwr;
+    srq_init_attr.attr.max_sge = maxsge;
+    srq_init_attr.attr.srq_limit = srqlimit;
+
+    struct ibv_srq *srq = ibv_create_srq(protection, &srq_init_attr);
+    if (srq != NULL) {
+      obj_id = createObjectId(srq);
+      log("j2c::createSrq: obj_id %llu, max_wr %u, max_sge %u, srq_limit %u\n",
+          obj_id, srq_init_attr.attr.max_wr, srq_init_attr.attr.max_sge,
+          srq_init_attr.attr.srq_limit);
+    } else {
+      log("j2c::createSrq: ibv_create_srq failed %s\n", strerror(errno));
+      JNU_ThrowIOExceptionWithLastError(env,
+                                        "j2c::createSrq: ibv_create_srq failed");
+    }
+  } else {
+    log("j2c::createSrq: protection null\n");
+    JNU_ThrowIOException(env, "j2c::createSrq: protection null\n");
+  }
+
+  return obj_id;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _modifySrq
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1modifySrq(JNIEnv *env,
+                                                           jobject obj,
+                                                           jlong srq,
+                                                           jint srqlimit) {
+  struct ibv_srq *shared_rq = NULL;
+  struct ibv_srq_attr srq_attr;
+
+  shared_rq = (struct ibv_srq *)srq;
+  if (shared_rq != NULL) {
+    memset(&srq_attr, 0, sizeof srq_attr);
+    srq_attr.srq_limit = srqlimit;
+    int ret = ibv_modify_srq(shared_rq, &srq_attr, IBV_SRQ_LIMIT);
+    if (ret != 0) {
+      log("j2c::modifySrq: ibv_modify_srq failed %s\n", strerror(ret));
+      JNU_ThrowIOExceptionWithReturnCode(
+          env, "j2c::modifySrq: ibv_modify_srq failed", ret);
+    }
+  } else {
+    log("j2c::modifySrq: srq null\n");
+    JNU_ThrowIOException(env, "j2c::modifySrq: srq null\n");
+  }
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _postSrqRecv
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1postSrqRecv(JNIEnv *env,
+                                                             jobject obj,
+                                                             jlong srq,
+                                                             jlong wrList) {
+  struct ibv_srq *shared_rq = NULL;
+  struct ibv_recv_wr *wr = (struct ibv_recv_wr *)wrList;
+  struct ibv_recv_wr *bad_wr;
+
+  shared_rq = (struct ibv_srq *)srq;
+  if (shared_rq != NULL) {
+    int ret = ibv_post_srq_recv(shared_rq, wr, &bad_wr);
+    if (ret != 0) {
+      log("j2c::post_srq_recv: ibv_post_srq_recv failed %s\n", strerror(ret));
+      JNU_ThrowIOExceptionWithReturnCode(
+          env, "j2c::post_srq_recv: ibv_post_srq_recv failed", ret);
+    }
+  } else {
+    log("j2c::post_srq_recv: srq null\n");
+    JNU_ThrowIOException(env, "j2c::post_srq_recv: srq null\n");
+  }
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _destroySrq
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1destroySrq(JNIEnv *env,
+                                                            jobject obj,
+                                                            jlong srq) {
+  struct ibv_srq *shared_rq = NULL;
+  jint ret = -1;
+
+  shared_rq = (struct ibv_srq *)srq;
+  if (shared_rq != NULL) {
+    ret = ibv_destroy_srq(shared_rq);
+  }
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _createAh
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createAh(JNIEnv *env,
+                                                          jobject obj, jlong pd,
+                                                          jlong ahattr) {
+  struct ibv_pd *protection = NULL;
+  struct ibv_ah_attr *ah_attr = (struct ibv_ah_attr *)ahattr;
+  unsigned long long obj_id = -1;
+
+  protection = (struct ibv_pd *)pd;
+  if (protection != NULL && ah_attr != NULL) {
+    struct ibv_ah *ah = ibv_create_ah(protection, ah_attr);
+    if (ah != NULL) {
+      obj_id = createObjectId(ah);
+      log("j2c::createAh: obj_id %llu, dlid %u, port %u\n", obj_id,
+          ah_attr->dlid, ah_attr->port_num);
+    } else {
+      log("j2c::createAh: ibv_create_ah failed %s\n", strerror(errno));
+      JNU_ThrowIOExceptionWithLastError(env,
+                                        "j2c::createAh: ibv_create_ah failed");
+    }
+  } else {
+    log("j2c::createAh: protection or ah_attr null\n");
+    JNU_ThrowIOException(env, "j2c::createAh: protection or ah_attr null\n");
+  }
+
+  return obj_id;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _destroyAh
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1destroyAh(JNIEnv *env,
+                                                           jobject obj,
+                                                           jlong ah) {
+  struct ibv_ah *addr_handle = NULL;
+  jint ret = -1;
+
+  addr_handle = (struct ibv_ah *)ah;
+  if (addr_handle != NULL) {
+    ret = ibv_destroy_ah(addr_handle);
+  }
+
+  return ret;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _allocMw
+ * Signature: (JIJ)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1allocMw(JNIEnv *env,
+                                                         jobject obj, jlong pd,
+                                                         jint type,
+                                                         jlong rkey) {
+  struct ibv_pd *protection = (struct ibv_pd *)pd;
+  uint32_t *_rkey = (uint32_t *)rkey;
+  unsigned long long obj_id = -1;
+
+  if (protection != NULL && _rkey != NULL) {
+    struct ibv_mw *mw = ibv_alloc_mw(protection, (enum ibv_mw_type)type);
+    if (mw != NULL) {
+      obj_id = createObjectId(mw);
+      *_rkey = mw->rkey;
+      log("j2c::allocMw: obj_id %llu, type %i, rkey %u\n", obj_id, type,
+          mw->rkey);
+    } else {
+      log("j2c::allocMw: ibv_alloc_mw failed %s\n", strerror(errno));
+      JNU_ThrowIOExceptionWithLastError(env,
+                                        "j2c::allocMw: ibv_alloc_mw failed");
+    }
+  } else {
+    log("j2c::allocMw: protection or rkey null\n");
+    JNU_ThrowIOException(env, "j2c::allocMw: protection or rkey null\n");
+  }
+
+  return obj_id;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _bindMw
+ * Signature: (JJJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1bindMw(JNIEnv *env,
+                                                        jobject obj, jlong qp,
+                                                        jlong mw, jlong bind) {
+  struct ibv_qp *queuepair = (struct ibv_qp *)qp;
+  struct ibv_mw *window = (struct ibv_mw *)mw;
+  struct ibv_mw_bind *mw_bind = (struct ibv_mw_bind *)bind;
+  jint rkey = 0;
+
+  if (queuepair != NULL && window != NULL && mw_bind != NULL) {
+    int ret = ibv_bind_mw(queuepair, window, mw_bind);
+    if (ret == 0) {
+      // the provider assigns the new key when posting the bind
+      rkey = (jint)window->rkey;
+      log("j2c::bindMw: rkey %u, length %" PRIu64 "\n", window->rkey,
+          mw_bind->bind_info.length);
+    } else {
+      log("j2c::bindMw: ibv_bind_mw failed %s\n", strerror(ret));
+      JNU_ThrowIOExceptionWithReturnCode(env, "j2c::bindMw: ibv_bind_mw failed",
+                                         ret);
+    }
+  } else {
+    log("j2c::bindMw: queuepair, mw or bind null\n");
+    JNU_ThrowIOException(env, "j2c::bindMw: queuepair, mw or bind null\n");
+  }
+
+  return rkey;
+}
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _deallocMw
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1deallocMw(JNIEnv *env,
+                                                           jobject obj,
+                                                           jlong mw) {
+  struct ibv_mw *window = (struct ibv_mw *)mw;
+  jint ret = -1;
+
+  if (window != NULL) {
+    ret = ibv_dealloc_mw(window);
+  }
+
+  return ret;
+}
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _getQpNum
@@ -1253,79 +2003,196 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getPdHandle(JNIEnv *env,
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getSockAddrInSize
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getSockAddrInSize(JNIEnv *,
-                                                                   jobject) {
-  return sizeof(struct sockaddr_in);
-}
-
-/*
- * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvRecvWRSize
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvRecvWRSize(JNIEnv *,
-                                                                  jobject) {
-  return sizeof(struct ibv_recv_wr);
-}
-
-/*
- * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvSendWRSize
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvSendWRSize(JNIEnv *,
-                                                                  jobject) {
-  return sizeof(struct ibv_send_wr);
-}
-
-/*
- * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvSgeSize
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvSgeSize(JNIEnv *,
-                                                               jobject) {
-  return sizeof(struct ibv_sge);
-}
-
-/*
- * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvWCSize
- * Signature: ()I
+ * Method:    _getStructLayout
+ * Signature: (I[I)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvWCSize(JNIEnv *,
-                                                              jobject) {
-  return sizeof(struct ibv_wc);
-}
-
-/*
- * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getRemoteAddressOffset
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getRemoteAddressOffset(
-    JNIEnv *, jobject) {
-  return offsetof(struct ibv_send_wr, wr.rdma.remote_addr);
-}
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getStructLayout(
+    JNIEnv *env, jobject obj, jint structid, jintArray layout) {
+  jint fields[JVERBS_STRUCT_MAX_FIELDS];
+  jint count = 0;
+
+  switch (structid) {
+  case JVERBS_STRUCT_SOCKADDR_IN:
+    fields[count++] = sizeof(struct sockaddr_in);
+    fields[count++] = offsetof(struct sockaddr_in, sin_family);
+    fields[count++] = offsetof(struct sockaddr_in, sin_port);
+    fields[count++] = offsetof(struct sockaddr_in, sin_addr);
+    break;
+  case JVERBS_STRUCT_IBV_SGE:
+    fields[count++] = sizeof(struct ibv_sge);
+    fields[count++] = offsetof(struct ibv_sge, addr);
+    fields[count++] = offsetof(struct ibv_sge, length);
+    fields[count++] = offsetof(struct ibv_sge, lkey);
+    break;
+  case JVERBS_STRUCT_IBV_SEND_WR:
+    fields[count++] = sizeof(struct ibv_send_wr);
+    fields[count++] = offsetof(struct ibv_send_wr, wr_id);
+    fields[count++] = offsetof(struct ibv_send_wr, next);
+    fields[count++] = offsetof(struct ibv_send_wr, sg_list);
+    fields[count++] = offsetof(struct ibv_send_wr, num_sge);
+    fields[count++] = offsetof(struct ibv_send_wr, opcode);
+    fields[count++] = offsetof(struct ibv_send_wr, send_flags);
+    fields[count++] = offsetof(struct ibv_send_wr, imm_data);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.rdma.remote_addr);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.rdma.rkey);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.atomic.remote_addr);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.atomic.compare_add);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.atomic.swap);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.atomic.rkey);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.ud.ah);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.ud.remote_qpn);
+    fields[count++] = offsetof(struct ibv_send_wr, wr.ud.remote_qkey);
+    fields[count++] = offsetof(struct ibv_send_wr, bind_mw.mw);
+    fields[count++] = offsetof(struct ibv_send_wr, bind_mw.rkey);
+    fields[count++] = offsetof(struct ibv_send_wr, bind_mw.bind_info.mr);
+    fields[count++] = offsetof(struct ibv_send_wr, bind_mw.bind_info.addr);
+    fields[count++] = offsetof(struct ibv_send_wr, bind_mw.bind_info.length);
+    fields[count++] =
+        offsetof(struct ibv_send_wr, bind_mw.bind_info.mw_access_flags);
+    break;
+  case JVERBS_STRUCT_IBV_RECV_WR:
+    fields[count++] = sizeof(struct ibv_recv_wr);
+    fields[count++] = offsetof(struct ibv_recv_wr, wr_id);
+    fields[count++] = offsetof(struct ibv_recv_wr, next);
+    fields[count++] = offsetof(struct ibv_recv_wr, sg_list);
+    fields[count++] = offsetof(struct ibv_recv_wr, num_sge);
+    break;
+  case JVERBS_STRUCT_IBV_WC:
+    fields[count++] = sizeof(struct ibv_wc);
+    fields[count++] = offsetof(struct ibv_wc, wr_id);
+    fields[count++] = offsetof(struct ibv_wc, status);
+    fields[count++] = offsetof(struct ibv_wc, opcode);
+    fields[count++] = offsetof(struct ibv_wc, vendor_err);
+    fields[count++] = offsetof(struct ibv_wc, byte_len);
+    fields[count++] = offsetof(struct ibv_wc, imm_data);
+    fields[count++] = offsetof(struct ibv_wc, qp_num);
+    fields[count++] = offsetof(struct ibv_wc, src_qp);
+    fields[count++] = offsetof(struct ibv_wc, wc_flags);
+    fields[count++] = offsetof(struct ibv_wc, pkey_index);
+    fields[count++] = offsetof(struct ibv_wc, slid);
+    fields[count++] = offsetof(struct ibv_wc, sl);
+    fields[count++] = offsetof(struct ibv_wc, dlid_path_bits);
+    break;
+  case JVERBS_STRUCT_RDMA_UD_PARAM:
+    fields[count++] = sizeof(struct rdma_ud_param);
+    fields[count++] = offsetof(struct rdma_ud_param, ah_attr);
+    fields[count++] = sizeof(struct ibv_ah_attr);
+    fields[count++] = offsetof(struct rdma_ud_param, qp_num);
+    fields[count++] = offsetof(struct rdma_ud_param, qkey);
+    break;
+  case JVERBS_STRUCT_IBV_WC_TS:
+    fields[count++] = sizeof(struct jverbs_wc_ts);
+    fields[count++] = offsetof(struct jverbs_wc_ts, completion_ts);
+    break;
+  case JVERBS_STRUCT_ASYNC_EVENT:
+    fields[count++] = sizeof(struct jverbs_async_event);
+    fields[count++] = offsetof(struct jverbs_async_event, event_type);
+    fields[count++] = offsetof(struct jverbs_async_event, element);
+    fields[count++] = offsetof(struct jverbs_async_event, obj_id);
+    break;
+  case JVERBS_STRUCT_IBV_DEVICE_ATTR:
+    fields[count++] = sizeof(struct ibv_device_attr);
+    fields[count++] = offsetof(struct ibv_device_attr, max_mr_size);
+    fields[count++] = offsetof(struct ibv_device_attr, page_size_cap);
+    fields[count++] = offsetof(struct ibv_device_attr, vendor_id);
+    fields[count++] = offsetof(struct ibv_device_attr, vendor_part_id);
+    fields[count++] = offsetof(struct ibv_device_attr, hw_ver);
+    fields[count++] = offsetof(struct ibv_device_attr, max_qp);
+    fields[count++] = offsetof(struct ibv_device_attr, max_qp_wr);
+    fields[count++] = offsetof(struct ibv_device_attr, device_cap_flags);
+    fields[count++] = offsetof(struct ibv_device_attr, max_sge);
+    fields[count++] = offsetof(struct ibv_device_attr, max_sge_rd);
+    fields[count++] = offsetof(struct ibv_device_attr, max_cq);
+    fields[count++] = offsetof(struct ibv_device_attr, max_cqe);
+    fields[count++] = offsetof(struct ibv_device_attr, max_mr);
+    fields[count++] = offsetof(struct ibv_device_attr, max_pd);
+    fields[count++] = offsetof(struct ibv_device_attr, max_qp_rd_atom);
+    fields[count++] = offsetof(struct ibv_device_attr, max_qp_init_rd_atom);
+    fields[count++] = offsetof(struct ibv_device_attr, atomic_cap);
+    fields[count++] = offsetof(struct ibv_device_attr, max_mw);
+    fields[count++] = offsetof(struct ibv_device_attr, max_ah);
+    fields[count++] = offsetof(struct ibv_device_attr, max_srq);
+    fields[count++] = offsetof(struct ibv_device_attr, max_srq_wr);
+    fields[count++] = offsetof(struct ibv_device_attr, max_srq_sge);
+    fields[count++] = offsetof(struct ibv_device_attr, phys_port_cnt);
+    break;
+  case JVERBS_STRUCT_IBV_PORT_ATTR:
+    fields[count++] = sizeof(struct ibv_port_attr);
+    fields[count++] = offsetof(struct ibv_port_attr, state);
+    fields[count++] = offsetof(struct ibv_port_attr, max_mtu);
+    fields[count++] = offsetof(struct ibv_port_attr, active_mtu);
+    fields[count++] = offsetof(struct ibv_port_attr, gid_tbl_len);
+    fields[count++] = offsetof(struct ibv_port_attr, port_cap_flags);
+    fields[count++] = offsetof(struct ibv_port_attr, max_msg_sz);
+    fields[count++] = offsetof(struct ibv_port_attr, lid);
+    fields[count++] = offsetof(struct ibv_port_attr, sm_lid);
+    fields[count++] = offsetof(struct ibv_port_attr, active_width);
+    fields[count++] = offsetof(struct ibv_port_attr, active_speed);
+    fields[count++] = offsetof(struct ibv_port_attr, phys_state);
+    fields[count++] = offsetof(struct ibv_port_attr, link_layer);
+    break;
+  case JVERBS_STRUCT_IBV_QP_ATTR:
+    fields[count++] = sizeof(struct ibv_qp_attr);
+    fields[count++] = offsetof(struct ibv_qp_attr, qp_state);
+    fields[count++] = offsetof(struct ibv_qp_attr, cur_qp_state);
+    fields[count++] = offsetof(struct ibv_qp_attr, path_mtu);
+    fields[count++] = offsetof(struct ibv_qp_attr, path_mig_state);
+    fields[count++] = offsetof(struct ibv_qp_attr, qkey);
+    fields[count++] = offsetof(struct ibv_qp_attr, rq_psn);
+    fields[count++] = offsetof(struct ibv_qp_attr, sq_psn);
+    fields[count++] = offsetof(struct ibv_qp_attr, dest_qp_num);
+    fields[count++] = offsetof(struct ibv_qp_attr, qp_access_flags);
+    fields[count++] = offsetof(struct ibv_qp_attr, cap);
+    fields[count++] = offsetof(struct ibv_qp_attr, ah_attr);
+    fields[count++] = offsetof(struct ibv_qp_attr, alt_ah_attr);
+    fields[count++] = offsetof(struct ibv_qp_attr, pkey_index);
+    fields[count++] = offsetof(struct ibv_qp_attr, alt_pkey_index);
+    fields[count++] = offsetof(struct ibv_qp_attr, en_sqd_async_notify);
+    fields[count++] = offsetof(struct ibv_qp_attr, sq_draining);
+    fields[count++] = offsetof(struct ibv_qp_attr, max_rd_atomic);
+    fields[count++] = offsetof(struct ibv_qp_attr, max_dest_rd_atomic);
+    fields[count++] = offsetof(struct ibv_qp_attr, min_rnr_timer);
+    fields[count++] = offsetof(struct ibv_qp_attr, port_num);
+    fields[count++] = offsetof(struct ibv_qp_attr, timeout);
+    fields[count++] = offsetof(struct ibv_qp_attr, retry_cnt);
+    fields[count++] = offsetof(struct ibv_qp_attr, rnr_retry);
+    fields[count++] = offsetof(struct ibv_qp_attr, alt_port_num);
+    fields[count++] = offsetof(struct ibv_qp_attr, alt_timeout);
+    break;
+  case JVERBS_STRUCT_CONN_PARAM:
+    fields[count++] = sizeof(struct jverbs_conn_param);
+    fields[count++] = offsetof(struct jverbs_conn_param, private_data_len);
+    fields[count++] = offsetof(struct jverbs_conn_param, responder_resources);
+    fields[count++] = offsetof(struct jverbs_conn_param, initiator_depth);
+    fields[count++] = offsetof(struct jverbs_conn_param, flow_control);
+    fields[count++] = offsetof(struct jverbs_conn_param, retry_count);
+    fields[count++] = offsetof(struct jverbs_conn_param, rnr_retry_count);
+    fields[count++] = offsetof(struct jverbs_conn_param, srq);
+    fields[count++] = offsetof(struct jverbs_conn_param, qp_num);
+    fields[count++] = offsetof(struct jverbs_conn_param, private_data);
+    break;
+  case JVERBS_STRUCT_IBV_MW_BIND:
+    fields[count++] = sizeof(struct ibv_mw_bind);
+    fields[count++] = offsetof(struct ibv_mw_bind, wr_id);
+    fields[count++] = offsetof(struct ibv_mw_bind, send_flags);
+    fields[count++] = offsetof(struct ibv_mw_bind, bind_info.mr);
+    fields[count++] = offsetof(struct ibv_mw_bind, bind_info.addr);
+    fields[count++] = offsetof(struct ibv_mw_bind, bind_info.length);
+    fields[count++] = offsetof(struct ibv_mw_bind, bind_info.mw_access_flags);
+    break;
+  default:
+    log("j2c::getStructLayout: unknown struct %i\n", structid);
+    return -1;
+  }
 
-/*
- * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getRKeyOffset
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getRKeyOffset(JNIEnv *,
-                                                               jobject) {
-  return offsetof(struct ibv_send_wr, wr.rdma.rkey);
+  if (env->GetArrayLength(layout) < count) {
+    log("j2c::getStructLayout: struct %i, array too small, fields %i\n",
+        structid, count);
+    return count;
+  }
+  env->SetIntArrayRegion(layout, 0, count, fields);
+  return count;
 }
 
 /*
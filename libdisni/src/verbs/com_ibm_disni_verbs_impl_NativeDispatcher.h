@@ -28,13 +28,13 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createId(JNIEnv *, jobject,
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _createQP
- * Signature: (JJJJIIII)J
+ * Signature: (JJJJJIIII)J
  */
 JNIEXPORT jlong JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createQP(JNIEnv *, jobject,
                                                           jlong, jlong, jlong,
-                                                          jlong, jint, jint,
-                                                          jint, jint);
+                                                          jlong, jlong, jint,
+                                                          jint, jint, jint);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
@@ -75,28 +75,28 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1resolveRoute(JNIEnv *, jobject,
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _getCmEvent
- * Signature: (JJJI)I
+ * Signature: (JJJJJI)I
  */
 JNIEXPORT jint JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getCmEvent(JNIEnv *, jobject,
                                                             jlong, jlong, jlong,
-                                                            jint);
+                                                            jlong, jlong, jint);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _connect
- * Signature: (JIIJB)I
+ * Signature: (JIIIIIJB)V
  */
 JNIEXPORT void JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1connect(
-    JNIEnv *, jobject, jlong, jint, jint, jlong, jbyte);
+    JNIEnv *, jobject, jlong, jint, jint, jint, jint, jint, jlong, jbyte);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _accept
- * Signature: (JII)I
+ * Signature: (JIIIIIIJB)V
  */
 JNIEXPORT void JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1accept(
-    JNIEnv *, jobject, jlong, jint, jint);
+    JNIEnv *, jobject, jlong, jint, jint, jint, jint, jint, jint, jlong, jbyte);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
@@ -200,14 +200,33 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createCQ(JNIEnv *, jobject,
                                                           jlong, jlong, jint,
                                                           jint);
 
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _createCQEx
+ * Signature: (JJIII)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createCQEx(JNIEnv *, jobject,
+                                                            jlong, jlong, jint,
+                                                            jint, jint);
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _modifyQP
- * Signature: (JJ)I
+ * Signature: (JJI)I
  */
-JNIEXPORT void JNICALL
+JNIEXPORT jint JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1modifyQP(JNIEnv *, jobject,
-                                                          jlong, jlong);
+                                                          jlong, jlong, jint);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryQP
+ * Signature: (JJI)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryQP(JNIEnv *, jobject,
+                                                         jlong, jlong, jint);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
@@ -232,10 +251,10 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1expPrefetchMr(JNIEnv *env,
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _regMr
- * Signature: (JJIIJJJ)J
+ * Signature: (JJJIJJJ)J
  */
 JNIEXPORT jlong JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1regMr(
-    JNIEnv *, jobject, jlong, jlong, jint, jint, jlong, jlong, jlong);
+    JNIEnv *, jobject, jlong, jlong, jlong, jint, jlong, jlong, jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
@@ -280,6 +299,61 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getCqEvent(JNIEnv *, jobject,
 JNIEXPORT jint JNICALL Java_com_ibm_disni_verbs_impl_NativeDispatcher__1pollCQ(
     JNIEnv *, jobject, jlong, jint, jlong);
 
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _pollCQEx
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1pollCQEx(JNIEnv *, jobject,
+                                                          jlong, jint, jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryRtValues
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryRtValues(JNIEnv *,
+                                                               jobject, jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryCoreClock
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryCoreClock(JNIEnv *,
+                                                                jobject, jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _getAsyncEvent
+ * Signature: (JJI)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getAsyncEvent(JNIEnv *,
+                                                               jobject, jlong,
+                                                               jlong, jint);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryDevice
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryDevice(JNIEnv *, jobject,
+                                                             jlong, jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _queryPort
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1queryPort(JNIEnv *, jobject,
+                                                           jlong, jint, jlong);
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _reqNotifyCQ
@@ -289,6 +363,15 @@ JNIEXPORT jint JNICALL
 Java_com_ibm_disni_verbs_impl_NativeDispatcher__1reqNotifyCQ(JNIEnv *, jobject,
                                                              jlong, jint);
 
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _modifyCQ
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1modifyCQ(JNIEnv *, jobject,
+                                                          jlong, jint, jint);
+
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
  * Method:    _ackCqEvent
@@ -328,111 +411,140 @@ Java_com_ibm_disni_verbs_impl_NativeDispatcher__1destroyCQ(JNIEnv *, jobject,
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getContext
- * Signature: (J)J
+ * Method:    _createSrq
+ * Signature: (JIII)J
  */
 JNIEXPORT jlong JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getContext(JNIEnv *, jobject,
-                                                            jlong);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createSrq(JNIEnv *, jobject,
+                                                           jlong, jint, jint,
+                                                           jint);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getQpNum
- * Signature: (J)I
+ * Method:    _modifySrq
+ * Signature: (JI)V
  */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getQpNum(JNIEnv *, jobject,
-                                                          jlong);
+JNIEXPORT void JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1modifySrq(JNIEnv *, jobject,
+                                                           jlong, jint);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getContextFd
- * Signature: (J)I
+ * Method:    _postSrqRecv
+ * Signature: (JJ)V
  */
-JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getContextFd(JNIEnv *, jobject,
-                                                              jlong);
+JNIEXPORT void JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1postSrqRecv(JNIEnv *, jobject,
+                                                             jlong, jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getContextNumCompVectors
+ * Method:    _destroySrq
  * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getContextNumCompVectors(
-    JNIEnv *, jobject, jlong);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1destroySrq(JNIEnv *, jobject,
+                                                            jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getPdHandle
+ * Method:    _createAh
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1createAh(JNIEnv *, jobject,
+                                                          jlong, jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _destroyAh
  * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getPdHandle(JNIEnv *, jobject,
-                                                             jlong);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1destroyAh(JNIEnv *, jobject,
+                                                           jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getSockAddrInSize
- * Signature: ()I
+ * Method:    _getContext
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getContext(JNIEnv *, jobject,
+                                                            jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _allocMw
+ * Signature: (JIJ)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1allocMw(JNIEnv *, jobject,
+                                                         jlong, jint, jlong);
+
+/*
+ * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
+ * Method:    _bindMw
+ * Signature: (JJJ)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getSockAddrInSize(JNIEnv *,
-                                                                   jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1bindMw(JNIEnv *, jobject,
+                                                        jlong, jlong, jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvRecvWRSize
- * Signature: ()I
+ * Method:    _deallocMw
+ * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvRecvWRSize(JNIEnv *,
-                                                                  jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1deallocMw(JNIEnv *, jobject,
+                                                           jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvSendWRSize
- * Signature: ()I
+ * Method:    _getQpNum
+ * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvSendWRSize(JNIEnv *,
-                                                                  jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getQpNum(JNIEnv *, jobject,
+                                                          jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvSgeSize
- * Signature: ()I
+ * Method:    _getContextFd
+ * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvSgeSize(JNIEnv *,
-                                                               jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getContextFd(JNIEnv *, jobject,
+                                                              jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getIbvWCSize
- * Signature: ()I
+ * Method:    _getContextNumCompVectors
+ * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getIbvWCSize(JNIEnv *,
-                                                              jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getContextNumCompVectors(
+    JNIEnv *, jobject, jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getRemoteAddressOffset
- * Signature: ()I
+ * Method:    _getPdHandle
+ * Signature: (J)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getRemoteAddressOffset(
-    JNIEnv *, jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getPdHandle(JNIEnv *, jobject,
+                                                             jlong);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
- * Method:    _getRKeyOffset
- * Signature: ()I
+ * Method:    _getStructLayout
+ * Signature: (I[I)I
  */
 JNIEXPORT jint JNICALL
-Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getRKeyOffset(JNIEnv *,
-                                                               jobject);
+Java_com_ibm_disni_verbs_impl_NativeDispatcher__1getStructLayout(JNIEnv *,
+                                                                 jobject, jint,
+                                                                 jintArray);
 
 /*
  * Class:     com_ibm_disni_verbs_impl_NativeDispatcher
@@ -26,14 +26,50 @@ import java.io.IOException;
 import com.ibm.disni.verbs.IbvContext;
 import com.ibm.disni.verbs.IbvWC;
 
+/**
+ * Delivers work completions to active endpoints, either inline on the processor thread or, with a dispatcher 
+ * (setDispatcher()), through the serial lane of the endpoint.
+ */
 public class RdmaActiveCqProcessor<C extends RdmaActiveEndpoint> extends RdmaCqProcessor<C> {
+	private RdmaCqDispatcher dispatcher;
 	
 	public RdmaActiveCqProcessor(IbvContext context, int cqSize, int wrSize, long affinity, int clusterId, int timeout, boolean polling) throws IOException {
 		super(context, cqSize, wrSize, affinity, clusterId, timeout, polling);
 	}
+	
+	public RdmaActiveCqProcessor(IbvContext context, int cqSize, int wrSize, long affinity, int clusterId, int timeout, boolean polling, int wcFlags) throws IOException {
+		super(context, cqSize, wrSize, affinity, clusterId, timeout, polling, wcFlags);
+	}
+
+	public RdmaActiveCqProcessor(IbvContext context, int cqSize, int compVector, int wrSize, long affinity, int clusterId, int timeout, boolean polling, int wcFlags) throws IOException {
+		super(context, cqSize, compVector, wrSize, affinity, clusterId, timeout, polling, wcFlags);
+	}
+
+	/**
+	 * Hands completions over to the given dispatcher instead of delivering them inline. Must be called before start().
+	 */
+	public synchronized void setDispatcher(RdmaCqDispatcher dispatcher) {
+		if (isRunning()){
+			throw new IllegalStateException("CQ processor already running");
+		}
+		this.dispatcher = dispatcher;
+	}
+
+	public RdmaCqDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+	@Override
+	protected boolean isDispatchDeferred() {
+		return dispatcher != null;
+	}
 
 	@Override
 	public void dispatchCqEvent(C endpoint, IbvWC wc) throws IOException {
-		endpoint.dispatchCqEvent(wc);
+		if (dispatcher != null){
+			dispatcher.dispatch(this, endpoint, wc);
+		} else {
+			endpoint.dispatchCqEvent(wc);
+		}
 	}
 }
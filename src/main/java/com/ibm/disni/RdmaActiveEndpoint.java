@@ -28,10 +28,12 @@ import com.ibm.disni.verbs.RdmaCmId;
 
 public abstract class RdmaActiveEndpoint extends RdmaEndpoint {
 	RdmaActiveEndpointGroup<? extends RdmaActiveEndpoint> agroup;
+	RdmaCqDispatcher.Lane lane;
 	
 	public RdmaActiveEndpoint(RdmaActiveEndpointGroup<? extends RdmaActiveEndpoint> group, RdmaCmId idPriv, boolean serverSide) throws IOException {
 		super(group, idPriv, serverSide);
 		this.agroup = group;
+		this.lane = null;
 	}
 
 	/* (non-Javadoc)
@@ -22,7 +22,10 @@
 package com.ibm.disni;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 
@@ -36,50 +39,186 @@ import com.ibm.disni.util.DiSNILogger;
  * Extends the RdmaEndpointGroup by assigning active CQ processing units to endpoints. 
  * 
  * All endpoints within the same group with share one completion queue. The group takes care of processing the completion queue and delivering CQ events to the appropriate endpoints.
+ * 
+ * With setCqProcessors(), a device is served by several CQ processors, each with its own CQ, completion vector and thread. 
+ * A placement policy assigns every new endpoint to one of them. With setHybridPolling(), the processors spin for a bounded 
+ * time after each completion and block on the completion channel once the CQ goes quiet. setCqModeration() reduces the 
+ * number of completion events, and thus interrupts, of blocking processors. setCqDispatch() moves completion handling 
+ * off the processor threads onto an executor, keeping the completions of each endpoint in order.
  */
 public class RdmaActiveEndpointGroup<C extends RdmaActiveEndpoint> extends RdmaEndpointGroup<C> {
 	private static final Logger logger = DiSNILogger.getLogger();
-	private HashMap<Integer, RdmaActiveCqProcessor<C>> cqMap;
+	private HashMap<Integer, ArrayList<RdmaActiveCqProcessor<C>>> cqMap;
 	private int timeout;
 	private boolean polling;
 	protected int cqSize;
 	protected int maxSge;
 	protected int maxWR;		
+	protected int cqProcessors;
+	protected int[] cpuList;
+	protected RdmaCqPlacement placement;
+	protected long hybridSpinNanos;
+	protected RdmaCqModeration moderation;
+	protected int ackBatch;
+	protected RdmaCqDispatcher dispatcher;
 
 	public RdmaActiveEndpointGroup(int timeout, boolean polling, int maxWR, int maxSge, int cqSize) throws IOException {
 		super(timeout);
 		this.timeout = timeout;
 		this.polling = polling;
-		cqMap = new HashMap<Integer, RdmaActiveCqProcessor<C>>();
+		cqMap = new HashMap<Integer, ArrayList<RdmaActiveCqProcessor<C>>>();
 		this.cqSize = cqSize;
 		this.maxSge = maxSge;
 		this.maxWR = maxWR;
+		this.cqProcessors = 1;
+		this.cpuList = null;
+		this.placement = new RdmaCqPlacement.RoundRobin();
+		this.hybridSpinNanos = 0;
+		this.moderation = null;
+		this.ackBatch = 0;
+		this.dispatcher = null;
 		logger.info("active endpoint group, maxWR " + maxWR + ", maxSge " + maxSge + ", cqSize " + cqSize);
 	}
 	
-	public RdmaCqProvider createCqProvider(C endpoint) throws IOException {
+	/**
+	 * Sets the number of CQ processors per device. Processors are spread over the completion vectors of the device 
+	 * and, if a CPU list is given, pinned to the listed CPUs in turn. Must be called before the first endpoint is connected.
+	 *
+	 * @param count the number of CQ processors per device.
+	 * @param cpus the CPUs the processor threads are pinned to, processor i runs on cpus[i % cpus.length]. Null or empty leaves the threads unpinned. CPUs need to be below 63, the affinity mask is a positive long.
+	 */
+	public synchronized void setCqProcessors(int count, int... cpus) throws IOException {
+		if (!cqMap.isEmpty()){
+			throw new IOException("CQ processors need to be configured before connecting endpoints");
+		}
+		if (count <= 0){
+			throw new IllegalArgumentException("Invalid number of CQ processors " + count);
+		}
+		if (cpus != null){
+			for (int cpu : cpus){
+				if (cpu < 0 || cpu >= 63){
+					throw new IllegalArgumentException("CPU out of range for affinity mask, cpu " + cpu);
+				}
+			}
+		}
+		this.cqProcessors = count;
+		this.cpuList = cpus != null && cpus.length > 0 ? cpus.clone() : null;
+		logger.info("cq processors per device " + count + ", cpus " + Arrays.toString(cpuList));
+	}
+
+	/**
+	 * Sets the policy assigning endpoints to the CQ processors of a device, round-robin by default.
+	 */
+	public synchronized void setCqPlacement(RdmaCqPlacement placement) {
+		this.placement = placement;
+	}
+
+	/**
+	 * Enables hybrid spin-then-block polling on the CQ processors of this group, overriding the polling flag. 
+	 * Must be called before the first endpoint is connected.
+	 *
+	 * @param maxSpinNanos the maximum time a processor spins on an empty CQ before blocking, zero disables hybrid polling.
+	 */
+	public synchronized void setHybridPolling(long maxSpinNanos) throws IOException {
+		if (!cqMap.isEmpty()){
+			throw new IOException("CQ polling mode needs to be configured before connecting endpoints");
+		}
+		if (maxSpinNanos < 0){
+			throw new IllegalArgumentException("Invalid spin budget " + maxSpinNanos);
+		}
+		this.hybridSpinNanos = maxSpinNanos;
+		logger.info("hybrid cq polling, max spin " + maxSpinNanos + " ns");
+	}
+
+	/**
+	 * Sets the completion event moderation of the CQs of this group, fixed or adaptive. Every CQ processor gets its own 
+	 * copy of the given moderation. Must be called before the first endpoint is connected.
+	 *
+	 * @param moderation the moderation, null disables moderation.
+	 */
+	public synchronized void setCqModeration(RdmaCqModeration moderation) throws IOException {
+		if (!cqMap.isEmpty()){
+			throw new IOException("CQ moderation needs to be configured before connecting endpoints");
+		}
+		this.moderation = moderation;
+	}
+
+	/**
+	 * Sets the number of CQ events the processors acknowledge at once. Must be called before the first endpoint is connected.
+	 */
+	public synchronized void setCqAckBatch(int ackBatch) throws IOException {
+		if (!cqMap.isEmpty()){
+			throw new IOException("CQ ack batch needs to be configured before connecting endpoints");
+		}
+		if (ackBatch <= 0){
+			throw new IllegalArgumentException("Invalid ack batch " + ackBatch);
+		}
+		this.ackBatch = ackBatch;
+	}
+
+	/**
+	 * Hands work completions to the given executor instead of calling dispatchCqEvent() on the CQ processor threads. 
+	 * Completions of one endpoint are delivered in order, one at a time. Must be called before the first endpoint is connected.
+	 *
+	 * @param executor the executor running the completion handlers, null delivers completions inline.
+	 * @param queueSize the number of completions buffered per endpoint before the CQ processor spins.
+	 */
+	public synchronized void setCqDispatch(Executor executor, int queueSize) throws IOException {
+		if (!cqMap.isEmpty()){
+			throw new IOException("CQ dispatch needs to be configured before connecting endpoints");
+		}
+		this.dispatcher = executor != null ? new RdmaCqDispatcher(executor, queueSize) : null;
+	}
+
+	public synchronized RdmaCqDispatcher getCqDispatcher() {
+		return dispatcher;
+	}
+
+	public synchronized int getCqProcessors() {
+		return cqProcessors;
+	}
+	
+	public synchronized RdmaCqProvider createCqProvider(C endpoint) throws IOException {
 		logger.info("setting up cq processor");
 		IbvContext context = endpoint.getIdPriv().getVerbs();
 		if (context != null) {
 			logger.info("setting up cq processor, context found");
-			RdmaActiveCqProcessor<C> cqProcessor = null;
 			int key = context.getCmd_fd();
-			if (!cqMap.containsKey(key)) {
-				cqProcessor = new RdmaActiveCqProcessor<C>(context, cqSize, maxWR, 0, 1, timeout, polling);
-				cqMap.put(context.getCmd_fd(), cqProcessor);
-				cqProcessor.start();
+			ArrayList<RdmaActiveCqProcessor<C>> processors = cqMap.get(key);
+			if (processors == null) {
+				processors = new ArrayList<RdmaActiveCqProcessor<C>>(cqProcessors);
+				int compVectors = Math.max(1, context.getNumCompVectors());
+				for (int i = 0; i < cqProcessors; i++){
+					long affinity = cpuList != null ? 1L << cpuList[i % cpuList.length] : 0;
+					RdmaActiveCqProcessor<C> cqProcessor = new RdmaActiveCqProcessor<C>(context, sizeCq(context, cqSize), i % compVectors, 
+							sizeWr(context, maxWR), affinity, i, timeout, polling || hybridSpinNanos > 0, getCqWcFlags());
+					if (hybridSpinNanos > 0){
+						cqProcessor.setHybrid(hybridSpinNanos);
+					}
+					if (moderation != null){
+						cqProcessor.setModeration(moderation.copy());
+					}
+					if (ackBatch > 0){
+						cqProcessor.setAckBatch(ackBatch);
+					}
+					if (dispatcher != null){
+						cqProcessor.setDispatcher(dispatcher);
+					}
+					processors.add(cqProcessor);
+					cqProcessor.start();
+				}
+				cqMap.put(key, processors);
 			}
-			cqProcessor = cqMap.get(context.getCmd_fd());
-	
-			return cqProcessor;
+			int index = processors.size() == 1 ? 0 : placement.select(endpoint, processors);
+			return processors.get(index);
 		} else {
 			throw new IOException("setting up cq processor, no context found");
 		}		
 	}
 	
+	@SuppressWarnings("unchecked")
 	public IbvQP createQpProvider(C endpoint) throws IOException{
-		IbvContext context = endpoint.getIdPriv().getVerbs();
-		RdmaActiveCqProcessor<C> cqProcessor = cqMap.get(context.getCmd_fd());
+		RdmaActiveCqProcessor<C> cqProcessor = (RdmaActiveCqProcessor<C>) endpoint.getCqProvider();
 		IbvCQ cq = cqProcessor.getCQ();
 		
 		IbvQPInitAttr attr = new IbvQPInitAttr();
@@ -87,10 +226,15 @@ public class RdmaActiveEndpointGroup<C extends RdmaActiveEndpoint> extends RdmaE
 		attr.cap().setMax_recv_wr(maxWR);
 		attr.cap().setMax_send_sge(maxSge);
 		attr.cap().setMax_send_wr(maxWR);
-		attr.setQp_type(IbvQP.IBV_QPT_RC);
+		attr.setQp_type(endpoint.getQpType());
 		attr.setRecv_cq(cq);
 		attr.setSend_cq(cq);		
-		IbvQP qp = endpoint.getIdPriv().createQP(endpoint.getPd(), attr);		
+		RdmaSrqProvider srqProvider = createSrqProvider(endpoint);
+		if (srqProvider != null){
+			attr.setSrq(srqProvider.getSrq());
+			cqProcessor.setSrqProvider(srqProvider);
+		}
+		IbvQP qp = createQP(endpoint, attr);
 		
 		logger.info("registering endpoint with cq");
 		
@@ -104,15 +248,18 @@ public class RdmaActiveEndpointGroup<C extends RdmaActiveEndpoint> extends RdmaE
 	
 	public void close() throws IOException, InterruptedException {
 		super.close();
-		for (RdmaActiveCqProcessor<C> cqProcessor : cqMap.values()){
-			cqProcessor.close();
+		for (ArrayList<RdmaActiveCqProcessor<C>> processors : cqMap.values()){
+			for (RdmaActiveCqProcessor<C> cqProcessor : processors){
+				cqProcessor.close();
+			}
 		}
 	}
 
 	void close(RdmaEndpoint endpoint) throws IOException {
-		IbvContext context = endpoint.getIdPriv().getVerbs();
-		RdmaActiveCqProcessor<C> cqProcessor = cqMap.get(context.getCmd_fd());
-		cqProcessor.unregister(endpoint);
+		RdmaCqProvider cqProvider = endpoint.getCqProvider();
+		if (cqProvider != null){
+			((RdmaCqProcessor<?>) cqProvider).unregister(endpoint);
+		}
 	}
 	
 	public int getMaxWR() {
@@ -0,0 +1,154 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.HashMap;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.verbs.IbvAh;
+import com.ibm.disni.verbs.IbvPd;
+import com.ibm.disni.verbs.RdmaCm;
+import com.ibm.disni.verbs.RdmaCmEvent;
+import com.ibm.disni.verbs.RdmaCmId;
+import com.ibm.disni.verbs.RdmaConnParam;
+import com.ibm.disni.verbs.RdmaEventChannel;
+import com.ibm.disni.verbs.RdmaUdParam;
+import com.ibm.disni.util.DiSNILogger;
+
+/**
+ * Resolves the peers of a datagram endpoint and caches one address handle per destination.
+ * 
+ * A peer is resolved once through the RDMA CM (address and route resolution followed by a UD service ID resolution), 
+ * which yields the address handle attributes and the QP number of the datagram endpoint bound at the destination. 
+ * Resolution uses a private event channel and is performed synchronously.
+ */
+public class RdmaAhCache {
+	private static final Logger logger = DiSNILogger.getLogger();
+
+	private IbvPd pd;
+	private SocketAddress src;
+	private RdmaEventChannel cmChannel;
+	private HashMap<InetSocketAddress, RdmaUdPeer> peers;
+	private boolean isClosed;
+
+	public RdmaAhCache(IbvPd pd, SocketAddress src) throws IOException {
+		this.pd = pd;
+		this.src = src;
+		this.cmChannel = RdmaEventChannel.createEventChannel();
+		if (cmChannel == null){
+			throw new IOException("No RDMA device configured!");
+		}
+		this.peers = new HashMap<InetSocketAddress, RdmaUdPeer>();
+		this.isClosed = false;
+	}
+
+	/**
+	 * Returns the peer at the given address, resolving it if it is not cached yet.
+	 *
+	 * @param dst the address of a datagram endpoint.
+	 * @param timeout the resolution timeout in milliseconds.
+	 * @return the resolved peer.
+	 * @throws IOException if the peer cannot be resolved.
+	 */
+	public synchronized RdmaUdPeer resolve(InetSocketAddress dst, int timeout) throws IOException {
+		if (isClosed){
+			throw new IOException("Trying to resolve peer on closed address handle cache");
+		}
+		RdmaUdPeer peer = peers.get(dst);
+		if (peer != null){
+			return peer;
+		}
+
+		RdmaCmId id = cmChannel.createId(RdmaCm.RDMA_PS_UDP);
+		try {
+			long deadline = System.currentTimeMillis() + timeout;
+			id.resolveAddr(src, dst, timeout);
+			awaitEvent(id, RdmaCmEvent.EventType.RDMA_CM_EVENT_ADDR_RESOLVED, deadline);
+			id.resolveRoute(timeout);
+			awaitEvent(id, RdmaCmEvent.EventType.RDMA_CM_EVENT_ROUTE_RESOLVED, deadline);
+			id.connect(new RdmaConnParam());
+			RdmaCmEvent event = awaitEvent(id, RdmaCmEvent.EventType.RDMA_CM_EVENT_ESTABLISHED, deadline);
+
+			RdmaUdParam udParam = event.getUd();
+			IbvAh ah = pd.createAh(udParam);
+			peer = new RdmaUdPeer(dst, ah, udParam.getQp_num(), udParam.getQkey());
+			peers.put(dst, peer);
+			logger.info("resolved ud peer " + dst + ", qpn " + udParam.getQp_num());
+		} finally {
+			id.destroyId();
+		}
+		return peer;
+	}
+
+	/**
+	 * Drops a peer from the cache and destroys its address handle. Must not be called while work requests addressed to the peer are outstanding.
+	 *
+	 * @param dst the address of the peer.
+	 */
+	public synchronized void remove(InetSocketAddress dst) throws IOException {
+		RdmaUdPeer peer = peers.remove(dst);
+		if (peer != null){
+			peer.getAh().destroyAh();
+		}
+	}
+
+	public synchronized int size() {
+		return peers.size();
+	}
+
+	public synchronized void close() throws IOException {
+		if (isClosed){
+			return;
+		}
+		for (RdmaUdPeer peer : peers.values()){
+			peer.getAh().destroyAh();
+		}
+		peers.clear();
+		cmChannel.destroyEventChannel();
+		isClosed = true;
+	}
+
+	private RdmaCmEvent awaitEvent(RdmaCmId id, RdmaCmEvent.EventType expected, long deadline) throws IOException {
+		while (true){
+			int remaining = (int) (deadline - System.currentTimeMillis());
+			if (remaining <= 0){
+				throw new IOException("Timeout resolving ud peer, waiting for " + expected);
+			}
+			RdmaCmEvent event = cmChannel.getCmEvent(remaining);
+			if (event == null){
+				continue;
+			}
+			event.ackEvent();
+			if (event.getConnIdPriv() != id){
+				continue;
+			}
+			if (event.getEvent() != expected.ordinal()){
+				throw new IOException("Resolving ud peer failed, expected " + expected + ", got event " + event.getEvent());
+			}
+			return event;
+		}
+	}
+}
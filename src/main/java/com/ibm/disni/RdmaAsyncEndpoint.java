@@ -0,0 +1,526 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvRecvWR;
+import com.ibm.disni.verbs.IbvSendWR;
+import com.ibm.disni.verbs.IbvSge;
+import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.verbs.RdmaCmId;
+import com.ibm.disni.verbs.SVCPostRecv;
+import com.ibm.disni.verbs.SVCPostSend;
+
+/**
+ * An active endpoint with a future-based API for one-sided (read(), write()) and two-sided (send(), recv()) operations.
+ * 
+ * Operations are correlated with their completions through tagged wr_ids, callers never deal with work requests or 
+ * completions. Local buffers need to be registered with register(), or the group needs a registration cache 
+ * (RdmaEndpointGroup.setRegistrationCache()). 
+ * 
+ * Work requests are posted through one pooled SVC per queue. Concurrent callers are combined: whoever gets to post 
+ * takes all queued operations, up to a batch, and posts them with a single doorbell. Only the last work request of a 
+ * batch is signaled, the send queue completes in order so its completion also completes the unsignaled work requests 
+ * before it. Operations exceeding the queue depth wait until completions free up room.
+ * 
+ * Futures are completed on the thread dispatching completions, the CQ processor or the dispatcher of the group. 
+ * Dependent actions that block or take long should use the async variants of CompletableFuture.
+ */
+public class RdmaAsyncEndpoint extends RdmaActiveEndpoint {
+	private static final Logger logger = DiSNILogger.getLogger();
+	private static final long SEND_TAG = 0x4153000000000000L;
+	private static final long RECV_TAG = 0x4152000000000000L;
+	private static final long TAG_MASK = 0xFFFF000000000000L;
+	private static final int MAX_BATCH = 16;
+	private static final int OPCODE_RECV = -1;
+
+	private final TreeMap<Long, IbvMr> regions;
+	private final ConcurrentLinkedQueue<Op> sendBacklog;
+	private final ConcurrentLinkedQueue<Op> recvBacklog;
+	private final AtomicBoolean sendPosting;
+	private final AtomicBoolean recvPosting;
+	private volatile boolean failed;
+	private SVCPostSend sendCall;
+	private SVCPostRecv recvCall;
+	private int sendBatch;
+	private int sendDepth;
+	private Op[] sendRing;
+	private volatile long sendHead;
+	private volatile long sendTail;
+	private int recvDepth;
+	private Op[] recvRing;
+	private volatile long recvHead;
+	private volatile long recvTail;
+
+	public RdmaAsyncEndpoint(RdmaActiveEndpointGroup<? extends RdmaActiveEndpoint> group, RdmaCmId idPriv, boolean serverSide) throws IOException {
+		super(group, idPriv, serverSide);
+		this.regions = new TreeMap<Long, IbvMr>();
+		this.sendBacklog = new ConcurrentLinkedQueue<Op>();
+		this.recvBacklog = new ConcurrentLinkedQueue<Op>();
+		this.sendPosting = new AtomicBoolean(false);
+		this.recvPosting = new AtomicBoolean(false);
+		this.failed = false;
+	}
+
+	@Override
+	protected synchronized void init() throws IOException {
+		super.init();
+		if (isDatagram()){
+			return;
+		}
+		int depth = agroup.sizeWr(idPriv.getVerbs(), agroup.maxWR);
+		this.sendBatch = Math.max(1, Math.min(MAX_BATCH, depth));
+		this.sendCall = postSend(sendBatch, 1);
+		this.sendDepth = depth;
+		this.sendRing = new Op[ringSize(depth)];
+		this.sendHead = 0;
+		this.sendTail = 0;
+		
+		IbvSge sge = new IbvSge();
+		LinkedList<IbvSge> sgeList = new LinkedList<IbvSge>();
+		sgeList.add(sge);
+		IbvRecvWR recvWR = new IbvRecvWR();
+		recvWR.setWr_id(RECV_TAG);
+		recvWR.setSg_list(sgeList);
+		recvWR.setNum_sge(1);
+		LinkedList<IbvRecvWR> wrList = new LinkedList<IbvRecvWR>();
+		wrList.add(recvWR);
+		this.recvCall = postRecv(wrList);
+		this.recvDepth = depth;
+		this.recvRing = new Op[ringSize(depth)];
+		this.recvHead = 0;
+		this.recvTail = 0;
+		logger.info("async endpoint, queue depth " + depth + ", batch " + sendBatch);
+	}
+
+	/**
+	 * Registers a buffer for use as local buffer of the operations of this endpoint. The region is deregistered 
+	 * with deregister() or when the endpoint is closed.
+	 */
+	public IbvMr register(ByteBuffer buffer) throws IOException {
+		IbvMr mr = registerMemory(buffer).execute().free().getMr();
+		synchronized (regions) {
+			regions.put(mr.getAddr(), mr);
+		}
+		return mr;
+	}
+
+	public void deregister(IbvMr mr) throws IOException {
+		synchronized (regions) {
+			if (regions.remove(mr.getAddr()) == null){
+				throw new IOException("Trying to deregister foreign memory region, addr " + mr.getAddr());
+			}
+		}
+		deregisterMemory(mr);
+	}
+
+	/**
+	 * Reads remote memory into the remaining bytes of the local buffer.
+	 *
+	 * @return a future completed with the number of bytes read.
+	 */
+	public CompletableFuture<Integer> read(ByteBuffer localBuf, long remoteAddr, int rkey) {
+		return postOneSided(IbvSendWR.IBV_WR_RDMA_READ, localBuf, remoteAddr, rkey);
+	}
+
+	/**
+	 * Writes the remaining bytes of the local buffer to remote memory.
+	 *
+	 * @return a future completed with the number of bytes written.
+	 */
+	public CompletableFuture<Integer> write(ByteBuffer localBuf, long remoteAddr, int rkey) {
+		return postOneSided(IbvSendWR.IBV_WR_RDMA_WRITE, localBuf, remoteAddr, rkey);
+	}
+
+	/**
+	 * Sends the remaining bytes of the buffer as one message.
+	 *
+	 * @return a future completed with the number of bytes sent.
+	 */
+	public CompletableFuture<Integer> send(ByteBuffer buffer) {
+		return postOneSided(IbvSendWR.IBV_WR_SEND, buffer, 0, 0);
+	}
+
+	/**
+	 * Receives the next message into the remaining bytes of the buffer. Buffer position and limit are left untouched.
+	 *
+	 * @return a future completed with the size of the received message.
+	 */
+	public CompletableFuture<Integer> recv(ByteBuffer buffer) {
+		CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+		try {
+			checkState();
+			if (getSrqProvider() != null){
+				throw new IOException("Trying to post receive on endpoint with shared receive queue");
+			}
+			recvBacklog.add(newOp(OPCODE_RECV, buffer, 0, 0, future));
+			postRecvs();
+		} catch (IOException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * The number of send queue operations posted but not yet completed.
+	 */
+	public int getOutstandingSends() {
+		return (int) (sendTail - sendHead);
+	}
+
+	/**
+	 * The number of receives posted but not yet completed.
+	 */
+	public int getOutstandingRecvs() {
+		return (int) (recvTail - recvHead);
+	}
+
+	@Override
+	public void dispatchCqEvent(IbvWC wc) throws IOException {
+		long wrId = wc.getWr_id();
+		long tag = wrId & TAG_MASK;
+		if (tag == SEND_TAG){
+			completeSends(wrId & ~TAG_MASK, wc.getStatus());
+		} else if (tag == RECV_TAG){
+			completeRecv(wrId & ~TAG_MASK, wc.getStatus(), wc.getByte_len());
+		} else {
+			dispatchUntrackedCqEvent(wc);
+		}
+	}
+
+	/**
+	 * Handles completions of work requests posted directly through postSend() or postRecv().
+	 */
+	protected void dispatchUntrackedCqEvent(IbvWC wc) throws IOException {
+		logger.info("async endpoint, dropping untracked completion, wr_id " + wc.getWr_id());
+	}
+
+	@Override
+	public void close() throws IOException, InterruptedException {
+		if (isClosed()){
+			return;
+		}
+		failed = true;
+		try {
+			super.close();
+		} finally {
+			failAll(new IOException("Endpoint closed"));
+			synchronized (regions) {
+				for (IbvMr mr : regions.values()){
+					deregisterMemory(mr);
+				}
+				regions.clear();
+			}
+		}
+	}
+
+	//---------- posting
+
+	private CompletableFuture<Integer> postOneSided(int opcode, ByteBuffer buffer, long remoteAddr, int rkey) {
+		CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+		try {
+			checkState();
+			sendBacklog.add(newOp(opcode, buffer, remoteAddr, rkey, future));
+			postSends();
+		} catch (IOException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private void checkState() throws IOException {
+		if (failed || isClosed()){
+			throw new IOException("Trying to post operation on closed endpoint");
+		}
+		if (sendCall == null){
+			throw new IOException("Trying to post operation on unconnected or datagram endpoint");
+		}
+	}
+
+	private Op newOp(int opcode, ByteBuffer buffer, long remoteAddr, int rkey, CompletableFuture<Integer> future) throws IOException {
+		long address = MemoryUtils.getAddress(buffer) + buffer.position();
+		int length = buffer.remaining();
+		IbvMr mr = lookup(address, length);
+		IbvMr tempMr = null;
+		if (mr == null){
+			if (agroup.getRegistrationCache(pd) == null){
+				throw new IOException("Trying to post unregistered buffer, addr " + address + ", length " + length);
+			}
+			tempMr = registerMemory(buffer).execute().free().getMr();
+			mr = tempMr;
+		}
+		return new Op(opcode, address, length, mr.getLkey(), remoteAddr, rkey, tempMr, future);
+	}
+
+	private IbvMr lookup(long address, int length) {
+		synchronized (regions) {
+			Map.Entry<Long, IbvMr> entry = regions.floorEntry(address);
+			if (entry == null){
+				return null;
+			}
+			IbvMr mr = entry.getValue();
+			if (mr.getLongLength() >= 0 && address + length > mr.getAddr() + mr.getLongLength()){
+				return null;
+			}
+			return mr;
+		}
+	}
+
+	/**
+	 * Posts queued send queue operations. Whoever wins the posting flag posts on behalf of all callers, the 
+	 * loop re-checks the backlog after releasing the flag so no operation is left behind.
+	 */
+	private void postSends() {
+		while (!sendBacklog.isEmpty() && !failed && sendPosting.compareAndSet(false, true)) {
+			int count = 0;
+			long tail = sendTail;
+			try {
+				while (count < sendBatch && tail + count - sendHead < sendDepth) {
+					Op op = sendBacklog.poll();
+					if (op == null){
+						break;
+					}
+					long seq = tail + count;
+					sendRing[(int) (seq & (sendRing.length - 1))] = op;
+					SVCPostSend.SendWRMod wr = sendCall.getWrMod(count);
+					wr.setWr_id(SEND_TAG | seq);
+					wr.setOpcode(op.opcode);
+					wr.setSend_flags(0);
+					SVCPostSend.SgeMod sge = wr.getSgeMod(0);
+					sge.setAddr(op.address);
+					sge.setLength(op.length);
+					sge.setLkey(op.lkey);
+					if (op.opcode != IbvSendWR.IBV_WR_SEND){
+						wr.getRdmaMod().setRemote_addr(op.remoteAddr);
+						wr.getRdmaMod().setRkey(op.rkey);
+					}
+					count++;
+				}
+				if (count > 0){
+					sendCall.getWrMod(count - 1).setSend_flags(IbvSendWR.IBV_SEND_SIGNALED);
+					sendCall.setNumWr(count);
+					sendTail = tail + count;
+					sendCall.execute();
+				}
+			} catch (IOException e) {
+				logger.info("async endpoint, posting sends failed " + e.getMessage());
+				failed = true;
+				failAll(e);
+			} finally {
+				sendPosting.set(false);
+			}
+			if (count == 0 && sendTail - sendHead >= sendDepth){
+				//queue full, the next completion posts the backlog
+				return;
+			}
+		}
+	}
+
+	private void postRecvs() {
+		while (!recvBacklog.isEmpty() && !failed && recvPosting.compareAndSet(false, true)) {
+			boolean posted = false;
+			try {
+				while (recvTail - recvHead < recvDepth) {
+					Op op = recvBacklog.poll();
+					if (op == null){
+						break;
+					}
+					long seq = recvTail;
+					recvRing[(int) (seq & (recvRing.length - 1))] = op;
+					SVCPostRecv.RecvWRMod wr = recvCall.getWrMod(0);
+					wr.setWr_id(RECV_TAG | seq);
+					SVCPostSend.SgeMod sge = wr.getSgeMod(0);
+					sge.setAddr(op.address);
+					sge.setLength(op.length);
+					sge.setLkey(op.lkey);
+					recvTail = seq + 1;
+					recvCall.execute();
+					posted = true;
+				}
+			} catch (IOException e) {
+				logger.info("async endpoint, posting receives failed " + e.getMessage());
+				failed = true;
+				failAll(e);
+			} finally {
+				recvPosting.set(false);
+			}
+			if (!posted && recvTail - recvHead >= recvDepth){
+				return;
+			}
+		}
+	}
+
+	//---------- completion
+
+	/**
+	 * Completes all send queue operations up to the given one. Work requests before it were unsignaled and have 
+	 * completed successfully, a failed unsignaled work request generates its own completion.
+	 */
+	private void completeSends(long seq, int status) {
+		long head = sendHead;
+		while (head <= seq && head < sendTail) {
+			int index = (int) (head & (sendRing.length - 1));
+			Op op = sendRing[index];
+			sendRing[index] = null;
+			head++;
+			sendHead = head;
+			if (op == null){
+				//failed already
+				continue;
+			}
+			if (head - 1 == seq && status != IbvWC.IbvWcStatus.IBV_WC_SUCCESS.ordinal()){
+				op.fail(new IOException("RDMA operation failed, opcode " + op.opcode + ", status " + statusName(status)));
+			} else {
+				op.complete(op.length);
+			}
+		}
+		postSends();
+	}
+
+	private void completeRecv(long seq, int status, int byteLen) {
+		if (seq != recvHead || seq >= recvTail){
+			logger.info("async endpoint, unexpected receive completion, seq " + seq + ", head " + recvHead);
+			return;
+		}
+		int index = (int) (seq & (recvRing.length - 1));
+		Op op = recvRing[index];
+		recvRing[index] = null;
+		recvHead = seq + 1;
+		if (op == null){
+			return;
+		}
+		if (status != IbvWC.IbvWcStatus.IBV_WC_SUCCESS.ordinal()){
+			op.fail(new IOException("Receive failed, status " + statusName(status)));
+		} else {
+			op.complete(byteLen);
+		}
+		postRecvs();
+	}
+
+	private void failAll(IOException e) {
+		failRing(sendRing, e);
+		failRing(recvRing, e);
+		for (Op op = sendBacklog.poll(); op != null; op = sendBacklog.poll()){
+			op.fail(e);
+		}
+		for (Op op = recvBacklog.poll(); op != null; op = recvBacklog.poll()){
+			op.fail(e);
+		}
+	}
+
+	private static void failRing(Op[] ring, IOException e) {
+		if (ring == null){
+			return;
+		}
+		for (int i = 0; i < ring.length; i++){
+			Op op = ring[i];
+			if (op != null){
+				ring[i] = null;
+				op.fail(e);
+			}
+		}
+	}
+
+	private static String statusName(int status) {
+		try {
+			return IbvWC.IbvWcStatus.valueOf(status).name();
+		} catch (IllegalArgumentException e) {
+			return String.valueOf(status);
+		}
+	}
+
+	/**
+	 * The ring is a power of two for cheap indexing, the number of outstanding work requests is bounded by the queue depth.
+	 */
+	private static int ringSize(int depth) {
+		int size = 1;
+		while (size < depth){
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * An operation is completed or failed once, by the completion or by failAll(), whichever comes first.
+	 */
+	private static final class Op {
+		final int opcode;
+		final long address;
+		final int length;
+		final int lkey;
+		final long remoteAddr;
+		final int rkey;
+		final IbvMr tempMr;
+		final CompletableFuture<Integer> future;
+		final AtomicBoolean done;
+
+		Op(int opcode, long address, int length, int lkey, long remoteAddr, int rkey, IbvMr tempMr, CompletableFuture<Integer> future) {
+			this.opcode = opcode;
+			this.address = address;
+			this.length = length;
+			this.lkey = lkey;
+			this.remoteAddr = remoteAddr;
+			this.rkey = rkey;
+			this.tempMr = tempMr;
+			this.future = future;
+			this.done = new AtomicBoolean(false);
+		}
+
+		void complete(int bytes) {
+			if (done.compareAndSet(false, true)){
+				release();
+				future.complete(bytes);
+			}
+		}
+
+		void fail(Throwable e) {
+			if (done.compareAndSet(false, true)){
+				release();
+				future.completeExceptionally(e);
+			}
+		}
+
+		private void release() {
+			if (tempMr != null){
+				try {
+					tempMr.deregMr().execute().free();
+				} catch (IOException e) {
+					logger.info("async endpoint, releasing cached registration failed " + e.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import com.ibm.disni.verbs.IbvAsyncEvent;
+import com.ibm.disni.verbs.IbvContext;
+
+/**
+ * Receives the asynchronous events of the devices used by an endpoint group.
+ * 
+ * Listeners are called on the async event thread of the device, after the event has been delivered to the endpoint or SRQ it refers to. 
+ */
+public interface RdmaAsyncEventListener {
+	void onAsyncEvent(IbvContext context, IbvAsyncEvent event);
+}
@@ -0,0 +1,148 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.verbs.IbvAsyncEvent;
+import com.ibm.disni.verbs.IbvContext;
+import com.ibm.disni.util.DiSNILogger;
+
+/**
+ * Responsible for processing the asynchronous events of one device, e.g., QP errors, CQ overruns or port state changes.
+ * 
+ * Device contexts are shared by all groups of a process, and every event can only be read once. There is therefore 
+ * one processor per device, it delivers each event to all groups registered with it and stops once the last group 
+ * has unregistered.
+ */
+public class RdmaAsyncEventProcessor implements Runnable {
+	private static final Logger logger = DiSNILogger.getLogger();
+	private static final HashMap<Integer, RdmaAsyncEventProcessor> processors = new HashMap<Integer, RdmaAsyncEventProcessor>();
+
+	private IbvContext context;
+	private int cmdFd;
+	private CopyOnWriteArrayList<RdmaEndpointGroup<? extends RdmaEndpoint>> groups;
+	private Thread thread;
+	private AtomicBoolean closed;
+	private int timeout;
+
+	/**
+	 * Registers a group for the asynchronous events of a device, starting the processor of the device if needed.
+	 */
+	static RdmaAsyncEventProcessor register(RdmaEndpointGroup<? extends RdmaEndpoint> group, IbvContext context, int timeout) throws IOException {
+		synchronized (processors) {
+			int key = context.getCmd_fd();
+			RdmaAsyncEventProcessor asyncProcessor = processors.get(key);
+			if (asyncProcessor == null){
+				asyncProcessor = new RdmaAsyncEventProcessor(context, timeout);
+				processors.put(key, asyncProcessor);
+				asyncProcessor.start();
+			}
+			asyncProcessor.groups.addIfAbsent(group);
+			return asyncProcessor;
+		}
+	}
+
+	/**
+	 * Stops delivering events to the group, the last group to unregister shuts the processor down. The processor 
+	 * is closed outside the registry lock, joining its thread may take up to the poll timeout.
+	 */
+	void unregister(RdmaEndpointGroup<? extends RdmaEndpoint> group) throws IOException, InterruptedException {
+		boolean last = false;
+		synchronized (processors) {
+			groups.remove(group);
+			if (groups.isEmpty() && processors.get(cmdFd) == this){
+				processors.remove(cmdFd);
+				last = true;
+			}
+		}
+		if (last){
+			close();
+		}
+	}
+
+	private RdmaAsyncEventProcessor(IbvContext context, int timeout) throws IOException {
+		this.context = context;
+		this.cmdFd = context.getCmd_fd();
+		this.groups = new CopyOnWriteArrayList<RdmaEndpointGroup<? extends RdmaEndpoint>>();
+		this.thread = new Thread(this);
+		this.thread.setDaemon(true);
+		this.closed = new AtomicBoolean(true);
+		this.timeout = timeout;
+	}
+
+	public synchronized void start(){
+		closed.set(false);
+		thread.start();
+	}
+
+	public void run() {
+		logger.info("launching async event processor, cmd_fd " + cmdFd);
+		IbvAsyncEvent event;
+		while (!closed.get()) {
+			try {
+				event = context.getAsyncEvent(timeout);
+				if (event != null){
+					for (RdmaEndpointGroup<? extends RdmaEndpoint> group : groups){
+						try {
+							group.dispatchAsyncEvent(context, event);
+						} catch(IOException e){
+							logger.info("async event processing, group failed to handle event " + e.getMessage());
+						}
+					}
+				}
+			} catch(Throwable e){
+				if (closed.get()){
+					logger.info("async event looping closes, processor is shutdown");
+					break;
+				} else {
+					logger.info("async event processing, caught exception but keep going " + e.getMessage());
+					e.printStackTrace();
+				}
+			}
+		}
+		logger.info("terminating async event processing, closed " + closed);
+	}
+
+	/**
+	 * Close the event loop.
+	 */
+	public synchronized void close() throws IOException, InterruptedException {
+		logger.info("shutting down async event processor");
+		if (closed.get()){
+			return;
+		}
+
+		closed.set(true);
+		thread.join();
+		logger.info("async event processor down");
+	}
+
+	public IbvContext getContext() {
+		return context;
+	}
+}
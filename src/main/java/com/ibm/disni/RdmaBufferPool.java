@@ -0,0 +1,190 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.util.NativeMemory;
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvPd;
+
+/**
+ * A pool of fixed-size buffers carved out of one huge-page backed memory region.
+ * 
+ * Backing huge pages keep the translation tables of the device small for large pools. The memory is taken from 
+ * a hugetlbfs mount if one exists, from anonymous MAP_HUGETLB memory otherwise, and falls back to anonymous 
+ * memory advised for transparent huge pages if no huge pages are reserved. The whole pool is registered as a 
+ * single memory region, so all buffers share the same keys.
+ */
+public class RdmaBufferPool {
+	private static final Logger logger = DiSNILogger.getLogger();
+
+	public enum Backing {
+		HUGETLBFS, ANONYMOUS_HUGE, TRANSPARENT_HUGE
+	}
+	
+	private Backing backing;
+	private long baseAddress;
+	private long mappedLength;
+	private IbvMr mr;
+	private int slabSize;
+	private int slabCount;
+	private ByteBuffer[] slabs;
+	private int[] freeSlabs;
+	private int freeCount;
+	private BitSet allocated;
+	private boolean isClosed;
+
+	/**
+	 * Maps and registers a new pool.
+	 *
+	 * @param pd the protection domain the pool is registered with.
+	 * @param slabSize the size of each buffer.
+	 * @param slabCount the number of buffers.
+	 * @param access the access rights of the memory region.
+	 * @throws IOException if no memory can be mapped or the registration fails.
+	 */
+	public RdmaBufferPool(IbvPd pd, int slabSize, int slabCount, int access) throws IOException {
+		if (slabSize <= 0 || slabCount <= 0){
+			throw new IllegalArgumentException("Invalid buffer pool shape, slabSize " + slabSize + ", slabCount " + slabCount);
+		}
+		long hugePageSize = NativeMemory.getHugePageSize();
+		long length = ((long) slabSize)*slabCount;
+		this.mappedLength = (length + hugePageSize - 1) & ~(hugePageSize - 1);
+		this.baseAddress = map(mappedLength, hugePageSize);
+		try {
+			this.mr = pd.regMr(baseAddress, mappedLength, access).execute().free().getMr();
+		} catch (IOException e) {
+			NativeMemory.unmap(baseAddress, mappedLength);
+			throw e;
+		}
+		this.slabSize = slabSize;
+		this.slabCount = slabCount;
+		this.slabs = new ByteBuffer[slabCount];
+		this.freeSlabs = new int[slabCount];
+		for (int i = 0; i < slabCount; i++){
+			slabs[i] = NativeMemory.wrap(baseAddress + ((long) i)*slabSize, slabSize);
+			freeSlabs[i] = slabCount - 1 - i;
+		}
+		this.freeCount = slabCount;
+		this.allocated = new BitSet(slabCount);
+		this.isClosed = false;
+		logger.info("buffer pool, backing " + backing + ", slabSize " + slabSize + ", slabCount " + slabCount + ", mapped " + mappedLength + ", lkey " + mr.getLkey());
+	}
+
+	private long map(long length, long hugePageSize) throws IOException {
+		String mount = NativeMemory.getHugetlbfsMount();
+		if (mount != null){
+			try {
+				long address = NativeMemory.mapHugetlbfs(mount, length);
+				backing = Backing.HUGETLBFS;
+				return address;
+			} catch (IOException e) {
+				logger.info("hugetlbfs mapping at " + mount + " failed, " + e.getMessage());
+			}
+		}
+		try {
+			long address = NativeMemory.mapAnonymousHuge(length);
+			backing = Backing.ANONYMOUS_HUGE;
+			return address;
+		} catch (IOException e) {
+			logger.info("anonymous huge page mapping failed, " + e.getMessage() + ", falling back to transparent huge pages");
+		}
+		long address = NativeMemory.mapTransparentHuge(length, hugePageSize);
+		backing = Backing.TRANSPARENT_HUGE;
+		return address;
+	}
+
+	/**
+	 * Takes a buffer from the pool.
+	 *
+	 * @return a cleared buffer of slab size, or null if the pool is exhausted.
+	 */
+	public synchronized ByteBuffer allocate() throws IOException {
+		if (isClosed){
+			throw new IOException("Trying to allocate from closed buffer pool");
+		}
+		if (freeCount == 0){
+			return null;
+		}
+		int index = freeSlabs[--freeCount];
+		allocated.set(index);
+		ByteBuffer buffer = slabs[index];
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool.
+	 *
+	 * @param buffer a buffer obtained from allocate().
+	 * @throws IllegalArgumentException if the buffer does not belong to this pool or was already returned.
+	 */
+	public synchronized void free(ByteBuffer buffer) {
+		long offset = MemoryUtils.getAddress(buffer) - baseAddress;
+		int index = (int) (offset / slabSize);
+		if (offset < 0 || offset % slabSize != 0 || index >= slabCount || !allocated.get(index)){
+			throw new IllegalArgumentException("Buffer not allocated from this pool, offset " + offset);
+		}
+		allocated.clear(index);
+		freeSlabs[freeCount++] = index;
+	}
+
+	public IbvMr getMr() {
+		return mr;
+	}
+
+	public Backing getBacking() {
+		return backing;
+	}
+
+	public int getSlabSize() {
+		return slabSize;
+	}
+
+	public int getSlabCount() {
+		return slabCount;
+	}
+
+	public synchronized int getFreeCount() {
+		return freeCount;
+	}
+
+	/**
+	 * Deregisters and unmaps the pool. Buffers handed out must no longer be used.
+	 */
+	public synchronized void close() throws IOException {
+		if (isClosed){
+			return;
+		}
+		isClosed = true;
+		mr.deregMr().execute().free();
+		NativeMemory.unmap(baseAddress, mappedLength);
+		logger.info("buffer pool closed, backing " + backing + ", outstanding buffers " + (slabCount - freeCount));
+	}
+}
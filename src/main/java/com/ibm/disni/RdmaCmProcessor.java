@@ -102,8 +102,8 @@ public class RdmaCmProcessor implements Runnable {
 		logger.info("cm channel down");
 	}
 
-	RdmaCmId createId(short rdmaPsTcp) throws IOException {
-		RdmaCmId idPriv = cmChannel.createId(RdmaCm.RDMA_PS_TCP);
+	RdmaCmId createId(short rdma_ps) throws IOException {
+		RdmaCmId idPriv = cmChannel.createId(rdma_ps);
 		return idPriv;
 	}
 }
@@ -0,0 +1,245 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.SpinWait;
+import com.ibm.disni.verbs.IbvWC;
+
+/**
+ * Moves the handling of work completions off the CQ processor thread, see RdmaActiveEndpointGroup.setCqDispatch().
+ * 
+ * Every endpoint gets a serial lane: a bounded ring of work completion slots filled by the CQ processor and drained 
+ * by one task at a time on the given executor, a worker pool or, on JDK 21 and later, a virtual-thread-per-task 
+ * executor. Completions of one endpoint are thus handled in order, while a slow handler only holds up its own endpoint. 
+ * The CQ processor copies each completion into a slot of the ring and never parks; if the ring of an endpoint is full, 
+ * it spins until the lane has made room. A full lane thus holds up all endpoints of the processor, the queue size 
+ * needs to cover the bursts a handler may fall behind. The spin ends when the processor is closed, the completion 
+ * is then dropped. SRQ receive buffers of dispatched completions are recycled by the lane once the handler returns.
+ * 
+ * If the executor rejects a lane, the completions stay queued and the lane is scheduled again with the next 
+ * completion of the endpoint.
+ */
+public class RdmaCqDispatcher {
+	private static final Logger logger = DiSNILogger.getLogger();
+	private static final int MAX_BATCH = 64;
+	
+	private final Executor executor;
+	private final int queueSize;
+	private final AtomicLong dispatched;
+	private final AtomicLong stalls;
+	private final AtomicLong rejections;
+
+	/**
+	 * @param executor runs the lanes of the endpoints.
+	 * @param queueSize the number of completions buffered per endpoint, rounded up to a power of two.
+	 */
+	public RdmaCqDispatcher(Executor executor, int queueSize) {
+		if (executor == null){
+			throw new NullPointerException("No executor given");
+		}
+		if (queueSize <= 0 || queueSize > (1 << 30)){
+			throw new IllegalArgumentException("Invalid dispatch queue size " + queueSize);
+		}
+		this.executor = executor;
+		this.queueSize = queueSize;
+		this.dispatched = new AtomicLong(0);
+		this.stalls = new AtomicLong(0);
+		this.rejections = new AtomicLong(0);
+	}
+
+	/**
+	 * Hands a work completion over to the lane of the endpoint. Must only be called by the CQ processor serving the endpoint.
+	 *
+	 * @param processor the CQ processor serving the endpoint.
+	 * @param endpoint the endpoint owning the QP of the completion.
+	 * @param wc the completion, it is copied and may be reused once this method returns.
+	 * @throws IOException if the lane is full and the processor has been closed while waiting for room.
+	 */
+	public void dispatch(RdmaCqProcessor<?> processor, RdmaActiveEndpoint endpoint, IbvWC wc) throws IOException {
+		Lane lane = endpoint.lane;
+		if (lane == null){
+			lane = new Lane(endpoint);
+			endpoint.lane = lane;
+		}
+		lane.offer(wc, processor);
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * The number of completions handled by the lanes of this dispatcher.
+	 */
+	public long getDispatched() {
+		return dispatched.get();
+	}
+
+	/**
+	 * The number of times a CQ processor found the lane of an endpoint full and had to spin.
+	 */
+	public long getStalls() {
+		return stalls.get();
+	}
+
+	/**
+	 * The number of times the executor rejected a lane.
+	 */
+	public long getRejections() {
+		return rejections.get();
+	}
+
+	/**
+	 * The serial executor of one endpoint. The ring has a single producer, the CQ processor serving the endpoint, and 
+	 * a single consumer, the lane task which is scheduled on the executor at most once at a time.
+	 */
+	final class Lane implements Runnable {
+		private final RdmaActiveEndpoint endpoint;
+		private final IbvWC[] slots;
+		private final int mask;
+		private final AtomicBoolean scheduled;
+		private RdmaSrqProvider srq;
+		private volatile long head;
+		private volatile long tail;
+
+		Lane(RdmaActiveEndpoint endpoint) {
+			int capacity = 1;
+			while (capacity < queueSize){
+				capacity <<= 1;
+			}
+			this.endpoint = endpoint;
+			this.slots = new IbvWC[capacity];
+			for (int i = 0; i < capacity; i++){
+				slots[i] = new IbvWC();
+			}
+			this.mask = capacity - 1;
+			this.scheduled = new AtomicBoolean(false);
+			this.srq = null;
+			this.head = 0;
+			this.tail = 0;
+		}
+
+		void offer(IbvWC wc, RdmaCqProcessor<?> processor) throws IOException {
+			long t = tail;
+			if (t - head >= slots.length){
+				stalls.incrementAndGet();
+				while (t - head >= slots.length){
+					if (!processor.isRunning()){
+						throw new IOException("Trying to dispatch completion with closed CQ processor, wr_id " + wc.getWr_id());
+					}
+					if (!scheduled.get()){
+						//a previously rejected lane
+						schedule(false);
+					}
+					SpinWait.onSpinWait();
+				}
+			}
+			wc.copyTo(slots[(int) (t & mask)]);
+			RdmaSrqProvider srq = processor.getSrqProvider();
+			if (this.srq != srq){
+				//published to the lane by the write of the tail
+				this.srq = srq;
+			}
+			tail = t + 1;
+			if (!scheduled.get()){
+				schedule(true);
+			}
+		}
+
+		private void schedule(boolean log) {
+			if (scheduled.compareAndSet(false, true)){
+				execute(log);
+			}
+		}
+
+		/**
+		 * Submits the lane, which must be marked scheduled. A rejected lane is unmarked so that it can be submitted again.
+		 */
+		private void execute(boolean log) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				scheduled.set(false);
+				rejections.incrementAndGet();
+				if (log){
+					logger.info("cq dispatch, executor rejected lane, pending completions " + (tail - head) + ", " + e.getMessage());
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			long h = head;
+			int count = 0;
+			while (true){
+				while (h != tail && count < MAX_BATCH){
+					IbvWC wc = slots[(int) (h & mask)];
+					try {
+						endpoint.dispatchCqEvent(wc);
+					} catch (Exception e) {
+						logger.info("cq dispatch, caught exception but keep going " + e.getMessage());
+					}
+					recycle(wc);
+					h++;
+					head = h;
+					count++;
+				}
+				dispatched.addAndGet(count);
+				if (h != tail){
+					//yield the worker to other lanes, the lane stays scheduled
+					execute(true);
+					return;
+				}
+				scheduled.set(false);
+				if (h == tail || !scheduled.compareAndSet(false, true)){
+					return;
+				}
+				count = 0;
+			}
+		}
+
+		private void recycle(IbvWC wc) {
+			RdmaSrqProvider provider = srq;
+			if (provider != null && provider.isSrqCompletion(wc)){
+				try {
+					provider.recycle(wc);
+				} catch (Exception e) {
+					logger.info("cq dispatch, recycling receive buffer failed " + e.getMessage());
+				}
+			}
+		}
+	}
+}
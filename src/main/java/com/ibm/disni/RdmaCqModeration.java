@@ -0,0 +1,154 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+/**
+ * Completion event moderation of a CQ processor, see RdmaActiveEndpointGroup.setCqModeration().
+ * 
+ * A fixed moderation keeps the CQ at the given count and period. An adaptive moderation samples the completion rate 
+ * and picks the number of completions per event such that the processor wakes up at about the target event rate: the 
+ * moderation widens as the completion rate rises and narrows back to one completion per event as it falls. The period 
+ * bounds the latency added by moderation to about twice the expected time to collect a full batch.
+ */
+public class RdmaCqModeration {
+	private static final long SAMPLE_NANOS = 10000000L;
+	
+	private final boolean adaptive;
+	private final int maxCount;
+	private final int maxPeriod;
+	private final int targetEventRate;
+	private int count;
+	private int period;
+	private long windowStart;
+	private long windowCompletions;
+	private long updates;
+
+	/**
+	 * Fixed moderation.
+	 *
+	 * @param count the number of completions per event.
+	 * @param period the moderation timeout in microseconds.
+	 */
+	public RdmaCqModeration(int count, int period) {
+		this(false, count, period, 0);
+		this.count = count;
+		this.period = period;
+	}
+
+	/**
+	 * Adaptive moderation.
+	 *
+	 * @param maxCount the largest number of completions per event.
+	 * @param maxPeriod the largest moderation timeout in microseconds.
+	 * @param targetEventRate the number of completion events per second the moderation aims for under load.
+	 */
+	public RdmaCqModeration(int maxCount, int maxPeriod, int targetEventRate) {
+		this(true, maxCount, maxPeriod, targetEventRate);
+		if (targetEventRate <= 0){
+			throw new IllegalArgumentException("Invalid target event rate " + targetEventRate);
+		}
+	}
+
+	private RdmaCqModeration(boolean adaptive, int maxCount, int maxPeriod, int targetEventRate) {
+		if (maxCount < 1 || maxCount > 0xffff || maxPeriod < 0 || maxPeriod > 0xffff){
+			throw new IllegalArgumentException("CQ moderation out of range, count " + maxCount + ", period " + maxPeriod);
+		}
+		this.adaptive = adaptive;
+		this.maxCount = maxCount;
+		this.maxPeriod = maxPeriod;
+		this.targetEventRate = targetEventRate;
+		this.count = 1;
+		this.period = 0;
+		this.windowStart = System.nanoTime();
+		this.windowCompletions = 0;
+		this.updates = 0;
+	}
+
+	/**
+	 * Creates a moderation with the same settings and fresh state, every CQ processor needs its own instance.
+	 */
+	public RdmaCqModeration copy() {
+		if (adaptive){
+			return new RdmaCqModeration(maxCount, maxPeriod, targetEventRate);
+		} else {
+			return new RdmaCqModeration(count, period);
+		}
+	}
+
+	/**
+	 * Accounts the completions found after a wake-up of the processor.
+	 *
+	 * @param completions the number of completions dispatched, zero after a timeout.
+	 * @param now the current System.nanoTime().
+	 * @return true if count or period changed and the CQ needs to be modified.
+	 */
+	public boolean update(int completions, long now) {
+		windowCompletions += completions;
+		long elapsed = now - windowStart;
+		if (!adaptive || elapsed < SAMPLE_NANOS){
+			return false;
+		}
+		double rate = windowCompletions*1000000000.0/elapsed;
+		windowStart = now;
+		windowCompletions = 0;
+		
+		//power of two steps keep small rate fluctuations from modifying the CQ
+		int target = (int) Math.min(maxCount, Math.max(1, rate/targetEventRate));
+		int newCount = Math.min(maxCount, Integer.highestOneBit(target));
+		int newPeriod = 0;
+		if (newCount > 1){
+			newPeriod = (int) Math.min(maxPeriod, Math.max(1, 2000000.0*newCount/rate));
+		}
+		if (newCount == count && (newCount == 1 || Math.abs(newPeriod - period) <= period/2)){
+			return false;
+		}
+		count = newCount;
+		period = newPeriod;
+		updates++;
+		return true;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * The current number of completions per event.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * The current moderation timeout in microseconds.
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 * The number of times an adaptive moderation changed its settings.
+	 */
+	public long getUpdates() {
+		return updates;
+	}
+}
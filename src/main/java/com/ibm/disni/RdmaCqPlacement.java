@@ -0,0 +1,89 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which of the CQ processors of a device serves a new endpoint, see RdmaActiveEndpointGroup.setCqProcessors().
+ */
+public interface RdmaCqPlacement {
+
+	/**
+	 * Selects the CQ processor for an endpoint whose QP is about to be created.
+	 *
+	 * @param endpoint the endpoint, its destination address is known.
+	 * @param processors the CQ processors of the device the endpoint is bound to.
+	 * @return the index of the selected processor.
+	 */
+	int select(RdmaEndpoint endpoint, List<? extends RdmaCqProcessor<?>> processors) throws IOException;
+
+	/**
+	 * Assigns endpoints to processors in turn.
+	 */
+	public static class RoundRobin implements RdmaCqPlacement {
+		private AtomicInteger next = new AtomicInteger(0);
+
+		@Override
+		public int select(RdmaEndpoint endpoint, List<? extends RdmaCqProcessor<?>> processors) {
+			return (next.getAndIncrement() & Integer.MAX_VALUE) % processors.size();
+		}
+	}
+
+	/**
+	 * Assigns an endpoint to the processor serving the fewest QPs.
+	 */
+	public static class LeastLoaded implements RdmaCqPlacement {
+		@Override
+		public int select(RdmaEndpoint endpoint, List<? extends RdmaCqProcessor<?>> processors) {
+			int best = 0;
+			for (int i = 1; i < processors.size(); i++){
+				if (processors.get(i).getLoad() < processors.get(best).getLoad()){
+					best = i;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Assigns all endpoints connected to the same host to the same processor.
+	 */
+	public static class HashByPeer implements RdmaCqPlacement {
+		@Override
+		public int select(RdmaEndpoint endpoint, List<? extends RdmaCqProcessor<?>> processors) throws IOException {
+			SocketAddress dst = endpoint.getDstAddr();
+			int hash = 0;
+			if (dst instanceof InetSocketAddress && ((InetSocketAddress) dst).getAddress() != null){
+				hash = ((InetSocketAddress) dst).getAddress().hashCode();
+			} else if (dst != null){
+				hash = dst.hashCode();
+			}
+			hash ^= hash >>> 16;
+			return (hash & Integer.MAX_VALUE) % processors.size();
+		}
+	}
+}
@@ -22,7 +22,6 @@
 package com.ibm.disni;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 
@@ -30,66 +29,179 @@ import com.ibm.disni.verbs.IbvContext;
 import com.ibm.disni.verbs.IbvWC;
 import com.ibm.disni.verbs.SVCPollCq;
 import com.ibm.disni.verbs.SVCReqNotify;
+import com.ibm.disni.util.ConcurrentLongMap;
 import com.ibm.disni.util.DiSNILogger;
 import com.ibm.disni.util.NativeAffinity;
+import com.ibm.disni.util.SpinWait;
 /**
  * Extends the raw RdmaCqClient with active processing of CQ events.
  * 
- * This class has an event loop querying the CQ and delivering event to a ICqConsumer.
+ * This class has an event loop querying the CQ and delivering event to a ICqConsumer. The loop either busy-polls the CQ, 
+ * blocks on the completion channel, or, in hybrid mode (setHybrid()), spins for a while after each completion before arming 
+ * the CQ and blocking. The spin window adapts to the observed gaps between completions: it covers about twice the average 
+ * gap as long as gaps are shorter than the spin budget, and collapses to a minimum when the CQ is mostly idle.
+ * 
+ * When blocking, CQ events are acknowledged in batches (setAckBatch()) and the CQ can be set up with completion event 
+ * moderation (setModeration()) so that one interrupt covers several completions.
  */
 public abstract class RdmaCqProcessor<C extends RdmaEndpoint> extends RdmaCqProvider implements Runnable {
 	private static final Logger logger = DiSNILogger.getLogger();
 	
-	private static int MAX_ACK_COUNT = 1;
-	private IbvWC[] wcList;
+	private static int MAX_ACK_COUNT = 32;
+	private static final int MIN_SPIN_FRACTION = 16;
 	private SVCReqNotify reqNotify;
 	private SVCPollCq poll;
 	private int timeout;
 	private int ackCounter;
+	private int ackBatch;
+	private RdmaCqModeration moderation;
 	private boolean blocking;
-	private boolean running;
+	private volatile boolean running;
 	private long affinity;
 	private int clusterId;
 	private Thread thread;
 	private int wrSize;
-	private ConcurrentHashMap<Integer, C> qpMap;
+	private ConcurrentLongMap<C> qpMap;
+	private volatile RdmaSrqProvider srqProvider;
+	private boolean hybrid;
+	private long maxSpinNanos;
+	private volatile long spinWindow;
+	private long avgGap;
+	private volatile long spinHits;
+	private volatile long blocks;
 	
 	public RdmaCqProcessor(IbvContext context, int cqSize, int wrSize, long affinity, int clusterId, int timeout, boolean polling) throws IOException {
-		super(context, cqSize);
+		this(context, cqSize, wrSize, affinity, clusterId, timeout, polling, 0);
+	}
+	
+	public RdmaCqProcessor(IbvContext context, int cqSize, int wrSize, long affinity, int clusterId, int timeout, boolean polling, int wcFlags) throws IOException {
+		this(context, cqSize, 0, wrSize, affinity, clusterId, timeout, polling, wcFlags);
+	}
+
+	public RdmaCqProcessor(IbvContext context, int cqSize, int compVector, int wrSize, long affinity, int clusterId, int timeout, boolean polling, int wcFlags) throws IOException {
+		super(context, cqSize, compVector, wcFlags);
 		this.clusterId = clusterId;
 		this.affinity = affinity;
 		this.running = false;
 		this.wrSize = Math.min(cqSize, wrSize);
-		this.wcList = new IbvWC[this.wrSize];
-		for (int i = 0; i < wcList.length; i++){
-			wcList[i] = new IbvWC();
-		}
 		this.blocking = !polling;
-		this.ackCounter = 0;	 			
+		this.ackCounter = 0;
+		this.ackBatch = MAX_ACK_COUNT;
+		this.moderation = null;
 		
 		this.reqNotify = cq.reqNotification(false);
-		this.poll = cq.poll(wcList, wcList.length);
+		this.poll = cq.poll(this.wrSize);
 		this.timeout = timeout;
 		
 		if (blocking){
 			reqNotify.execute();
 		} 
 		
-		this.qpMap = new ConcurrentHashMap<Integer, C>();
+		this.qpMap = new ConcurrentLongMap<C>();
 		this.thread = new Thread(this);
+		this.hybrid = false;
+		this.maxSpinNanos = 0;
+		this.spinWindow = 0;
+		this.avgGap = 0;
+		this.spinHits = 0;
+		this.blocks = 0;
+	}
+
+	/**
+	 * Switches this processor to hybrid spin-then-block polling. Must be called before start().
+	 *
+	 * @param maxSpinNanos the maximum time spent spinning on an empty CQ before blocking.
+	 */
+	public synchronized void setHybrid(long maxSpinNanos) {
+		if (running){
+			throw new IllegalStateException("CQ processor already running");
+		}
+		if (maxSpinNanos <= 0){
+			throw new IllegalArgumentException("Invalid spin budget " + maxSpinNanos);
+		}
+		this.hybrid = true;
+		this.blocking = false;
+		this.maxSpinNanos = maxSpinNanos;
+		this.spinWindow = maxSpinNanos;
+	}
+
+	/**
+	 * Sets the number of CQ events acknowledged at once. Must be called before start().
+	 */
+	public synchronized void setAckBatch(int ackBatch) {
+		if (running){
+			throw new IllegalStateException("CQ processor already running");
+		}
+		if (ackBatch <= 0){
+			throw new IllegalArgumentException("Invalid ack batch " + ackBatch);
+		}
+		this.ackBatch = ackBatch;
+	}
+
+	public int getAckBatch() {
+		return ackBatch;
+	}
+
+	/**
+	 * Sets the completion event moderation of the CQ. Only takes effect for blocking and hybrid processors, 
+	 * must be called before start().
+	 */
+	public synchronized void setModeration(RdmaCqModeration moderation) {
+		if (running){
+			throw new IllegalStateException("CQ processor already running");
+		}
+		this.moderation = moderation;
+	}
+
+	public RdmaCqModeration getModeration() {
+		return moderation;
+	}
+
+	public boolean isHybrid() {
+		return hybrid;
+	}
+
+	/**
+	 * The current spin window of a hybrid processor in nanoseconds.
+	 */
+	public long getSpinWindow() {
+		return spinWindow;
+	}
+
+	/**
+	 * The number of times a hybrid processor found a completion while spinning.
+	 */
+	public long getSpinHits() {
+		return spinHits;
+	}
+
+	/**
+	 * The number of times a hybrid processor armed the CQ and blocked.
+	 */
+	public long getBlocks() {
+		return blocks;
 	}
 	
-	public synchronized void registerQP(int qpnum, C endpoint) throws IOException {
+	public void registerQP(int qpnum, C endpoint) throws IOException {
 		qpMap.put(qpnum, endpoint);
 	}
 	
-	public synchronized void unregister(RdmaEndpoint endpoint) throws IOException {
+	public void unregister(RdmaEndpoint endpoint) throws IOException {
 		logger.info("unregister ep with cq processor");
-		if (qpMap.containsKey(endpoint.getQp().getQp_num())){
-			qpMap.remove(endpoint.getQp().getQp_num());
-		}
+		qpMap.remove(endpoint.getQp().getQp_num());
 	}
 	
+	/**
+	 * The number of QPs currently served by this processor.
+	 */
+	public int getLoad() {
+		return qpMap.size();
+	}
+
+	public long getAffinity() {
+		return affinity;
+	}
+
 	public synchronized boolean isRunning() {
 		return running;
 	}
@@ -99,44 +211,86 @@ public abstract class RdmaCqProcessor<C extends RdmaEndpoint> extends RdmaCqProv
 		thread.start();
 	}
 	
+	/**
+	 * Recycles receive buffers of the given shared receive queue once their completions have been dispatched.
+	 */
+	public void setSrqProvider(RdmaSrqProvider srqProvider) {
+		this.srqProvider = srqProvider;
+	}
+
 	public final void dispatchCqEvent(IbvWC wc) throws IOException {
-		Integer qpNum = wc.getQp_num();
-		C clientEndpoint = qpMap.get(qpNum);
-		if (clientEndpoint != null) {
-			dispatchCqEvent(clientEndpoint, wc);
+		C clientEndpoint = qpMap.get(wc.getQp_num());
+		RdmaSrqProvider srq = this.srqProvider;
+		boolean deferred = false;
+		try {
+			if (clientEndpoint != null) {
+				deferred = isDispatchDeferred();
+				dispatchCqEvent(clientEndpoint, wc);
+			}
+		} finally {
+			if (!deferred && srq != null && srq.isSrqCompletion(wc)){
+				srq.recycle(wc);
+			}
 		}
 	}	
 	
+	public RdmaSrqProvider getSrqProvider() {
+		return srqProvider;
+	}
+
+	/**
+	 * Whether dispatchCqEvent() only hands completions over to be handled later. The SRQ receive buffer of a 
+	 * deferred completion is recycled by whoever handles it, not by the processor.
+	 */
+	protected boolean isDispatchDeferred() {
+		return false;
+	}
+
+	/**
+	 * Delivers a work completion to the endpoint owning the QP. The work completion is a view on the
+	 * native completion buffer and is only valid until the next poll, use IbvWC.clone() to keep it.
+	 * 
+	 * With a shared receive queue, the receive buffer of the completion (RdmaSrqProvider.getBuffer()) is 
+	 * recycled as soon as this method returns.
+	 */
 	public abstract void dispatchCqEvent(C endpoint, IbvWC wc) throws IOException;
 	
 	public void run() {
 		NativeAffinity.setAffinity(affinity);
-		logger.info("running cq processing, index " + clusterId + ", affinity " + affinity + ", blocking " + blocking);
+		logger.info("running cq processing, index " + clusterId + ", affinity " + affinity + ", blocking " + blocking + ", hybrid " + hybrid);
 		running = true;
+		if (blocking || hybrid){
+			applyModeration();
+		}
+		if (hybrid){
+			runHybrid();
+			return;
+		}
 		while (running) {
 			try {
 				boolean success = true;
 				if (blocking){
 					success = compChannel.getCqEvent(cq, timeout);
 					if (success){
-						this.ackCounter++;
-						if (ackCounter == MAX_ACK_COUNT){
-							cq.ackEvents(ackCounter);
-							ackCounter = 0;
-						}
+						ackEvent();
 						reqNotify.execute();
 					}
 				}
 				int res = -1;
+				int completions = 0;
 				if (success){
 					res = poll.execute().getPolls();
 				}
 				while (res > 0) {
 					for (int i = 0; i < res; i++) {
-						this.dispatchCqEvent(wcList[i]);
+						this.dispatchCqEvent(poll.getWC(i));
 					}
+					completions += res;
 					res = poll.execute().getPolls();
 				}
+				if (blocking){
+					moderate(completions);
+				}
 			} catch (Exception e) {
 				if (isClosed()) {
 					logger.info("error " + e.getMessage());
@@ -150,6 +304,125 @@ public abstract class RdmaCqProcessor<C extends RdmaEndpoint> extends RdmaCqProv
 		logger.info("terminating cq polling " + isClosed());
 	}
 
+	private void runHybrid() {
+		//the last completion seen, for measuring the gaps between completions, 0 before the first one
+		long lastCompletion = 0;
+		//the start of the current spin phase, after a completion or a wake-up
+		long spinStart = System.nanoTime();
+		boolean armed = false;
+		while (running) {
+			try {
+				int res = poll.execute().getPolls();
+				if (res > 0){
+					long now = System.nanoTime();
+					if (now - spinStart <= spinWindow){
+						spinHits++;
+					}
+					if (lastCompletion != 0){
+						adaptSpinWindow(now - lastCompletion);
+					}
+					lastCompletion = now;
+					spinStart = now;
+					int completions = 0;
+					while (res > 0) {
+						for (int i = 0; i < res; i++) {
+							this.dispatchCqEvent(poll.getWC(i));
+						}
+						completions += res;
+						res = poll.execute().getPolls();
+					}
+					moderate(completions);
+					continue;
+				}
+				if (System.nanoTime() - spinStart < spinWindow){
+					SpinWait.onSpinWait();
+					continue;
+				}
+				
+				//arm the CQ, then poll once more to catch completions that arrived before it was armed
+				if (!armed){
+					reqNotify.execute();
+					armed = true;
+					res = poll.execute().getPolls();
+					if (res > 0){
+						for (int i = 0; i < res; i++) {
+							this.dispatchCqEvent(poll.getWC(i));
+						}
+						long now = System.nanoTime();
+						if (lastCompletion != 0){
+							adaptSpinWindow(now - lastCompletion);
+						}
+						lastCompletion = now;
+						spinStart = now;
+						continue;
+					}
+				}
+				blocks++;
+				if (compChannel.getCqEvent(cq, timeout)){
+					armed = false;
+					ackEvent();
+				} else {
+					moderate(0);
+				}
+				spinStart = System.nanoTime();
+			} catch (Exception e) {
+				if (isClosed()) {
+					logger.info("error " + e.getMessage());
+					break;
+				} else {
+					logger.info("cq processing, caught exception but keep going " + e.getMessage());
+					e.printStackTrace();
+				}
+			}
+		}
+		logger.info("terminating cq polling " + isClosed());
+	}
+
+	private void ackEvent() throws IOException {
+		this.ackCounter++;
+		if (ackCounter >= ackBatch){
+			cq.ackEvents(ackCounter);
+			ackCounter = 0;
+		}
+	}
+
+	private void applyModeration() {
+		if (moderation == null){
+			return;
+		}
+		try {
+			int ret = cq.modifyCQ(moderation.getCount(), moderation.getPeriod());
+			if (ret != 0){
+				logger.info("cq moderation not available, ret " + ret + ", index " + clusterId);
+				moderation = null;
+			} else {
+				logger.info("cq moderation, index " + clusterId + ", count " + moderation.getCount() + ", period " + moderation.getPeriod());
+			}
+		} catch (IOException e) {
+			logger.info("cq moderation failed, index " + clusterId + ", " + e.getMessage());
+			moderation = null;
+		}
+	}
+
+	private void moderate(int completions) {
+		if (moderation != null && moderation.update(completions, System.nanoTime())){
+			applyModeration();
+		}
+	}
+
+	/**
+	 * Tracks the average gap between completions and derives the spin window from it.
+	 */
+	private void adaptSpinWindow(long gap) {
+		avgGap = avgGap == 0 ? gap : avgGap + ((gap - avgGap) >> 3);
+		long minSpin = Math.max(1, maxSpinNanos/MIN_SPIN_FRACTION);
+		if (avgGap <= maxSpinNanos){
+			spinWindow = Math.max(minSpin, Math.min(maxSpinNanos, 2*avgGap));
+		} else {
+			spinWindow = minSpin;
+		}
+	}
+
 	private boolean isClosed() {
 		return !running;
 	}
@@ -161,6 +434,10 @@ public abstract class RdmaCqProcessor<C extends RdmaEndpoint> extends RdmaCqProv
 	public void close() throws IOException, InterruptedException {
 		running = false;
 		thread.join();
+		if (ackCounter > 0){
+			cq.ackEvents(ackCounter);
+			ackCounter = 0;
+		}
 		super.close();
 	}
 }	
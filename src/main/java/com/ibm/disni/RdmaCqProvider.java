@@ -40,13 +40,33 @@ public class RdmaCqProvider {
 	protected IbvCompChannel compChannel;	
 	protected IbvCQ cq;	
 	protected int cqSize;
+	protected int compVector;
 	
 	public RdmaCqProvider(IbvContext context, int cqSize) throws IOException {
-		logger.info("new endpoint CQ processor");
+		this(context, cqSize, 0);
+	}
+	
+	/**
+	 * Creates an extended CQ if wcFlags is non-zero, e.g., IbvCQ.IBV_WC_EX_WITH_COMPLETION_TIMESTAMP for completions carrying the device timestamp.
+	 */
+	public RdmaCqProvider(IbvContext context, int cqSize, int wcFlags) throws IOException {
+		this(context, cqSize, 0, wcFlags);
+	}
+
+	/**
+	 * Creates the CQ on the given completion vector, completion events of different vectors are delivered through different interrupts.
+	 */
+	public RdmaCqProvider(IbvContext context, int cqSize, int compVector, int wcFlags) throws IOException {
+		logger.info("new endpoint CQ processor, compVector " + compVector + ", wcFlags " + wcFlags);
 		this.context = context;
 		this.compChannel = context.createCompChannel();
 		this.cqSize = cqSize;
-		this.cq = context.createCQ(compChannel, cqSize, 0);
+		this.compVector = compVector;
+		if (wcFlags != 0){
+			this.cq = context.createCQ(compChannel, cqSize, compVector, wcFlags);
+		} else {
+			this.cq = context.createCQ(compChannel, cqSize, compVector);
+		}
 	}
 	
 	public void close() throws IOException, InterruptedException {
@@ -64,4 +84,8 @@ public class RdmaCqProvider {
 	public int getCqSize() {
 		return cqSize;
 	}
+
+	public int getCompVector() {
+		return compVector;
+	}
 }
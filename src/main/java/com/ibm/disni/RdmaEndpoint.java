@@ -22,17 +22,21 @@
 package com.ibm.disni;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 
+import com.ibm.disni.verbs.IbvAsyncEvent;
 import com.ibm.disni.verbs.IbvMr;
 import com.ibm.disni.verbs.IbvPd;
 import com.ibm.disni.verbs.IbvQP;
 import com.ibm.disni.verbs.IbvRecvWR;
 import com.ibm.disni.verbs.IbvSendWR;
+import com.ibm.disni.verbs.RdmaCm;
 import com.ibm.disni.verbs.RdmaCmEvent;
 import com.ibm.disni.verbs.RdmaCmId;
 import com.ibm.disni.verbs.RdmaConnParam;
@@ -40,6 +44,7 @@ import com.ibm.disni.verbs.SVCPostRecv;
 import com.ibm.disni.verbs.SVCPostSend;
 import com.ibm.disni.verbs.SVCRegMr;
 import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
 
 
 /**
@@ -68,6 +73,13 @@ public class RdmaEndpoint {
 	private boolean isClosed;
 	private boolean isInitialized;
 	private boolean serverSide;
+	private RdmaAhCache ahCache;
+	private ByteBuffer privateData;
+	private ByteBuffer remotePrivateData;
+	private RdmaConnParam remoteConnParam;
+	private CompletableFuture<Void> connectFuture;
+	private int connectTimeout;
+	private Exception connectError;
 	
 	protected RdmaEndpoint(RdmaEndpointGroup<? extends RdmaEndpoint> group, RdmaCmId idPriv, boolean serverSide) throws IOException{
 		this.endpointId = group.getNextId();
@@ -82,6 +94,13 @@ public class RdmaEndpoint {
 		this.isClosed = false;
 		this.connState = CONN_STATE_INITIALIZED;
 		this.serverSide = serverSide;
+		this.ahCache = null;
+		this.privateData = null;
+		this.remotePrivateData = null;
+		this.remoteConnParam = null;
+		this.connectFuture = null;
+		this.connectTimeout = 0;
+		this.connectError = null;
 		logger.info("new client endpoint, id " + endpointId + ", idPriv " + idPriv.getPs());
 	}
 	
@@ -94,7 +113,7 @@ public class RdmaEndpoint {
 	 * @param timeout connection timeout
 	 */
 	public synchronized void connect(SocketAddress dst, int timeout) throws Exception {
-		if (connState != CONN_STATE_INITIALIZED) {
+		if (connState != CONN_STATE_INITIALIZED || connectFuture != null) {
 			throw new IOException("endpoint already connected");
 		}
 		idPriv.resolveAddr(null, dst, timeout);
@@ -121,29 +140,145 @@ public class RdmaEndpoint {
 			throw new IOException("resources allocation failed");
 		}	
 		
-		RdmaConnParam connParam = getConnParam();
-		idPriv.connect(connParam);
+		idPriv.connect(clientConnParam());
 		
 		while(connState < CONN_STATE_CONNECTED){
 			wait();
-		}			
+		}
+		if (connState != CONN_STATE_CONNECTED){
+			throw new IOException("connect failed", connectError);
+		}
 	}		
+
+	/**
+	 * Connect this endpoint to a remote server endpoint without blocking the caller. 
+	 * 
+	 * Address and route resolution, resource allocation and the connection request are driven by the CM events of this 
+	 * endpoint on the CM thread of the group, many endpoints can therefore be connected concurrently from one thread.
+	 *
+	 * @param dst address of remote server
+	 * @param timeout resolution timeout
+	 * @return a future completing once the connection is established, or exceptionally if any step fails.
+	 */
+	public CompletableFuture<Void> connectAsync(SocketAddress dst, int timeout) {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		synchronized(this){
+			if (connState != CONN_STATE_INITIALIZED || connectFuture != null) {
+				future.completeExceptionally(new IOException("endpoint already connected"));
+				return future;
+			}
+			this.connectFuture = future;
+			this.connectTimeout = timeout;
+			try {
+				idPriv.resolveAddr(null, dst, timeout);
+			} catch (Exception e) {
+				this.connectFuture = null;
+				future.completeExceptionally(e);
+			}
+		}
+		return future;
+	}
+
+	private RdmaConnParam clientConnParam() throws IOException {
+		RdmaConnParam connParam = getConnParam();
+		if (privateData != null){
+			connParam = new RdmaConnParam(connParam);
+			connParam.setPrivate_data(privateData);
+		}
+		return connParam;
+	}
+	
+	/**
+	 * Bind this datagram endpoint to a local address. 
+	 * 
+	 * Once bound, the endpoint answers resolution requests of remote datagram endpoints with the number of its QP, and can itself 
+	 * resolve peers using resolve(). Note that every message received on a datagram QP is preceded by a 40-byte global routing header, 
+	 * receive buffers therefore need to be 40 bytes larger than the largest message.
+	 *
+	 * @param src local address, the port identifies this endpoint to its peers
+	 * @param backlog the number of pending resolution requests
+	 */
+	public synchronized void bind(SocketAddress src, int backlog) throws Exception {
+		if (!isDatagram()) {
+			throw new IOException("bind requires a datagram endpoint, use connect instead");
+		}
+		if (connState != CONN_STATE_INITIALIZED) {
+			throw new IOException("endpoint already bound");
+		}
+		idPriv.bindAddr(src);
+		group.allocateResourcesRaw(this);
+		while(connState < CONN_STATE_RESOURCES_ALLOCATED){
+			wait();
+		}	
+		if (connState != CONN_STATE_RESOURCES_ALLOCATED){
+			throw new IOException("resources allocation failed");
+		}
+		this.ahCache = new RdmaAhCache(pd, src);
+		idPriv.listen(backlog);
+	}
+	
+	/**
+	 * Resolve a remote datagram endpoint. Peers are cached, only the first call for a given address resolves the path and creates an address handle.
+	 *
+	 * @param dst address of the remote datagram endpoint
+	 * @param timeout resolution timeout
+	 * @return the peer, used to address send work requests
+	 */
+	public RdmaUdPeer resolve(InetSocketAddress dst, int timeout) throws IOException {
+		RdmaAhCache cache = null;
+		synchronized(this){
+			cache = ahCache;
+		}
+		if (cache == null){
+			throw new IOException("Trying to resolve peer on unbound datagram endpoint");
+		}
+		return cache.resolve(dst, timeout);
+	}
 	
 	/* (non-Javadoc)
 	 * @see com.ibm.jverbs.endpoints.ICmConsumer#dispatchCmEvent(com.ibm.jverbs.cm.RdmaCmEvent)
 	 */
-	public synchronized void dispatchCmEvent(RdmaCmEvent cmEvent)
+	public void dispatchCmEvent(RdmaCmEvent cmEvent) throws IOException {
+		try {
+			processCmEvent(cmEvent);
+		} finally {
+			completeConnect();
+		}
+	}
+
+	private synchronized void processCmEvent(RdmaCmEvent cmEvent)
 			throws IOException {
 		try {
 			int eventType = cmEvent.getEvent();
 			if (eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_ADDR_RESOLVED.ordinal()) {
 				connState = RdmaEndpoint.CONN_STATE_ADDR_RESOLVED;
 				notifyAll();
+				if (connectFuture != null){
+					try {
+						idPriv.resolveRoute(connectTimeout);
+					} catch (Exception e) {
+						failConnect(e);
+					}
+				}
 			} else if (cmEvent.getEvent() == RdmaCmEvent.EventType.RDMA_CM_EVENT_ROUTE_RESOLVED.ordinal()) {
 				connState = RdmaEndpoint.CONN_STATE_ROUTE_RESOLVED;
 				notifyAll();
+				if (connectFuture != null){
+					try {
+						group.allocateResourcesRaw(this);
+						if (connState != CONN_STATE_RESOURCES_ALLOCATED){
+							throw new IOException("resources allocation failed");
+						}
+						idPriv.connect(clientConnParam());
+					} catch (Exception e) {
+						failConnect(e);
+					}
+				}
 			} else if (eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_ESTABLISHED.ordinal()) {
 				logger.info("got event type + RDMA_CM_EVENT_ESTABLISHED, srcAddress " + this.getSrcAddr() + ", dstAddress " + this.getDstAddr());
+				if (!serverSide && cmEvent.getPrivateData() != null){
+					remotePrivateData = cmEvent.getPrivateData();
+				}
 				connState = CONN_STATE_CONNECTED;
 				notifyAll();
 			} else if (eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_DISCONNECTED.ordinal()) {
@@ -152,6 +287,23 @@ public class RdmaEndpoint {
 				notifyAll();
 			} else if (eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST.ordinal()) {
 				logger.info("got event type + RDMA_CM_EVENT_CONNECT_REQUEST, srcAddress " + this.getSrcAddr() + ", dstAddress " + this.getDstAddr());
+				if (isDatagram() && qp != null){
+					//answer the resolution request with the number of our QP, the request id is not needed afterwards
+					RdmaCmId requestId = cmEvent.getConnIdPriv();
+					RdmaConnParam connParam = new RdmaConnParam();
+					connParam.setQp_num(qp.getQp_num());
+					requestId.accept(connParam);
+					requestId.destroyId();
+				} else if (!isDatagram()){
+					remotePrivateData = cmEvent.getPrivateData();
+					remoteConnParam = cmEvent.getConn();
+				}
+			} else if (isConnectError(eventType)) {
+				RdmaCmEvent.EventType type = RdmaCmEvent.EventType.values()[eventType];
+				logger.info("got event type + " + type + ", srcAddress " + this.getSrcAddr() + ", dstAddress " + this.getDstAddr());
+				if (connState < CONN_STATE_CONNECTED){
+					failConnect(new IOException("connect failed with event " + type));
+				}
 			} else {
 				logger.info("got event type + UNKNOWN, srcAddress " + this.getSrcAddr() + ", dstAddress " + this.getDstAddr());
 			}
@@ -160,6 +312,69 @@ public class RdmaEndpoint {
 		}
 	}
 	
+	private static boolean isConnectError(int eventType) {
+		return eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_ADDR_ERROR.ordinal() 
+				|| eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_ROUTE_ERROR.ordinal()
+				|| eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_CONNECT_ERROR.ordinal()
+				|| eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_UNREACHABLE.ordinal()
+				|| eventType == RdmaCmEvent.EventType.RDMA_CM_EVENT_REJECTED.ordinal();
+	}
+
+	/**
+	 * Moves a connecting endpoint to the closed state, waking up a blocked connect() and failing a pending connectAsync().
+	 */
+	private void failConnect(Exception e) {
+		connectError = e;
+		connState = CONN_STATE_CLOSED;
+		notifyAll();
+	}
+
+	/**
+	 * Completes a pending connectAsync() once the endpoint is connected or failed. Runs outside the endpoint lock 
+	 * so that dependent actions may connect other endpoints.
+	 */
+	private void completeConnect() {
+		CompletableFuture<Void> future = null;
+		Exception error = null;
+		synchronized(this){
+			if (connectFuture == null || connState < CONN_STATE_CONNECTED){
+				return;
+			}
+			future = connectFuture;
+			connectFuture = null;
+			if (connState != CONN_STATE_CONNECTED){
+				error = connectError != null ? connectError : new IOException("connect failed");
+			}
+		}
+		if (error == null){
+			future.complete(null);
+		} else {
+			future.completeExceptionally(error);
+		}
+	}
+
+	/**
+	 * Called on the async event thread for events referring to the QP of this endpoint. 
+	 * 
+	 * QP errors move the endpoint to the closed state and wake up threads waiting for the connection, outstanding 
+	 * work requests are flushed with an error status. Subclasses may override this method to fail over early.
+	 */
+	public void dispatchAsyncEvent(IbvAsyncEvent event) throws IOException {
+		logger.info("got async event " + event + ", srcAddress " + this.getSrcAddr() + ", dstAddress " + this.getDstAddr());
+		if (event.isQpError()){
+			CompletableFuture<Void> future = null;
+			synchronized(this){
+				connState = CONN_STATE_CLOSED;
+				notifyAll();
+				future = connectFuture;
+				connectFuture = null;
+			}
+			if (future != null){
+				future.completeExceptionally(new IOException("connect failed with QP error"));
+			}
+		}
+	}
+	
 	public final synchronized void allocateResources() throws IOException {
 		if (!isInitialized) {
 			this.pd = group.createProtectionDomainRaw(this);
@@ -181,7 +396,15 @@ public class RdmaEndpoint {
 			throw new IOException("resources allocation failed");
 		}		
 		
-		RdmaConnParam connParam = getConnParam();
+		RdmaConnParam connParam = new RdmaConnParam(getConnParam());
+		if (remoteConnParam != null){
+			//never offer more outstanding reads than the client asked for, 0 accepts what the client asked for
+			connParam.setResponder_resources(negotiate(connParam.getResponder_resources(), remoteConnParam.getInitiator_depth()));
+			connParam.setInitiator_depth(negotiate(connParam.getInitiator_depth(), remoteConnParam.getResponder_resources()));
+		}
+		if (privateData != null){
+			connParam.setPrivate_data(privateData);
+		}
 		idPriv.accept(connParam);			
 		while(connState < CONN_STATE_CONNECTED){
 			wait();
@@ -196,23 +419,52 @@ public class RdmaEndpoint {
 	 *
 	 * @throws Exception the exception
 	 */
-	public synchronized void close() throws IOException, InterruptedException {
-		if (isClosed){
-			return;
-		}
-		
-		logger.info("closing client endpoint");
-		if (connState == CONN_STATE_CONNECTED) {
-			idPriv.disconnect();
-			this.wait(1000);
-		}
-		if (connState >= CONN_STATE_RESOURCES_ALLOCATED) {
-			idPriv.destroyQP();
+	public void close() throws IOException, InterruptedException {
+		CompletableFuture<Void> future = null;
+		try {
+			synchronized(this){
+				if (isClosed){
+					return;
+				}
+				
+				logger.info("closing client endpoint");
+				future = connectFuture;
+				connectFuture = null;
+				if (ahCache != null) {
+					ahCache.close();
+				}
+				if (connState == CONN_STATE_CONNECTED) {
+					idPriv.disconnect();
+					this.wait(1000);
+				}
+				if (connState >= CONN_STATE_RESOURCES_ALLOCATED) {
+					idPriv.destroyQP();
+				}
+				idPriv.destroyId();
+				group.unregisterClientEp(this);
+				isClosed = true;
+				logger.info("closing client done");
+			}
+		} finally {
+			//complete outside the endpoint lock, dependent actions may call back into the endpoint
+			if (future != null) {
+				future.completeExceptionally(new IOException("endpoint closed while connecting"));
+			}
 		}
-		idPriv.destroyId();
-		group.unregisterClientEp(this);
-		isClosed = true;
-		logger.info("closing client done");
+	}
+	
+	/**
+	 * Checks if this is a datagram endpoint, created in the RDMA_PS_UDP port space.
+	 */
+	public boolean isDatagram() {
+		return idPriv.getPs() == RdmaCm.RDMA_PS_UDP;
+	}
+	
+	/**
+	 * The type of QP of this endpoint, IBV_QPT_UD for datagram endpoints and IBV_QPT_RC otherwise.
+	 */
+	public byte getQpType() {
+		return isDatagram() ? IbvQP.IBV_QPT_UD : IbvQP.IBV_QPT_RC;
 	}
 	
 	/**
@@ -262,6 +514,15 @@ public class RdmaEndpoint {
 		return cqProcessor;
 	}
 
+	/**
+	 * Gets the shared receive queue this endpoint draws its receive buffers from.
+	 *
+	 * @return the SRQ provider, or null if the group does not use shared receive queues.
+	 */
+	public RdmaSrqProvider getSrqProvider() throws IOException {
+		return group.getSrqProvider(idPriv.getVerbs());
+	}
+
 	/**
 	 * Register memory on this endpoint.
 	 *
@@ -270,8 +531,30 @@ public class RdmaEndpoint {
 	 * @throws Exception on failure
 	 */
 	public SVCRegMr registerMemory(ByteBuffer buffer) throws IOException {
+		RdmaRegistrationCache regCache = group.getRegistrationCache(pd);
+		if (regCache != null){
+			return regCache.regMr(buffer, access);
+		}
 		return pd.regMr(buffer, access);
 	}
+
+	/**
+	 * Register memory on this endpoint that can be the target of remote atomic operations.
+	 *
+	 * @param buffer the buffer to be registered. The buffer needs to represent 8-byte aligned off-heap memory.
+	 * @return a stateful verb call (SVC) ready to execute the memory registration. 
+	 * @throws Exception on failure, or if the buffer is not 8-byte aligned.
+	 */
+	public SVCRegMr registerAtomicMemory(ByteBuffer buffer) throws IOException {
+		if ((MemoryUtils.getAddress(buffer) & 7) != 0){
+			throw new IOException("Atomic memory needs to be 8-byte aligned");
+		}
+		RdmaRegistrationCache regCache = group.getRegistrationCache(pd);
+		if (regCache != null){
+			return regCache.regMr(buffer, access | IbvMr.IBV_ACCESS_REMOTE_ATOMIC);
+		}
+		return pd.regMr(buffer, access | IbvMr.IBV_ACCESS_REMOTE_ATOMIC);
+	}
 	
 	/**
 	 * Post a receive operation on this endpoint.
@@ -297,7 +580,20 @@ public class RdmaEndpoint {
 	}	
 
 	/**
-	 * Deregister memory.
+	 * Post a send operation of variable shape on this endpoint. The SVC can be kept and reused for batches of
+	 * up to maxWr work requests, see SVCPostSend.setNumWr().
+	 *
+	 * @param maxWr the maximum number of work requests posted at once.
+	 * @param maxSge the maximum number of scatter/gather elements per work request.
+	 * @return a stateful verb call (SVC) ready to execute the send operations. 
+	 * @throws Exception on failure.
+	 */
+	public SVCPostSend postSend(int maxWr, int maxSge) throws IOException {
+		return qp.postSend(maxWr, maxSge);
+	}
+
+	/**
+	 * Deregister memory. Memory registered through the registration cache of the group is released to the cache.
 	 *
 	 * @param mr the memory region to be de-registered.
 	 * @throws Exception on failure.
@@ -356,4 +652,38 @@ public class RdmaEndpoint {
 	public RdmaConnParam getConnParam() {
 		return group.getConnParam();
 	}
+
+	/**
+	 * Sets the private data sent to the remote side with the connection request, or with the accept on server endpoints. 
+	 * 
+	 * Server endpoints typically set it in init(), e.g., to hand out the address and key of a registered buffer as part of 
+	 * the connection handshake. InfiniBand limits private data to 56 bytes when connecting and to 196 bytes when accepting.
+	 *
+	 * @param privateData a direct buffer, the remaining bytes are sent.
+	 */
+	public synchronized void setPrivateData(ByteBuffer privateData) throws IOException {
+		if (!privateData.isDirect()){
+			throw new IOException("Private data requires a direct buffer");
+		}
+		this.privateData = privateData;
+	}
+
+	/**
+	 * The private data received from the remote side, i.e., the data of the connection request on server endpoints and the 
+	 * data of the accept on client endpoints. The transport may pad the data with zeros.
+	 *
+	 * @return a read-only buffer, or null if the remote side did not send any private data.
+	 */
+	public synchronized ByteBuffer getRemotePrivateData() {
+		return remotePrivateData;
+	}
+
+	private static byte negotiate(byte local, byte remote) {
+		int localValue = local & 0xff;
+		int remoteValue = remote & 0xff;
+		if (localValue == 0 || localValue > remoteValue){
+			return remote;
+		}
+		return local;
+	}
 }
@@ -22,18 +22,32 @@
 package com.ibm.disni;
 
 import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 
+import com.ibm.disni.verbs.IbvAsyncEvent;
+import com.ibm.disni.verbs.IbvCQ;
+import com.ibm.disni.verbs.IbvDeviceAttr;
+import com.ibm.disni.verbs.IbvContext;
 import com.ibm.disni.verbs.IbvPd;
 import com.ibm.disni.verbs.IbvQP;
+import com.ibm.disni.verbs.IbvQPInitAttr;
 import com.ibm.disni.verbs.RdmaCm;
 import com.ibm.disni.verbs.RdmaCmEvent;
 import com.ibm.disni.verbs.RdmaCmId;
 import com.ibm.disni.verbs.RdmaConnParam;
+import com.ibm.disni.util.ConcurrentLongMap;
 import com.ibm.disni.util.DiSNILogger;
 
 public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
@@ -42,11 +56,25 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 	
 	protected RdmaEndpointProvider endpointProvider;
 	protected RdmaCmProcessor cmProcessor;
-	protected HashMap<RdmaCmId, RdmaServerEndpoint<C>> serverEndpointMap;
-	protected HashMap<RdmaCmId, C> clientEndpointMap;
+	protected ConcurrentLongMap<RdmaServerEndpoint<C>> serverEndpointMap;
+	protected ConcurrentLongMap<C> clientEndpointMap;
 	protected AtomicBoolean closed;
 	protected RdmaEndpointFactory<C> factory;
 	protected RdmaConnParam connParam;
+	protected ConcurrentHashMap<Integer, RdmaSrqProvider> srqMap;
+	protected int srqSize;
+	protected int srqBufferSize;
+	protected int srqLowWatermark;
+	protected int cqWcFlags;
+	protected HashMap<Integer, RdmaAsyncEventProcessor> asyncMap;
+	protected CopyOnWriteArrayList<RdmaAsyncEventListener> asyncListeners;
+	private int asyncTimeout;
+	protected boolean autoSizing;
+	protected int maxInline;
+	protected HashMap<Integer, IbvDeviceAttr> deviceAttrMap;
+	protected HashMap<Integer, Integer> inlineMap;
+	protected long regCacheBytes;
+	protected IdentityHashMap<IbvPd, RdmaRegistrationCache> regCacheMap;
 	
 	public abstract RdmaCqProvider createCqProvider(C endpoint) throws IOException;
 	
@@ -56,11 +84,23 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 	
 	public RdmaEndpointGroup(int timeout) throws IOException{
 		this.endpointProvider = RdmaEndpointProvider.getEndpointProvider();
-		this.serverEndpointMap = new HashMap<RdmaCmId, RdmaServerEndpoint<C>>();
-		this.clientEndpointMap = new HashMap<RdmaCmId, C>();
+		this.serverEndpointMap = new ConcurrentLongMap<RdmaServerEndpoint<C>>();
+		this.clientEndpointMap = new ConcurrentLongMap<C>();
 		this.cmProcessor = new RdmaCmProcessor(this, timeout);
 		this.closed = new AtomicBoolean(true);
 		this.connParam = new RdmaConnParam();
+		this.srqMap = new ConcurrentHashMap<Integer, RdmaSrqProvider>();
+		this.srqSize = 0;
+		this.cqWcFlags = 0;
+		this.asyncMap = new HashMap<Integer, RdmaAsyncEventProcessor>();
+		this.asyncListeners = new CopyOnWriteArrayList<RdmaAsyncEventListener>();
+		this.asyncTimeout = timeout;
+		this.autoSizing = false;
+		this.maxInline = 0;
+		this.deviceAttrMap = new HashMap<Integer, IbvDeviceAttr>();
+		this.inlineMap = new HashMap<Integer, Integer>();
+		this.regCacheBytes = 0;
+		this.regCacheMap = new IdentityHashMap<IbvPd, RdmaRegistrationCache>();
 	}
 	
 	public void init(RdmaEndpointFactory<C> factory){
@@ -69,6 +109,262 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 		cmProcessor.start();
 	}
 	
+	/**
+	 * Makes all endpoints of a device share one receive queue. Must be called before the first endpoint is connected.
+	 *
+	 * @param srqSize the number of receive buffers per device.
+	 * @param bufferSize the size of each receive buffer.
+	 * @param lowWatermark the number of buffers left in the SRQ at which recycled buffers are re-posted.
+	 */
+	public synchronized void setSharedReceiveQueue(int srqSize, int bufferSize, int lowWatermark) throws IOException {
+		if (!srqMap.isEmpty()){
+			throw new IOException("Shared receive queue needs to be configured before connecting endpoints");
+		}
+		this.srqSize = srqSize;
+		this.srqBufferSize = bufferSize;
+		this.srqLowWatermark = lowWatermark;
+		logger.info("shared receive queue, srqSize " + srqSize + ", bufferSize " + bufferSize + ", lowWatermark " + lowWatermark);
+	}
+
+	public boolean isSharedReceiveQueue() {
+		return srqSize > 0;
+	}
+
+	/**
+	 * Makes the CQs of this group record the device time of every completion, see IbvWC.getCompletion_ts() and IbvHcaClock. 
+	 * Requires extended CQ support by the device. Only applies to CQs created after the call.
+	 */
+	public synchronized void setCompletionTimestamps(boolean enabled) {
+		if (enabled){
+			cqWcFlags |= IbvCQ.IBV_WC_EX_WITH_COMPLETION_TIMESTAMP;
+		} else {
+			cqWcFlags &= ~IbvCQ.IBV_WC_EX_WITH_COMPLETION_TIMESTAMP;
+		}
+	}
+
+	public synchronized int getCqWcFlags() {
+		return cqWcFlags;
+	}
+
+	/**
+	 * Returns the shared receive queue of a device, creating it on first use.
+	 *
+	 * @return the SRQ provider, or null if shared receive queues are disabled.
+	 */
+	public synchronized RdmaSrqProvider createSrqProvider(C endpoint) throws IOException {
+		if (srqSize <= 0){
+			return null;
+		}
+		IbvContext context = endpoint.getIdPriv().getVerbs();
+		int key = context.getCmd_fd();
+		RdmaSrqProvider srqProvider = srqMap.get(key);
+		if (srqProvider == null){
+			srqProvider = new RdmaSrqProvider(endpoint.getPd(), srqSize, srqBufferSize, srqLowWatermark);
+			srqProvider.armLimit();
+			srqMap.put(key, srqProvider);
+		}
+		return srqProvider;
+	}
+
+	synchronized RdmaSrqProvider getSrqProvider(IbvContext context) throws IOException {
+		if (context == null){
+			return null;
+		}
+		return srqMap.get(context.getCmd_fd());
+	}
+
+	/**
+	 * Makes the group derive queue sizes from the limits of the device an endpoint is bound to. 
+	 * 
+	 * With auto-sizing, the configured number of work requests, scatter/gather elements and CQ entries are upper bounds that 
+	 * are reduced to what the device supports, a value of zero selects the device maximum (for the CQ, twice the maximum number of 
+	 * work requests of a queue). The inline threshold set with setMaxInline() is lowered until the device accepts it.
+	 */
+	public synchronized void setAutoSizing(boolean autoSizing) {
+		this.autoSizing = autoSizing;
+	}
+
+	public synchronized boolean isAutoSizing() {
+		return autoSizing;
+	}
+
+	/**
+	 * Sets the inline threshold of the QPs of this group, sends up to this size are copied into the work request. Zero disables inlining.
+	 */
+	public synchronized void setMaxInline(int maxInline) {
+		this.maxInline = maxInline;
+	}
+
+	public synchronized int getMaxInline() {
+		return maxInline;
+	}
+
+	/**
+	 * Makes registerMemory() of the endpoints of this group go through a per-PD registration cache, see RdmaRegistrationCache. 
+	 * Must be called before memory is registered.
+	 *
+	 * @param maxPinnedBytes the number of registered bytes above which idle registrations are released, zero disables the cache.
+	 */
+	public synchronized void setRegistrationCache(long maxPinnedBytes) throws IOException {
+		if (!regCacheMap.isEmpty()){
+			throw new IOException("Registration cache needs to be configured before registering memory");
+		}
+		this.regCacheBytes = maxPinnedBytes;
+		logger.info("registration cache, maxPinnedBytes " + maxPinnedBytes);
+	}
+
+	/**
+	 * Returns the registration cache of a protection domain, creating it on first use.
+	 *
+	 * @return the registration cache, or null if the cache is disabled.
+	 */
+	public synchronized RdmaRegistrationCache getRegistrationCache(IbvPd pd) throws IOException {
+		if (regCacheBytes <= 0){
+			return null;
+		}
+		//PD handles are per device, PDs of different devices may share a handle
+		RdmaRegistrationCache regCache = regCacheMap.get(pd);
+		if (regCache == null){
+			regCache = new RdmaRegistrationCache(pd, regCacheBytes);
+			regCacheMap.put(pd, regCache);
+		}
+		return regCache;
+	}
+
+	/**
+	 * Returns the attributes of a device, queried once per device.
+	 */
+	public synchronized IbvDeviceAttr getDeviceAttr(IbvContext context) throws IOException {
+		int key = context.getCmd_fd();
+		IbvDeviceAttr deviceAttr = deviceAttrMap.get(key);
+		if (deviceAttr == null){
+			deviceAttr = context.queryDevice();
+			deviceAttrMap.put(key, deviceAttr);
+			logger.info("device attributes, cmd_fd " + key + ", " + deviceAttr);
+		}
+		return deviceAttr;
+	}
+
+	protected synchronized int sizeWr(IbvContext context, int maxWR) throws IOException {
+		if (!autoSizing){
+			return maxWR;
+		}
+		int deviceMax = getDeviceAttr(context).getMax_qp_wr();
+		return maxWR > 0 ? Math.min(maxWR, deviceMax) : deviceMax;
+	}
+
+	protected synchronized int sizeSge(IbvContext context, int maxSge) throws IOException {
+		if (!autoSizing){
+			return maxSge;
+		}
+		int deviceMax = getDeviceAttr(context).getMax_sge();
+		return maxSge > 0 ? Math.min(maxSge, deviceMax) : deviceMax;
+	}
+
+	protected synchronized int sizeCq(IbvContext context, int cqSize) throws IOException {
+		if (!autoSizing){
+			return cqSize;
+		}
+		IbvDeviceAttr deviceAttr = getDeviceAttr(context);
+		if (cqSize <= 0){
+			cqSize = 2*deviceAttr.getMax_qp_wr();
+		}
+		return Math.min(cqSize, deviceAttr.getMax_cqe());
+	}
+
+	/**
+	 * Creates the QP of an endpoint, applying the queue limits and inline threshold of the group.
+	 */
+	protected synchronized IbvQP createQP(C endpoint, IbvQPInitAttr attr) throws IOException {
+		IbvContext context = endpoint.getIdPriv().getVerbs();
+		attr.cap().setMax_send_wr(sizeWr(context, attr.cap().getMax_send_wr()));
+		attr.cap().setMax_recv_wr(sizeWr(context, attr.cap().getMax_recv_wr()));
+		attr.cap().setMax_send_sge(sizeSge(context, attr.cap().getMax_send_sge()));
+		attr.cap().setMax_recv_sge(sizeSge(context, attr.cap().getMax_recv_sge()));
+		if (!autoSizing || maxInline <= 0){
+			attr.cap().setMax_inline_data(maxInline);
+			return endpoint.getIdPriv().createQP(endpoint.getPd(), attr);
+		}
+
+		//the device does not report its inline limit, probe for it once per device
+		int key = context.getCmd_fd();
+		Integer accepted = inlineMap.get(key);
+		int inline = accepted != null ? accepted : maxInline;
+		while(true){
+			attr.cap().setMax_inline_data(inline);
+			try {
+				IbvQP qp = endpoint.getIdPriv().createQP(endpoint.getPd(), attr);
+				if (accepted == null){
+					logger.info("inline threshold, cmd_fd " + key + ", maxInline " + inline);
+					inlineMap.put(key, inline);
+				}
+				return qp;
+			} catch(IOException e){
+				if (inline == 0 || accepted != null){
+					throw e;
+				}
+				inline = inline >= 32 ? inline / 2 : 0;
+			}
+		}
+	}
+
+	/**
+	 * Registers a listener for the asynchronous events of all devices used by this group.
+	 */
+	public void addAsyncEventListener(RdmaAsyncEventListener listener) {
+		asyncListeners.add(listener);
+	}
+
+	public void removeAsyncEventListener(RdmaAsyncEventListener listener) {
+		asyncListeners.remove(listener);
+	}
+
+	/**
+	 * Registers this group with the process-wide asynchronous event processor of a device, once per device.
+	 */
+	synchronized void createAsyncEventProcessor(IbvContext context) throws IOException {
+		if (context == null){
+			return;
+		}
+		int key = context.getCmd_fd();
+		if (!asyncMap.containsKey(key)){
+			asyncMap.put(key, RdmaAsyncEventProcessor.register(this, context, asyncTimeout));
+		}
+	}
+
+	/**
+	 * Delivers an asynchronous event to the endpoint owning the QP, or to the SRQ provider, and then to all listeners.
+	 */
+	public void dispatchAsyncEvent(IbvContext context, IbvAsyncEvent event) throws IOException {
+		if (closed.get()){
+			return;
+		}
+		logger.info("got async event " + event);
+
+		if (event.isQpEvent()){
+			//no group lock here, close() holds it while joining the async event threads
+			LinkedList<C> endpoints = new LinkedList<C>(clientEndpointMap.values());
+			for (C endpoint : endpoints){
+				//QP numbers are per device, match the QP object
+				if (event.isEventFor(endpoint.getQp())){
+					endpoint.dispatchAsyncEvent(event);
+					break;
+				}
+			}
+		} else if (event.isSrqEvent()){
+			//srqMap is concurrent, the group lock is held by close() while unregistering from the async event processor
+			RdmaSrqProvider srqProvider = srqMap.get(context.getCmd_fd());
+			if (srqProvider != null && event.isEventFor(srqProvider.getSrq()) 
+					&& event.getEventType() == IbvAsyncEvent.EventType.IBV_EVENT_SRQ_LIMIT_REACHED){
+				srqProvider.limitReached();
+			}
+		}
+
+		for (RdmaAsyncEventListener listener : asyncListeners){
+			listener.onAsyncEvent(context, event);
+		}
+	}
+	
 	public synchronized IbvPd createProtectionDomain(C endpoint) throws IOException {
 		return endpointProvider.createProtectionDomain(endpoint);
 	}	
@@ -80,24 +376,197 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 	public synchronized final RdmaServerEndpoint<C> createServerEndpoint() throws IOException{
 		RdmaCmId idPriv = cmProcessor.createId(RdmaCm.RDMA_PS_TCP);
 		RdmaServerEndpoint<C> ep = new RdmaServerEndpoint<C>(this, idPriv);
-		serverEndpointMap.put(idPriv, ep);
+		serverEndpointMap.put(idPriv.getId(), ep);
 		
 		return ep;
 	}
 	
 	public synchronized final C createEndpoint() throws IOException {
-		RdmaCmId idPriv = cmProcessor.createId(RdmaCm.RDMA_PS_TCP);
+		return createEndpoint(RdmaCm.RDMA_PS_TCP);
+	}
+	
+	/**
+	 * Creates an endpoint in the given port space. RDMA_PS_TCP endpoints are connected to one server endpoint, 
+	 * RDMA_PS_UDP endpoints are bound to a local address and reach any number of peers from one datagram QP.
+	 */
+	public synchronized final C createEndpoint(short rdma_ps) throws IOException {
+		RdmaCmId idPriv = cmProcessor.createId(rdma_ps);
 		C ep = factory.createEndpoint(idPriv, false);
-		clientEndpointMap.put(idPriv, ep);		
+		clientEndpointMap.put(idPriv.getId(), ep);		
 		return ep;
 	}
 	
 	protected synchronized final C createEndpoint(RdmaCmId idPriv)	throws IOException {
 		C ep = factory.createEndpoint(idPriv, true);
-		clientEndpointMap.put(idPriv, ep);
+		clientEndpointMap.put(idPriv.getId(), ep);
 		return ep;
 	}	
 	
+	/**
+	 * Creates an endpoint and connects it without blocking the caller, see RdmaEndpoint.connectAsync(). 
+	 * 
+	 * If the connection fails, the endpoint is closed before the returned future fails.
+	 *
+	 * @param dst address of remote server
+	 * @param timeout resolution timeout
+	 * @return a future completing with the connected endpoint.
+	 */
+	public CompletableFuture<C> connectAsync(SocketAddress dst, int timeout) {
+		final CompletableFuture<C> future = new CompletableFuture<C>();
+		final C ep;
+		try {
+			ep = createEndpoint();
+		} catch (IOException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		ep.connectAsync(dst, timeout).whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void v, Throwable error) {
+				if (error == null){
+					future.complete(ep);
+				} else {
+					closeAsync(ep).whenComplete(new BiConsumer<Void, Throwable>() {
+						@Override
+						public void accept(Void v, Throwable closeError) {
+							future.completeExceptionally(error);
+						}
+					});
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Closes an endpoint off the calling thread. Connection failures are reported on the CM thread, which cannot 
+	 * close an endpoint itself, destroying the CM id waits for the event being dispatched to be acknowledged.
+	 */
+	private CompletableFuture<Void> closeAsync(final C ep) {
+		return CompletableFuture.runAsync(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ep.close();
+				} catch (Exception e) {
+					logger.info("closing endpoint after failed connect failed " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Connects one endpoint to each of the given addresses, with at most maxPending connections being established at a time. 
+	 * 
+	 * The first failure fails the returned future and stops further connection attempts. The endpoints connected by 
+	 * this call so far are closed, as are the attempts still in flight once they complete.
+	 *
+	 * @param dsts the addresses of the remote servers.
+	 * @param timeout resolution timeout
+	 * @param maxPending the maximum number of concurrent connection attempts.
+	 * @return a future completing with the connected endpoints, in the order of the addresses.
+	 */
+	public CompletableFuture<List<C>> connectAll(List<? extends SocketAddress> dsts, int timeout, int maxPending) {
+		if (maxPending <= 0){
+			throw new IllegalArgumentException("Invalid number of pending connections " + maxPending);
+		}
+		BulkConnect bulk = new BulkConnect(dsts, timeout);
+		for (int i = 0; i < maxPending; i++){
+			bulk.next();
+		}
+		return bulk.result;
+	}
+
+	/**
+	 * Drives a connectAll() call, every completed connection starts the next one.
+	 */
+	private class BulkConnect {
+		private final List<? extends SocketAddress> dsts;
+		private final int timeout;
+		private final ArrayList<C> endpoints;
+		private final CompletableFuture<List<C>> result;
+		private int started;
+		private int connected;
+		private boolean failed;
+
+		BulkConnect(List<? extends SocketAddress> dsts, int timeout) {
+			this.dsts = dsts;
+			this.timeout = timeout;
+			this.endpoints = new ArrayList<C>(dsts.size());
+			for (int i = 0; i < dsts.size(); i++){
+				endpoints.add(null);
+			}
+			this.result = new CompletableFuture<List<C>>();
+			this.started = 0;
+			this.connected = 0;
+			this.failed = false;
+			if (dsts.isEmpty()){
+				result.complete(endpoints);
+			}
+		}
+
+		void next() {
+			final int index;
+			synchronized(this){
+				if (started == dsts.size() || failed){
+					return;
+				}
+				index = started++;
+			}
+			connectAsync(dsts.get(index), timeout).whenComplete(new BiConsumer<C, Throwable>() {
+				@Override
+				public void accept(C ep, Throwable error) {
+					if (error != null){
+						fail(error);
+						return;
+					}
+					boolean done = false;
+					boolean abandoned = false;
+					synchronized(BulkConnect.this){
+						abandoned = failed;
+						if (!abandoned){
+							endpoints.set(index, ep);
+							connected++;
+							done = connected == dsts.size();
+						}
+					}
+					if (abandoned){
+						closeAsync(ep);
+					} else if (done){
+						result.complete(endpoints);
+					} else {
+						next();
+					}
+				}
+			});
+		}
+
+		/**
+		 * Fails the call and closes the endpoints connected so far, the failed endpoint has been closed by connectAsync().
+		 */
+		private void fail(Throwable error) {
+			ArrayList<C> connectedEndpoints = new ArrayList<C>();
+			synchronized(this){
+				if (failed){
+					return;
+				}
+				failed = true;
+				for (C ep : endpoints){
+					if (ep != null){
+						connectedEndpoints.add(ep);
+					}
+				}
+			}
+			result.completeExceptionally(error);
+			for (C ep : connectedEndpoints){
+				closeAsync(ep);
+			}
+		}
+	}
+	
+	/**
+	 * Routes a CM event to the endpoint it belongs to. Called on the CM thread, the endpoint lookups are lock-free.
+	 */
 	public final void dispatchCmEvent(RdmaCmEvent cmEvent) {
 		try {
 			if (closed.get()){
@@ -107,45 +576,33 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 			RdmaCmId idPriv = cmEvent.getListenIdPriv();
 			RdmaCmId clientID = cmEvent.getConnIdPriv();
 			int event = cmEvent.getEvent();
+			RdmaServerEndpoint<C> serverEp = idPriv != null ? serverEndpointMap.get(idPriv.getId()) : null;
+			C clientEp = clientID != null ? clientEndpointMap.get(clientID.getId()) : null;
 			
 			if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST.ordinal()) {
-				if (idPriv != null && serverEndpointMap.containsKey(idPriv)) {
-					serverEndpointMap.get(idPriv).dispatchCmEvent(cmEvent);
+				if (serverEp != null) {
+					serverEp.dispatchCmEvent(cmEvent);
+				} else if (idPriv != null) {
+					//resolution request for a datagram endpoint
+					C ep = clientEndpointMap.get(idPriv.getId());
+					if (ep != null){
+						ep.dispatchCmEvent(cmEvent);
+					}
 				}
-			} else if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ESTABLISHED.ordinal()) {
-				if (clientID != null && clientEndpointMap.containsKey(clientID)) {
-					clientEndpointMap.get(clientID).dispatchCmEvent(cmEvent);
+			} else if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ESTABLISHED.ordinal()
+					|| event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ADDR_RESOLVED.ordinal()
+					|| event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ROUTE_RESOLVED.ordinal()) {
+				if (clientEp != null) {
+					clientEp.dispatchCmEvent(cmEvent);
 				} else {
 					logger.info("have no client endpoint to this event");
 				}
-			} else if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ADDR_RESOLVED
-					.ordinal()) {
-				if (clientID != null && clientEndpointMap.containsKey(clientID)) {
-					clientEndpointMap.get(clientID).dispatchCmEvent(cmEvent);
-				} else {
-					logger.info("have no client endpoint to this event");
-				}
-			} else if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ROUTE_RESOLVED
-					.ordinal()) {
-				if (clientID != null && clientEndpointMap.containsKey(clientID)) {
-					C ep = clientEndpointMap.get(clientID);
-					ep.dispatchCmEvent(cmEvent);
-				} else {
-					logger.info("have no client endpoint to this event");
-				}
-			} else if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_DISCONNECTED.ordinal()) {
-				if (clientID != null && clientEndpointMap.containsKey(clientID)) {
-					clientEndpointMap.get(clientID).dispatchCmEvent(cmEvent);
-				}
-				if (idPriv != null && serverEndpointMap.containsKey(idPriv)) {
-					serverEndpointMap.get(idPriv).dispatchCmEvent(cmEvent);
-				}			
 			} else {
-				if (clientID != null && clientEndpointMap.containsKey(clientID)) {
-					clientEndpointMap.get(clientID).dispatchCmEvent(cmEvent);
+				if (clientEp != null) {
+					clientEp.dispatchCmEvent(cmEvent);
 				}
-				if (idPriv != null && serverEndpointMap.containsKey(idPriv)) {
-					serverEndpointMap.get(idPriv).dispatchCmEvent(cmEvent);
+				if (serverEp != null) {
+					serverEp.dispatchCmEvent(cmEvent);
 				}
 			}
 		} catch(Exception e){
@@ -163,6 +620,11 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 			return;
 		}
 
+		for (RdmaAsyncEventProcessor asyncProcessor : asyncMap.values()){
+			asyncProcessor.unregister(this);
+		}
+		asyncMap.clear();
+
 		LinkedList<RdmaEndpoint> clientEps = new LinkedList<RdmaEndpoint>();
 		for (RdmaEndpoint ep : clientEndpointMap.values()) {
 			clientEps.add(ep);
@@ -179,6 +641,16 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 			ep.close();
 		}
 		
+		for (RdmaSrqProvider srqProvider : srqMap.values()){
+			srqProvider.close();
+		}
+		srqMap.clear();
+		
+		for (RdmaRegistrationCache regCache : regCacheMap.values()){
+			regCache.close();
+		}
+		regCacheMap.clear();
+		
 		cmProcessor.close();
 		closed.set(true);
 		logger.info("shutting down group done");
@@ -195,34 +667,32 @@ public abstract class RdmaEndpointGroup <C extends RdmaEndpoint> {
 	}	
 	
 	synchronized IbvPd createProtectionDomainRaw(RdmaEndpoint endpoint) throws IOException{
-		return createProtectionDomain(clientEndpointMap.get(endpoint.getIdPriv()));
+		createAsyncEventProcessor(endpoint.getIdPriv().getVerbs());
+		return createProtectionDomain(clientEndpointMap.get(endpoint.getIdPriv().getId()));
 	}
 	
 	synchronized IbvPd createProtectionDomainRaw(RdmaServerEndpoint<C> endpoint) throws IOException{
-		return createProtectionDomain(serverEndpointMap.get(endpoint.getIdPriv()));
+		createAsyncEventProcessor(endpoint.getIdPriv().getVerbs());
+		return createProtectionDomain(serverEndpointMap.get(endpoint.getIdPriv().getId()));
 	}	
 	
 	synchronized RdmaCqProvider createCqProviderRaw(RdmaEndpoint endpoint) throws IOException {
-		return createCqProvider(clientEndpointMap.get(endpoint.getIdPriv()));
+		return createCqProvider(clientEndpointMap.get(endpoint.getIdPriv().getId()));
 	}
 	
 	synchronized IbvQP createQpProviderRaw(RdmaEndpoint endpoint) throws IOException{
-		return createQpProvider(clientEndpointMap.get(endpoint.getIdPriv()));
+		return createQpProvider(clientEndpointMap.get(endpoint.getIdPriv().getId()));
 	}
 	
 	synchronized void allocateResourcesRaw(RdmaEndpoint endpoint) throws Exception {
-		allocateResources(clientEndpointMap.get(endpoint.getIdPriv()));
+		allocateResources(clientEndpointMap.get(endpoint.getIdPriv().getId()));
 	}	
 
 	synchronized void unregisterClientEp(RdmaEndpoint endpoint) throws IOException {
-		if (clientEndpointMap.containsKey(endpoint.getIdPriv())) {
-			clientEndpointMap.remove(endpoint.getIdPriv());
-		}
+		clientEndpointMap.remove(endpoint.getIdPriv().getId());
 	}	
 	
 	synchronized void unregisterServerEp(RdmaServerEndpoint<C> endpoint) {
-		if (serverEndpointMap.containsKey(endpoint.getIdPriv())) {
-			serverEndpointMap.remove(endpoint.getIdPriv());
-		}
+		serverEndpointMap.remove(endpoint.getIdPriv().getId());
 	}		
 }
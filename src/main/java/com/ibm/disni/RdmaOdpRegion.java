@@ -0,0 +1,456 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.verbs.IbvContext;
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvPd;
+import com.ibm.disni.verbs.SVCRegMr;
+
+/**
+ * A memory region registered with on-demand paging (ODP), with adaptive prefetching of the chunks 
+ * that are about to be accessed.
+ * 
+ * An ODP region is not pinned, the device faults pages in on first access which is expensive. The region 
+ * is split into fixed-size chunks and the application reports the ranges it hands out to peers or serves 
+ * through recordAccess (remote one-sided accesses are invisible to the CPU). A small table of access streams 
+ * detects constant strides, and once a stream is confirmed the chunks ahead of it are prefetched into the 
+ * device page tables by a background thread. The prefetch depth adapts to how many of the prefetched chunks 
+ * are actually accessed afterwards.
+ * 
+ * Prefetching relies on the experimental prefetch verb, the region degrades to plain ODP if it is not available.
+ */
+public class RdmaOdpRegion {
+	private static final Logger logger = DiSNILogger.getLogger();
+	
+	public static final long DEFAULT_CHUNK_SIZE = 2*1024*1024;
+	public static final int DEFAULT_MAX_DEPTH = 16;
+	
+	private static final int STREAMS = 8;
+	private static final int MAX_STRIDE = 16;
+	private static final int CONFIRMED = 2;
+	private static final int ADAPT_WINDOW = 64;
+	private static final int QUEUE_SIZE = 256;
+	private static final int MAX_TRACKED = 4096;
+
+	private final IbvMr mr;
+	private final long address;
+	private final long length;
+	private final boolean implicit;
+	private final long chunkSize;
+	private final int chunkShift;
+	private final int maxDepth;
+	
+	private final long[] streamChunk;
+	private final long[] streamStride;
+	private final int[] streamConfidence;
+	private final long[] streamUsed;
+	private long clock;
+	
+	//prefetched chunks, mapped to whether they were accessed since
+	private final LinkedHashMap<Long, Boolean> prefetched;
+	private final ArrayBlockingQueue<Long> queue;
+	private final Thread prefetcher;
+	private volatile boolean prefetchEnabled;
+	private volatile boolean isClosed;
+	
+	private int depth;
+	private int windowIssued;
+	private int windowUsed;
+	
+	private long accesses;
+	private long hits;
+	private long issued;
+	private long wasted;
+	private long dropped;
+
+	private RdmaOdpRegion(IbvMr mr, long address, long length, long chunkSize, int maxDepth) {
+		this.mr = mr;
+		this.address = address;
+		this.length = length;
+		this.implicit = length < 0;
+		this.chunkSize = chunkSize;
+		this.chunkShift = Long.numberOfTrailingZeros(chunkSize);
+		this.maxDepth = maxDepth;
+		this.streamChunk = new long[STREAMS];
+		this.streamStride = new long[STREAMS];
+		this.streamConfidence = new int[STREAMS];
+		this.streamUsed = new long[STREAMS];
+		this.clock = 0;
+		this.prefetched = new LinkedHashMap<Long, Boolean>(64, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+				if (size() > MAX_TRACKED){
+					if (!eldest.getValue()){
+						wasted++;
+					}
+					return true;
+				}
+				return false;
+			}
+		};
+		this.queue = new ArrayBlockingQueue<Long>(QUEUE_SIZE);
+		this.prefetchEnabled = true;
+		this.isClosed = false;
+		this.depth = Math.min(2, maxDepth);
+		this.prefetcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				prefetchLoop();
+			}
+		}, "disni-odp-prefetch");
+		this.prefetcher.setDaemon(true);
+		this.prefetcher.start();
+	}
+
+	/**
+	 * Registers a range of memory for on-demand paging.
+	 *
+	 * @param pd the protection domain.
+	 * @param address the start of the range.
+	 * @param length the length of the range, may exceed 2GB.
+	 * @param access the access rights, IBV_ACCESS_ON_DEMAND is added implicitly.
+	 * @return the registered region.
+	 * @throws IOException if the device does not support on-demand paging for the requested access, or the registration fails.
+	 */
+	public static RdmaOdpRegion register(IbvPd pd, long address, long length, int access) throws IOException {
+		return register(pd, address, length, access, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_DEPTH);
+	}
+
+	public static RdmaOdpRegion register(IbvPd pd, long address, long length, int access, long chunkSize, int maxDepth) throws IOException {
+		if (length <= 0){
+			throw new IllegalArgumentException("Invalid ODP region length " + length);
+		}
+		checkPrefetchParams(chunkSize, maxDepth);
+		checkOdpSupport(pd, access);
+		IbvMr mr = regMr(pd, address, length, access);
+		return new RdmaOdpRegion(mr, address, length, chunkSize, maxDepth);
+	}
+
+	/**
+	 * Registers an implicit on-demand paging region covering the whole address space of the process. 
+	 * 
+	 * Any memory of the process can be accessed through the keys of the returned region without further registration.
+	 *
+	 * @param pd the protection domain.
+	 * @param access the access rights, IBV_ACCESS_ON_DEMAND is added implicitly.
+	 * @return the registered region.
+	 * @throws IOException if the device does not support implicit on-demand paging, or the registration fails.
+	 */
+	public static RdmaOdpRegion registerImplicit(IbvPd pd, int access) throws IOException {
+		return registerImplicit(pd, access, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_DEPTH);
+	}
+
+	public static RdmaOdpRegion registerImplicit(IbvPd pd, int access, long chunkSize, int maxDepth) throws IOException {
+		checkPrefetchParams(chunkSize, maxDepth);
+		checkOdpSupport(pd, access);
+		IbvMr mr = regMr(pd, 0, -1, access);
+		return new RdmaOdpRegion(mr, 0, -1, chunkSize, maxDepth);
+	}
+
+	/**
+	 * Validates the prefetch parameters before anything is registered, an invalid argument must not leak the region.
+	 */
+	private static void checkPrefetchParams(long chunkSize, int maxDepth) {
+		if (Long.bitCount(chunkSize) != 1){
+			throw new IllegalArgumentException("Chunk size must be a power of two, chunkSize " + chunkSize);
+		}
+		if (maxDepth < 1){
+			throw new IllegalArgumentException("Prefetch depth must be positive, maxDepth " + maxDepth);
+		}
+	}
+
+	private static void checkOdpSupport(IbvPd pd, int access) throws IOException {
+		int caps = pd.getContext().queryOdpSupport();
+		if (caps < 0){
+			throw new IOException("On-demand paging not supported by device");
+		}
+		int required = 0;
+		if ((access & IbvMr.IBV_ACCESS_REMOTE_WRITE) != 0){
+			required |= IbvContext.IBV_ODP_SUPPORT_WRITE;
+		}
+		if ((access & IbvMr.IBV_ACCESS_REMOTE_READ) != 0){
+			required |= IbvContext.IBV_ODP_SUPPORT_READ;
+		}
+		if ((access & IbvMr.IBV_ACCESS_REMOTE_ATOMIC) != 0){
+			required |= IbvContext.IBV_ODP_SUPPORT_ATOMIC;
+		}
+		if ((caps & required) != required){
+			throw new IOException("On-demand paging not supported for access " + access + ", rc_odp_caps " + caps);
+		}
+	}
+
+	private static IbvMr regMr(IbvPd pd, long address, long length, int access) throws IOException {
+		SVCRegMr regMr = pd.regMr(address, length, access | IbvMr.IBV_ACCESS_ON_DEMAND).execute();
+		IbvMr mr = regMr.getMr();
+		regMr.free();
+		return mr;
+	}
+
+	/**
+	 * Reports an access to a range of this region, e.g., when a range is granted to a peer for a one-sided 
+	 * operation or served by a two-sided one. Feeds the stride detection and may trigger prefetches.
+	 *
+	 * @param addr the start of the accessed range.
+	 * @param len the length of the accessed range.
+	 */
+	public synchronized void recordAccess(long addr, long len) {
+		if (len <= 0 || isClosed){
+			return;
+		}
+		accesses++;
+		long first = addr >>> chunkShift;
+		long last = (addr + len - 1) >>> chunkShift;
+		for (long chunk = first; chunk <= last && chunk - first < MAX_TRACKED; chunk++){
+			Boolean used = prefetched.get(chunk);
+			if (used != null && !used){
+				prefetched.put(chunk, true);
+				hits++;
+				windowUsed++;
+			}
+		}
+		
+		int stream = matchStream(first);
+		if (streamConfidence[stream] >= CONFIRMED){
+			long stride = streamStride[stream];
+			long base = stride > 0 ? last : first;
+			for (int i = 1; i <= depth; i++){
+				long chunk = base + stride*i;
+				if (!prefetched.containsKey(chunk) && inRegion(chunk)){
+					issue(chunk);
+				}
+			}
+		}
+		streamChunk[stream] = streamStride[stream] >= 0 ? last : first;
+	}
+
+	/**
+	 * Prefetches a range of this region explicitly, e.g., before handing it out to a peer.
+	 *
+	 * @param addr the start of the range.
+	 * @param len the length of the range.
+	 */
+	public synchronized void prefetch(long addr, long len) {
+		if (len <= 0 || isClosed){
+			return;
+		}
+		long first = addr >>> chunkShift;
+		long last = (addr + len - 1) >>> chunkShift;
+		for (long chunk = first; chunk <= last && chunk - first < MAX_TRACKED; chunk++){
+			if (!prefetched.containsKey(chunk) && inRegion(chunk)){
+				issue(chunk);
+			}
+		}
+	}
+
+	private int matchStream(long chunk) {
+		int victim = 0;
+		int best = -1;
+		long bestDistance = MAX_STRIDE + 1;
+		for (int i = 0; i < STREAMS; i++){
+			if (streamUsed[i] < streamUsed[victim]){
+				victim = i;
+			}
+			if (streamUsed[i] == 0){
+				continue;
+			}
+			long distance = Math.abs(chunk - streamChunk[i]);
+			if (distance <= MAX_STRIDE && distance < bestDistance){
+				best = i;
+				bestDistance = distance;
+			}
+		}
+		
+		if (best < 0){
+			streamChunk[victim] = chunk;
+			streamStride[victim] = 0;
+			streamConfidence[victim] = 0;
+			streamUsed[victim] = ++clock;
+			return victim;
+		}
+		
+		long delta = chunk - streamChunk[best];
+		if (delta != 0){
+			if (delta == streamStride[best]){
+				streamConfidence[best]++;
+			} else {
+				streamStride[best] = delta;
+				streamConfidence[best] = 1;
+			}
+		}
+		streamUsed[best] = ++clock;
+		return best;
+	}
+
+	private boolean inRegion(long chunk) {
+		if (chunk < 0){
+			return false;
+		}
+		if (implicit){
+			return true;
+		}
+		long start = chunk << chunkShift;
+		return start < address + length && start + chunkSize > address;
+	}
+
+	private void issue(long chunk) {
+		if (!prefetchEnabled){
+			return;
+		}
+		if (!queue.offer(chunk)){
+			dropped++;
+			return;
+		}
+		prefetched.put(chunk, false);
+		issued++;
+		windowIssued++;
+		if (windowIssued >= ADAPT_WINDOW){
+			double useful = ((double) windowUsed) / windowIssued;
+			if (useful > 0.75){
+				depth = Math.min(depth*2, maxDepth);
+			} else if (useful < 0.25){
+				depth = Math.max(depth/2, 1);
+			}
+			windowIssued = 0;
+			windowUsed = 0;
+		}
+	}
+
+	private void prefetchLoop() {
+		while (!isClosed){
+			long chunk;
+			try {
+				chunk = queue.take();
+			} catch (InterruptedException e) {
+				break;
+			}
+			long start = chunk << chunkShift;
+			long end = start + chunkSize;
+			if (!implicit){
+				start = Math.max(start, address);
+				end = Math.min(end, address + length);
+			}
+			try {
+				int ret = mr.expPrefetchMr(start, (int) (end - start));
+				if (ret != 0){
+					disablePrefetch("prefetch returned " + ret);
+				}
+			} catch (IOException e) {
+				disablePrefetch(e.getMessage());
+			}
+		}
+	}
+
+	private void disablePrefetch(String reason) {
+		if (prefetchEnabled){
+			prefetchEnabled = false;
+			queue.clear();
+			logger.info("disabling ODP prefetching, " + reason);
+		}
+	}
+
+	public IbvMr getMr() {
+		return mr;
+	}
+
+	public long getAddress() {
+		return address;
+	}
+
+	/**
+	 * The length of this region, -1 for an implicit region.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	public boolean isImplicit() {
+		return implicit;
+	}
+
+	public long getChunkSize() {
+		return chunkSize;
+	}
+
+	public boolean isPrefetchEnabled() {
+		return prefetchEnabled;
+	}
+
+	public synchronized int getPrefetchDepth() {
+		return depth;
+	}
+
+	public synchronized long getAccesses() {
+		return accesses;
+	}
+
+	/**
+	 * The number of prefetched chunks that were accessed afterwards.
+	 */
+	public synchronized long getPrefetchHits() {
+		return hits;
+	}
+
+	public synchronized long getPrefetchesIssued() {
+		return issued;
+	}
+
+	/**
+	 * The number of prefetched chunks that aged out of the tracking window without being accessed.
+	 */
+	public synchronized long getPrefetchesWasted() {
+		return wasted;
+	}
+
+	/**
+	 * The number of prefetches dropped because the prefetch thread was falling behind.
+	 */
+	public synchronized long getPrefetchesDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Stops prefetching and deregisters the region.
+	 */
+	public void close() throws IOException, InterruptedException {
+		synchronized(this){
+			if (isClosed){
+				return;
+			}
+			isClosed = true;
+			queue.clear();
+		}
+		prefetcher.interrupt();
+		prefetcher.join();
+		mr.deregMr().execute().free();
+	}
+}
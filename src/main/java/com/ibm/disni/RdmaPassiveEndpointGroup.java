@@ -26,6 +26,7 @@ import java.io.IOException;
 import org.slf4j.Logger;
 
 import com.ibm.disni.verbs.IbvCQ;
+import com.ibm.disni.verbs.IbvContext;
 import com.ibm.disni.verbs.IbvQP;
 import com.ibm.disni.verbs.IbvQPInitAttr;
 import com.ibm.disni.verbs.RdmaCmId;
@@ -40,6 +41,7 @@ import com.ibm.disni.util.DiSNILogger;
  * A RdmaEndpoint group control the association between completion queue and endpoints, and also between communication channels and endpoints.
  * 
  * This default implementation assigns a new CQ to each endpoint, without any active CQ processing. Further, all endpoints share one commmunication channel.
+ * Shared receive queues are not supported, their buffers are recycled by the CQ processors of active groups.
  * 
  * Other extensions of the RdmaEndointGroup provide different associations.
  */
@@ -66,7 +68,8 @@ public class RdmaPassiveEndpointGroup<C extends RdmaEndpoint> extends RdmaEndpoi
 	
 	public RdmaCqProvider createCqProvider(C endpoint) throws IOException {
 		logger.info("setting up cq processor");
-		return new RdmaCqProvider(endpoint.getIdPriv().getVerbs(), cqSize);
+		IbvContext context = endpoint.getIdPriv().getVerbs();
+		return new RdmaCqProvider(context, sizeCq(context, cqSize), getCqWcFlags());
 	}
 	
 	public IbvQP createQpProvider(C endpoint) throws IOException{
@@ -77,13 +80,21 @@ public class RdmaPassiveEndpointGroup<C extends RdmaEndpoint> extends RdmaEndpoi
 		attr.cap().setMax_recv_wr(this.maxWR);
 		attr.cap().setMax_send_sge(this.maxSge);
 		attr.cap().setMax_send_wr(this.maxWR);
-		attr.setQp_type(IbvQP.IBV_QPT_RC);
+		attr.setQp_type(endpoint.getQpType());
 		attr.setRecv_cq(cq);
 		attr.setSend_cq(cq);	
-		IbvQP qp = endpoint.getIdPriv().createQP(endpoint.getPd(), attr);
+		IbvQP qp = createQP(endpoint, attr);
 		return qp;
 	}
 	
+	/**
+	 * Not supported, passive endpoints poll their CQs themselves and nothing would recycle the receive buffers of the SRQ.
+	 */
+	@Override
+	public synchronized void setSharedReceiveQueue(int srqSize, int bufferSize, int lowWatermark) throws IOException {
+		throw new IOException("Shared receive queues require active CQ processing, use RdmaActiveEndpointGroup");
+	}
+
 	public void allocateResources(C endpoint) throws Exception {
 		endpoint.allocateResources();
 	}
@@ -0,0 +1,504 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvPd;
+import com.ibm.disni.verbs.SVCDeregMr;
+import com.ibm.disni.verbs.SVCRegMr;
+
+/**
+ * Caches the memory registrations of a protection domain (pin-down cache).
+ * 
+ * Registrations are kept in an interval map ordered by start address. A registration request covered by an 
+ * existing region with the same or stronger access rights is served from the cache, otherwise the range 
+ * is widened to page boundaries, merged with the idle regions it overlaps or adjoins, and registered. 
+ * Regions are reference counted, a region no longer referenced stays registered until the pinned bytes 
+ * exceed the budget of the cache, at which point idle regions are deregistered in least-recently-used order.
+ * 
+ * The memory regions handed out are views carrying the address and length of the request and the keys of the 
+ * cached region. Deregistering a view releases its reference.
+ * 
+ * Regions registered for a buffer are tied to the lifetime of that buffer. Once the buffer is garbage collected 
+ * its memory may be reused at the same address, the region then only serves requests covered by other buffers 
+ * still alive and is deregistered as soon as none is left. Regions registered by address are not tracked and 
+ * stay valid until evicted, the caller has to keep the memory mapped for as long as it uses the cache.
+ */
+public class RdmaRegistrationCache {
+	private static final Logger logger = DiSNILogger.getLogger();
+	private static final long PAGE_SIZE = 4096;
+
+	private IbvPd pd;
+	private long maxPinnedBytes;
+	private TreeSet<Region> regions;
+	private LinkedHashSet<Region> idle;
+	private long maxRegionLength;
+	private long pinnedBytes;
+	private long sequence;
+	private boolean isClosed;
+	private ReferenceQueue<Object> collected;
+	
+	private long hits;
+	private long misses;
+	private long merges;
+	private long evictions;
+	private long invalidations;
+
+	public RdmaRegistrationCache(IbvPd pd, long maxPinnedBytes) {
+		this.pd = pd;
+		this.maxPinnedBytes = maxPinnedBytes;
+		this.regions = new TreeSet<Region>(new Comparator<Region>() {
+			@Override
+			public int compare(Region r1, Region r2) {
+				if (r1.start != r2.start){
+					return Long.compare(r1.start, r2.start);
+				}
+				return Long.compare(r1.seq, r2.seq);
+			}
+		});
+		this.idle = new LinkedHashSet<Region>();
+		this.maxRegionLength = 0;
+		this.pinnedBytes = 0;
+		this.sequence = 0;
+		this.isClosed = false;
+		this.collected = new ReferenceQueue<Object>();
+	}
+
+	/**
+	 * Returns a memory registration call for the given buffer that is served by this cache.
+	 *
+	 * @param buffer the buffer to be registered, needs to represent off-heap memory.
+	 * @param access the access rights.
+	 * @return a stateful verb call (SVC) acquiring a cached registration on every execution.
+	 */
+	public SVCRegMr regMr(ByteBuffer buffer, int access) {
+		return new CachedRegMrCall(buffer, MemoryUtils.getAddress(buffer), buffer.capacity(), access);
+	}
+
+	public SVCRegMr regMr(long address, long length, int access) {
+		return new CachedRegMrCall(null, address, length, access);
+	}
+
+	/**
+	 * Acquires a registration covering the given range, registering memory only if no cached region covers it.
+	 *
+	 * @param address the start of the range.
+	 * @param length the length of the range.
+	 * @param access the access rights.
+	 * @return a memory region covering exactly the requested range, deregistering it releases the reference.
+	 * @throws IOException if the registration fails or the cache is closed.
+	 */
+	public IbvMr acquire(long address, long length, int access) throws IOException {
+		return acquire(null, address, length, access);
+	}
+
+	/**
+	 * Acquires a registration covering the memory of the given buffer, the registration is tied to the lifetime of the buffer.
+	 */
+	public IbvMr acquire(ByteBuffer buffer, int access) throws IOException {
+		return acquire(buffer, MemoryUtils.getAddress(buffer), buffer.capacity(), access);
+	}
+
+	private synchronized IbvMr acquire(Object owner, long address, long length, int access) throws IOException {
+		Region region = acquireRegion(owner, address, length, access);
+		return new CachedMr(region, address, length);
+	}
+
+	synchronized Region acquireRegion(Object owner, long address, long length, int access) throws IOException {
+		if (isClosed){
+			throw new IOException("Trying to register memory with closed registration cache");
+		}
+		if (length <= 0){
+			throw new IllegalArgumentException("Invalid registration length " + length);
+		}
+		purge();
+		long end = address + length;
+		Region region = lookup(address, end, access);
+		if (region != null){
+			hits++;
+		} else {
+			misses++;
+			region = register(owner, address, end, access);
+		}
+		if (owner != null){
+			region.addOwner(owner, address, end, collected);
+		}
+		if (region.refCount == 0){
+			idle.remove(region);
+		}
+		region.refCount++;
+		return region;
+	}
+
+	private Region lookup(long address, long end, int access) {
+		Region best = null;
+		for (Region region : regions.headSet(probe(address), true).descendingSet()){
+			if (region.start + maxRegionLength <= address){
+				break;
+			}
+			if (region.end >= end && (region.access & access) == access && region.covers(address, end)){
+				if (best == null || region.refCount > best.refCount){
+					best = region;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Drops the owners whose buffers have been garbage collected, regions left without a live owner are no longer 
+	 * matched and get deregistered once their last view is released.
+	 */
+	synchronized void purge() throws IOException {
+		Owner owner = (Owner) collected.poll();
+		while (owner != null){
+			Region region = owner.region;
+			region.owners.remove(owner);
+			if (region.owners.isEmpty() && !region.stale){
+				invalidations++;
+				if (region.refCount == 0){
+					deregister(region);
+				} else {
+					region.stale = true;
+					regions.remove(region);
+				}
+			}
+			owner = (Owner) collected.poll();
+		}
+	}
+
+	private Region register(Object owner, long address, long end, int access) throws IOException {
+		long start = address & ~(PAGE_SIZE - 1);
+		end = (end + PAGE_SIZE - 1) & ~(PAGE_SIZE - 1);
+		
+		//merge with idle regions of the same access rights overlapping or adjoining the range, 
+		//the merged region is only tracked if all of its parts are
+		ArrayList<Region> merged = new ArrayList<Region>();
+		boolean tracked = owner != null;
+		boolean grown = true;
+		while (grown){
+			grown = false;
+			for (Region region : regions.headSet(probe(end), true).descendingSet()){
+				if (region.start + maxRegionLength < start){
+					break;
+				}
+				if (region.end < start || region.refCount > 0 || region.access != access || merged.contains(region)){
+					continue;
+				}
+				merged.add(region);
+				tracked &= region.tracked;
+				if (region.start < start || region.end > end){
+					start = Math.min(start, region.start);
+					end = Math.max(end, region.end);
+					grown = true;
+				}
+			}
+		}
+		
+		IbvMr mr = registerMemory(start, end - start, access);
+		Region region = new Region(start, end, access, mr, sequence++);
+		region.tracked = tracked;
+		for (Region old : merged){
+			if (tracked){
+				for (Owner other : old.owners){
+					other.region = region;
+					region.owners.add(other);
+				}
+			}
+			old.owners.clear();
+			deregister(old);
+			merges++;
+		}
+		
+		regions.add(region);
+		pinnedBytes += end - start;
+		maxRegionLength = Math.max(maxRegionLength, end - start);
+		evict();
+		return region;
+	}
+
+	private Region probe(long address) {
+		return new Region(address, address, 0, null, Long.MAX_VALUE);
+	}
+
+	private void deregister(Region region) throws IOException {
+		region.stale = true;
+		regions.remove(region);
+		idle.remove(region);
+		pinnedBytes -= region.end - region.start;
+		deregisterMemory(region.mr);
+	}
+
+	IbvMr registerMemory(long address, long length, int access) throws IOException {
+		SVCRegMr regMr = pd.regMr(address, length, access).execute();
+		IbvMr mr = regMr.getMr();
+		regMr.free();
+		return mr;
+	}
+
+	void deregisterMemory(IbvMr mr) throws IOException {
+		mr.deregMr().execute().free();
+	}
+
+	private void evict() throws IOException {
+		Iterator<Region> iter = idle.iterator();
+		while (pinnedBytes > maxPinnedBytes && iter.hasNext()){
+			Region region = iter.next();
+			iter.remove();
+			deregister(region);
+			evictions++;
+		}
+	}
+
+	synchronized void release(Region region) throws IOException {
+		region.refCount--;
+		if (region.refCount == 0){
+			if (isClosed){
+				deregisterMemory(region.mr);
+			} else if (region.stale){
+				deregister(region);
+			} else {
+				idle.add(region);
+				evict();
+			}
+		}
+	}
+	
+	public synchronized long getPinnedBytes() {
+		return pinnedBytes;
+	}
+
+	public long getMaxPinnedBytes() {
+		return maxPinnedBytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * The number of idle regions absorbed into a larger registration.
+	 */
+	public synchronized long getMerges() {
+		return merges;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * The number of regions invalidated because all the buffers they were registered for have been garbage collected.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Deregisters all idle regions, regions still referenced are deregistered when their last view is released.
+	 */
+	public synchronized void close() throws IOException {
+		if (isClosed){
+			return;
+		}
+		isClosed = true;
+		for (Region region : idle){
+			deregisterMemory(region.mr);
+		}
+		idle.clear();
+		for (Region region : regions){
+			if (region.refCount > 0){
+				logger.info("closing registration cache with region in use, start " + region.start + ", refCount " + region.refCount);
+			}
+		}
+		regions.clear();
+		pinnedBytes = 0;
+		logger.info("registration cache closed, hits " + hits + ", misses " + misses + ", merges " + merges + ", evictions " + evictions);
+	}
+
+	static class Region {
+		final long start;
+		final long end;
+		final int access;
+		final IbvMr mr;
+		final long seq;
+		final ArrayList<Owner> owners;
+		int refCount;
+		boolean tracked;
+		boolean stale;
+		
+		Region(long start, long end, int access, IbvMr mr, long seq) {
+			this.start = start;
+			this.end = end;
+			this.access = access;
+			this.mr = mr;
+			this.seq = seq;
+			this.owners = new ArrayList<Owner>();
+			this.refCount = 0;
+			this.tracked = false;
+			this.stale = false;
+		}
+		
+		boolean covers(long address, long end) {
+			if (!tracked){
+				return true;
+			}
+			for (Owner owner : owners){
+				if (owner.start <= address && owner.end >= end && owner.get() != null){
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		void addOwner(Object buffer, long address, long end, ReferenceQueue<Object> queue) {
+			if (!tracked){
+				return;
+			}
+			for (Owner owner : owners){
+				if (owner.get() == buffer){
+					return;
+				}
+			}
+			owners.add(new Owner(buffer, address, end, this, queue));
+		}
+	}
+
+	static class Owner extends WeakReference<Object> {
+		final long start;
+		final long end;
+		Region region;
+		
+		Owner(Object buffer, long start, long end, Region region, ReferenceQueue<Object> queue) {
+			super(buffer, queue);
+			this.start = start;
+			this.end = end;
+			this.region = region;
+		}
+	}
+
+	private class CachedMr extends IbvMr {
+		private Region region;
+
+		CachedMr(Region region, long addr, long length) throws IOException {
+			super(region.mr.getContext(), addr, length, region.access, region.mr.getLkey(), region.mr.getRkey(), region.mr.getHandle());
+			this.region = region;
+		}
+
+		@Override
+		public SVCDeregMr deregMr() throws IOException {
+			return new CachedDeregMrCall(this);
+		}
+
+		void releaseView() throws IOException {
+			if (isOpen()){
+				close();
+				release(region);
+			}
+		}
+	}
+
+	private class CachedRegMrCall extends SVCRegMr {
+		private ByteBuffer buffer;
+		private long address;
+		private long length;
+		private int access;
+		private IbvMr mr;
+		private boolean valid;
+
+		CachedRegMrCall(ByteBuffer buffer, long address, long length, int access) {
+			this.buffer = buffer;
+			this.address = address;
+			this.length = length;
+			this.access = access;
+			this.mr = null;
+			this.valid = true;
+		}
+
+		@Override
+		public SVCRegMr execute() throws IOException {
+			this.mr = acquire(buffer, address, length, access);
+			return this;
+		}
+
+		@Override
+		public IbvMr getMr() {
+			return mr;
+		}
+
+		@Override
+		public boolean isValid() {
+			return valid;
+		}
+
+		@Override
+		public SVCRegMr free() {
+			this.valid = false;
+			return this;
+		}
+	}
+
+	private static class CachedDeregMrCall extends SVCDeregMr {
+		private CachedMr mr;
+		private boolean valid;
+
+		CachedDeregMrCall(CachedMr mr) {
+			this.mr = mr;
+			this.valid = true;
+		}
+
+		@Override
+		public SVCDeregMr execute() throws IOException {
+			mr.releaseView();
+			return this;
+		}
+
+		@Override
+		public boolean isValid() {
+			return valid;
+		}
+
+		@Override
+		public SVCDeregMr free() {
+			this.valid = false;
+			return this;
+		}
+	}
+}
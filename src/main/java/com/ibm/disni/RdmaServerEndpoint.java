@@ -34,6 +34,7 @@ import com.ibm.disni.verbs.RdmaCmEvent;
 import com.ibm.disni.verbs.RdmaCmId;
 import com.ibm.disni.verbs.SVCRegMr;
 import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
 
 /**
  * This class represent a server endpoint. Conceptually it is similar to a server socket providing operations like bind() and accept().  
@@ -231,11 +232,33 @@ public class RdmaServerEndpoint<C extends RdmaEndpoint> {
 	 * @throws Exception on failure
 	 */
 	public SVCRegMr registerMemory(ByteBuffer buffer) throws IOException {
+		RdmaRegistrationCache regCache = group.getRegistrationCache(pd);
+		if (regCache != null){
+			return regCache.regMr(buffer, access);
+		}
 		return pd.regMr(buffer, access);
 	}
+
+	/**
+	 * Register memory on this endpoint that can be the target of remote atomic operations.
+	 *
+	 * @param buffer the buffer to be registered. The buffer needs to represent 8-byte aligned off-heap memory.
+	 * @return a stateful verb call (SVC) ready to execute the memory registration. 
+	 * @throws Exception on failure, or if the buffer is not 8-byte aligned.
+	 */
+	public SVCRegMr registerAtomicMemory(ByteBuffer buffer) throws IOException {
+		if ((MemoryUtils.getAddress(buffer) & 7) != 0){
+			throw new IOException("Atomic memory needs to be 8-byte aligned");
+		}
+		RdmaRegistrationCache regCache = group.getRegistrationCache(pd);
+		if (regCache != null){
+			return regCache.regMr(buffer, access | IbvMr.IBV_ACCESS_REMOTE_ATOMIC);
+		}
+		return pd.regMr(buffer, access | IbvMr.IBV_ACCESS_REMOTE_ATOMIC);
+	}
 	
 	/**
-	 * Deregister memory.
+	 * Deregister memory. Memory registered through the registration cache of the group is released to the cache.
 	 *
 	 * @param mr the memory region to be de-registered.
 	 * @throws Exception on failure.
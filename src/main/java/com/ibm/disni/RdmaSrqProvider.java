@@ -0,0 +1,234 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvPd;
+import com.ibm.disni.verbs.IbvRecvWR;
+import com.ibm.disni.verbs.IbvSge;
+import com.ibm.disni.verbs.IbvSrq;
+import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.verbs.SVCPostRecv.RecvWRMod;
+import com.ibm.disni.verbs.SVCPostSrqRecv;
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
+
+/**
+ * Owns a shared receive queue (SRQ) together with a pool of receive buffers carved out of one registered memory region.
+ * 
+ * All queue pairs of a device attached to the SRQ draw their receive buffers from the same pool, receive memory 
+ * therefore scales with the number of buffers in flight rather than with the number of connections.
+ * 
+ * Consumed buffers are returned with recycle(). They are not re-posted one by one, instead they are collected and 
+ * posted in one batch once the number of buffers outstanding in the SRQ drops to the low watermark.
+ */
+public class RdmaSrqProvider {
+	private static final Logger logger = DiSNILogger.getLogger();
+	private static final long WR_ID_TAG = 0x5352000000000000L;
+	private static final long WR_ID_TAG_MASK = 0xFFFF000000000000L;
+
+	private IbvSrq srq;
+	private ByteBuffer region;
+	private IbvMr mr;
+	private ByteBuffer[] buffers;
+	private long baseAddress;
+	private int srqSize;
+	private int bufferSize;
+	private int lowWatermark;
+	private SVCPostSrqRecv postRecv;
+	private int[] pending;
+	private boolean[] posted;
+	private int pendingCount;
+	private int outstanding;
+
+	public RdmaSrqProvider(IbvPd pd, int srqSize, int bufferSize, int lowWatermark) throws IOException {
+		if (lowWatermark < 0 || lowWatermark >= srqSize){
+			throw new IOException("Invalid low watermark for SRQ, lowWatermark " + lowWatermark + ", srqSize " + srqSize);
+		}
+		long regionSize = ((long) srqSize)*bufferSize;
+		if (bufferSize <= 0 || regionSize > Integer.MAX_VALUE){
+			throw new IOException("Invalid SRQ buffer configuration, srqSize " + srqSize + ", bufferSize " + bufferSize);
+		}
+		this.srqSize = srqSize;
+		this.bufferSize = bufferSize;
+		this.lowWatermark = lowWatermark;
+		this.srq = pd.createSrq(srqSize, 1, 0);
+		this.region = ByteBuffer.allocateDirect((int) regionSize);
+		this.mr = pd.regMr(region, IbvMr.IBV_ACCESS_LOCAL_WRITE).execute().free().getMr();
+		this.baseAddress = MemoryUtils.getAddress(region);
+		this.buffers = new ByteBuffer[srqSize];
+		for (int i = 0; i < srqSize; i++){
+			region.limit((i + 1)*bufferSize);
+			region.position(i*bufferSize);
+			buffers[i] = region.slice();
+		}
+		region.clear();
+
+		LinkedList<IbvRecvWR> wrList = new LinkedList<IbvRecvWR>();
+		for (int i = 0; i < srqSize; i++){
+			IbvSge sge = new IbvSge();
+			sge.setAddr(baseAddress + ((long) i)*bufferSize);
+			sge.setLength(bufferSize);
+			sge.setLkey(mr.getLkey());
+			LinkedList<IbvSge> sgeList = new LinkedList<IbvSge>();
+			sgeList.add(sge);
+			IbvRecvWR recvWR = new IbvRecvWR();
+			recvWR.setWr_id(WR_ID_TAG | i);
+			recvWR.setSg_list(sgeList);
+			wrList.add(recvWR);
+		}
+		this.postRecv = srq.postRecv(wrList);
+		this.pending = new int[srqSize];
+		this.pendingCount = 0;
+		this.posted = new boolean[srqSize];
+		postRecv.execute();
+		Arrays.fill(posted, true);
+		this.outstanding = srqSize;
+		logger.info("srq provider, srqSize " + srqSize + ", bufferSize " + bufferSize + ", lowWatermark " + lowWatermark);
+	}
+
+	/**
+	 * Checks whether a work completion refers to a receive buffer of this SRQ. Works for error completions too, 
+	 * whose opcode is undefined.
+	 */
+	public boolean isSrqCompletion(IbvWC wc) {
+		return isSrqWrId(wc.getWr_id());
+	}
+
+	/**
+	 * Returns the receive buffer of a completion. Position and limit are set to the received data.
+	 * 
+	 * The buffer is only valid until it is recycled.
+	 */
+	public ByteBuffer getBuffer(IbvWC wc) {
+		ByteBuffer buffer = buffers[index(wc.getWr_id())];
+		buffer.clear();
+		buffer.limit(Math.min(wc.getByte_len(), bufferSize));
+		return buffer;
+	}
+
+	/**
+	 * Returns the receive buffer of a completion to the pool.
+	 */
+	public void recycle(IbvWC wc) throws IOException {
+		recycle(wc.getWr_id());
+	}
+
+	public synchronized void recycle(long wrId) throws IOException {
+		if (!isSrqWrId(wrId)){
+			throw new IOException("Trying to recycle foreign receive buffer, wr_id " + wrId);
+		}
+		int index = index(wrId);
+		if (index >= srqSize || !posted[index]){
+			throw new IOException("Trying to recycle receive buffer that is not posted, wr_id " + wrId);
+		}
+		posted[index] = false;
+		pending[pendingCount++] = index;
+		outstanding--;
+		if (outstanding <= lowWatermark && srq.isOpen()){
+			refill();
+		}
+	}
+
+	/**
+	 * Posts all recycled buffers to the SRQ, regardless of the watermark.
+	 */
+	public synchronized void refill() throws IOException {
+		if (pendingCount == 0){
+			return;
+		}
+		for (int i = 0; i < pendingCount; i++){
+			RecvWRMod wrMod = postRecv.getWrMod(i);
+			wrMod.setWr_id(WR_ID_TAG | pending[i]);
+			wrMod.getSgeMod(0).setAddr(baseAddress + ((long) pending[i])*bufferSize);
+		}
+		postRecv.setNumWr(pendingCount).execute();
+		for (int i = 0; i < pendingCount; i++){
+			posted[pending[i]] = true;
+		}
+		outstanding += pendingCount;
+		pendingCount = 0;
+	}
+
+	/**
+	 * Arms the SRQ limit at the low watermark, the device raises IBV_EVENT_SRQ_LIMIT_REACHED once fewer buffers are posted.
+	 */
+	public synchronized void armLimit() throws IOException {
+		if (lowWatermark > 0 && srq.isOpen()){
+			srq.modify(lowWatermark);
+		}
+	}
+
+	/**
+	 * Handles IBV_EVENT_SRQ_LIMIT_REACHED: re-posts all recycled buffers and re-arms the limit, which is disarmed by the event.
+	 */
+	public synchronized void limitReached() throws IOException {
+		logger.info("srq limit reached, outstanding " + outstanding + ", pending " + pendingCount);
+		if (!srq.isOpen()){
+			return;
+		}
+		refill();
+		armLimit();
+	}
+
+	public synchronized void close() throws IOException {
+		logger.info("closing srq provider");
+		postRecv.free();
+		srq.destroySrq();
+		mr.deregMr().execute().free();
+	}
+
+	public IbvSrq getSrq() {
+		return srq;
+	}
+
+	public int getSrqSize() {
+		return srqSize;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getLowWatermark() {
+		return lowWatermark;
+	}
+
+	public synchronized int getOutstanding() {
+		return outstanding;
+	}
+
+	private static boolean isSrqWrId(long wrId) {
+		return (wrId & WR_ID_TAG_MASK) == WR_ID_TAG;
+	}
+
+	private static int index(long wrId) {
+		return (int) (wrId & ~WR_ID_TAG_MASK);
+	}
+}
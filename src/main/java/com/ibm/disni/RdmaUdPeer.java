@@ -0,0 +1,71 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni;
+
+import java.net.InetSocketAddress;
+
+import com.ibm.disni.verbs.IbvAh;
+import com.ibm.disni.verbs.SVCPostSend.UdMod;
+
+/**
+ * A resolved peer of a datagram endpoint: the address handle of the path to the peer together with the QP number and QKey of its datagram QP.
+ */
+public class RdmaUdPeer {
+	private InetSocketAddress address;
+	private IbvAh ah;
+	private int qpNum;
+	private int qkey;
+
+	public RdmaUdPeer(InetSocketAddress address, IbvAh ah, int qpNum, int qkey) {
+		this.address = address;
+		this.ah = ah;
+		this.qpNum = qpNum;
+		this.qkey = qkey;
+	}
+
+	/**
+	 * Addresses a send work request to this peer.
+	 *
+	 * @param udMod the datagram part of the work request.
+	 */
+	public void setDestination(UdMod udMod) {
+		udMod.setAh(ah);
+		udMod.setRemote_qpn(qpNum);
+		udMod.setRemote_qkey(qkey);
+	}
+
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+
+	public IbvAh getAh() {
+		return ah;
+	}
+
+	public int getQpNum() {
+		return qpNum;
+	}
+
+	public int getQkey() {
+		return qkey;
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.atomic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import com.ibm.disni.RdmaActiveEndpoint;
+import com.ibm.disni.RdmaEndpoint;
+import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.IbvDeviceAttr;
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvSendWR;
+import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.verbs.SVCPollCq;
+import com.ibm.disni.verbs.SVCPostSend;
+import com.ibm.disni.verbs.SVCPostSend.SendWRMod;
+
+/**
+ * Issues remote atomic operations (compare-and-swap and fetch-and-add) on a connected endpoint and waits for their completion.
+ * 
+ * The remote memory has to be registered with IBV_ACCESS_REMOTE_ATOMIC, see RdmaEndpoint.registerAtomicMemory(). 
+ * One operation is outstanding at a time, concurrent callers are serialized. Results are converted to host byte 
+ * order, also on devices replying in big-endian byte order.
+ * 
+ * For passive endpoints, completions are polled directly from the CQ of the endpoint. Completions of other operations 
+ * polled while waiting are queued and handed to the caller through pollCompletion(). For active endpoints, the 
+ * endpoint has to forward its completion events to dispatchCqEvent().
+ * 
+ * An operation not completed within the timeout fails, the object is unusable afterwards since the late completion 
+ * could be taken for the one of the next operation.
+ */
+public class RdmaAtomics {
+	private static final Logger logger = DiSNILogger.getLogger();
+	private static final long WR_ID_TAG = 0x7A70000000000000L;
+	private static final AtomicLong nextId = new AtomicLong(1);
+	private static final int DEFAULT_TIMEOUT = 1000;
+
+	private RdmaEndpoint endpoint;
+	private boolean active;
+	private ByteBuffer resultBuffer;
+	private IbvMr resultMr;
+	private SVCPostSend postSend;
+	private SendWRMod sendWR;
+	private SVCPollCq poll;
+	private long wrId;
+	private boolean completed;
+	private int status;
+	private long timeout;
+	private boolean broken;
+	private ArrayDeque<IbvWC> foreign;
+
+	public RdmaAtomics(RdmaEndpoint endpoint) throws IOException {
+		this(endpoint, DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * @param endpoint a connected endpoint.
+	 * @param timeout the time in milliseconds to wait for the completion of an operation.
+	 */
+	public RdmaAtomics(RdmaEndpoint endpoint, int timeout) throws IOException {
+		if (timeout <= 0){
+			throw new IllegalArgumentException("Invalid atomic operation timeout " + timeout);
+		}
+		IbvDeviceAttr attr = endpoint.getIdPriv().getVerbs().queryDevice();
+		if (!attr.isAtomicSupported()){
+			throw new IOException("Trying to use atomic operations on device without atomic support, atomic_cap " + attr.getAtomic_cap());
+		}
+		ByteOrder replyOrder = attr.isAtomicReplyBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.nativeOrder();
+		this.endpoint = endpoint;
+		this.active = endpoint instanceof RdmaActiveEndpoint;
+		this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.broken = false;
+		this.foreign = new ArrayDeque<IbvWC>();
+		this.resultBuffer = ByteBuffer.allocateDirect(8).order(replyOrder);
+		this.resultMr = endpoint.registerMemory(resultBuffer).execute().free().getMr();
+		this.wrId = WR_ID_TAG | nextId.getAndIncrement();
+
+		this.postSend = endpoint.postSend(1, 1);
+		this.sendWR = postSend.getWrMod(0);
+		sendWR.setWr_id(wrId);
+		sendWR.setSend_flags(IbvSendWR.IBV_SEND_SIGNALED);
+		sendWR.getSgeMod(0).setAddr(MemoryUtils.getAddress(resultBuffer));
+		sendWR.getSgeMod(0).setLength(8);
+		sendWR.getSgeMod(0).setLkey(resultMr.getLkey());
+		if (!active){
+			this.poll = endpoint.getCqProvider().getCQ().poll(1);
+		}
+	}
+
+	/**
+	 * Atomically adds a value to a remote 64-bit word.
+	 *
+	 * @param remoteAddr the 8-byte aligned address of the remote word.
+	 * @param rkey the key of the remote memory region.
+	 * @param add the value to be added.
+	 * @return the value of the remote word before the addition.
+	 * @throws IOException on failure.
+	 */
+	public synchronized long fetchAndAdd(long remoteAddr, int rkey, long add) throws IOException {
+		checkAlignment(remoteAddr);
+		SVCPostSend.AtomicMod atomic = sendWR.getAtomicMod();
+		atomic.setRemote_addr(remoteAddr);
+		atomic.setRkey(rkey);
+		atomic.setCompare_add(add);
+		sendWR.setOpcode(IbvSendWR.IBV_WR_ATOMIC_FETCH_AND_ADD);
+		return execute();
+	}
+
+	/**
+	 * Atomically replaces a remote 64-bit word if it equals an expected value.
+	 *
+	 * @param remoteAddr the 8-byte aligned address of the remote word.
+	 * @param rkey the key of the remote memory region.
+	 * @param compare the expected value.
+	 * @param swap the new value.
+	 * @return the value of the remote word before the operation, equal to compare if the swap took place.
+	 * @throws IOException on failure.
+	 */
+	public synchronized long compareAndSwap(long remoteAddr, int rkey, long compare, long swap) throws IOException {
+		checkAlignment(remoteAddr);
+		SVCPostSend.AtomicMod atomic = sendWR.getAtomicMod();
+		atomic.setRemote_addr(remoteAddr);
+		atomic.setRkey(rkey);
+		atomic.setCompare_add(compare);
+		atomic.setSwap(swap);
+		sendWR.setOpcode(IbvSendWR.IBV_WR_ATOMIC_CMP_AND_SWP);
+		return execute();
+	}
+
+	/**
+	 * Delivers a completion event of the endpoint, required for active endpoints.
+	 *
+	 * @param wc the completion event.
+	 * @return true if the event belonged to an atomic operation issued by this object.
+	 */
+	public boolean dispatchCqEvent(IbvWC wc) {
+		if (wc.getWr_id() != wrId){
+			return false;
+		}
+		synchronized(this){
+			this.status = wc.getStatus();
+			this.completed = true;
+			notifyAll();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a completion of another operation polled from the CQ of a passive endpoint while waiting for an 
+	 * atomic operation.
+	 *
+	 * @return the oldest queued completion, or null.
+	 */
+	public synchronized IbvWC pollCompletion() {
+		return foreign.poll();
+	}
+
+	public synchronized void close() throws IOException {
+		postSend.free();
+		if (poll != null){
+			poll.free();
+		}
+		endpoint.deregisterMemory(resultMr);
+	}
+
+	private long execute() throws IOException {
+		if (broken){
+			throw new IOException("Trying to issue atomic operation after a previous operation timed out");
+		}
+		completed = false;
+		postSend.execute();
+		long deadline = System.nanoTime() + timeout;
+		if (active){
+			waitForCompletion(deadline);
+		} else {
+			pollForCompletion(deadline);
+		}
+		if (!completed){
+			broken = true;
+			logger.info("atomic operation timed out, wr_id " + wrId + ", timeout " + TimeUnit.NANOSECONDS.toMillis(timeout) + "ms");
+			throw new IOException("Atomic operation timed out, wr_id " + wrId);
+		}
+		if (status != IbvWC.IbvWcStatus.IBV_WC_SUCCESS.ordinal()){
+			throw new IOException("Atomic operation failed, status " + IbvWC.IbvWcStatus.valueOf(status));
+		}
+		return resultBuffer.getLong(0);
+	}
+
+	private void waitForCompletion(long deadline) throws IOException {
+		try {
+			long remaining = deadline - System.nanoTime();
+			while (!completed && remaining > 0){
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				remaining = deadline - System.nanoTime();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for atomic operation");
+		}
+	}
+
+	private void pollForCompletion(long deadline) throws IOException {
+		while (!completed && System.nanoTime() - deadline < 0){
+			if (poll.execute().getPolls() > 0){
+				IbvWC wc = poll.getWC(0);
+				if (wc.getWr_id() == wrId){
+					this.status = wc.getStatus();
+					this.completed = true;
+				} else {
+					IbvWC copy = new IbvWC();
+					wc.copyTo(copy);
+					foreign.add(copy);
+				}
+			}
+		}
+	}
+
+	private static void checkAlignment(long remoteAddr) throws IOException {
+		if ((remoteAddr & 7) != 0){
+			throw new IOException("Remote address of atomic operation not 8-byte aligned, address " + remoteAddr);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.atomic;
+
+import java.io.IOException;
+
+/**
+ * A 64-bit counter located in remote memory, updated through RDMA atomic operations.
+ */
+public class RdmaRemoteCounter {
+	private RdmaAtomics atomics;
+	private long remoteAddr;
+	private int rkey;
+
+	public RdmaRemoteCounter(RdmaAtomics atomics, long remoteAddr, int rkey) {
+		this.atomics = atomics;
+		this.remoteAddr = remoteAddr;
+		this.rkey = rkey;
+	}
+
+	public long get() throws IOException {
+		return atomics.fetchAndAdd(remoteAddr, rkey, 0);
+	}
+
+	public long getAndAdd(long delta) throws IOException {
+		return atomics.fetchAndAdd(remoteAddr, rkey, delta);
+	}
+
+	public long addAndGet(long delta) throws IOException {
+		return atomics.fetchAndAdd(remoteAddr, rkey, delta) + delta;
+	}
+
+	public long incrementAndGet() throws IOException {
+		return addAndGet(1);
+	}
+
+	public long decrementAndGet() throws IOException {
+		return addAndGet(-1);
+	}
+
+	/**
+	 * Atomically sets the counter to the given value if it currently holds the expected value.
+	 *
+	 * @return true if successful.
+	 */
+	public boolean compareAndSet(long expect, long update) throws IOException {
+		return atomics.compareAndSwap(remoteAddr, rkey, expect, update) == expect;
+	}
+
+	public long getRemoteAddr() {
+		return remoteAddr;
+	}
+
+	public int getRkey() {
+		return rkey;
+	}
+}
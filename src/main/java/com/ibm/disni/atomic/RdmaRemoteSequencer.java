@@ -0,0 +1,61 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.atomic;
+
+import java.io.IOException;
+
+/**
+ * Hands out unique, monotonically increasing sequence numbers from a 64-bit word in remote memory. 
+ * 
+ * All clients sharing the remote word obtain disjoint numbers, a single fetch-and-add is issued per call.
+ */
+public class RdmaRemoteSequencer {
+	private RdmaAtomics atomics;
+	private long remoteAddr;
+	private int rkey;
+
+	public RdmaRemoteSequencer(RdmaAtomics atomics, long remoteAddr, int rkey) {
+		this.atomics = atomics;
+		this.remoteAddr = remoteAddr;
+		this.rkey = rkey;
+	}
+
+	/**
+	 * Returns the next sequence number.
+	 */
+	public long next() throws IOException {
+		return atomics.fetchAndAdd(remoteAddr, rkey, 1);
+	}
+
+	/**
+	 * Reserves a range of sequence numbers.
+	 *
+	 * @param count the number of sequence numbers to reserve.
+	 * @return the first sequence number of the range.
+	 */
+	public long next(int count) throws IOException {
+		if (count <= 0){
+			throw new IllegalArgumentException("count must be positive, count " + count);
+		}
+		return atomics.fetchAndAdd(remoteAddr, rkey, count);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.atomic;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A spin lock on a 64-bit word in remote memory. The word holds 0 if the lock is free and the id of the owner otherwise.
+ * 
+ * Acquisition uses compare-and-swap with exponential backoff to limit the load on the remote HCA.
+ */
+public class RdmaSpinLock {
+	private static final long FREE = 0;
+	private static final long MIN_BACKOFF_NS = 1000;
+	private static final long MAX_BACKOFF_NS = 1000000;
+
+	private RdmaAtomics atomics;
+	private long remoteAddr;
+	private int rkey;
+	private long ownerId;
+
+	public RdmaSpinLock(RdmaAtomics atomics, long remoteAddr, int rkey, long ownerId) {
+		if (ownerId == FREE){
+			throw new IllegalArgumentException("ownerId must not be 0");
+		}
+		this.atomics = atomics;
+		this.remoteAddr = remoteAddr;
+		this.rkey = rkey;
+		this.ownerId = ownerId;
+	}
+
+	/**
+	 * Tries to acquire the lock once.
+	 *
+	 * @return true if the lock has been acquired.
+	 */
+	public boolean tryLock() throws IOException {
+		return atomics.compareAndSwap(remoteAddr, rkey, FREE, ownerId) == FREE;
+	}
+
+	/**
+	 * Acquires the lock, spinning with exponential backoff until it is available.
+	 */
+	public void lock() throws IOException {
+		long backoff = MIN_BACKOFF_NS;
+		while (!tryLock()){
+			LockSupport.parkNanos(backoff);
+			backoff = Math.min(backoff << 1, MAX_BACKOFF_NS);
+		}
+	}
+
+	/**
+	 * Releases the lock.
+	 *
+	 * @throws IOException if the lock was not held by this owner.
+	 */
+	public void unlock() throws IOException {
+		long value = atomics.compareAndSwap(remoteAddr, rkey, ownerId, FREE);
+		if (value != ownerId){
+			throw new IOException("Trying to unlock remote lock not held, owner " + ownerId + ", value " + value);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A hash map with primitive long keys, lock-free lookups and synchronized updates.
+ * 
+ * Entries live in an open-addressing table with linear probing. A key, once written to a slot, never moves within 
+ * a table, removal only clears the value. Readers therefore always find a key at the slot it was inserted at. Cleared 
+ * slots are reclaimed by rebuilding the table, which is published atomically, so the table does not grow with the 
+ * number of keys inserted over time but with the number of keys present.
+ *
+ * @param <V> the type of the values.
+ */
+public class ConcurrentLongMap<V> {
+	private static final int MIN_CAPACITY = 16;
+
+	private volatile Table<V> table;
+	private volatile V zeroValue;
+	private int size;
+	private int used;
+
+	public ConcurrentLongMap() {
+		this.table = new Table<V>(MIN_CAPACITY);
+		this.zeroValue = null;
+		this.size = 0;
+		this.used = 0;
+	}
+
+	public V get(long key) {
+		if (key == 0){
+			return zeroValue;
+		}
+		Table<V> t = table;
+		int index = hash(key) & t.mask;
+		while (true){
+			long k = t.keys.get(index);
+			if (k == key){
+				return t.values.get(index);
+			}
+			if (k == 0){
+				return null;
+			}
+			index = (index + 1) & t.mask;
+		}
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Maps a key to a value.
+	 *
+	 * @param key the key.
+	 * @param value the value, must not be null.
+	 * @return the previous value, or null.
+	 */
+	public synchronized V put(long key, V value) {
+		if (value == null){
+			throw new NullPointerException("Null values not supported");
+		}
+		if (key == 0){
+			V old = zeroValue;
+			zeroValue = value;
+			if (old == null){
+				size++;
+			}
+			return old;
+		}
+		if ((used + 1)*2 > table.keys.length()){
+			rebuild(Math.max(size + 1, used/2 + 1));
+		}
+		Table<V> t = table;
+		int index = hash(key) & t.mask;
+		while (true){
+			long k = t.keys.get(index);
+			if (k == key){
+				V old = t.values.getAndSet(index, value);
+				if (old == null){
+					size++;
+				}
+				return old;
+			}
+			if (k == 0){
+				//publish the value before the key, readers find the key first
+				t.values.set(index, value);
+				t.keys.set(index, key);
+				used++;
+				size++;
+				return null;
+			}
+			index = (index + 1) & t.mask;
+		}
+	}
+
+	public synchronized V remove(long key) {
+		if (key == 0){
+			V old = zeroValue;
+			zeroValue = null;
+			if (old != null){
+				size--;
+			}
+			return old;
+		}
+		Table<V> t = table;
+		int index = hash(key) & t.mask;
+		while (true){
+			long k = t.keys.get(index);
+			if (k == key){
+				V old = t.values.getAndSet(index, null);
+				if (old != null){
+					size--;
+					if ((used - size)*4 > t.keys.length()){
+						rebuild(size);
+					}
+				}
+				return old;
+			}
+			if (k == 0){
+				return null;
+			}
+			index = (index + 1) & t.mask;
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The number of slots of the current table.
+	 */
+	synchronized int capacity() {
+		return table.keys.length();
+	}
+
+	/**
+	 * Returns a snapshot of the values of this map.
+	 */
+	public ArrayList<V> values() {
+		ArrayList<V> list = new ArrayList<V>();
+		V zero = zeroValue;
+		if (zero != null){
+			list.add(zero);
+		}
+		Table<V> t = table;
+		for (int i = 0; i < t.keys.length(); i++){
+			V value = t.values.get(i);
+			if (value != null){
+				list.add(value);
+			}
+		}
+		return list;
+	}
+
+	public synchronized void clear() {
+		table = new Table<V>(MIN_CAPACITY);
+		zeroValue = null;
+		size = 0;
+		used = 0;
+	}
+
+	/**
+	 * Copies the live entries into a new table sized for the given number of entries, dropping cleared slots.
+	 */
+	private void rebuild(int entries) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < entries*4){
+			capacity <<= 1;
+		}
+		Table<V> old = table;
+		Table<V> t = new Table<V>(capacity);
+		int count = 0;
+		for (int i = 0; i < old.keys.length(); i++){
+			V value = old.values.get(i);
+			if (value == null){
+				continue;
+			}
+			long key = old.keys.get(i);
+			int index = hash(key) & t.mask;
+			while (t.keys.get(index) != 0){
+				index = (index + 1) & t.mask;
+			}
+			t.values.lazySet(index, value);
+			t.keys.lazySet(index, key);
+			count++;
+		}
+		this.used = count;
+		this.table = t;
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private static class Table<V> {
+		final AtomicLongArray keys;
+		final AtomicReferenceArray<V> values;
+		final int mask;
+
+		Table(int capacity) {
+			this.keys = new AtomicLongArray(capacity);
+			this.values = new AtomicReferenceArray<V>(capacity);
+			this.mask = capacity - 1;
+		}
+	}
+}
@@ -22,16 +22,21 @@
 package com.ibm.disni.util;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class MemBuf {
+	private static final AtomicIntegerFieldUpdater<MemBuf> CACHED = AtomicIntegerFieldUpdater.newUpdater(MemBuf.class, "cached");
+	
 	private long address;
 	private ByteBuffer buffer;
 	private MemoryAllocation memAlloc;
+	private volatile int cached;
 
 	MemBuf(ByteBuffer buffer, MemoryAllocation memAlloc) {
 		this.buffer = buffer;
 		this.address = MemoryUtils.getAddress(buffer);
 		this.memAlloc = memAlloc;
+		this.cached = 0;
 	}
 	
 	public final long address() {
@@ -46,6 +51,21 @@ public class MemBuf {
 
 	public final int size() { return buffer.capacity(); }
 
+	boolean isCached() {
+		return cached != 0;
+	}
+
+	/**
+	 * Marks the buffer as cached, returns false if it already was, in which case the buffer must not be cached again.
+	 */
+	boolean markCached() {
+		return CACHED.compareAndSet(this, 0, 1);
+	}
+
+	void markInUse() {
+		cached = 0;
+	}
+
 	public void free() {
 		if (memAlloc != null) {
 			memAlloc.free(this);
@@ -23,12 +23,41 @@ package com.ibm.disni.util;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Allocator for the native command buffers of the verbs calls.
+ * 
+ * Buffers are handed out in power-of-two size classes of at least 64 bytes, carved from 64-byte aligned direct 
+ * memory slabs. Each thread keeps a small magazine of free buffers per size class, allocations and frees are 
+ * served from it without synchronization. Magazines exchange batches of buffers with a shared depot when they 
+ * run empty or full. The depot retains a bounded number of bytes per size class, buffers beyond that are 
+ * dropped and reclaimed by the garbage collector together with their slab. Requests larger than the biggest size 
+ * class get a dedicated buffer that is not cached.
+ */
 public class MemoryAllocation {
 	private static MemoryAllocation instance = null;
-	private ConcurrentSkipListMap<Integer, MemBuf> table;
 	private static final int MIN_BLOCK_SIZE = 64; // 64B
+	private static final int MIN_SHIFT = 6;
+	private static final int CLASSES = 31 - MIN_SHIFT;
+	private static final int MAX_BLOCK_SIZE = 1 << 30;
+	private static final int ALIGNMENT = 64;
+	private static final int SLAB_SIZE = 64*1024;
+	private static final int MAGAZINE_BYTES = 64*1024;
+	private static final int MAGAZINE_SIZE = 32;
+	private static final long DEPOT_BYTES = 4*1024*1024;
+
+	private final ThreadLocal<Magazine[]> magazines;
+	private final ArrayDeque<MemBuf>[] depot;
+	private final int[] depotLimit;
+	private final int[] magazineSize;
+
+	private final LongAdder allocations;
+	private final LongAdder depotTransfers;
+	private final LongAdder slabs;
+	private final LongAdder reservedBytes;
+	private final LongAdder dropped;
 
 	public synchronized static MemoryAllocation getInstance() {
 		if (instance == null) {
@@ -37,8 +66,28 @@ public class MemoryAllocation {
 		return instance;
 	}
 	
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	private MemoryAllocation() {
-		table = new ConcurrentSkipListMap<Integer, MemBuf>();
+		this.magazines = new ThreadLocal<Magazine[]>(){
+			@Override
+			protected Magazine[] initialValue() {
+				return new Magazine[CLASSES];
+			}
+		};
+		this.depot = new ArrayDeque[CLASSES];
+		this.depotLimit = new int[CLASSES];
+		this.magazineSize = new int[CLASSES];
+		for (int i = 0; i < CLASSES; i++){
+			long size = 1L << (i + MIN_SHIFT);
+			depot[i] = new ArrayDeque<MemBuf>();
+			depotLimit[i] = (int) Math.max(2, DEPOT_BYTES/size);
+			magazineSize[i] = (int) Math.max(2, Math.min(MAGAZINE_SIZE, MAGAZINE_BYTES/size));
+		}
+		this.allocations = new LongAdder();
+		this.depotTransfers = new LongAdder();
+		this.slabs = new LongAdder();
+		this.reservedBytes = new LongAdder();
+		this.dropped = new LongAdder();
 	}
 
 	private int roundUpSize(int size){
@@ -57,26 +106,177 @@ public class MemoryAllocation {
 		return size;
 	}
 
+	private static int sizeClass(int size) {
+		return Integer.numberOfTrailingZeros(size) - MIN_SHIFT;
+	}
 
 	public MemBuf allocate(int size) {
+		allocations.increment();
+		if (size > MAX_BLOCK_SIZE){
+			return allocateUncached(size);
+		}
 		size = roundUpSize(size);
-		MemBuf buf = table.remove(size);
-		if (buf == null) {
-			return _allocate(size);
-		} else {
-			return buf;
+		int sizeClass = sizeClass(size);
+		Magazine magazine = getMagazine(sizeClass);
+		if (magazine.count == 0){
+			refill(magazine, sizeClass, size);
+		}
+		MemBuf buf = magazine.buffers[--magazine.count];
+		buf.markInUse();
+		return buf;
+	}
+
+	/**
+	 * Allocates a 64-byte aligned buffer beyond the largest size class, the buffer is reclaimed by the garbage collector.
+	 */
+	private MemBuf allocateUncached(int size) {
+		if (size > Integer.MAX_VALUE - ALIGNMENT){
+			throw new IllegalArgumentException("Buffer size " + size + " exceeds maximum allocation size");
 		}
+		ByteBuffer memory = ByteBuffer.allocateDirect(size + ALIGNMENT - 1);
+		int offset = (int) ((ALIGNMENT - (MemoryUtils.getAddress(memory) & (ALIGNMENT - 1))) & (ALIGNMENT - 1));
+		memory.limit(offset + size);
+		memory.position(offset);
+		ByteBuffer buffer = memory.slice();
+		buffer.order(ByteOrder.nativeOrder());
+		return new MemBuf(buffer, null);
 	}
 
 	void free(MemBuf memBuf) {
+		if (!memBuf.markCached()){
+			return;
+		}
 		memBuf.getBuffer().clear();
-		table.putIfAbsent(memBuf.size(), memBuf);
+		int sizeClass = sizeClass(memBuf.size());
+		Magazine magazine = getMagazine(sizeClass);
+		if (magazine.count == magazine.buffers.length){
+			flush(magazine, sizeClass);
+		}
+		magazine.buffers[magazine.count++] = memBuf;
 	}
 
-	private MemBuf _allocate(int size) {
-		ByteBuffer buffer = ByteBuffer.allocateDirect(size);
-		buffer.order(ByteOrder.nativeOrder());
-		return new MemBuf(buffer, this);
+	private Magazine getMagazine(int sizeClass) {
+		Magazine[] local = magazines.get();
+		Magazine magazine = local[sizeClass];
+		if (magazine == null){
+			magazine = new Magazine(magazineSize[sizeClass]);
+			local[sizeClass] = magazine;
+		}
+		return magazine;
+	}
+
+	/**
+	 * Fills half of an empty magazine, from the depot if possible, otherwise from a new slab.
+	 */
+	private void refill(Magazine magazine, int sizeClass, int size) {
+		int batch = Math.max(1, magazine.buffers.length/2);
+		ArrayDeque<MemBuf> queue = depot[sizeClass];
+		synchronized(queue){
+			while (magazine.count < batch && !queue.isEmpty()){
+				magazine.buffers[magazine.count++] = queue.poll();
+			}
+		}
+		if (magazine.count > 0){
+			depotTransfers.increment();
+			return;
+		}
+		carve(magazine, size, batch);
+	}
+
+	/**
+	 * Moves half of a full magazine to the depot, dropping what exceeds the depot limit.
+	 */
+	private void flush(Magazine magazine, int sizeClass) {
+		int batch = Math.max(1, magazine.buffers.length/2);
+		ArrayDeque<MemBuf> queue = depot[sizeClass];
+		int drops = 0;
+		synchronized(queue){
+			for (int i = 0; i < batch; i++){
+				MemBuf buf = magazine.buffers[--magazine.count];
+				magazine.buffers[magazine.count] = null;
+				if (queue.size() < depotLimit[sizeClass]){
+					queue.add(buf);
+				} else {
+					drops++;
+				}
+			}
+		}
+		depotTransfers.increment();
+		if (drops > 0){
+			dropped.add(drops);
+			reservedBytes.add(-((long) drops) << (sizeClass + MIN_SHIFT));
+		}
+	}
+
+	/**
+	 * Carves a new 64-byte aligned slab into buffers of the given size. Buffers of slab size or larger get a slab of their own.
+	 */
+	private void carve(Magazine magazine, int size, int batch) {
+		int count = Math.max(1, Math.min(batch, SLAB_SIZE/size));
+		int slabSize = size*count;
+		ByteBuffer slab = ByteBuffer.allocateDirect(slabSize + ALIGNMENT - 1);
+		int offset = (int) ((ALIGNMENT - (MemoryUtils.getAddress(slab) & (ALIGNMENT - 1))) & (ALIGNMENT - 1));
+		for (int i = 0; i < count; i++){
+			slab.limit(offset + (i + 1)*size);
+			slab.position(offset + i*size);
+			ByteBuffer buffer = slab.slice();
+			buffer.order(ByteOrder.nativeOrder());
+			MemBuf buf = new MemBuf(buffer, this);
+			buf.markCached();
+			magazine.buffers[magazine.count++] = buf;
+		}
+		slabs.increment();
+		reservedBytes.add(slabSize);
+	}
+
+	/**
+	 * The number of buffers handed out since startup.
+	 */
+	public long getAllocations() {
+		return allocations.sum();
+	}
+
+	/**
+	 * The number of batches exchanged between thread magazines and the depot.
+	 */
+	public long getDepotTransfers() {
+		return depotTransfers.sum();
 	}
 
+	/**
+	 * The number of slabs allocated from direct memory.
+	 */
+	public long getSlabs() {
+		return slabs.sum();
+	}
+
+	/**
+	 * The number of bytes held by buffers that are in use or cached.
+	 */
+	public long getReservedBytes() {
+		return reservedBytes.sum();
+	}
+
+	/**
+	 * The number of freed buffers dropped because the depot was full.
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "allocations " + getAllocations() + ", depotTransfers " + getDepotTransfers() + ", slabs " + getSlabs() + 
+				", reservedBytes " + getReservedBytes() + ", dropped " + getDropped();
+	}
+
+	private static class Magazine {
+		final MemBuf[] buffers;
+		int count;
+		
+		Magazine(int size) {
+			this.buffers = new MemBuf[size];
+			this.count = 0;
+		}
+	}
 }
@@ -21,10 +21,63 @@
 
 package com.ibm.disni.util;
 
+import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 
+import sun.misc.Unsafe;
+
 public class MemoryUtils {
+	private static final Unsafe unsafe = initUnsafe();
+
+	private static Unsafe initUnsafe() {
+		try {
+			Field field = Unsafe.class.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return (Unsafe) field.get(null);
+		} catch (Exception e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
 	public static long getAddress(ByteBuffer buffer) {
 		return ((sun.nio.ch.DirectBuffer) buffer).address();
 	}
+
+	//absolute accessors for native structs, no bounds checking is done
+
+	public static long getLong(long address) {
+		return unsafe.getLong(address);
+	}
+
+	public static void putLong(long address, long value) {
+		unsafe.putLong(address, value);
+	}
+
+	public static int getInt(long address) {
+		return unsafe.getInt(address);
+	}
+
+	public static void putInt(long address, int value) {
+		unsafe.putInt(address, value);
+	}
+
+	public static short getShort(long address) {
+		return unsafe.getShort(address);
+	}
+
+	public static void putShort(long address, short value) {
+		unsafe.putShort(address, value);
+	}
+
+	public static byte getByte(long address) {
+		return unsafe.getByte(address);
+	}
+
+	public static void putByte(long address, byte value) {
+		unsafe.putByte(address, value);
+	}
+
+	public static void setMemory(long address, long bytes, byte value) {
+		unsafe.setMemory(address, bytes, value);
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.util;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Maps memory backed by huge pages, either from a hugetlbfs mount, anonymous MAP_HUGETLB memory, 
+ * or anonymous memory advised for transparent huge pages.
+ */
+public class NativeMemory {
+	public static final long DEFAULT_HUGE_PAGE_SIZE = 2*1024*1024;
+	
+	static {
+	    System.loadLibrary("disni");
+	}
+	
+	public static long mapHugetlbfs(String dir, long length) throws IOException {
+		return check(_mapHugetlbfs(dir, length), "mapping hugetlbfs memory");
+	}
+
+	public static long mapAnonymousHuge(long length) throws IOException {
+		return check(_mapAnonymousHuge(length), "mapping anonymous huge page memory");
+	}
+
+	public static long mapTransparentHuge(long length, long alignment) throws IOException {
+		return check(_mapTransparentHuge(length, alignment), "mapping transparent huge page memory");
+	}
+
+	public static void unmap(long address, long length) throws IOException {
+		check(_unmap(address, length), "unmapping memory");
+	}
+
+	/**
+	 * Creates a direct buffer over native memory. The buffer does not own the memory.
+	 */
+	public static ByteBuffer wrap(long address, int capacity) {
+		return _wrap(address, capacity);
+	}
+
+	/**
+	 * Returns the default huge page size of the system as reported by /proc/meminfo.
+	 */
+	public static long getHugePageSize() {
+		try (BufferedReader reader = new BufferedReader(new FileReader("/proc/meminfo"))) {
+			String line;
+			while ((line = reader.readLine()) != null){
+				if (line.startsWith("Hugepagesize:")){
+					String[] fields = line.split("\\s+");
+					return Long.parseLong(fields[1])*1024;
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+		}
+		return DEFAULT_HUGE_PAGE_SIZE;
+	}
+
+	/**
+	 * Returns the mount point of the first hugetlbfs file system, as listed in /proc/mounts.
+	 *
+	 * @return the mount point, or null if no hugetlbfs is mounted.
+	 */
+	public static String getHugetlbfsMount() {
+		try (BufferedReader reader = new BufferedReader(new FileReader("/proc/mounts"))) {
+			String line;
+			while ((line = reader.readLine()) != null){
+				String[] fields = line.split("\\s+");
+				if (fields.length > 2 && fields[2].equals("hugetlbfs")){
+					return fields[1];
+				}
+			}
+		} catch (IOException e) {
+		}
+		return null;
+	}
+
+	private static long check(long ret, String what) throws IOException {
+		if (ret < 0){
+			throw new IOException("Failed " + what + ", errno " + (-ret));
+		}
+		return ret;
+	}
+
+	private native static long _mapHugetlbfs(String dir, long length);
+
+	private native static long _mapAnonymousHuge(long length);
+
+	private native static long _mapTransparentHuge(long length, long alignment);
+
+	private native static int _unmap(long address, long length);
+
+	private native static ByteBuffer _wrap(long address, int capacity);
+}
@@ -0,0 +1,51 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Busy-wait hint for spin loops. Calls Thread.onSpinWait() on JVMs that have it (Java 9 and later, where 
+ * it compiles to a PAUSE-like instruction), and does nothing on Java 8.
+ */
+public class SpinWait {
+	private static final MethodHandle ON_SPIN_WAIT = lookup();
+
+	private static MethodHandle lookup() {
+		try {
+			return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	public static void onSpinWait() {
+		if (ON_SPIN_WAIT != null){
+			try {
+				ON_SPIN_WAIT.invokeExact();
+			} catch (Throwable e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+import java.io.IOException;
+
+//struct ibv_ah {
+//    struct ibv_context     *context;
+//    struct ibv_pd          *pd;
+//    uint32_t                handle;
+//};
+
+/**
+ * An address handle describing the path to a remote unreliable datagram (UD) QP. 
+ * 
+ * Address handles are passed in the UD part of send work requests, one handle can be used by any number of work requests.
+ */
+public class IbvAh {
+	private RdmaVerbs verbs;
+
+	protected IbvPd pd;
+	protected volatile boolean isOpen;
+
+	public IbvAh(IbvPd pd) throws IOException {
+		this.verbs = RdmaVerbs.open();
+		this.pd = pd;
+		this.isOpen = true;
+	}
+
+	/**
+	 * The protection domain this address handle was created in.
+	 *
+	 * @return the protection domain.
+	 */
+	public IbvPd getPd() {
+		return pd;
+	}
+
+	public boolean isOpen() {
+		return isOpen;
+	}
+
+	public void close() {
+		isOpen = false;
+	}
+
+	//---------- oo-verbs
+
+	public int destroyAh() throws IOException {
+		return verbs.destroyAh(this);
+	}
+}
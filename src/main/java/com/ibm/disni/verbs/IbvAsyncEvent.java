@@ -0,0 +1,172 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+//enum ibv_event_type {
+//        IBV_EVENT_CQ_ERR,
+//        IBV_EVENT_QP_FATAL,
+//        IBV_EVENT_QP_REQ_ERR,
+//        IBV_EVENT_QP_ACCESS_ERR,
+//        IBV_EVENT_COMM_EST,
+//        IBV_EVENT_SQ_DRAINED,
+//        IBV_EVENT_PATH_MIG,
+//        IBV_EVENT_PATH_MIG_ERR,
+//        IBV_EVENT_DEVICE_FATAL,
+//        IBV_EVENT_PORT_ACTIVE,
+//        IBV_EVENT_PORT_ERR,
+//        IBV_EVENT_LID_CHANGE,
+//        IBV_EVENT_PKEY_CHANGE,
+//        IBV_EVENT_SM_CHANGE,
+//        IBV_EVENT_SRQ_ERR,
+//        IBV_EVENT_SRQ_LIMIT_REACHED,
+//        IBV_EVENT_QP_LAST_WQE_REACHED,
+//        IBV_EVENT_CLIENT_REREGISTER,
+//        IBV_EVENT_GID_CHANGE,
+//        IBV_EVENT_WQ_FATAL,
+//};
+
+//struct ibv_async_event {
+//        union {
+//                struct ibv_cq  *cq;
+//                struct ibv_qp  *qp;
+//                struct ibv_srq *srq;
+//                struct ibv_wq  *wq;
+//                int             port_num;
+//        } element;
+//        enum ibv_event_type     event_type;
+//};
+
+/**
+ * Represents an asynchronous event of a device, e.g., a QP that moved to the error state, a CQ overrun or a port going down.
+ * 
+ * Events are acknowledged when they are read, the event object remains valid afterwards.
+ */
+public abstract class IbvAsyncEvent {
+	
+	/**
+	 * Different async event types
+	 */
+	public enum EventType {
+		IBV_EVENT_CQ_ERR, IBV_EVENT_QP_FATAL, IBV_EVENT_QP_REQ_ERR, IBV_EVENT_QP_ACCESS_ERR, IBV_EVENT_COMM_EST, IBV_EVENT_SQ_DRAINED, IBV_EVENT_PATH_MIG, IBV_EVENT_PATH_MIG_ERR, IBV_EVENT_DEVICE_FATAL, IBV_EVENT_PORT_ACTIVE, IBV_EVENT_PORT_ERR, IBV_EVENT_LID_CHANGE, IBV_EVENT_PKEY_CHANGE, IBV_EVENT_SM_CHANGE, IBV_EVENT_SRQ_ERR, IBV_EVENT_SRQ_LIMIT_REACHED, IBV_EVENT_QP_LAST_WQE_REACHED, IBV_EVENT_CLIENT_REREGISTER, IBV_EVENT_GID_CHANGE, IBV_EVENT_WQ_FATAL
+	}
+
+	protected int event;
+	protected int qpNum;
+	protected int portNum;
+
+	protected IbvAsyncEvent(int event, int qpNum, int portNum) {
+		this.event = event;
+		this.qpNum = qpNum;
+		this.portNum = portNum;
+	}
+
+	/**
+	 * Gets the type of the event as defined by ibv_event_type.
+	 */
+	public int getEvent() {
+		return event;
+	}
+
+	/**
+	 * Gets the type of the event.
+	 *
+	 * @return the event type, or null for event types unknown to this version.
+	 */
+	public EventType getEventType() {
+		EventType[] types = EventType.values();
+		if (event < 0 || event >= types.length){
+			return null;
+		}
+		return types[event];
+	}
+
+	/**
+	 * The number of the QP this event refers to, only defined if isQpEvent() is true.
+	 */
+	public int getQpNum() {
+		return qpNum;
+	}
+
+	/**
+	 * The port this event refers to, only defined if isPortEvent() is true.
+	 */
+	public int getPortNum() {
+		return portNum;
+	}
+
+	public boolean isQpEvent() {
+		EventType type = getEventType();
+		return type == EventType.IBV_EVENT_QP_FATAL || type == EventType.IBV_EVENT_QP_REQ_ERR || type == EventType.IBV_EVENT_QP_ACCESS_ERR 
+				|| type == EventType.IBV_EVENT_COMM_EST || type == EventType.IBV_EVENT_SQ_DRAINED || type == EventType.IBV_EVENT_PATH_MIG 
+				|| type == EventType.IBV_EVENT_PATH_MIG_ERR || type == EventType.IBV_EVENT_QP_LAST_WQE_REACHED;
+	}
+
+	/**
+	 * Checks if the event reports an unrecoverable error of a QP. The QP is in the error state, outstanding work requests will be flushed.
+	 */
+	public boolean isQpError() {
+		EventType type = getEventType();
+		return type == EventType.IBV_EVENT_QP_FATAL || type == EventType.IBV_EVENT_QP_REQ_ERR || type == EventType.IBV_EVENT_QP_ACCESS_ERR;
+	}
+
+	public boolean isCqEvent() {
+		return getEventType() == EventType.IBV_EVENT_CQ_ERR;
+	}
+
+	public boolean isSrqEvent() {
+		EventType type = getEventType();
+		return type == EventType.IBV_EVENT_SRQ_ERR || type == EventType.IBV_EVENT_SRQ_LIMIT_REACHED;
+	}
+
+	public boolean isPortEvent() {
+		EventType type = getEventType();
+		return type == EventType.IBV_EVENT_PORT_ACTIVE || type == EventType.IBV_EVENT_PORT_ERR || type == EventType.IBV_EVENT_LID_CHANGE 
+				|| type == EventType.IBV_EVENT_PKEY_CHANGE || type == EventType.IBV_EVENT_SM_CHANGE || type == EventType.IBV_EVENT_CLIENT_REREGISTER 
+				|| type == EventType.IBV_EVENT_GID_CHANGE;
+	}
+
+	/**
+	 * Checks if this is a QP event referring to the given QP. Unlike the QP number, this also tells apart QPs of different devices.
+	 */
+	public abstract boolean isEventFor(IbvQP qp);
+
+	/**
+	 * Checks if this is a CQ event referring to the given CQ.
+	 */
+	public abstract boolean isEventFor(IbvCQ cq);
+
+	/**
+	 * Checks if this is an SRQ event referring to the given SRQ.
+	 */
+	public abstract boolean isEventFor(IbvSrq srq);
+
+	public String toString() {
+		EventType type = getEventType();
+		String name = type != null ? type.name() : "UNKNOWN(" + event + ")";
+		if (isQpEvent()){
+			return name + ", qpNum " + qpNum;
+		} else if (isPortEvent()){
+			return name + ", port " + portNum;
+		}
+		return name;
+	}
+}
@@ -45,19 +45,34 @@ import java.io.IOException;
  * Several queue pairs (QPs) can share the same completion queue.
  */
 public class IbvCQ {
+	//enum ibv_create_cq_wc_flags
+	public static final int IBV_WC_EX_WITH_COMPLETION_TIMESTAMP = 1 << 7;
+	//cq_count and cq_period of struct ibv_moderate_cq are 16 bit
+	public static final int MAX_MODERATION = 0xffff;
+	
 	private RdmaVerbs verbs;
 	
 	protected IbvContext context;
 	protected IbvCompChannel channel;
 	protected int cqe;
 	protected int handle;
+	protected int wcFlags;
+	protected int moderationCount;
+	protected int moderationPeriod;
 	protected volatile boolean isOpen;
 
 	public IbvCQ(IbvContext context, IbvCompChannel compChannel, int handle) throws IOException  {
+		this(context, compChannel, handle, 0);
+	}
+
+	public IbvCQ(IbvContext context, IbvCompChannel compChannel, int handle, int wcFlags) throws IOException  {
 		this.verbs = RdmaVerbs.open();
 		this.context = context;
 		this.channel = compChannel;
 		this.handle = handle;
+		this.wcFlags = wcFlags;
+		this.moderationCount = 1;
+		this.moderationPeriod = 0;
 		this.isOpen = true;
 	}
 
@@ -97,6 +112,36 @@ public class IbvCQ {
 		return cqe;
 	}
 	
+	/**
+	 * The additional work completion fields this CQ was created with, zero for plain CQs.
+	 *
+	 * @return the ibv_create_cq_wc_flags of an extended CQ.
+	 */
+	public int getWcFlags() {
+		return wcFlags;
+	}
+
+	/**
+	 * Checks if completions of this CQ carry the completion timestamp of the device.
+	 */
+	public boolean isTimestamped() {
+		return (wcFlags & IBV_WC_EX_WITH_COMPLETION_TIMESTAMP) != 0;
+	}
+	
+	/**
+	 * The number of completions per completion event, as last set with modifyCQ().
+	 */
+	public int getModerationCount() {
+		return moderationCount;
+	}
+
+	/**
+	 * The moderation timeout in microseconds, as last set with modifyCQ().
+	 */
+	public int getModerationPeriod() {
+		return moderationPeriod;
+	}
+
 	public boolean isOpen() {
 		return isOpen;
 	}
@@ -110,6 +155,10 @@ public class IbvCQ {
 	public SVCPollCq poll(IbvWC[] wcList, int ne) throws IOException {
 		return verbs.pollCQ(this, wcList, ne);
 	}
+
+	public SVCPollCq poll(int ne) throws IOException {
+		return verbs.pollCQ(this, ne);
+	}
 	
 	public SVCReqNotify reqNotification(boolean solicited_only) throws IOException {
 		return verbs.reqNotifyCQ(this, solicited_only);
@@ -119,6 +168,23 @@ public class IbvCQ {
 		return verbs.ackCqEvents(this, nevents);
 	}
 	
+	/**
+	 * Sets the completion event moderation of this CQ, see RdmaVerbs.modifyCQ().
+	 *
+	 * @return 0 on success, the errno value on failure.
+	 */
+	public int modifyCQ(int count, int period) throws IOException {
+		if (count < 1 || count > MAX_MODERATION || period < 0 || period > MAX_MODERATION){
+			throw new IllegalArgumentException("CQ moderation out of range, count " + count + ", period " + period);
+		}
+		int ret = verbs.modifyCQ(this, count, period);
+		if (ret == 0){
+			this.moderationCount = count;
+			this.moderationPeriod = period;
+		}
+		return ret;
+	}
+	
 	public int destroyCQ() throws IOException {
 		return verbs.destroyCQ(this);
 	}
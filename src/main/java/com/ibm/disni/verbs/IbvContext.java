@@ -100,5 +100,35 @@ public class IbvContext  {
 		return verbs.createCQ(this, compChannel, ncqe, comp_vector);
 	}
 
+	public IbvCQ createCQ(IbvCompChannel compChannel, int ncqe, int comp_vector, int wcFlags) throws IOException {
+		return verbs.createCQ(this, compChannel, ncqe, comp_vector, wcFlags);
+	}
+
+	/**
+	 * Reads the free-running clock of the device, in device clock cycles.
+	 */
+	public long queryRtValues() throws IOException {
+		return verbs.queryRtValues(this);
+	}
+
+	/**
+	 * The frequency of the device clock in kHz.
+	 */
+	public long queryCoreClock() throws IOException {
+		return verbs.queryCoreClock(this);
+	}
+
+	public IbvDeviceAttr queryDevice() throws IOException {
+		return verbs.queryDevice(this);
+	}
+
+	public IbvPortAttr queryPort(int port) throws IOException {
+		return verbs.queryPort(this, port);
+	}
+
+	public IbvAsyncEvent getAsyncEvent(int timeout) throws IOException {
+		return verbs.getAsyncEvent(this, timeout);
+	}
+
 	public int queryOdpSupport() throws IOException { return verbs.queryOdpSupport(this); }
 }
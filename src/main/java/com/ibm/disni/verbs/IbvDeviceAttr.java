@@ -0,0 +1,275 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+//struct ibv_device_attr {
+//        char                    fw_ver[64];
+//        __be64                  node_guid;
+//        __be64                  sys_image_guid;
+//        uint64_t                max_mr_size;
+//        uint64_t                page_size_cap;
+//        uint32_t                vendor_id;
+//        uint32_t                vendor_part_id;
+//        uint32_t                hw_ver;
+//        int                     max_qp;
+//        int                     max_qp_wr;
+//        unsigned int            device_cap_flags;
+//        int                     max_sge;
+//        int                     max_sge_rd;
+//        int                     max_cq;
+//        int                     max_cqe;
+//        int                     max_mr;
+//        int                     max_pd;
+//        int                     max_qp_rd_atom;
+//        int                     max_ee_rd_atom;
+//        int                     max_res_rd_atom;
+//        int                     max_qp_init_rd_atom;
+//        int                     max_ee_init_rd_atom;
+//        enum ibv_atomic_cap     atomic_cap;
+//        int                     max_ee;
+//        int                     max_rdd;
+//        int                     max_mw;
+//        int                     max_raw_ipv6_qp;
+//        int                     max_raw_ethy_qp;
+//        int                     max_mcast_grp;
+//        int                     max_mcast_qp_attach;
+//        int                     max_total_mcast_qp_attach;
+//        int                     max_ah;
+//        int                     max_fmr;
+//        int                     max_map_per_fmr;
+//        int                     max_srq;
+//        int                     max_srq_wr;
+//        int                     max_srq_sge;
+//        uint16_t                max_pkeys;
+//        uint8_t                 local_ca_ack_delay;
+//        uint8_t                 phys_port_cnt;
+//};
+
+/**
+ * The attributes and limits of a RDMA device, as returned by ibv_query_device.
+ */
+public class IbvDeviceAttr {
+	public static final int IBV_ATOMIC_NONE = 0;
+	public static final int IBV_ATOMIC_HCA = 1;
+	public static final int IBV_ATOMIC_GLOB = 2;
+	/** Set in atomic_cap by devices returning the results of atomic operations in big-endian byte order. */
+	public static final int IBV_ATOMIC_HCA_REPLY_BE = 64;
+
+	protected long max_mr_size;
+	protected long page_size_cap;
+	protected int vendor_id;
+	protected int vendor_part_id;
+	protected int hw_ver;
+	protected int max_qp;
+	protected int max_qp_wr;
+	protected int device_cap_flags;
+	protected int max_sge;
+	protected int max_sge_rd;
+	protected int max_cq;
+	protected int max_cqe;
+	protected int max_mr;
+	protected int max_pd;
+	protected int max_qp_rd_atom;
+	protected int max_qp_init_rd_atom;
+	protected int atomic_cap;
+	protected int max_mw;
+	protected int max_ah;
+	protected int max_srq;
+	protected int max_srq_wr;
+	protected int max_srq_sge;
+	protected int phys_port_cnt;
+
+	protected IbvDeviceAttr() {
+	}
+
+	/**
+	 * The largest contiguous block that can be registered.
+	 */
+	public long getMax_mr_size() {
+		return max_mr_size;
+	}
+
+	/**
+	 * Supported page sizes.
+	 */
+	public long getPage_size_cap() {
+		return page_size_cap;
+	}
+
+	public int getVendor_id() {
+		return vendor_id;
+	}
+
+	public int getVendor_part_id() {
+		return vendor_part_id;
+	}
+
+	public int getHw_ver() {
+		return hw_ver;
+	}
+
+	/**
+	 * The maximum number of QPs.
+	 */
+	public int getMax_qp() {
+		return max_qp;
+	}
+
+	/**
+	 * The maximum number of outstanding work requests on any send or receive queue.
+	 */
+	public int getMax_qp_wr() {
+		return max_qp_wr;
+	}
+
+	/**
+	 * The device capabilities, a mask of ibv_device_cap_flags.
+	 */
+	public int getDevice_cap_flags() {
+		return device_cap_flags;
+	}
+
+	/**
+	 * The maximum number of scatter/gather elements per work request.
+	 */
+	public int getMax_sge() {
+		return max_sge;
+	}
+
+	/**
+	 * The maximum number of scatter/gather elements per RDMA read work request.
+	 */
+	public int getMax_sge_rd() {
+		return max_sge_rd;
+	}
+
+	/**
+	 * The maximum number of CQs.
+	 */
+	public int getMax_cq() {
+		return max_cq;
+	}
+
+	/**
+	 * The maximum number of entries of a CQ.
+	 */
+	public int getMax_cqe() {
+		return max_cqe;
+	}
+
+	/**
+	 * The maximum number of memory regions.
+	 */
+	public int getMax_mr() {
+		return max_mr;
+	}
+
+	/**
+	 * The maximum number of protection domains.
+	 */
+	public int getMax_pd() {
+		return max_pd;
+	}
+
+	/**
+	 * The maximum number of outstanding RDMA read and atomic operations a QP can be target of.
+	 */
+	public int getMax_qp_rd_atom() {
+		return max_qp_rd_atom;
+	}
+
+	/**
+	 * The maximum number of outstanding RDMA read and atomic operations a QP can initiate.
+	 */
+	public int getMax_qp_init_rd_atom() {
+		return max_qp_init_rd_atom;
+	}
+
+	/**
+	 * The atomic operation support, an ibv_atomic_cap.
+	 */
+	public int getAtomic_cap() {
+		return atomic_cap;
+	}
+
+	/**
+	 * The maximum number of memory windows.
+	 */
+	public int getMax_mw() {
+		return max_mw;
+	}
+
+	/**
+	 * The maximum number of address handles.
+	 */
+	public int getMax_ah() {
+		return max_ah;
+	}
+
+	/**
+	 * The maximum number of SRQs.
+	 */
+	public int getMax_srq() {
+		return max_srq;
+	}
+
+	/**
+	 * The maximum number of outstanding work requests of an SRQ.
+	 */
+	public int getMax_srq_wr() {
+		return max_srq_wr;
+	}
+
+	/**
+	 * The maximum number of scatter/gather elements per SRQ work request.
+	 */
+	public int getMax_srq_sge() {
+		return max_srq_sge;
+	}
+
+	/**
+	 * The number of physical ports.
+	 */
+	public int getPhys_port_cnt() {
+		return phys_port_cnt;
+	}
+
+	/**
+	 * Checks if the device supports atomic operations.
+	 */
+	public boolean isAtomicSupported() {
+		return atomic_cap != IBV_ATOMIC_NONE;
+	}
+
+	/**
+	 * Checks if the device returns the results of atomic operations in big-endian instead of host byte order.
+	 */
+	public boolean isAtomicReplyBigEndian() {
+		return (atomic_cap & IBV_ATOMIC_HCA_REPLY_BE) != 0;
+	}
+
+	public String toString() {
+		return "max_qp " + max_qp + ", max_qp_wr " + max_qp_wr + ", max_sge " + max_sge + ", max_cq " + max_cq + ", max_cqe " + max_cqe 
+				+ ", max_mr " + max_mr + ", max_qp_rd_atom " + max_qp_rd_atom + ", max_qp_init_rd_atom " + max_qp_init_rd_atom 
+				+ ", max_srq_wr " + max_srq_wr + ", atomic_cap " + atomic_cap + ", phys_port_cnt " + phys_port_cnt;
+	}
+}
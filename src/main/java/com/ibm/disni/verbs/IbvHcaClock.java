@@ -0,0 +1,89 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+import java.io.IOException;
+
+/**
+ * Converts device clock cycles, as found in completion timestamps, to nanoseconds.
+ * 
+ * The clock is calibrated against System.nanoTime() by reading the device clock (ibv_query_rt_values_ex) in between two 
+ * reads of the host clock. Device and host clocks drift apart over time, long running applications should re-calibrate periodically.
+ */
+public class IbvHcaClock {
+	private IbvContext context;
+	private long coreClock;
+	private double nanosPerCycle;
+	private long refCycles;
+	private long refNanos;
+	private long uncertainty;
+
+	public IbvHcaClock(IbvContext context) throws IOException {
+		this.context = context;
+		this.coreClock = context.queryCoreClock();
+		if (coreClock <= 0){
+			throw new IOException("Device does not report its core clock, hca_core_clock " + coreClock);
+		}
+		this.nanosPerCycle = 1000000.0 / coreClock;
+		calibrate();
+	}
+
+	/**
+	 * Samples the device clock and the host clock to establish a common point in time. 
+	 */
+	public synchronized void calibrate() throws IOException {
+		long before = System.nanoTime();
+		long cycles = context.queryRtValues();
+		long after = System.nanoTime();
+		this.refCycles = cycles;
+		this.refNanos = before + (after - before) / 2;
+		this.uncertainty = (after - before) / 2;
+	}
+
+	/**
+	 * Converts a duration in device clock cycles to nanoseconds, e.g., the difference of two completion timestamps.
+	 */
+	public long toNanos(long cycles) {
+		return (long) (cycles * nanosPerCycle);
+	}
+
+	/**
+	 * Converts a device timestamp to the time base of System.nanoTime().
+	 */
+	public synchronized long toNanoTime(long cycles) {
+		return refNanos + toNanos(cycles - refCycles);
+	}
+
+	/**
+	 * The frequency of the device clock in kHz.
+	 */
+	public long getCoreClock() {
+		return coreClock;
+	}
+
+	/**
+	 * Half the time it took to read the device clock during the last calibration, a bound on the error of toNanoTime().
+	 */
+	public synchronized long getUncertainty() {
+		return uncertainty;
+	}
+}
@@ -52,6 +52,7 @@ public class IbvMr {
 	protected IbvContext context;
 	protected long addr;
 	protected int length;
+	protected long longLength;
 	protected int access;
 	protected int lkey;
 	protected int rkey;
@@ -63,10 +64,18 @@ public class IbvMr {
 //	}
 
 	public IbvMr(IbvContext context, long addr, int length, int access, int lkey, int rkey, int handle) throws IOException  {
+		this(context, addr, (long) length, access, lkey, rkey, handle);
+	}
+
+	/**
+	 * Creates a memory region of 64-bit length, -1 stands for an implicit on-demand paging region.
+	 */
+	public IbvMr(IbvContext context, long addr, long length, int access, int lkey, int rkey, int handle) throws IOException  {
 		this.verbs = RdmaVerbs.open();
 		this.context = context;
 		this.addr = addr;
-		this.length = length;
+		this.length = (int) Math.min(length, Integer.MAX_VALUE);
+		this.longLength = length;
 		this.access = access;
 		this.lkey = lkey;
 		this.rkey = rkey;
@@ -94,12 +103,24 @@ public class IbvMr {
 	
 	/**
 	 * Gets the length of the memory associated with this MR.
+	 * 
+	 * Regions larger than 2GB report Integer.MAX_VALUE, implicit on-demand paging regions report -1. 
+	 * Use getLongLength() for the full length.
 	 *
 	 * @return the length
 	 */
 	public int getLength() {
 		return length;
 	}
+
+	/**
+	 * Gets the full length of the memory associated with this MR, which may exceed 2GB.
+	 *
+	 * @return the length, or -1 for an implicit on-demand paging region.
+	 */
+	public long getLongLength() {
+		return longLength;
+	}
 	
 	/**
 	 * Unsupported.
@@ -108,6 +129,7 @@ public class IbvMr {
 	 */
 	public void setLength(int length) {
 		this.length = length;
+		this.longLength = length;
 	}	
 
 	/**
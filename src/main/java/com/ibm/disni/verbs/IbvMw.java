@@ -0,0 +1,128 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni.verbs;
+
+import java.io.IOException;
+
+//struct ibv_mw {
+//    struct ibv_context     *context;
+//    struct ibv_pd          *pd;
+//    uint32_t                rkey;
+//    uint32_t                handle;
+//    enum ibv_mw_type        type;
+//};
+
+/**
+ * A memory window, granting remote access to a part of a memory region without registering it again.
+ * 
+ * Type 1 windows are bound with IbvMw.bind() and invalidated by binding them to a zero length. Type 2 windows are bound to a 
+ * QP by posting an IBV_WR_BIND_MW work request carrying a fresh rkey (see nextRkey()), and are revoked by posting IBV_WR_LOCAL_INV 
+ * or by the peer sending IBV_WR_SEND_WITH_INV. The underlying memory region needs to be registered with IBV_ACCESS_MW_BIND.
+ */
+public class IbvMw {
+	public static final int IBV_MW_TYPE_1 = 1;
+	public static final int IBV_MW_TYPE_2 = 2;
+
+	private RdmaVerbs verbs;
+
+	protected IbvPd pd;
+	protected int type;
+	protected volatile int rkey;
+	protected volatile boolean isOpen;
+
+	public IbvMw(IbvPd pd, int type, int rkey) throws IOException {
+		this.verbs = RdmaVerbs.open();
+		this.pd = pd;
+		this.type = type;
+		this.rkey = rkey;
+		this.isOpen = true;
+	}
+
+	/**
+	 * The protection domain this memory window was allocated in.
+	 *
+	 * @return the protection domain.
+	 */
+	public IbvPd getPd() {
+		return pd;
+	}
+
+	/**
+	 * The type of this memory window, IBV_MW_TYPE_1 or IBV_MW_TYPE_2.
+	 *
+	 * @return the type.
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * The key of the most recent bind of this memory window, to be passed to the peer.
+	 *
+	 * @return the rkey.
+	 */
+	public int getRkey() {
+		return rkey;
+	}
+
+	/**
+	 * Records the key of a bind, called once a bind work request has been posted.
+	 *
+	 * @param rkey the new rkey.
+	 */
+	public void setRkey(int rkey) {
+		this.rkey = rkey;
+	}
+
+	/**
+	 * The key to use for the next bind of a type 2 window. Only the low 8 bits of a key are owned by the 
+	 * application, they are incremented so that the keys of earlier binds become invalid.
+	 *
+	 * @return the next rkey.
+	 */
+	public int nextRkey() {
+		return incRkey(rkey);
+	}
+
+	public static int incRkey(int rkey) {
+		return (rkey & 0xffffff00) | ((rkey + 1) & 0xff);
+	}
+
+	public boolean isOpen() {
+		return isOpen;
+	}
+
+	public void close() {
+		isOpen = false;
+	}
+
+	//---------- oo-verbs
+
+	public int bind(IbvQP qp, long wr_id, int send_flags, IbvMwBindInfo bindInfo) throws IOException {
+		return verbs.bindMw(qp, this, wr_id, send_flags, bindInfo);
+	}
+
+	public int deallocMw() throws IOException {
+		return verbs.deallocMw(this);
+	}
+}
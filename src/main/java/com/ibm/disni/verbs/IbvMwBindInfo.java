@@ -0,0 +1,90 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni.verbs;
+
+//struct ibv_mw_bind_info {
+//    struct ibv_mr          *mr;
+//    uint64_t                addr;
+//    uint64_t                length;
+//    unsigned int            mw_access_flags;
+//};
+
+/**
+ * The part of a memory region a memory window is bound to, and the remote access the window grants.
+ * 
+ * A length of zero unbinds the window.
+ */
+public class IbvMwBindInfo {
+	protected IbvMr mr;
+	protected long addr;
+	protected long length;
+	protected int mw_access_flags;
+
+	public IbvMwBindInfo() {
+	}
+
+	public IbvMwBindInfo(IbvMr mr, long addr, long length, int mw_access_flags) {
+		this.mr = mr;
+		this.addr = addr;
+		this.length = length;
+		this.mw_access_flags = mw_access_flags;
+	}
+
+	public IbvMr getMr() {
+		return mr;
+	}
+
+	public void setMr(IbvMr mr) {
+		this.mr = mr;
+	}
+
+	public long getAddr() {
+		return addr;
+	}
+
+	public void setAddr(long addr) {
+		this.addr = addr;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public void setLength(long length) {
+		this.length = length;
+	}
+
+	/**
+	 * The remote access granted through the window, a combination of IBV_ACCESS_REMOTE_READ, IBV_ACCESS_REMOTE_WRITE 
+	 * and IBV_ACCESS_REMOTE_ATOMIC.
+	 *
+	 * @return the access flags.
+	 */
+	public int getMw_access_flags() {
+		return mw_access_flags;
+	}
+
+	public void setMw_access_flags(int mw_access_flags) {
+		this.mw_access_flags = mw_access_flags;
+	}
+}
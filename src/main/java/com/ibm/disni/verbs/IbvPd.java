@@ -83,10 +83,22 @@ public class IbvPd  {
 		return verbs.regMr(this, buffer, access);
 	}
 	
-	public SVCRegMr regMr(long address, int length, int access) throws IOException {
+	public SVCRegMr regMr(long address, long length, int access) throws IOException {
 		return verbs.regMr(this, address, length, access);
 	}
 
+	public IbvSrq createSrq(int maxWr, int maxSge, int srqLimit) throws IOException {
+		return verbs.createSrq(this, maxWr, maxSge, srqLimit);
+	}
+
+	public IbvAh createAh(RdmaUdParam udParam) throws IOException {
+		return verbs.createAh(this, udParam);
+	}
+
+	public IbvMw allocMw(int type) throws IOException {
+		return verbs.allocMw(this, type);
+	}
+
 	public int deallocPd() throws Exception {
 		return verbs.deallocPd(this);
 	}
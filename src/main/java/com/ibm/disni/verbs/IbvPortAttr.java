@@ -0,0 +1,226 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+//struct ibv_port_attr {
+//        enum ibv_port_state     state;
+//        enum ibv_mtu            max_mtu;
+//        enum ibv_mtu            active_mtu;
+//        int                     gid_tbl_len;
+//        uint32_t                port_cap_flags;
+//        uint32_t                max_msg_sz;
+//        uint32_t                bad_pkey_cntr;
+//        uint32_t                qkey_viol_cntr;
+//        uint16_t                pkey_tbl_len;
+//        uint16_t                lid;
+//        uint16_t                sm_lid;
+//        uint8_t                 lmc;
+//        uint8_t                 max_vl_num;
+//        uint8_t                 sm_sl;
+//        uint8_t                 subnet_timeout;
+//        uint8_t                 init_type_reply;
+//        uint8_t                 active_width;
+//        uint8_t                 active_speed;
+//        uint8_t                 phys_state;
+//        uint8_t                 link_layer;
+//        uint8_t                 flags;
+//        uint16_t                port_cap_flags2;
+//        uint32_t                active_speed_ex;
+//};
+
+/**
+ * The attributes of a port of a RDMA device, as returned by ibv_query_port.
+ */
+public class IbvPortAttr {
+	public static final int IBV_PORT_DOWN = 1;
+	public static final int IBV_PORT_INIT = 2;
+	public static final int IBV_PORT_ARMED = 3;
+	public static final int IBV_PORT_ACTIVE = 4;
+
+	public static final int IBV_LINK_LAYER_UNSPECIFIED = 0;
+	public static final int IBV_LINK_LAYER_INFINIBAND = 1;
+	public static final int IBV_LINK_LAYER_ETHERNET = 2;
+
+	protected int state;
+	protected int max_mtu;
+	protected int active_mtu;
+	protected int gid_tbl_len;
+	protected int port_cap_flags;
+	protected int max_msg_sz;
+	protected int lid;
+	protected int sm_lid;
+	protected int active_width;
+	protected int active_speed;
+	protected int phys_state;
+	protected int link_layer;
+
+	protected IbvPortAttr() {
+	}
+
+	/**
+	 * The logical port state, an ibv_port_state.
+	 */
+	public int getState() {
+		return state;
+	}
+
+	/**
+	 * The maximum MTU supported by the port, an ibv_mtu.
+	 */
+	public int getMax_mtu() {
+		return max_mtu;
+	}
+
+	/**
+	 * The MTU in use, an ibv_mtu.
+	 */
+	public int getActive_mtu() {
+		return active_mtu;
+	}
+
+	/**
+	 * The length of the GID table.
+	 */
+	public int getGid_tbl_len() {
+		return gid_tbl_len;
+	}
+
+	/**
+	 * The port capabilities.
+	 */
+	public int getPort_cap_flags() {
+		return port_cap_flags;
+	}
+
+	/**
+	 * The maximum message size.
+	 */
+	public int getMax_msg_sz() {
+		return max_msg_sz;
+	}
+
+	/**
+	 * The LID of the port.
+	 */
+	public int getLid() {
+		return lid;
+	}
+
+	/**
+	 * The LID of the subnet manager.
+	 */
+	public int getSm_lid() {
+		return sm_lid;
+	}
+
+	/**
+	 * The active link width, an ibv_width.
+	 */
+	public int getActive_width() {
+		return active_width;
+	}
+
+	/**
+	 * The active link speed, an ibv_speed.
+	 */
+	public int getActive_speed() {
+		return active_speed;
+	}
+
+	/**
+	 * The physical port state.
+	 */
+	public int getPhys_state() {
+		return phys_state;
+	}
+
+	/**
+	 * The link layer, IBV_LINK_LAYER_INFINIBAND or IBV_LINK_LAYER_ETHERNET.
+	 */
+	public int getLink_layer() {
+		return link_layer;
+	}
+
+	public boolean isActive() {
+		return state == IBV_PORT_ACTIVE;
+	}
+
+	/**
+	 * The active MTU in bytes.
+	 */
+	public int getActiveMtuBytes() {
+		return mtuBytes(active_mtu);
+	}
+
+	/**
+	 * The number of lanes of the active link width.
+	 */
+	public int getActiveLanes() {
+		switch (active_width) {
+		case 1: return 1;
+		case 2: return 4;
+		case 4: return 8;
+		case 8: return 12;
+		case 16: return 2;
+		default: return 0;
+		}
+	}
+
+	/**
+	 * The data rate of one lane of the active link speed in Gbit/s.
+	 */
+	public double getLaneSpeedGbps() {
+		switch (active_speed) {
+		case 1: return 2.5;
+		case 2: return 5.0;
+		case 4: return 10.0;
+		case 8: return 10.3125;
+		case 16: return 14.0625;
+		case 32: return 25.78125;
+		case 64: return 53.125;
+		case 128: return 106.25;
+		default: return 0;
+		}
+	}
+
+	/**
+	 * The signalling rate of the link in Gbit/s, lanes times lane speed. Zero if the port does not report its speed.
+	 */
+	public double getLinkSpeedGbps() {
+		return getActiveLanes()*getLaneSpeedGbps();
+	}
+
+	/**
+	 * Converts an ibv_mtu to bytes.
+	 */
+	public static int mtuBytes(int mtu) {
+		if (mtu < 1 || mtu > 5){
+			return 0;
+		}
+		return 128 << mtu;
+	}
+
+	public String toString() {
+		return "state " + state + ", active_mtu " + getActiveMtuBytes() + ", max_msg_sz " + (max_msg_sz & 0xffffffffL) 
+				+ ", link " + getActiveLanes() + "x" + getLaneSpeedGbps() + "Gbps, link_layer " + link_layer;
+	}
+}
@@ -146,7 +146,7 @@ public class IbvQP {
 	}
 
 	/**
-	 * Gets type of the QP. Only IBV_QPT_RC is supported. 
+	 * Gets type of the QP. IBV_QPT_RC for connected endpoints, IBV_QPT_UD for datagram endpoints. 
 	 *
 	 * @return the QP type.
 	 */
@@ -171,8 +171,20 @@ public class IbvQP {
 	public SVCPostSend postSend(List<IbvSendWR> wrList, List<IbvSendWR> badwrList) throws IOException {
 		return verbs.postSend(this, wrList, badwrList);
 	}
+
+	public SVCPostSend postSend(int maxWr, int maxSge) throws IOException {
+		return verbs.postSend(this, maxWr, maxSge);
+	}
 	
 	public SVCPostRecv postRecv(List<IbvRecvWR> wrList, List<IbvRecvWR> badwrList) throws IOException {
 		return verbs.postRecv(this, wrList, badwrList);
 	}
+
+	public IbvQP modify(IbvQpAttr attr) throws IOException {
+		return verbs.modifyQP(this, attr);
+	}
+
+	public IbvQpAttr query(int attrMask) throws IOException {
+		return verbs.queryQP(this, attrMask);
+	}
 }
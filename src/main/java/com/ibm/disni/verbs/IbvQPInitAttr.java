@@ -36,7 +36,7 @@ package com.ibm.disni.verbs;
  */
 public class IbvQPInitAttr {
 	private long qp_context;
-	private long srq;
+	private IbvSrq srq_obj;
 	private IbvQPCap cap;
 	private byte qp_type;
 	private byte sq_sig_all;
@@ -56,12 +56,18 @@ public class IbvQPInitAttr {
 		this.qp_context = qp_context;
 	}
 
-	public long getSrq() {
-		return srq;
+	public IbvSrq getSrq() {
+		return srq_obj;
 	}
 
-	public void setSrq(long srq) {
-		this.srq = srq;
+	/**
+	 * Attaches the queue pair to a shared receive queue. Receive work requests are then consumed from 
+	 * the SRQ and max_recv_wr is ignored.
+	 *
+	 * @param srq_obj the shared receive queue, or null for a private receive queue.
+	 */
+	public void setSrq(IbvSrq srq_obj) {
+		this.srq_obj = srq_obj;
 	}
 
 	public byte getQp_type() {
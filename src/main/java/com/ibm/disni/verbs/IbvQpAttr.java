@@ -75,9 +75,49 @@ package com.ibm.disni.verbs;
 //};
 
 /**
- * Various attributes to be used when creating a queue pair (QP).
+ * Various attributes to be used when modifying or querying a queue pair (QP).
+ * 
+ * Every setter also adds the matching bit to the attribute mask, so only the attributes that were 
+ * explicitly set are applied by IbvQP.modify(). Attributes set through getCap() or getAh_attr() require 
+ * IBV_QP_CAP or IBV_QP_AV to be added to the mask by hand.
  */
 public class IbvQpAttr {        
+	public static final int IBV_QP_STATE = 1 << 0;
+	public static final int IBV_QP_CUR_STATE = 1 << 1;
+	public static final int IBV_QP_EN_SQD_ASYNC_NOTIFY = 1 << 2;
+	public static final int IBV_QP_ACCESS_FLAGS = 1 << 3;
+	public static final int IBV_QP_PKEY_INDEX = 1 << 4;
+	public static final int IBV_QP_PORT = 1 << 5;
+	public static final int IBV_QP_QKEY = 1 << 6;
+	public static final int IBV_QP_AV = 1 << 7;
+	public static final int IBV_QP_PATH_MTU = 1 << 8;
+	public static final int IBV_QP_TIMEOUT = 1 << 9;
+	public static final int IBV_QP_RETRY_CNT = 1 << 10;
+	public static final int IBV_QP_RNR_RETRY = 1 << 11;
+	public static final int IBV_QP_RQ_PSN = 1 << 12;
+	public static final int IBV_QP_MAX_QP_RD_ATOMIC = 1 << 13;
+	public static final int IBV_QP_ALT_PATH = 1 << 14;
+	public static final int IBV_QP_MIN_RNR_TIMER = 1 << 15;
+	public static final int IBV_QP_SQ_PSN = 1 << 16;
+	public static final int IBV_QP_MAX_DEST_RD_ATOMIC = 1 << 17;
+	public static final int IBV_QP_PATH_MIG_STATE = 1 << 18;
+	public static final int IBV_QP_CAP = 1 << 19;
+	public static final int IBV_QP_DEST_QPN = 1 << 20;
+
+	public static final int IBV_QPS_RESET = 0;
+	public static final int IBV_QPS_INIT = 1;
+	public static final int IBV_QPS_RTR = 2;
+	public static final int IBV_QPS_RTS = 3;
+	public static final int IBV_QPS_SQD = 4;
+	public static final int IBV_QPS_SQE = 5;
+	public static final int IBV_QPS_ERR = 6;
+
+	public static final int IBV_MTU_256 = 1;
+	public static final int IBV_MTU_512 = 2;
+	public static final int IBV_MTU_1024 = 3;
+	public static final int IBV_MTU_2048 = 4;
+	public static final int IBV_MTU_4096 = 5;
+
 	protected int qp_state;
 	protected int cur_qp_state;
 	protected int path_mtu;
@@ -106,6 +146,10 @@ public class IbvQpAttr {
 	
 	protected int qpAttrMask;
 
+	public IbvQpAttr() {
+		this(new IbvAhAttr(new IbvGlobalRoute()), new IbvAhAttr(new IbvGlobalRoute()), new IbvQPCap());
+	}
+
 	protected IbvQpAttr(IbvAhAttr ah_attr, IbvAhAttr alt_ah_attr, IbvQPCap cap) {
 		this.ah_attr = ah_attr;
 		this.alt_ah_attr = alt_ah_attr;
@@ -118,6 +162,7 @@ public class IbvQpAttr {
 
 	public void setQp_state(int qp_state) {
 		this.qp_state = qp_state;
+		this.qpAttrMask |= IBV_QP_STATE;
 	}
 
 	public int getQpAttrMask() {
@@ -134,6 +179,7 @@ public class IbvQpAttr {
 
 	public void setQp_access_flags(int qp_access_flags) {
 		this.qp_access_flags = qp_access_flags;
+		this.qpAttrMask |= IBV_QP_ACCESS_FLAGS;
 	}
 
 	public byte getMax_dest_rd_atomic() {
@@ -142,6 +188,7 @@ public class IbvQpAttr {
 
 	public void setMax_dest_rd_atomic(byte max_dest_rd_atomic) {
 		this.max_dest_rd_atomic = max_dest_rd_atomic;
+		this.qpAttrMask |= IBV_QP_MAX_DEST_RD_ATOMIC;
 	}
 
 	public byte getPort_num() {
@@ -150,6 +197,7 @@ public class IbvQpAttr {
 
 	public void setPort_num(byte port_num) {
 		this.port_num = port_num;
+		this.qpAttrMask |= IBV_QP_PORT;
 	}
 
 	public int getPath_mtu() {
@@ -158,6 +206,7 @@ public class IbvQpAttr {
 
 	public void setPath_mtu(int path_mtu) {
 		this.path_mtu = path_mtu;
+		this.qpAttrMask |= IBV_QP_PATH_MTU;
 	}
 
 	public IbvAhAttr getAh_attr() {
@@ -174,6 +223,7 @@ public class IbvQpAttr {
 
 	public void setCur_qp_state(int cur_qp_state) {
 		this.cur_qp_state = cur_qp_state;
+		this.qpAttrMask |= IBV_QP_CUR_STATE;
 	}
 
 	public int getPath_mig_state() {
@@ -182,6 +232,7 @@ public class IbvQpAttr {
 
 	public void setPath_mig_state(int path_mig_state) {
 		this.path_mig_state = path_mig_state;
+		this.qpAttrMask |= IBV_QP_PATH_MIG_STATE;
 	}
 
 	public int getQkey() {
@@ -190,6 +241,7 @@ public class IbvQpAttr {
 
 	public void setQkey(int qkey) {
 		this.qkey = qkey;
+		this.qpAttrMask |= IBV_QP_QKEY;
 	}
 
 	public int getRq_psn() {
@@ -198,6 +250,7 @@ public class IbvQpAttr {
 
 	public void setRq_psn(int rq_psn) {
 		this.rq_psn = rq_psn;
+		this.qpAttrMask |= IBV_QP_RQ_PSN;
 	}
 
 	public int getSq_psn() {
@@ -206,6 +259,7 @@ public class IbvQpAttr {
 
 	public void setSq_psn(int sq_psn) {
 		this.sq_psn = sq_psn;
+		this.qpAttrMask |= IBV_QP_SQ_PSN;
 	}
 
 	public int getDest_qp_num() {
@@ -214,6 +268,7 @@ public class IbvQpAttr {
 
 	public void setDest_qp_num(int dest_qp_num) {
 		this.dest_qp_num = dest_qp_num;
+		this.qpAttrMask |= IBV_QP_DEST_QPN;
 	}
 
 	public IbvQPCap getCap() {
@@ -226,6 +281,7 @@ public class IbvQpAttr {
 
 	public void setPkey_index(short pkey_index) {
 		this.pkey_index = pkey_index;
+		this.qpAttrMask |= IBV_QP_PKEY_INDEX;
 	}
 
 	public short getAlt_pkey_index() {
@@ -234,6 +290,7 @@ public class IbvQpAttr {
 
 	public void setAlt_pkey_index(short alt_pkey_index) {
 		this.alt_pkey_index = alt_pkey_index;
+		this.qpAttrMask |= IBV_QP_ALT_PATH;
 	}
 
 	public byte getEn_sqd_async_notify() {
@@ -242,6 +299,7 @@ public class IbvQpAttr {
 
 	public void setEn_sqd_async_notify(byte en_sqd_async_notify) {
 		this.en_sqd_async_notify = en_sqd_async_notify;
+		this.qpAttrMask |= IBV_QP_EN_SQD_ASYNC_NOTIFY;
 	}
 
 	public byte getSq_draining() {
@@ -258,6 +316,7 @@ public class IbvQpAttr {
 
 	public void setMax_rd_atomic(byte max_rd_atomic) {
 		this.max_rd_atomic = max_rd_atomic;
+		this.qpAttrMask |= IBV_QP_MAX_QP_RD_ATOMIC;
 	}
 
 	public byte getMin_rnr_timer() {
@@ -266,6 +325,7 @@ public class IbvQpAttr {
 
 	public void setMin_rnr_timer(byte min_rnr_timer) {
 		this.min_rnr_timer = min_rnr_timer;
+		this.qpAttrMask |= IBV_QP_MIN_RNR_TIMER;
 	}
 
 	public byte getTimeout() {
@@ -274,6 +334,7 @@ public class IbvQpAttr {
 
 	public void setTimeout(byte timeout) {
 		this.timeout = timeout;
+		this.qpAttrMask |= IBV_QP_TIMEOUT;
 	}
 
 	public byte getRetry_cnt() {
@@ -282,6 +343,7 @@ public class IbvQpAttr {
 
 	public void setRetry_cnt(byte retry_cnt) {
 		this.retry_cnt = retry_cnt;
+		this.qpAttrMask |= IBV_QP_RETRY_CNT;
 	}
 
 	public byte getRnr_retry() {
@@ -290,6 +352,7 @@ public class IbvQpAttr {
 
 	public void setRnr_retry(byte rnr_retry) {
 		this.rnr_retry = rnr_retry;
+		this.qpAttrMask |= IBV_QP_RNR_RETRY;
 	}
 
 	public byte getAlt_port_num() {
@@ -298,6 +361,7 @@ public class IbvQpAttr {
 
 	public void setAlt_port_num(byte alt_port_num) {
 		this.alt_port_num = alt_port_num;
+		this.qpAttrMask |= IBV_QP_ALT_PATH;
 	}
 
 	public byte getAlt_timeout() {
@@ -306,6 +370,7 @@ public class IbvQpAttr {
 
 	public void setAlt_timeout(byte alt_timeout) {
 		this.alt_timeout = alt_timeout;
+		this.qpAttrMask |= IBV_QP_ALT_PATH;
 	}
 
 }
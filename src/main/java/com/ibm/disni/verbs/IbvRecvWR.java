@@ -21,6 +21,7 @@
 
 package com.ibm.disni.verbs;
 
+import java.io.IOException;
 import java.util.LinkedList;
 
 
@@ -76,8 +77,9 @@ public class IbvRecvWR {
 	 * Unsupported.
 	 *
 	 * @param num_sge the new num_sge
+	 * @throws IOException if num_sge is out of range for a work request of a stateful verb call.
 	 */
-	public void setNum_sge(int num_sge) {
+	public void setNum_sge(int num_sge) throws IOException {
 		this.num_sge = num_sge;
 	}
 
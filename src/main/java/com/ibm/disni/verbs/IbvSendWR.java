@@ -21,6 +21,7 @@
 
 package com.ibm.disni.verbs;
 
+import java.io.IOException;
 import java.util.LinkedList;
 
 // TODO: Auto-generated Javadoc
@@ -31,7 +32,10 @@ import java.util.LinkedList;
 //    int                     num_sge;
 //    enum ibv_wr_opcode      opcode;
 //    int                     send_flags;
-//    uint32_t                imm_data;       /* in network byte order */
+//    union {
+//            uint32_t        imm_data;       /* in network byte order */
+//            uint32_t        invalidate_rkey;
+//    };
 //    union {
 //            struct {
 //                    uint64_t        remote_addr;
@@ -49,6 +53,23 @@ import java.util.LinkedList;
 //                    uint32_t        remote_qkey;
 //            } ud;
 //    } wr;
+//    union {
+//            struct {
+//                    uint32_t    remote_srqn;
+//            } xrc;
+//    } qp_type;
+//    union {
+//            struct {
+//                    struct ibv_mw            *mw;
+//                    uint32_t                  rkey;
+//                    struct ibv_mw_bind_info   bind_info;
+//            } bind_mw;
+//            struct {
+//                    void                     *hdr;
+//                    uint16_t                  hdr_sz;
+//                    uint16_t                  mss;
+//            } tso;
+//    };
 //};
 
 /**
@@ -58,7 +79,7 @@ import java.util.LinkedList;
  */
 public class IbvSendWR {
 	public enum IbvWrOcode {
-		IBV_WR_RDMA_WRITE, IBV_WR_RDMA_WRITE_WITH_IMM, IBV_WR_SEND, IBV_WR_SEND_WITH_IMM, IBV_WR_RDMA_READ, IBV_WR_ATOMIC_CMP_AND_SWP, IBV_WR_ATOMIC_FETCH_AND_ADD
+		IBV_WR_RDMA_WRITE, IBV_WR_RDMA_WRITE_WITH_IMM, IBV_WR_SEND, IBV_WR_SEND_WITH_IMM, IBV_WR_RDMA_READ, IBV_WR_ATOMIC_CMP_AND_SWP, IBV_WR_ATOMIC_FETCH_AND_ADD, IBV_WR_LOCAL_INV, IBV_WR_BIND_MW, IBV_WR_SEND_WITH_INV
 	}
 	
 	public static final int IBV_WR_RDMA_WRITE = 0;
@@ -68,6 +89,9 @@ public class IbvSendWR {
 	public static final int IBV_WR_RDMA_READ = 4;
 	public static final int IBV_WR_ATOMIC_CMP_AND_SWP = 5;
 	public static final int IBV_WR_ATOMIC_FETCH_AND_ADD = 6;
+	public static final int IBV_WR_LOCAL_INV = 7;
+	public static final int IBV_WR_BIND_MW = 8;
+	public static final int IBV_WR_SEND_WITH_INV = 9;
 
 	public static int IBV_SEND_FENCE = 1;
 	public static int IBV_SEND_SIGNALED = 1 << 1;
@@ -84,11 +108,13 @@ public class IbvSendWR {
 	protected Rdma rdma;
 	protected Atomic atomic;
 	protected Ud ud;
+	protected BindMw bind_mw;
 
 	public IbvSendWR() {
 		rdma = new Rdma();
 		atomic = new Atomic();
 		ud = new Ud();
+		bind_mw = new BindMw();
 		sg_list = new LinkedList<IbvSge>();
 	}
 	
@@ -159,15 +185,16 @@ public class IbvSendWR {
 	 * Unsupported.
 	 *
 	 * @param num_sge the new num_sge
+	 * @throws IOException if num_sge is out of range for a work request of a stateful verb call.
 	 */
-	public void setNum_sge(int num_sge) {
+	public void setNum_sge(int num_sge) throws IOException {
 		this.num_sge = num_sge;
 	}
 
 	/**
 	 * Returns the opcode of this work request.
 	 * 
-	 * A opcode can be either IBV_WR_RDMA_WRITE, IBV_WR_SEND, or IBV_WR_RDMA_READ.
+	 * A opcode can be either IBV_WR_RDMA_WRITE, IBV_WR_SEND, IBV_WR_RDMA_READ, IBV_WR_ATOMIC_CMP_AND_SWP or IBV_WR_ATOMIC_FETCH_AND_ADD.
 	 *
 	 * @return the opcode
 	 */
@@ -178,7 +205,7 @@ public class IbvSendWR {
 	/**
 	 * Returns the opcode of this work request.
 	 * 
-	 * A opcode can be either IBV_WR_RDMA_WRITE, IBV_WR_SEND, or IBV_WR_RDMA_READ.
+	 * A opcode can be either IBV_WR_RDMA_WRITE, IBV_WR_SEND, IBV_WR_RDMA_READ, IBV_WR_ATOMIC_CMP_AND_SWP or IBV_WR_ATOMIC_FETCH_AND_ADD.
 	 *
 	 * @param opcode the new opcode
 	 */
@@ -222,6 +249,21 @@ public class IbvSendWR {
 		this.imm_data = imm_data;
 	}
 
+	/**
+	 * The key to invalidate, shares its storage with the immediate data. 
+	 * 
+	 * Used by IBV_WR_LOCAL_INV to revoke a local memory window and by IBV_WR_SEND_WITH_INV to revoke a window of the peer.
+	 *
+	 * @return the invalidate_rkey
+	 */
+	public int getInvalidate_rkey() {
+		return imm_data;
+	}
+
+	public void setInvalidate_rkey(int invalidate_rkey) {
+		setImm_data(invalidate_rkey);
+	}
+
 	/**
 	 * Gets the RDMA section of of this work request.
 	 * 
@@ -234,7 +276,10 @@ public class IbvSendWR {
 	}
 
 	/**
-	 * Unsupported. 
+	 * Gets the atomic section of this work request.
+	 * 
+	 * The atomic part is required for IBV_WR_ATOMIC_CMP_AND_SWP and IBV_WR_ATOMIC_FETCH_AND_ADD. The remote address 
+	 * needs to be 8-byte aligned, the original remote value is written to the first scatter/gather element.
 	 *
 	 * @return the atomic
 	 */
@@ -243,13 +288,26 @@ public class IbvSendWR {
 	}
 
 	/**
-	 * Unsupported.
+	 * Gets the datagram section of this work request.
+	 * 
+	 * The datagram part is required for work requests posted on UD QPs. It addresses the destination QP through an address handle.
 	 *
 	 * @return the ud
 	 */
 	public Ud getUd() {
 		return ud;
 	}
+
+	/**
+	 * Gets the memory window section of this work request.
+	 * 
+	 * The memory window part is required for IBV_WR_BIND_MW, which binds a type 2 memory window to part of a memory region.
+	 *
+	 * @return the bind_mw
+	 */
+	public BindMw getBind_mw() {
+		return bind_mw;
+	}
 	
 	/**
 	 * Specifies the remote buffer to be used in READ or WRITE operations. 
@@ -322,7 +380,7 @@ public class IbvSendWR {
 	}
 
 	/**
-	 * Unsupported.
+	 * Specifies the remote 64-bit word and the operands of atomic operations.
 	 */
 	public static class Atomic  {
 		protected long remote_addr;
@@ -380,22 +438,22 @@ public class IbvSendWR {
 	}
 
 	/**
-	 * Unsupported.
+	 * Specifies the destination QP of datagram operations.
 	 */
 	public static class Ud  {
-		protected int ah; // 24
-		protected int remote_qpn; // 28
-		protected int remote_qkey; // 32
-		protected int reserved; // 36
+		protected IbvAh ah;
+		protected int remote_qpn;
+		protected int remote_qkey;
+		protected int reserved;
 
 		public Ud() {
 		}
 
-		public int getAh() {
+		public IbvAh getAh() {
 			return ah;
 		}
 
-		public void setAh(int ah) {
+		public void setAh(IbvAh ah) {
 			this.ah = ah;
 		}
 
@@ -427,5 +485,51 @@ public class IbvSendWR {
 			return Ud.class.getCanonicalName();
 		}
 	}
+
+	/**
+	 * Specifies the memory window, its new key and the memory it is bound to.
+	 */
+	public static class BindMw  {
+		protected IbvMw mw;
+		protected int rkey;
+		protected IbvMwBindInfo bind_info;
+
+		public BindMw() {
+			this.bind_info = new IbvMwBindInfo();
+		}
+
+		public IbvMw getMw() {
+			return mw;
+		}
+
+		public void setMw(IbvMw mw) {
+			this.mw = mw;
+		}
+
+		/**
+		 * The key of the window once bound, usually IbvMw.nextRkey().
+		 *
+		 * @return the rkey
+		 */
+		public int getRkey() {
+			return rkey;
+		}
+
+		public void setRkey(int rkey) {
+			this.rkey = rkey;
+		}
+
+		public IbvMwBindInfo getBind_info() {
+			return bind_info;
+		}
+
+		public void setBind_info(IbvMwBindInfo bind_info) {
+			this.bind_info = bind_info;
+		}
+
+		public String getClassName() {
+			return BindMw.class.getCanonicalName();
+		}
+	}
 	
 }
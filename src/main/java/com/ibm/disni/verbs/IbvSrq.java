@@ -0,0 +1,108 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+import java.io.IOException;
+import java.util.List;
+
+//struct ibv_srq {
+//    struct ibv_context     *context;
+//    void                   *srq_context;
+//    struct ibv_pd          *pd;
+//    uint32_t                handle;
+//
+//    pthread_mutex_t         mutex;
+//    pthread_cond_t          cond;
+//    uint32_t                events_completed;
+//};
+
+/**
+ * Represents a shared receive queue (SRQ).
+ * 
+ * Receive work requests posted to an SRQ are consumed by any of the queue pairs attached to it. Receive
+ * completions are delivered to the receive CQ of the queue pair which consumed the work request.
+ */
+public class IbvSrq {
+	private RdmaVerbs verbs;
+	
+	protected IbvPd pd;
+	protected int maxWr;
+	protected int maxSge;
+	protected volatile boolean isOpen;
+
+	public IbvSrq(IbvPd pd, int maxWr, int maxSge) throws IOException {
+		this.verbs = RdmaVerbs.open();
+		this.pd = pd;
+		this.maxWr = maxWr;
+		this.maxSge = maxSge;
+		this.isOpen = true;
+	}
+
+	/**
+	 * The protection domain this SRQ was created with. 
+	 *
+	 * @return the protection domain.
+	 */
+	public IbvPd getPd() {
+		return pd;
+	}
+
+	/**
+	 * The maximum number of outstanding receive work requests.
+	 *
+	 * @return the maximum number of work requests.
+	 */
+	public int getMaxWr() {
+		return maxWr;
+	}
+
+	/**
+	 * The maximum number of scatter/gather elements per receive work request.
+	 *
+	 * @return the maximum number of scatter/gather elements.
+	 */
+	public int getMaxSge() {
+		return maxSge;
+	}
+
+	public boolean isOpen() {
+		return isOpen;
+	}
+
+	public void close() {
+		isOpen = false;
+	}
+
+	//---------- oo-verbs
+
+	public SVCPostSrqRecv postRecv(List<IbvRecvWR> wrList) throws IOException {
+		return verbs.postSrqRecv(this, wrList);
+	}
+
+	public void modify(int srqLimit) throws IOException {
+		verbs.modifySrq(this, srqLimit);
+	}
+
+	public int destroySrq() throws IOException {
+		return verbs.destroySrq(this);
+	}
+}
@@ -65,6 +65,7 @@ public class IbvWC {
 		IBV_WC_COMP_SWAP(3),
 		IBV_WC_FETCH_ADD(4),
 		IBV_WC_BIND_MW(5),
+		IBV_WC_LOCAL_INV(6),
 		IBV_WC_RECV(128),
 		IBV_WC_RECV_RDMA_WITH_IMM(129);
 
@@ -87,6 +88,10 @@ public class IbvWC {
     public static int CQ_EMPTY = -1;
     public static int CQ_POLL_ERR = -2;
 
+	public static int IBV_WC_GRH = 1;
+	public static int IBV_WC_WITH_IMM = 1 << 1;
+	public static int IBV_WC_WITH_INV = 1 << 3;
+
 	protected long wr_id;
 	protected int status;
 	protected int opcode;
@@ -100,6 +105,7 @@ public class IbvWC {
 	protected short slid;
 	protected short sl;
 	protected short dlid_path_bits;
+	protected long completion_ts;
 
 	protected int err;
 	protected boolean isSend;
@@ -134,10 +140,31 @@ public class IbvWC {
 		wc.status = this.status;
 		wc.wqIndex = this.wqIndex;
 		wc.wr_id = this.wr_id;
+		wc.completion_ts = this.completion_ts;
 
 		return wc;
 	}
 
+	/**
+	 * Copies the fields of this work completion into the given one, e.g. to keep a completion beyond the next poll.
+	 */
+	public void copyTo(IbvWC wc) {
+		wc.setWr_id(getWr_id());
+		wc.setStatus(getStatus());
+		wc.setOpcode(getOpcode());
+		wc.setVendor_err(getVendor_err());
+		wc.setByte_len(getByte_len());
+		wc.setImm_data(getImm_data());
+		wc.setQp_num(getQp_num());
+		wc.setSrc_qp(getSrc_qp());
+		wc.setWc_flags(getWc_flags());
+		wc.setPkey_index(getPkey_index());
+		wc.setSlid(getSlid());
+		wc.setSl(getSl());
+		wc.setDlid_path_bits(getDlid_path_bits());
+		wc.setCompletion_ts(getCompletion_ts());
+	}
+
 	/**
 	 * Gets the work request id. This matches with the id of IbvSendWR or IbvRecvWR and allows application to refer back to the original work request.
 	 *
@@ -246,6 +273,16 @@ public class IbvWC {
 		this.imm_data = imm_data;
 	}
 
+	/**
+	 * The key the peer invalidated with IBV_WR_SEND_WITH_INV, valid if IBV_WC_WITH_INV is set in the flags. Shares its 
+	 * storage with the immediate data.
+	 *
+	 * @return the invalidated rkey
+	 */
+	public int getInvalidated_rkey() {
+		return imm_data;
+	}
+
 	/**
 	 * The identifier of the QP where the work request was originally posted.
 	 *
@@ -372,6 +409,20 @@ public class IbvWC {
 		this.dlid_path_bits = dlid_path_bits;
 	}
 
+	/**
+	 * The time the device generated this completion, in device clock cycles. Only set for completions of CQs 
+	 * created with IBV_WC_EX_WITH_COMPLETION_TIMESTAMP, zero otherwise. Use IbvHcaClock to convert to nanoseconds.
+	 *
+	 * @return the completion timestamp
+	 */
+	public long getCompletion_ts() {
+		return completion_ts;
+	}
+
+	public void setCompletion_ts(long completion_ts) {
+		this.completion_ts = completion_ts;
+	}
+
 	public String getClassName() {
 		return IbvWC.class.getCanonicalName();
 	}
@@ -36,7 +36,7 @@ public abstract class RdmaCm {
 	/** Provides reliable, connection-oriented QP communication.  Unlike TCP, the RDMA port space provides message, not stream, based communication. */
 	public static final short RDMA_PS_TCP = 0x0106;
 	
-	/** Unsupported */
+	/** Provides unreliable, connectionless datagram (UD) QP communication. One QP can reach any number of peers, each addressed through an address handle. */
 	public static final short RDMA_PS_UDP = 0x0111;	
 	
 	/**
@@ -69,7 +69,7 @@ public abstract class RdmaCm {
 	 * Users must release the id by calling destroyCmId.
 	 *
 	 * @param cmChannel the communication channel that events associated with the allocated RdmaCmId will be reported on.
-	 * @param rdma_ps the RDMA port space. Only RDMA_PS_TCP supported.
+	 * @param rdma_ps the RDMA port space, either RDMA_PS_TCP or RDMA_PS_UDP.
 	 * @return the newly created Id 
 	 * @throws Exception on failure.
 	 */
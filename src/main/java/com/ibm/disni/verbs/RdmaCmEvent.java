@@ -22,6 +22,7 @@
 package com.ibm.disni.verbs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 
 // TODO: Auto-generated Javadoc
@@ -73,6 +74,8 @@ public class RdmaCmEvent {
 	protected RdmaCmId listenIdPriv;
 	protected RdmaCmId connIdPriv;
 	protected RdmaConnParam conn;
+	protected RdmaUdParam ud;
+	protected ByteBuffer privateData;
 
 	public RdmaCmEvent(int event, RdmaCmId listenId, RdmaCmId clientId) throws IOException {
 		this.cm = RdmaCm.open();
@@ -83,6 +86,17 @@ public class RdmaCmEvent {
 		this.conn = new RdmaConnParam();		
 	}
 
+	public RdmaCmEvent(int event, RdmaCmId listenId, RdmaCmId clientId, RdmaUdParam ud) throws IOException {
+		this(event, listenId, clientId);
+		this.ud = ud;
+	}
+
+	public RdmaCmEvent(int event, RdmaCmId listenId, RdmaCmId clientId, RdmaConnParam conn, ByteBuffer privateData) throws IOException {
+		this(event, listenId, clientId);
+		this.conn = conn;
+		this.privateData = privateData;
+	}
+
 	/**
 	 * Gets the type of the event
 	 *
@@ -127,6 +141,25 @@ public class RdmaCmEvent {
 	public RdmaConnParam getConn() {
 		return conn;
 	}
+
+	/**
+	 * The parameters of the remote datagram QP, only set for RDMA_CM_EVENT_ESTABLISHED events on RDMA_PS_UDP ids.
+	 *
+	 * @return the ud parameters, or null.
+	 */
+	public RdmaUdParam getUd() {
+		return ud;
+	}
+
+	/**
+	 * The private data of the remote side, set for connect requests (the data passed to connect) and for established, connect 
+	 * response and rejected events (the data passed to accept or reject). The transport may pad the data with zeros.
+	 *
+	 * @return a read-only copy of the private data, or null.
+	 */
+	public ByteBuffer getPrivateData() {
+		return privateData;
+	}
 	
 	//---------- oo-verbs
 	
@@ -23,6 +23,7 @@ package com.ibm.disni.verbs;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
 
 // TODO: Auto-generated Javadoc
 //struct rdma_cm_id {
@@ -39,7 +40,10 @@ import java.net.SocketAddress;
  * The RDMA identifier used to identify a RDMA endpoint. The RDMA analog to sockets.
  */
 public class RdmaCmId  {
+	private static final AtomicLong idCounter = new AtomicLong(1);
+	
 	private RdmaCm cm;
+	private final long id;
 	
 	protected int ps;
 	protected byte port_num;
@@ -51,6 +55,7 @@ public class RdmaCmId  {
 
 	protected RdmaCmId(RdmaEventChannel cmChannel, IbvContext verbs) throws IOException {
 		this.cm = RdmaCm.open();
+		this.id = idCounter.getAndIncrement();
 		this.cmChannel = cmChannel;
 		this.verbs = verbs;
 		this.qpObj = null;
@@ -60,7 +65,7 @@ public class RdmaCmId  {
 	/**
 	 * Gets the port space. 
 	 * 
-	 * Only RDMA_PS_TCP supported. 
+	 * Either RDMA_PS_TCP or RDMA_PS_UDP. 
 	 *
 	 * @return the port space.
 	 */
@@ -77,6 +82,15 @@ public class RdmaCmId  {
 		return port_num;
 	}
 
+	/**
+	 * Gets a process-wide unique number of this id. Unlike the native handle, the number is never reused.
+	 *
+	 * @return the id number.
+	 */
+	public long getId() {
+		return id;
+	}
+
 	/**
 	 * Gets the communication channel associated with this id.
 	 *
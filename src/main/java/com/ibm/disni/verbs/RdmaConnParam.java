@@ -22,6 +22,9 @@
 package com.ibm.disni.verbs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.ibm.disni.util.MemoryUtils;
 
 // TODO: Auto-generated Javadoc
 //struct rdma_conn_param {
@@ -39,6 +42,8 @@ import java.io.IOException;
 
 /**
  * RDMA connection properties. Used when establishing an RDMA connection.
+ * 
+ * Responder resources and initiator depth of 0 select the maximum supported by the device, larger values are clamped to it.
  */
 public class RdmaConnParam {
 	protected long private_data_addr;
@@ -50,6 +55,7 @@ public class RdmaConnParam {
 	protected byte rnr_retry_count;
 	protected byte srq;
 	protected int qp_num;
+	private ByteBuffer private_data_buffer;
 
 	public RdmaConnParam() {
 		this.private_data_addr = 0;
@@ -61,6 +67,23 @@ public class RdmaConnParam {
 		this.rnr_retry_count = 0;
 		this.srq = 0;
 		this.qp_num = 0;
+		this.private_data_buffer = null;
+	}
+
+	/**
+	 * Creates a copy of the given connection properties, e.g., to attach per-connection private data to shared properties.
+	 */
+	public RdmaConnParam(RdmaConnParam other) {
+		this.private_data_addr = other.private_data_addr;
+		this.private_data_len = other.private_data_len;
+		this.responder_resources = other.responder_resources;
+		this.initiator_depth = other.initiator_depth;
+		this.flow_control = other.flow_control;
+		this.retry_count = other.retry_count;
+		this.rnr_retry_count = other.rnr_retry_count;
+		this.srq = other.srq;
+		this.qp_num = other.qp_num;
+		this.private_data_buffer = other.private_data_buffer;
 	}
 
 	/**
@@ -83,6 +106,26 @@ public class RdmaConnParam {
 		this.private_data_addr = private_data_addr;
 	}
 
+	/**
+	 * Sets the private data to the remaining bytes of a direct buffer. 
+	 * 
+	 * The buffer is referenced until the connection is established. InfiniBand limits private data to 56 bytes when connecting 
+	 * and to 196 bytes when accepting.
+	 *
+	 * @param buffer a direct buffer holding the private data.
+	 */
+	public void setPrivate_data(ByteBuffer buffer) throws IOException {
+		if (!buffer.isDirect()){
+			throw new IOException("Private data requires a direct buffer");
+		}
+		if (buffer.remaining() > 255){
+			throw new IOException("Private data too large, length " + buffer.remaining());
+		}
+		this.private_data_buffer = buffer;
+		this.private_data_addr = MemoryUtils.getAddress(buffer) + buffer.position();
+		this.private_data_len = (byte) buffer.remaining();
+	}
+
 	/**
 	 * Gets the length of the private data.
 	 *
@@ -108,10 +151,12 @@ public class RdmaConnParam {
 	/**
 	 * Sets the responder resources.
 	 *
-	 * @param responder_resources the new responder resources.
+	 * The number of RDMA READ and atomic operations the remote side may have outstanding against the local QP.
+	 *
+	 * @param responder_resources the new responder resources, 0 for the device maximum.
 	 */
 	public void setResponder_resources(byte responder_resources) throws IOException {
-		throw new IOException("Operation currently not supported");
+		this.responder_resources = responder_resources;
 	}
 
 	/**
@@ -126,10 +171,12 @@ public class RdmaConnParam {
 	/**
 	 * Sets the initiator depth.
 	 *
-	 * @param initiator_depth the new initiater depth.
+	 * The number of RDMA READ and atomic operations the local QP may have outstanding against the remote side.
+	 *
+	 * @param initiator_depth the new initiater depth, 0 for the device maximum.
 	 */
 	public void setInitiator_depth(byte initiator_depth) throws IOException {
-		throw new IOException("Operation currently not supported");
+		this.initiator_depth = initiator_depth;
 	}
 
 	/**
@@ -147,7 +194,7 @@ public class RdmaConnParam {
 	 * @param flow_control the new flow control.
 	 */
 	public void setFlow_control(byte flow_control) throws IOException {
-		throw new IOException("Operation currently not supported");
+		this.flow_control = flow_control;
 	}
 
 	/**
@@ -219,6 +266,6 @@ public class RdmaConnParam {
 	 * @param qp_num the new qp_num
 	 */
 	public void setQp_num(int qp_num) throws IOException {
-		throw new IOException("Operation currently not supported");
+		this.qp_num = qp_num;
 	}
 }
@@ -0,0 +1,61 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+//struct rdma_ud_param {
+//    const void *private_data;
+//    uint8_t private_data_len;
+//    struct ibv_ah_attr ah_attr;
+//    uint32_t qp_num;
+//    uint32_t qkey;
+//};
+
+/**
+ * The parameters of an unreliable datagram (UD) peer, delivered with the RDMA_CM_EVENT_ESTABLISHED event of an RdmaCmId in the RDMA_PS_UDP port space.
+ * 
+ * The parameters carry the address handle attributes needed to create an address handle (IbvPd.createAh()), together with the QP number and QKey of the remote datagram QP.
+ */
+public class RdmaUdParam {
+	protected int qp_num;
+	protected int qkey;
+
+	public RdmaUdParam() {
+	}
+
+	/**
+	 * The number of the remote datagram QP.
+	 *
+	 * @return the qp_num
+	 */
+	public int getQp_num() {
+		return qp_num;
+	}
+
+	/**
+	 * The QKey of the remote datagram QP.
+	 *
+	 * @return the qkey
+	 */
+	public int getQkey() {
+		return qkey;
+	}
+}
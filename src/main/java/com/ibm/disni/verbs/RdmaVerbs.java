@@ -91,6 +91,69 @@ public abstract class RdmaVerbs {
 	public abstract IbvCQ createCQ(IbvContext context,
 			IbvCompChannel compChannel, int ncqe, int comp_vector)
 			throws IOException;
+
+	/**
+	 * Creates an extended completion queue (ibv_create_cq_ex). Completions of the CQ carry the standard work completion fields 
+	 * plus the fields selected by wcFlags, e.g., IbvCQ.IBV_WC_EX_WITH_COMPLETION_TIMESTAMP.
+	 *
+	 * @param context the device context. 
+	 * @param compChannel the completion channel to be associated with the CQ.
+	 * @param ncqe the number of CQ entries this CQ can possibly hold.
+	 * @param comp_vector used for signaling completion events. Must be at least zero.
+	 * @param wcFlags the additional work completion fields.
+	 * @return the completion queue (CQ).
+	 * @throws Exception on failure, e.g., if the device does not support extended CQs.
+	 */
+	public abstract IbvCQ createCQ(IbvContext context,
+			IbvCompChannel compChannel, int ncqe, int comp_vector, int wcFlags)
+			throws IOException;
+
+	/**
+	 * Reads the free-running clock of the device (ibv_query_rt_values_ex).
+	 *
+	 * @param context the device context.
+	 * @return the current device clock in cycles, the clock of completion timestamps.
+	 * @throws Exception on failure.
+	 */
+	public abstract long queryRtValues(IbvContext context) throws IOException;
+
+	/**
+	 * Queries the frequency of the device clock.
+	 *
+	 * @param context the device context.
+	 * @return hca_core_clock in kHz.
+	 * @throws Exception on failure.
+	 */
+	public abstract long queryCoreClock(IbvContext context) throws IOException;
+
+	/**
+	 * Waits for the next asynchronous event of the device (ibv_get_async_event). The event is acknowledged before it is returned.
+	 *
+	 * @param context the device context.
+	 * @param timeout the time to wait for an event in milliseconds.
+	 * @return the async event, or null if no event arrived within the timeout.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvAsyncEvent getAsyncEvent(IbvContext context, int timeout) throws IOException;
+
+	/**
+	 * Queries the attributes and limits of a RDMA device.
+	 *
+	 * @param context the device context.
+	 * @return the device attributes.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvDeviceAttr queryDevice(IbvContext context) throws IOException;
+
+	/**
+	 * Queries the attributes of a port of a RDMA device.
+	 *
+	 * @param context the device context.
+	 * @param port the port number, starting at 1.
+	 * @return the port attributes.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvPortAttr queryPort(IbvContext context, int port) throws IOException;
 	
 	/**
 	 * Waits for the next completion event in the completion event channel channel
@@ -114,7 +177,20 @@ public abstract class RdmaVerbs {
 	 */
 	public abstract SVCRegMr regMr(IbvPd pd, ByteBuffer buffer, int access) throws IOException;
 	
-	public abstract SVCRegMr regMr(IbvPd pd, long address, int length, int access) throws IOException;
+	/**
+	 * Registers a range of native memory with the RDMA device.
+	 *
+	 * Passing address 0 and a negative length together with IBV_ACCESS_ON_DEMAND registers an 
+	 * implicit on-demand paging region covering the whole address space of the process.
+	 *
+	 * @param pd the protection domain this memory registratin will be associated with.
+	 * @param address the start address of the memory to be registered.
+	 * @param length the length of the memory to be registered.
+	 * @param access the access rights.
+	 * @return a stateful  verb call (SVC) ready to execute the memory registration. 
+	 * @throws Exception on failure.
+	 */
+	public abstract SVCRegMr regMr(IbvPd pd, long address, long length, int access) throws IOException;
 
 	/**
 	 * Query device RC capability for on demand paging support
@@ -161,6 +237,21 @@ public abstract class RdmaVerbs {
 	 */
 	public abstract SVCPostSend postSend(IbvQP qp, List<IbvSendWR> wrList, List<IbvSendWR> badwrList) throws IOException;
 
+	/**
+	 * Post a send operation of variable shape on this endpoint.
+	 *
+	 * The returned SVC holds maxWr empty work requests with maxSge scatter/gather elements each. Applications fill in
+	 * the work requests using getWrMod() and choose the number of active work requests and scatter/gather elements
+	 * using SVCPostSend.setNumWr() and SendWRMod.setNum_sge() before each execution.
+	 *
+	 * @param qp the QP this operation should be executed on.
+	 * @param maxWr the maximum number of work requests posted at once.
+	 * @param maxSge the maximum number of scatter/gather elements per work request.
+	 * @return a stateful verb call (SVC) ready to execute the send operations.
+	 * @throws Exception on failure.
+	 */
+	public abstract SVCPostSend postSend(IbvQP qp, int maxWr, int maxSge) throws IOException;
+
 	/**
 	 * Post recv.
 	 *
@@ -172,6 +263,99 @@ public abstract class RdmaVerbs {
 	 */
 	public abstract SVCPostRecv postRecv(IbvQP qp, List<IbvRecvWR> wrList, List<IbvRecvWR> badwrList) throws IOException;
 
+	/**
+	 * Modifies the attributes of a queue pair. Only the attributes selected by the attribute mask are applied.
+	 *
+	 * @param qp the queue pair to modify.
+	 * @param attr the new attributes, together with the attribute mask.
+	 * @return the queue pair.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvQP modifyQP(IbvQP qp, IbvQpAttr attr) throws IOException;
+
+	/**
+	 * Queries the current attributes of a queue pair.
+	 *
+	 * @param qp the queue pair to query.
+	 * @param attrMask the attributes to query, a combination of the IbvQpAttr.IBV_QP_* flags.
+	 * @return the queue pair attributes.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvQpAttr queryQP(IbvQP qp, int attrMask) throws IOException;
+
+	/**
+	 * Creates a shared receive queue (SRQ) in the protection domain.
+	 *
+	 * @param pd the protection domain.
+	 * @param maxWr the maximum number of outstanding receive work requests.
+	 * @param maxSge the maximum number of scatter/gather elements per receive work request.
+	 * @param srqLimit the limit below which an IBV_EVENT_SRQ_LIMIT_REACHED event is raised, zero to disable the event.
+	 * @return the shared receive queue.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvSrq createSrq(IbvPd pd, int maxWr, int maxSge, int srqLimit) throws IOException;
+
+	/**
+	 * Re-arms the limit event of a shared receive queue.
+	 *
+	 * @param srq the shared receive queue.
+	 * @param srqLimit the new limit.
+	 * @throws Exception on failure.
+	 */
+	public abstract void modifySrq(IbvSrq srq, int srqLimit) throws IOException;
+
+	/**
+	 * Post receive operations on a shared receive queue.
+	 *
+	 * @param srq the shared receive queue.
+	 * @param wrList list of receive requests.
+	 * @return a stateful verb call (SVC) ready to execute the receive operations. 
+	 * @throws Exception on failure.
+	 */
+	public abstract SVCPostSrqRecv postSrqRecv(IbvSrq srq, List<IbvRecvWR> wrList) throws IOException;
+
+	/**
+	 * Creates an address handle for a remote datagram QP.
+	 *
+	 * @param pd the protection domain.
+	 * @param udParam the parameters of the remote QP, as delivered with RDMA_CM_EVENT_ESTABLISHED on an RDMA_PS_UDP id.
+	 * @return the address handle.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvAh createAh(IbvPd pd, RdmaUdParam udParam) throws IOException;
+
+	/**
+	 * Allocates a memory window.
+	 *
+	 * @param pd the protection domain of the memory regions the window will be bound to.
+	 * @param type IbvMw.IBV_MW_TYPE_1 or IbvMw.IBV_MW_TYPE_2.
+	 * @return the memory window.
+	 * @throws Exception on failure.
+	 */
+	public abstract IbvMw allocMw(IbvPd pd, int type) throws IOException;
+
+	/**
+	 * Binds a type 1 memory window, or unbinds it if the length is zero. The bind is executed as a work request on 
+	 * the given QP, a completion is generated if IBV_SEND_SIGNALED is set.
+	 *
+	 * @param qp the queue pair executing the bind.
+	 * @param mw the memory window.
+	 * @param wr_id the work request id of the completion.
+	 * @param send_flags the send flags of the bind.
+	 * @param bindInfo the memory the window is bound to.
+	 * @return the new rkey of the window.
+	 * @throws Exception on failure.
+	 */
+	public abstract int bindMw(IbvQP qp, IbvMw mw, long wr_id, int send_flags, IbvMwBindInfo bindInfo) throws IOException;
+
+	/**
+	 * Deallocates a memory window.
+	 *
+	 * @param mw the memory window.
+	 * @throws Exception on failure.
+	 */
+	public abstract int deallocMw(IbvMw mw) throws IOException;
+
 	/**
 	 * Poll on the CQ until a new event is received.
 	 *
@@ -183,6 +367,18 @@ public abstract class RdmaVerbs {
 	 */
 	public abstract SVCPollCq pollCQ(IbvCQ cq, IbvWC[] wcList, int ne) throws IOException;
 
+	/**
+	 * Poll on the CQ without copying completion events.
+	 *
+	 * Completion events are accessed using SVCPollCq.getWC(), which returns views on the native completion buffer.
+	 *
+	 * @param cq the completion queue to be polled.
+	 * @param ne the maximum number of completion events to be polled.
+	 * @return a stateful verb call (SVC) ready to execute a polling call.
+	 * @throws Exception on failure.
+	 */
+	public abstract SVCPollCq pollCQ(IbvCQ cq, int ne) throws IOException;
+
 	/**
 	 * Requests a completion notification on the completion queue (CQ).
 	 *
@@ -202,6 +398,18 @@ public abstract class RdmaVerbs {
 	 * @throws IOException
 	 */
 	public abstract int ackCqEvents(IbvCQ cq, int nevents) throws IOException;
+
+	/**
+	 * Sets the event moderation of the CQ. A completion event is generated once count completions 
+	 * have been queued or period microseconds have passed since the first unreported completion.
+	 *
+	 * @param cq the completion queue to be modified.
+	 * @param count the number of completions per event, at most 65535.
+	 * @param period the moderation timeout in microseconds, at most 65535.
+	 * @return returns 0 on success, the errno value on failure, ENOSYS if libibverbs has no CQ moderation.
+	 * @throws IOException
+	 */
+	public abstract int modifyCQ(IbvCQ cq, int count, int period) throws IOException;
 	
 	/**
 	 * Destroys the completion event channel
@@ -229,4 +437,22 @@ public abstract class RdmaVerbs {
 	 * @throws Exception on failure.
 	 */
 	public abstract int destroyCQ(IbvCQ cq) throws IOException;
+	
+	/**
+	 * Destroys the shared receive queue.
+	 *
+	 * @param srq the shared receive queue to be destroyed.
+	 * @return return 0 on success.
+	 * @throws Exception on failure.
+	 */
+	public abstract int destroySrq(IbvSrq srq) throws IOException;
+
+	/**
+	 * Destroys the address handle.
+	 *
+	 * @param ah the address handle to be destroyed.
+	 * @return return 0 on success.
+	 * @throws Exception on failure.
+	 */
+	public abstract int destroyAh(IbvAh ah) throws IOException;
 }
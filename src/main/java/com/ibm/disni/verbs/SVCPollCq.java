@@ -34,5 +34,16 @@ public abstract class SVCPollCq implements StatefulVerbCall<SVCPollCq> {
 	 * @return number of work completions.
 	 */
 	public abstract int getPolls();
+
+	/**
+	 * Gets the work completion at the given index retrieved by the last call.
+	 *
+	 * For calls created without a work completion array, the returned object is a view reading
+	 * directly from the native completion buffer. It is only valid until the next execution of this call.
+	 *
+	 * @param index the index of the work completion, must be smaller than getPolls().
+	 * @return the work completion.
+	 */
+	public abstract IbvWC getWC(int index);
 	
 }
@@ -50,6 +50,43 @@ public abstract class SVCPostRecv implements StatefulVerbCall<SVCPostRecv> {
 		 * @return the wr_id
 		 */
 		long getWr_id();
+
+		/**
+		 * Modify the work-request id 
+		 *
+		 * @param wr_id the new wr_id
+		 */
+		void setWr_id(long wr_id);
+
+		/**
+		 * The number of scatter/gather elements in this work request. 
+		 *
+		 * @return the num_sge
+		 */
+		int getNum_sge();
+
+		/**
+		 * Modify the number of scatter/gather elements used by this work request. 
+		 *
+		 * @param num_sge the new num_sge, at most getMaxSge().
+		 * @throws IOException if num_sge exceeds the scatter/gather capacity of this work request.
+		 */
+		void setNum_sge(int num_sge) throws IOException;
+
+		/**
+		 * The maximum number of scatter/gather elements this work request can use. 
+		 *
+		 * @return the scatter/gather capacity
+		 */
+		int getMaxSge();
+
+		/**
+		 * Returns a specific scatter/gather element of this work request.
+		 *
+		 * @param index the sg element.
+		 * @return the sg element.
+		 */
+		SVCPostSend.SgeMod getSgeMod(int index);
 	}	
 	
 }
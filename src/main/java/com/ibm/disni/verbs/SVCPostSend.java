@@ -38,6 +38,30 @@ public abstract class SVCPostSend implements StatefulVerbCall<SVCPostSend> {
 	 * @throws Exception in case the index is out-of-bound.
 	 */
 	public abstract SendWRMod getWrMod(int index) throws IOException;
+
+	/**
+	 * Sets how many work requests will be posted by the next call to execute(). Work requests are always
+	 * posted starting from the first one, the chain of work requests is relinked in place.
+	 *
+	 * @param numWr the number of work requests, between 1 and getMaxWr().
+	 * @return this SVC object.
+	 * @throws Exception if numWr exceeds the capacity of this SVC object.
+	 */
+	public abstract SVCPostSend setNumWr(int numWr) throws IOException;
+
+	/**
+	 * The number of work requests posted by the next call to execute().
+	 *
+	 * @return the number of work requests.
+	 */
+	public abstract int getNumWr();
+
+	/**
+	 * The maximum number of work requests this SVC object can post.
+	 *
+	 * @return the capacity in work requests.
+	 */
+	public abstract int getMaxWr();
 	
 	/**
 	 * Provides access methods to modify a given work-request belonging to this SVC object.
@@ -57,6 +81,35 @@ public abstract class SVCPostSend implements StatefulVerbCall<SVCPostSend> {
 		 * @param send_flags new flags
 		 */		
 		void setSend_flags(int send_flags);
+
+		/**
+		 * Modify the opcode. Switching between atomic and non-atomic opcodes rewrites the wr union 
+		 * with the atomic or rdma information of this work request.
+		 *
+		 * @param opcode the new opcode
+		 */
+		void setOpcode(int opcode);
+
+		/**
+		 * Modify the immediate data, in network byte order 
+		 *
+		 * @param imm_data the new imm_data
+		 */
+		void setImm_data(int imm_data);
+
+		/**
+		 * Retrieve the immediate data of this work request 
+		 *
+		 * @return the imm_data
+		 */
+		int getImm_data();
+
+		/**
+		 * Modify the key invalidated by IBV_WR_LOCAL_INV or IBV_WR_SEND_WITH_INV, shares its storage with the immediate data 
+		 *
+		 * @param invalidate_rkey the key to invalidate
+		 */
+		void setInvalidate_rkey(int invalidate_rkey);
 		
 		/**
 		 * Retrieve the current work-request id 
@@ -71,6 +124,21 @@ public abstract class SVCPostSend implements StatefulVerbCall<SVCPostSend> {
 		 * @return the num_sge
 		 */
 		int getNum_sge();
+
+		/**
+		 * Modify the number of scatter/gather elements used by this work request. 
+		 *
+		 * @param num_sge the new num_sge, at most getMaxSge().
+		 * @throws IOException if num_sge exceeds the scatter/gather capacity of this work request.
+		 */
+		void setNum_sge(int num_sge) throws IOException;
+
+		/**
+		 * The maximum number of scatter/gather elements this work request can use. 
+		 *
+		 * @return the scatter/gather capacity
+		 */
+		int getMaxSge();
 		
 		/**
 		 * Retrieve the opcode of this work request 
@@ -92,6 +160,27 @@ public abstract class SVCPostSend implements StatefulVerbCall<SVCPostSend> {
 		 * @return RDMA information
 		 */
 		RdmaMod getRdmaMod();
+
+		/**
+		 * Provides access to the atomic information in this work request
+		 *
+		 * @return atomic information
+		 */
+		AtomicMod getAtomicMod();
+
+		/**
+		 * Provides access to the datagram information in this work request
+		 *
+		 * @return datagram information
+		 */
+		UdMod getUdMod();
+
+		/**
+		 * Provides access to the memory window information in this work request
+		 *
+		 * @return memory window information
+		 */
+		BindMwMod getBindMwMod();
 		
 		/**
 		 * Returns a specific scatter/gather element of this work request.
@@ -150,9 +239,163 @@ public abstract class SVCPostSend implements StatefulVerbCall<SVCPostSend> {
 		int getReserved();
 	}
 	
+	/**
+	 * Provides access methods to modify the atomic information of a work request.
+	 */
+	public interface AtomicMod {
+
+		/**
+		 * Sets the remote_addr.
+		 *
+		 * @param remote_addr the new remote_addr
+		 */
+		void setRemote_addr(long remote_addr);
+
+		/**
+		 * Gets the remote_addr.
+		 *
+		 * @return the remote_addr
+		 */
+		long getRemote_addr();
+
+		/**
+		 * Sets the compare_add value, the value to compare with for compare-and-swap or to add for fetch-and-add.
+		 *
+		 * @param compare_add the new compare_add
+		 */
+		void setCompare_add(long compare_add);
+
+		/**
+		 * Gets the compare_add value.
+		 *
+		 * @return the compare_add
+		 */
+		long getCompare_add();
+
+		/**
+		 * Sets the swap value used by compare-and-swap.
+		 *
+		 * @param swap the new swap
+		 */
+		void setSwap(long swap);
+
+		/**
+		 * Gets the swap value.
+		 *
+		 * @return the swap
+		 */
+		long getSwap();
+
+		/**
+		 * Sets the rkey.
+		 *
+		 * @param rkey the new rkey
+		 */
+		void setRkey(int rkey);
+
+		/**
+		 * Gets the rkey.
+		 *
+		 * @return the rkey
+		 */
+		int getRkey();
+	}
+
 	/**
 	 * Provides access methods to modify a given scatter/gather element.
 	 */
+	/**
+	 * Provides access methods to modify the datagram information of a work request posted on a UD QP.
+	 */
+	public interface UdMod {
+
+		/**
+		 * Sets the address handle of the destination. Setting an address handle switches the work request to its datagram layout.
+		 *
+		 * @param ah the address handle
+		 */
+		void setAh(IbvAh ah);
+
+		/**
+		 * Gets the address handle of the destination.
+		 *
+		 * @return the address handle
+		 */
+		IbvAh getAh();
+
+		/**
+		 * Sets the QP number of the destination.
+		 *
+		 * @param remote_qpn the remote QP number
+		 */
+		void setRemote_qpn(int remote_qpn);
+
+		/**
+		 * Gets the QP number of the destination.
+		 *
+		 * @return the remote QP number
+		 */
+		int getRemote_qpn();
+
+		/**
+		 * Sets the QKey of the destination.
+		 *
+		 * @param remote_qkey the remote QKey
+		 */
+		void setRemote_qkey(int remote_qkey);
+
+		/**
+		 * Gets the QKey of the destination.
+		 *
+		 * @return the remote QKey
+		 */
+		int getRemote_qkey();
+	}
+
+	/**
+	 * Provides access methods to modify the memory window information of an IBV_WR_BIND_MW work request. 
+	 * 
+	 * The window and the memory region are fixed, binding the same window again only requires a new key and range.
+	 */
+	public interface BindMwMod {
+
+		/**
+		 * Sets the key of the window once bound, usually IbvMw.nextRkey().
+		 *
+		 * @param rkey the new rkey
+		 */
+		void setRkey(int rkey);
+
+		int getRkey();
+
+		/**
+		 * Sets the start address of the window, within the memory region.
+		 *
+		 * @param addr the start address
+		 */
+		void setAddr(long addr);
+
+		long getAddr();
+
+		/**
+		 * Sets the length of the window, zero unbinds the window.
+		 *
+		 * @param length the length in bytes
+		 */
+		void setLength(long length);
+
+		long getLength();
+
+		/**
+		 * Sets the remote access granted through the window.
+		 *
+		 * @param mw_access_flags the access flags
+		 */
+		void setMw_access_flags(int mw_access_flags);
+
+		int getMw_access_flags();
+	}
+
 	public interface SgeMod {
 		
 		/**
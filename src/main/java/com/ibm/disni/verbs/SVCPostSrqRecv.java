@@ -0,0 +1,67 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs;
+
+import java.io.IOException;
+
+import com.ibm.disni.verbs.SVCPostRecv.RecvWRMod;
+
+/**
+ * The Class SVCPostSrqRecv.
+ * 
+ * This class is a stateful representation of the post-srq-recv verb call (RdmaVerbs.postSrqRecv). 
+ */
+public abstract class SVCPostSrqRecv implements StatefulVerbCall<SVCPostSrqRecv> {
+
+	/**
+	 * Access a specific work request of this SVC object.
+	 *
+	 * @param index the work request
+	 * @return the work request
+	 * @throws Exception in case the index is out-of-bound.
+	 */
+	public abstract RecvWRMod getWrMod(int index) throws IOException;
+
+	/**
+	 * Sets how many work requests will be posted by the next call to execute(). Work requests are always
+	 * posted starting from the first one, the chain of work requests is relinked in place.
+	 *
+	 * @param numWr the number of work requests, between 1 and getMaxWr().
+	 * @return this SVC object.
+	 * @throws Exception if numWr exceeds the capacity of this SVC object.
+	 */
+	public abstract SVCPostSrqRecv setNumWr(int numWr) throws IOException;
+
+	/**
+	 * The number of work requests posted by the next call to execute().
+	 *
+	 * @return the number of work requests.
+	 */
+	public abstract int getNumWr();
+
+	/**
+	 * The maximum number of work requests this SVC object can post.
+	 *
+	 * @return the capacity in work requests.
+	 */
+	public abstract int getMaxWr();
+}
@@ -33,9 +33,10 @@ public class NatCmaIdPrivate extends RdmaCmId implements NatObject {
 	private long objId;
 	private NativeDispatcher nativeDispatcher;
 
-	public NatCmaIdPrivate(long objId, RdmaEventChannel cmChannel, NativeDispatcher nativeDispatcher) throws IOException {
+	public NatCmaIdPrivate(long objId, int ps, RdmaEventChannel cmChannel, NativeDispatcher nativeDispatcher) throws IOException {
 		super(cmChannel, null);
 		this.objId = objId;
+		this.ps = ps;
 		this.nativeDispatcher = nativeDispatcher;
 	}
 
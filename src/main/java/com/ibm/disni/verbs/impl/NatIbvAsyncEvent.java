@@ -0,0 +1,83 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.verbs.IbvAsyncEvent;
+import com.ibm.disni.verbs.IbvCQ;
+import com.ibm.disni.verbs.IbvQP;
+import com.ibm.disni.verbs.IbvSrq;
+import com.ibm.disni.util.MemoryUtils;
+
+//struct jverbs_async_event {
+//        int32_t  event_type;
+//        uint32_t element;
+//        uint64_t obj_id;
+//};
+
+public class NatIbvAsyncEvent extends IbvAsyncEvent {
+	public static int CSIZE = 16;
+	public static int EVENTTYPE_OFFSET = 0;
+	public static int ELEMENT_OFFSET = 4;
+	public static int OBJID_OFFSET = 8;
+
+	private long objId;
+
+	public NatIbvAsyncEvent(int event, int qpNum, int portNum, long objId) {
+		super(event, qpNum, portNum);
+		this.objId = objId;
+	}
+
+	/**
+	 * Reads an event written by _getAsyncEvent.
+	 */
+	public static NatIbvAsyncEvent read(long address) {
+		int event = MemoryUtils.getInt(address + EVENTTYPE_OFFSET);
+		int element = MemoryUtils.getInt(address + ELEMENT_OFFSET);
+		long objId = MemoryUtils.getLong(address + OBJID_OFFSET);
+		NatIbvAsyncEvent asyncEvent = new NatIbvAsyncEvent(event, 0, 0, objId);
+		if (asyncEvent.isQpEvent()){
+			asyncEvent.qpNum = element;
+		} else if (asyncEvent.isPortEvent()){
+			asyncEvent.portNum = element;
+		}
+		return asyncEvent;
+	}
+
+	@Override
+	public boolean isEventFor(IbvQP qp) {
+		return isQpEvent() && qp != null && ((NatIbvQP) qp).getObjId() == objId;
+	}
+
+	@Override
+	public boolean isEventFor(IbvCQ cq) {
+		return isCqEvent() && cq != null && ((NatIbvCQ) cq).getObjId() == objId;
+	}
+
+	@Override
+	public boolean isEventFor(IbvSrq srq) {
+		return isSrqEvent() && srq != null && ((NatIbvSrq) srq).getObjId() == objId;
+	}
+
+	public long getObjId() {
+		return objId;
+	}
+}
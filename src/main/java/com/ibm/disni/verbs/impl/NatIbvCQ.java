@@ -31,7 +31,11 @@ public class NatIbvCQ extends IbvCQ implements NatObject {
 	private long objId;
 	
 	public NatIbvCQ(long objId, IbvContext context, IbvCompChannel compChannel, int handle) throws IOException {
-		super(context, compChannel, handle);
+		this(objId, context, compChannel, handle, 0);
+	}
+
+	public NatIbvCQ(long objId, IbvContext context, IbvCompChannel compChannel, int handle, int wcFlags) throws IOException {
+		super(context, compChannel, handle, wcFlags);
 		this.objId = objId;
 	}
 	
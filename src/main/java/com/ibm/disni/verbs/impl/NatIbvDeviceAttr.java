@@ -0,0 +1,81 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.verbs.IbvDeviceAttr;
+import com.ibm.disni.util.MemoryUtils;
+
+public class NatIbvDeviceAttr extends IbvDeviceAttr {
+	public static int CSIZE = 232;
+	public static int MAXMRSIZE_OFFSET = 80;
+	public static int PAGESIZECAP_OFFSET = 88;
+	public static int VENDORID_OFFSET = 96;
+	public static int VENDORPARTID_OFFSET = 100;
+	public static int HWVER_OFFSET = 104;
+	public static int MAXQP_OFFSET = 108;
+	public static int MAXQPWR_OFFSET = 112;
+	public static int DEVICECAPFLAGS_OFFSET = 116;
+	public static int MAXSGE_OFFSET = 120;
+	public static int MAXSGERD_OFFSET = 124;
+	public static int MAXCQ_OFFSET = 128;
+	public static int MAXCQE_OFFSET = 132;
+	public static int MAXMR_OFFSET = 136;
+	public static int MAXPD_OFFSET = 140;
+	public static int MAXQPRDATOM_OFFSET = 144;
+	public static int MAXQPINITRDATOM_OFFSET = 156;
+	public static int ATOMICCAP_OFFSET = 164;
+	public static int MAXMW_OFFSET = 176;
+	public static int MAXAH_OFFSET = 200;
+	public static int MAXSRQ_OFFSET = 212;
+	public static int MAXSRQWR_OFFSET = 216;
+	public static int MAXSRQSGE_OFFSET = 220;
+	public static int PHYSPORTCNT_OFFSET = 227;
+
+	/**
+	 * Reads the ibv_device_attr written by the native query at the given address.
+	 */
+	public NatIbvDeviceAttr(long address) {
+		this.max_mr_size = MemoryUtils.getLong(address + MAXMRSIZE_OFFSET);
+		this.page_size_cap = MemoryUtils.getLong(address + PAGESIZECAP_OFFSET);
+		this.vendor_id = MemoryUtils.getInt(address + VENDORID_OFFSET);
+		this.vendor_part_id = MemoryUtils.getInt(address + VENDORPARTID_OFFSET);
+		this.hw_ver = MemoryUtils.getInt(address + HWVER_OFFSET);
+		this.max_qp = MemoryUtils.getInt(address + MAXQP_OFFSET);
+		this.max_qp_wr = MemoryUtils.getInt(address + MAXQPWR_OFFSET);
+		this.device_cap_flags = MemoryUtils.getInt(address + DEVICECAPFLAGS_OFFSET);
+		this.max_sge = MemoryUtils.getInt(address + MAXSGE_OFFSET);
+		this.max_sge_rd = MemoryUtils.getInt(address + MAXSGERD_OFFSET);
+		this.max_cq = MemoryUtils.getInt(address + MAXCQ_OFFSET);
+		this.max_cqe = MemoryUtils.getInt(address + MAXCQE_OFFSET);
+		this.max_mr = MemoryUtils.getInt(address + MAXMR_OFFSET);
+		this.max_pd = MemoryUtils.getInt(address + MAXPD_OFFSET);
+		this.max_qp_rd_atom = MemoryUtils.getInt(address + MAXQPRDATOM_OFFSET);
+		this.max_qp_init_rd_atom = MemoryUtils.getInt(address + MAXQPINITRDATOM_OFFSET);
+		this.atomic_cap = MemoryUtils.getInt(address + ATOMICCAP_OFFSET);
+		this.max_mw = MemoryUtils.getInt(address + MAXMW_OFFSET);
+		this.max_ah = MemoryUtils.getInt(address + MAXAH_OFFSET);
+		this.max_srq = MemoryUtils.getInt(address + MAXSRQ_OFFSET);
+		this.max_srq_wr = MemoryUtils.getInt(address + MAXSRQWR_OFFSET);
+		this.max_srq_sge = MemoryUtils.getInt(address + MAXSRQSGE_OFFSET);
+		this.phys_port_cnt = MemoryUtils.getByte(address + PHYSPORTCNT_OFFSET) & 0xff;
+	}
+}
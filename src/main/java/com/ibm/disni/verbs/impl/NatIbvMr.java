@@ -34,6 +34,11 @@ public class NatIbvMr extends IbvMr implements NatObject {
 		this.objId = objId;
 	}
 
+	public NatIbvMr(long objId, IbvContext context, long addr, long length, int access, int lkey, int rkey, int handle) throws IOException{
+		super(context, addr, length, access, lkey, rkey, handle);
+		this.objId = objId;
+	}
+
 	public long getObjId() {
 		return objId;
 	}
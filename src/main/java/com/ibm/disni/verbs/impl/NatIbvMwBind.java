@@ -0,0 +1,51 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.IbvMwBindInfo;
+
+//struct ibv_mw_bind {
+//    uint64_t                wr_id;
+//    unsigned int            send_flags;
+//    struct ibv_mw_bind_info bind_info;
+//};
+
+public class NatIbvMwBind {
+	public static int CSIZE = 48;
+	public static int WRID_OFFSET = 0;
+	public static int SENDFLAGS_OFFSET = 8;
+	public static int MR_OFFSET = 16;
+	public static int ADDR_OFFSET = 24;
+	public static int LENGTH_OFFSET = 32;
+	public static int ACCESS_OFFSET = 40;
+
+	public static void writeBack(long address, long wr_id, int send_flags, IbvMwBindInfo bindInfo) {
+		MemoryUtils.putLong(address + WRID_OFFSET, wr_id);
+		MemoryUtils.putInt(address + SENDFLAGS_OFFSET, send_flags);
+		MemoryUtils.putLong(address + MR_OFFSET, NatIbvSendWR.NatBindMw.objId(bindInfo.getMr()));
+		MemoryUtils.putLong(address + ADDR_OFFSET, bindInfo.getAddr());
+		MemoryUtils.putLong(address + LENGTH_OFFSET, bindInfo.getLength());
+		MemoryUtils.putInt(address + ACCESS_OFFSET, bindInfo.getMw_access_flags());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.verbs.IbvPortAttr;
+import com.ibm.disni.util.MemoryUtils;
+
+public class NatIbvPortAttr extends IbvPortAttr {
+	public static int CSIZE = 56;
+	public static int STATE_OFFSET = 0;
+	public static int MAXMTU_OFFSET = 4;
+	public static int ACTIVEMTU_OFFSET = 8;
+	public static int GIDTBLLEN_OFFSET = 12;
+	public static int PORTCAPFLAGS_OFFSET = 16;
+	public static int MAXMSGSZ_OFFSET = 20;
+	public static int LID_OFFSET = 34;
+	public static int SMLID_OFFSET = 36;
+	public static int ACTIVEWIDTH_OFFSET = 43;
+	public static int ACTIVESPEED_OFFSET = 44;
+	public static int PHYSSTATE_OFFSET = 45;
+	public static int LINKLAYER_OFFSET = 46;
+
+	/**
+	 * Reads the ibv_port_attr written by the native query at the given address.
+	 */
+	public NatIbvPortAttr(long address) {
+		this.state = MemoryUtils.getInt(address + STATE_OFFSET);
+		this.max_mtu = MemoryUtils.getInt(address + MAXMTU_OFFSET);
+		this.active_mtu = MemoryUtils.getInt(address + ACTIVEMTU_OFFSET);
+		this.gid_tbl_len = MemoryUtils.getInt(address + GIDTBLLEN_OFFSET);
+		this.port_cap_flags = MemoryUtils.getInt(address + PORTCAPFLAGS_OFFSET);
+		this.max_msg_sz = MemoryUtils.getInt(address + MAXMSGSZ_OFFSET);
+		this.lid = MemoryUtils.getShort(address + LID_OFFSET) & 0xffff;
+		this.sm_lid = MemoryUtils.getShort(address + SMLID_OFFSET) & 0xffff;
+		this.active_width = MemoryUtils.getByte(address + ACTIVEWIDTH_OFFSET) & 0xff;
+		this.active_speed = MemoryUtils.getByte(address + ACTIVESPEED_OFFSET) & 0xff;
+		this.phys_state = MemoryUtils.getByte(address + PHYSSTATE_OFFSET) & 0xff;
+		this.link_layer = MemoryUtils.getByte(address + LINKLAYER_OFFSET) & 0xff;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.IbvAhAttr;
+import com.ibm.disni.verbs.IbvGlobalRoute;
+import com.ibm.disni.verbs.IbvQPCap;
+import com.ibm.disni.verbs.IbvQpAttr;
+
+//struct ibv_qp_attr, see IbvQpAttr
+
+public class NatIbvQpAttr extends IbvQpAttr {
+	public static int CSIZE = 144;
+	public static int QPSTATE_OFFSET = 0;
+	public static int CURQPSTATE_OFFSET = 4;
+	public static int PATHMTU_OFFSET = 8;
+	public static int PATHMIGSTATE_OFFSET = 12;
+	public static int QKEY_OFFSET = 16;
+	public static int RQPSN_OFFSET = 20;
+	public static int SQPSN_OFFSET = 24;
+	public static int DESTQPNUM_OFFSET = 28;
+	public static int QPACCESSFLAGS_OFFSET = 32;
+	public static int CAP_OFFSET = 36;
+	public static int AHATTR_OFFSET = 56;
+	public static int ALTAHATTR_OFFSET = 88;
+	public static int PKEYINDEX_OFFSET = 120;
+	public static int ALTPKEYINDEX_OFFSET = 122;
+	public static int ENSQDASYNCNOTIFY_OFFSET = 124;
+	public static int SQDRAINING_OFFSET = 125;
+	public static int MAXRDATOMIC_OFFSET = 126;
+	public static int MAXDESTRDATOMIC_OFFSET = 127;
+	public static int MINRNRTIMER_OFFSET = 128;
+	public static int PORTNUM_OFFSET = 129;
+	public static int TIMEOUT_OFFSET = 130;
+	public static int RETRYCNT_OFFSET = 131;
+	public static int RNRRETRY_OFFSET = 132;
+	public static int ALTPORTNUM_OFFSET = 133;
+	public static int ALTTIMEOUT_OFFSET = 134;
+
+	//struct ibv_qp_cap, fixed by the verbs ABI
+	private static final int CAP_MAXSENDWR = 0;
+	private static final int CAP_MAXRECVWR = 4;
+	private static final int CAP_MAXSENDSGE = 8;
+	private static final int CAP_MAXRECVSGE = 12;
+	private static final int CAP_MAXINLINEDATA = 16;
+
+	//struct ibv_ah_attr, fixed by the verbs ABI
+	private static final int AH_DGID = 0;
+	private static final int AH_FLOWLABEL = 16;
+	private static final int AH_SGIDINDEX = 20;
+	private static final int AH_HOPLIMIT = 21;
+	private static final int AH_TRAFFICCLASS = 22;
+	private static final int AH_DLID = 24;
+	private static final int AH_SL = 26;
+	private static final int AH_SRCPATHBITS = 27;
+	private static final int AH_STATICRATE = 28;
+	private static final int AH_ISGLOBAL = 29;
+	private static final int AH_PORTNUM = 30;
+	private static final int DGID_SIZE = 16;
+
+	/**
+	 * Reads the ibv_qp_attr written by the native query at the given address. The attribute mask 
+	 * is set to the mask the query was issued with.
+	 */
+	public NatIbvQpAttr(long address, int attrMask) {
+		super();
+		this.qp_state = MemoryUtils.getInt(address + QPSTATE_OFFSET);
+		this.cur_qp_state = MemoryUtils.getInt(address + CURQPSTATE_OFFSET);
+		this.path_mtu = MemoryUtils.getInt(address + PATHMTU_OFFSET);
+		this.path_mig_state = MemoryUtils.getInt(address + PATHMIGSTATE_OFFSET);
+		this.qkey = MemoryUtils.getInt(address + QKEY_OFFSET);
+		this.rq_psn = MemoryUtils.getInt(address + RQPSN_OFFSET);
+		this.sq_psn = MemoryUtils.getInt(address + SQPSN_OFFSET);
+		this.dest_qp_num = MemoryUtils.getInt(address + DESTQPNUM_OFFSET);
+		this.qp_access_flags = MemoryUtils.getInt(address + QPACCESSFLAGS_OFFSET);
+		readCap(address + CAP_OFFSET, getCap());
+		readAhAttr(address + AHATTR_OFFSET, getAh_attr());
+		readAhAttr(address + ALTAHATTR_OFFSET, getAlt_ah_attr());
+		this.pkey_index = MemoryUtils.getShort(address + PKEYINDEX_OFFSET);
+		this.alt_pkey_index = MemoryUtils.getShort(address + ALTPKEYINDEX_OFFSET);
+		this.en_sqd_async_notify = MemoryUtils.getByte(address + ENSQDASYNCNOTIFY_OFFSET);
+		this.sq_draining = MemoryUtils.getByte(address + SQDRAINING_OFFSET);
+		this.max_rd_atomic = MemoryUtils.getByte(address + MAXRDATOMIC_OFFSET);
+		this.max_dest_rd_atomic = MemoryUtils.getByte(address + MAXDESTRDATOMIC_OFFSET);
+		this.min_rnr_timer = MemoryUtils.getByte(address + MINRNRTIMER_OFFSET);
+		this.port_num = MemoryUtils.getByte(address + PORTNUM_OFFSET);
+		this.timeout = MemoryUtils.getByte(address + TIMEOUT_OFFSET);
+		this.retry_cnt = MemoryUtils.getByte(address + RETRYCNT_OFFSET);
+		this.rnr_retry = MemoryUtils.getByte(address + RNRRETRY_OFFSET);
+		this.alt_port_num = MemoryUtils.getByte(address + ALTPORTNUM_OFFSET);
+		this.alt_timeout = MemoryUtils.getByte(address + ALTTIMEOUT_OFFSET);
+		this.qpAttrMask = attrMask;
+	}
+
+	/**
+	 * Serializes the given attributes into a zeroed ibv_qp_attr at the given address.
+	 */
+	public static void writeBack(long address, IbvQpAttr attr) {
+		MemoryUtils.setMemory(address, CSIZE, (byte) 0);
+		MemoryUtils.putInt(address + QPSTATE_OFFSET, attr.getQp_state());
+		MemoryUtils.putInt(address + CURQPSTATE_OFFSET, attr.getCur_qp_state());
+		MemoryUtils.putInt(address + PATHMTU_OFFSET, attr.getPath_mtu());
+		MemoryUtils.putInt(address + PATHMIGSTATE_OFFSET, attr.getPath_mig_state());
+		MemoryUtils.putInt(address + QKEY_OFFSET, attr.getQkey());
+		MemoryUtils.putInt(address + RQPSN_OFFSET, attr.getRq_psn());
+		MemoryUtils.putInt(address + SQPSN_OFFSET, attr.getSq_psn());
+		MemoryUtils.putInt(address + DESTQPNUM_OFFSET, attr.getDest_qp_num());
+		MemoryUtils.putInt(address + QPACCESSFLAGS_OFFSET, attr.getQp_access_flags());
+		writeCap(address + CAP_OFFSET, attr.getCap());
+		writeAhAttr(address + AHATTR_OFFSET, attr.getAh_attr());
+		writeAhAttr(address + ALTAHATTR_OFFSET, attr.getAlt_ah_attr());
+		MemoryUtils.putShort(address + PKEYINDEX_OFFSET, attr.getPkey_index());
+		MemoryUtils.putShort(address + ALTPKEYINDEX_OFFSET, attr.getAlt_pkey_index());
+		MemoryUtils.putByte(address + ENSQDASYNCNOTIFY_OFFSET, attr.getEn_sqd_async_notify());
+		MemoryUtils.putByte(address + SQDRAINING_OFFSET, attr.getSq_draining());
+		MemoryUtils.putByte(address + MAXRDATOMIC_OFFSET, attr.getMax_rd_atomic());
+		MemoryUtils.putByte(address + MAXDESTRDATOMIC_OFFSET, attr.getMax_dest_rd_atomic());
+		MemoryUtils.putByte(address + MINRNRTIMER_OFFSET, attr.getMin_rnr_timer());
+		MemoryUtils.putByte(address + PORTNUM_OFFSET, attr.getPort_num());
+		MemoryUtils.putByte(address + TIMEOUT_OFFSET, attr.getTimeout());
+		MemoryUtils.putByte(address + RETRYCNT_OFFSET, attr.getRetry_cnt());
+		MemoryUtils.putByte(address + RNRRETRY_OFFSET, attr.getRnr_retry());
+		MemoryUtils.putByte(address + ALTPORTNUM_OFFSET, attr.getAlt_port_num());
+		MemoryUtils.putByte(address + ALTTIMEOUT_OFFSET, attr.getAlt_timeout());
+	}
+
+	private static void writeCap(long address, IbvQPCap cap) {
+		MemoryUtils.putInt(address + CAP_MAXSENDWR, cap.getMax_send_wr());
+		MemoryUtils.putInt(address + CAP_MAXRECVWR, cap.getMax_recv_wr());
+		MemoryUtils.putInt(address + CAP_MAXSENDSGE, cap.getMax_send_sge());
+		MemoryUtils.putInt(address + CAP_MAXRECVSGE, cap.getMax_recv_sge());
+		MemoryUtils.putInt(address + CAP_MAXINLINEDATA, cap.getMax_inline_data());
+	}
+
+	private static void readCap(long address, IbvQPCap cap) {
+		cap.setMax_send_wr(MemoryUtils.getInt(address + CAP_MAXSENDWR));
+		cap.setMax_recv_wr(MemoryUtils.getInt(address + CAP_MAXRECVWR));
+		cap.setMax_send_sge(MemoryUtils.getInt(address + CAP_MAXSENDSGE));
+		cap.setMax_recv_sge(MemoryUtils.getInt(address + CAP_MAXRECVSGE));
+		cap.setMax_inline_data(MemoryUtils.getInt(address + CAP_MAXINLINEDATA));
+	}
+
+	private static void writeAhAttr(long address, IbvAhAttr ahAttr) {
+		IbvGlobalRoute grh = ahAttr.getGrh();
+		byte[] dgid = grh.getDgid();
+		for (int i = 0; i < DGID_SIZE; i++){
+			MemoryUtils.putByte(address + AH_DGID + i, dgid[i]);
+		}
+		MemoryUtils.putInt(address + AH_FLOWLABEL, grh.getFlow_label());
+		MemoryUtils.putByte(address + AH_SGIDINDEX, grh.getSgid_index());
+		MemoryUtils.putByte(address + AH_HOPLIMIT, grh.getHop_limit());
+		MemoryUtils.putByte(address + AH_TRAFFICCLASS, grh.getTraffic_class());
+		MemoryUtils.putShort(address + AH_DLID, ahAttr.getDlid());
+		MemoryUtils.putByte(address + AH_SL, ahAttr.getSl());
+		MemoryUtils.putByte(address + AH_SRCPATHBITS, ahAttr.getSrc_path_bits());
+		MemoryUtils.putByte(address + AH_STATICRATE, ahAttr.getStatic_rate());
+		MemoryUtils.putByte(address + AH_ISGLOBAL, ahAttr.getIs_global());
+		MemoryUtils.putByte(address + AH_PORTNUM, ahAttr.getPort_num());
+	}
+
+	private static void readAhAttr(long address, IbvAhAttr ahAttr) {
+		IbvGlobalRoute grh = ahAttr.getGrh();
+		byte[] dgid = new byte[DGID_SIZE];
+		for (int i = 0; i < DGID_SIZE; i++){
+			dgid[i] = MemoryUtils.getByte(address + AH_DGID + i);
+		}
+		grh.setDgid(dgid);
+		grh.setFlow_label(MemoryUtils.getInt(address + AH_FLOWLABEL));
+		grh.setSgid_index(MemoryUtils.getByte(address + AH_SGIDINDEX));
+		grh.setHop_limit(MemoryUtils.getByte(address + AH_HOPLIMIT));
+		grh.setTraffic_class(MemoryUtils.getByte(address + AH_TRAFFICCLASS));
+		ahAttr.setDlid(MemoryUtils.getShort(address + AH_DLID));
+		ahAttr.setSl(MemoryUtils.getByte(address + AH_SL));
+		ahAttr.setSrc_path_bits(MemoryUtils.getByte(address + AH_SRCPATHBITS));
+		ahAttr.setStatic_rate(MemoryUtils.getByte(address + AH_STATICRATE));
+		ahAttr.setIs_global(MemoryUtils.getByte(address + AH_ISGLOBAL));
+		ahAttr.setPort_num(MemoryUtils.getByte(address + AH_PORTNUM));
+	}
+}
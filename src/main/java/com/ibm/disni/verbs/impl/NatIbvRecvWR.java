@@ -21,10 +21,14 @@
 
 package com.ibm.disni.verbs.impl;
 
-import java.nio.ByteBuffer;
+import com.ibm.disni.util.MemoryUtils;
+import java.io.IOException;
+import java.util.LinkedList;
 
 import com.ibm.disni.verbs.IbvRecvWR;
+import com.ibm.disni.verbs.IbvSge;
 import com.ibm.disni.verbs.SVCPostRecv.RecvWRMod;
+import com.ibm.disni.verbs.SVCPostSend.SgeMod;
 
 //struct ibv_recv_wr {
 //uint64_t                wr_id;
@@ -36,27 +40,36 @@ import com.ibm.disni.verbs.SVCPostRecv.RecvWRMod;
 
 public class NatIbvRecvWR extends IbvRecvWR implements RecvWRMod {
 	public static int CSIZE = 32;
+	public static int WRID_OFFSET = 0;
+	public static int NEXT_OFFSET = 8;
+	public static int SGLIST_OFFSET = 16;
+	public static int NUMSGE_OFFSET = 24;
+
+	private NatCommandBuffer cmdBuffer;
+	private int bufPosition;
 	private long next;
 	private long ptr_sge_list;
+	private int maxSge;
 	
-	public NatIbvRecvWR(IbvRecvWR recvWR){
+	public NatIbvRecvWR(NatCommandBuffer cmdBuffer, IbvRecvWR recvWR, LinkedList<IbvSge> sg_list){
 		super();
 		this.next = 0;
 		this.ptr_sge_list = 0;		
 		
 		this.wr_id = recvWR.getWr_id();
 		this.num_sge = recvWR.getNum_sge();
+		this.sg_list = sg_list;
+		this.maxSge = sg_list.size();
+		this.cmdBuffer = cmdBuffer;
+		this.bufPosition = 0;
 	}
 	
-	public void writeBack(ByteBuffer buffer) {
-		int initialPos = buffer.position();
-		buffer.putLong(wr_id);
-		buffer.putLong(next);
-		buffer.putLong(ptr_sge_list);		
-		buffer.putInt(num_sge);
-		int newPos = initialPos + CSIZE;
-		buffer.position(newPos);
-	}	
+	public void writeBack(long address) {
+		MemoryUtils.putLong(address + WRID_OFFSET, wr_id);
+		MemoryUtils.putLong(address + NEXT_OFFSET, next);
+		MemoryUtils.putLong(address + SGLIST_OFFSET, ptr_sge_list);
+		MemoryUtils.putInt(address + NUMSGE_OFFSET, num_sge);
+	}
 
 	public long getNext() {
 		return next;
@@ -74,8 +87,48 @@ public class NatIbvRecvWR extends IbvRecvWR implements RecvWRMod {
 		this.ptr_sge_list = ptr_sge_list;
 	}
 
+	void writeNext(long next) {
+		this.next = next;
+		cmdBuffer.putLong(bufPosition + NEXT_OFFSET, next);
+	}
+
 	public void shiftAddress(long address) {
 		next += address;
 		ptr_sge_list += address;
 	}
+
+	public int getBufPosition() {
+		return bufPosition;
+	}
+
+	public void setBufPosition(int bufPosition) {
+		this.bufPosition = bufPosition;
+	}
+
+	//--------------------- modifiable recvWR
+
+	@Override
+	public void setWr_id(long wr_id) {
+		super.setWr_id(wr_id);
+		cmdBuffer.putLong(bufPosition + WRID_OFFSET, wr_id);
+	}
+
+	@Override
+	public void setNum_sge(int num_sge) throws IOException {
+		if (num_sge < 0 || num_sge > maxSge){
+			throw new IOException("Number of scatter/gather elements out of range, num_sge " + num_sge + ", maxSge " + maxSge);
+		}
+		super.setNum_sge(num_sge);
+		cmdBuffer.putInt(bufPosition + NUMSGE_OFFSET, num_sge);
+	}
+
+	@Override
+	public int getMaxSge() {
+		return maxSge;
+	}
+
+	@Override
+	public SgeMod getSgeMod(int index) {
+		return (SgeMod) sg_list.get(index);
+	}
 }
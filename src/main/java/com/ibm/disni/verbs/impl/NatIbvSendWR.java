@@ -21,14 +21,22 @@
 
 package com.ibm.disni.verbs.impl;
 
-import java.nio.ByteBuffer;
+import java.io.IOException;
 import java.util.LinkedList;
 
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.IbvAh;
+import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvMw;
+import com.ibm.disni.verbs.IbvMwBindInfo;
 import com.ibm.disni.verbs.IbvSendWR;
 import com.ibm.disni.verbs.IbvSge;
+import com.ibm.disni.verbs.SVCPostSend.AtomicMod;
+import com.ibm.disni.verbs.SVCPostSend.BindMwMod;
 import com.ibm.disni.verbs.SVCPostSend.RdmaMod;
 import com.ibm.disni.verbs.SVCPostSend.SendWRMod;
 import com.ibm.disni.verbs.SVCPostSend.SgeMod;
+import com.ibm.disni.verbs.SVCPostSend.UdMod;
 
 
 //struct ibv_send_wr {
@@ -38,7 +46,10 @@ import com.ibm.disni.verbs.SVCPostSend.SgeMod;
 //int                     num_sge;
 //enum ibv_wr_opcode      opcode;
 //int                     send_flags;
-//uint32_t                imm_data;       /* in network byte order */
+//union {
+//      uint32_t        imm_data;       /* in network byte order */
+//      uint32_t        invalidate_rkey;
+//};
 //union {
 //      struct {
 //              uint64_t        remote_addr;
@@ -56,29 +67,62 @@ import com.ibm.disni.verbs.SVCPostSend.SgeMod;
 //              uint32_t        remote_qkey;
 //      } ud;
 //} wr;
+//union { struct { uint32_t remote_srqn; } xrc; } qp_type;
+//union {
+//      struct {
+//              struct ibv_mw            *mw;
+//              uint32_t                  rkey;
+//              struct ibv_mw_bind_info   bind_info;
+//      } bind_mw;
+//      struct { void *hdr; uint16_t hdr_sz; uint16_t mss; } tso;
+//};
 //};
 
 public class NatIbvSendWR extends IbvSendWR implements SendWRMod {
-	public static int CSIZE = 72;
+	public static int CSIZE = 128;
 	public static int WRID_OFFSET = 0;
-//	public static int NEXT_OFFSET = 8;
-//	public static int SGLIST_OFFSET = 16;
-//	public static int NUMSGE_OFFSET = 24;
-//	public static int OPCODE_OFFSET = 28;
+	public static int NEXT_OFFSET = 8;
+	public static int SGLIST_OFFSET = 16;
+	public static int NUMSGE_OFFSET = 24;
+	public static int OPCODE_OFFSET = 28;
 	public static int SENDFLAGS_OFFSET = 32;
-//	public static int IMMDATA_OFFSET = 36;
+	public static int IMMDATA_OFFSET = 36;
 	public static int REMOTEADDR_OFFSET = 40;
 	public static int RKEY_OFFSET = 48;
+	public static int ATOMIC_REMOTEADDR_OFFSET = 40;
+	public static int ATOMIC_COMPAREADD_OFFSET = 48;
+	public static int ATOMIC_SWAP_OFFSET = 56;
+	public static int ATOMIC_RKEY_OFFSET = 64;
+	public static int UD_AH_OFFSET = 40;
+	public static int UD_REMOTEQPN_OFFSET = 48;
+	public static int UD_REMOTEQKEY_OFFSET = 52;
+	public static int BINDMW_MW_OFFSET = 80;
+	public static int BINDMW_RKEY_OFFSET = 88;
+	public static int BINDMW_MR_OFFSET = 96;
+	public static int BINDMW_ADDR_OFFSET = 104;
+	public static int BINDMW_LENGTH_OFFSET = 112;
+	public static int BINDMW_ACCESS_OFFSET = 120;
 	
 	private NatPostSendCall postSendCall;
 	private int bufPosition;
 	private long next;
 	private long ptr_sge_list;
 	private NatRdma natRdma;
+	private NatAtomic natAtomic;
+	private NatUd natUd;
+	private NatBindMw natBindMw;
+	private int maxSge;
 
-	public NatIbvSendWR(NatPostSendCall postSendCall, NatRdma natRdma, IbvSendWR sendWR, LinkedList<IbvSge> sg_list) {
-		super(natRdma, null, null, sg_list);
-		this.natRdma = natRdma;
+	public NatIbvSendWR(NatPostSendCall postSendCall, IbvSendWR sendWR, LinkedList<IbvSge> sg_list) {
+		super(null, null, null, sg_list);
+		this.natRdma = new NatRdma(this, sendWR.getRdma());
+		this.natAtomic = new NatAtomic(this, sendWR.getAtomic());
+		this.rdma = natRdma;
+		this.atomic = natAtomic;
+		this.natUd = new NatUd(this, sendWR.getUd());
+		this.ud = natUd;
+		this.natBindMw = new NatBindMw(this, sendWR.getBind_mw());
+		this.bind_mw = natBindMw;
 		this.next = 0;
 		this.ptr_sge_list = 0;
 		
@@ -90,23 +134,46 @@ public class NatIbvSendWR extends IbvSendWR implements SendWRMod {
 		
 		this.postSendCall = postSendCall;
 		this.bufPosition = 0;
+		this.maxSge = sg_list.size();
+		if (isAtomic(opcode)){
+			checkAlignment(natAtomic.getRemote_addr());
+		}
 	}
 
-	public void writeBack(ByteBuffer buffer) {
-		this.bufPosition = buffer.position();
-		int initialPos = this.bufPosition;
-		buffer.putLong(wr_id);
-		buffer.putLong(next);
-		buffer.putLong(ptr_sge_list);
-		buffer.putInt(num_sge);
-		buffer.putInt(opcode);
-		buffer.putInt(send_flags);
-		buffer.putInt(imm_data);
-		
-		buffer.position(initialPos + NatIbvSendWR.REMOTEADDR_OFFSET);
-		natRdma.writeBack(buffer);
-		int newPos = initialPos + CSIZE;
-		buffer.position(newPos);
+	public void writeBack(long address) {
+		MemoryUtils.putLong(address + WRID_OFFSET, wr_id);
+		MemoryUtils.putLong(address + NEXT_OFFSET, next);
+		MemoryUtils.putLong(address + SGLIST_OFFSET, ptr_sge_list);
+		MemoryUtils.putInt(address + NUMSGE_OFFSET, num_sge);
+		MemoryUtils.putInt(address + OPCODE_OFFSET, opcode);
+		MemoryUtils.putInt(address + SENDFLAGS_OFFSET, send_flags);
+		MemoryUtils.putInt(address + IMMDATA_OFFSET, imm_data);
+		if (isAtomic(opcode)){
+			natAtomic.writeBack(address);
+		} else if (isUd()){
+			natUd.writeBack(address);
+		} else {
+			natRdma.writeBack(address);
+		}
+		natBindMw.writeBack(address);
+	}
+
+	/**
+	 * The wr union holds the atomic part for atomic operations, the ud part for work requests carrying an 
+	 * address handle and the rdma part for all other operations.
+	 */
+	boolean isUd() {
+		return natUd.getAh() != null;
+	}
+
+	static boolean isAtomic(int opcode) {
+		return opcode == IBV_WR_ATOMIC_CMP_AND_SWP || opcode == IBV_WR_ATOMIC_FETCH_AND_ADD;
+	}
+
+	static void checkAlignment(long remote_addr) {
+		if ((remote_addr & 7) != 0){
+			throw new IllegalArgumentException("Remote address of atomic operation not 8-byte aligned, remote_addr " + remote_addr);
+		}
 	}
 
 	public long getNext() {
@@ -129,6 +196,11 @@ public class NatIbvSendWR extends IbvSendWR implements SendWRMod {
 		this.ptr_sge_list = ptr_sge_list;
 	}
 
+	void writeNext(long next) {
+		this.next = next;
+		putLong(NEXT_OFFSET, next);
+	}
+
 	public void shiftAddress(long address) {
 		next += address;
 		ptr_sge_list += address;
@@ -138,23 +210,107 @@ public class NatIbvSendWR extends IbvSendWR implements SendWRMod {
 		return bufPosition;
 	}
 
+	public void setBufPosition(int bufPosition) {
+		this.bufPosition = bufPosition;
+	}
+
+	private void putLong(int offset, long value) {
+		postSendCall.putLong(bufPosition + offset, value);
+	}
+
+	private void putInt(int offset, int value) {
+		postSendCall.putInt(bufPosition + offset, value);
+	}
+
 	//--------------------- modifiable sendWR
 	
 	@Override
 	public void setWr_id(long wr_id) {
 		super.setWr_id(wr_id);
-		postSendCall.setWr_id(this, WRID_OFFSET);
+		putLong(WRID_OFFSET, wr_id);
+	}
+
+	@Override
+	public void setOpcode(int opcode) {
+		if (isAtomic(opcode)){
+			checkAlignment(natAtomic.getRemote_addr());
+		}
+		boolean unionChanged = isAtomic(opcode) != isAtomic(this.opcode);
+		if ((opcode == IBV_WR_BIND_MW) != (this.opcode == IBV_WR_BIND_MW)){
+			postSendCall.bindCountChanged(opcode == IBV_WR_BIND_MW ? 1 : -1);
+		}
+		super.setOpcode(opcode);
+		putInt(OPCODE_OFFSET, opcode);
+		if (unionChanged){
+			if (isAtomic(opcode)){
+				natAtomic.writeBack();
+			} else if (isUd()){
+				natUd.writeBack();
+			} else {
+				natRdma.writeBack();
+			}
+		}
 	}
 	
 	@Override
 	public void setSend_flags(int send_flags) {
 		super.setSend_flags(send_flags);
-		postSendCall.setSend_flags(this, SENDFLAGS_OFFSET);
+		putInt(SENDFLAGS_OFFSET, send_flags);
 	}	
+
+	@Override
+	public void setImm_data(int imm_data) {
+		super.setImm_data(imm_data);
+		putInt(IMMDATA_OFFSET, imm_data);
+	}
+	
+	@Override
+	public void setInvalidate_rkey(int invalidate_rkey) {
+		setImm_data(invalidate_rkey);
+	}
 	
+	@Override
+	public void setNum_sge(int num_sge) throws IOException {
+		if (num_sge < 0 || num_sge > maxSge){
+			throw new IOException("Number of scatter/gather elements out of range, num_sge " + num_sge + ", maxSge " + maxSge);
+		}
+		super.setNum_sge(num_sge);
+		putInt(NUMSGE_OFFSET, num_sge);
+	}
+
+	@Override
+	public int getMaxSge() {
+		return maxSge;
+	}
+
 	@Override
 	public RdmaMod getRdmaMod() {
-		return (RdmaMod) this.rdma;
+		return natRdma;
+	}
+
+	@Override
+	public AtomicMod getAtomicMod() {
+		return natAtomic;
+	}
+
+	@Override
+	public UdMod getUdMod() {
+		return natUd;
+	}
+
+	@Override
+	public BindMwMod getBindMwMod() {
+		return natBindMw;
+	}
+
+	/**
+	 * Records the key of a posted bind in its memory window.
+	 */
+	void commitBind() {
+		IbvMw mw = natBindMw.getMw();
+		if (opcode == IBV_WR_BIND_MW && mw != null){
+			mw.setRkey(natBindMw.getRkey());
+		}
 	}
 
 	@Override
@@ -164,45 +320,233 @@ public class NatIbvSendWR extends IbvSendWR implements SendWRMod {
 
 
 	public static class NatRdma extends IbvSendWR.Rdma implements RdmaMod {
-		private NatPostSendCall postSendCall;
-		private int bufPosition;
+		private NatIbvSendWR sendWR;
 		
-		public NatRdma(Rdma rdma, NatPostSendCall postSendCall){
+		public NatRdma(NatIbvSendWR sendWR, Rdma rdma){
 			this.remote_addr = rdma.getRemote_addr();
 			this.reserved = rdma.getReserved();
 			this.rkey = rdma.getRkey();
 			
-			this.postSendCall = postSendCall;
-//			this.bufPosition = 0;
+			this.sendWR = sendWR;
 		}
 		
 		@Override
 		public void setRemote_addr(long remote_addr) {
 			super.setRemote_addr(remote_addr);
-			postSendCall.setRemote_addr(this, 0);
+			if (!isAtomic(sendWR.getOpcode()) && !sendWR.isUd()){
+				sendWR.putLong(REMOTEADDR_OFFSET, remote_addr);
+			}
 		}
 
 		@Override
 		public void setRkey(int rkey) {
 			super.setRkey(rkey);
-			postSendCall.setRkey(this, 8);
+			if (!isAtomic(sendWR.getOpcode()) && !sendWR.isUd()){
+				sendWR.putInt(RKEY_OFFSET, rkey);
+			}
 		}
 		
+		public void writeBack(long address) {
+			MemoryUtils.putLong(address + REMOTEADDR_OFFSET, getRemote_addr());
+			MemoryUtils.putInt(address + RKEY_OFFSET, getRkey());
+		}
+
+		void writeBack() {
+			sendWR.putLong(REMOTEADDR_OFFSET, getRemote_addr());
+			sendWR.putInt(RKEY_OFFSET, getRkey());
+		}
+	}
+
+	public static class NatAtomic extends IbvSendWR.Atomic implements AtomicMod {
+		private NatIbvSendWR sendWR;
+
+		public NatAtomic(NatIbvSendWR sendWR, Atomic atomic){
+			this.remote_addr = atomic.getRemote_addr();
+			this.compare_add = atomic.getCompare_add();
+			this.swap = atomic.getSwap();
+			this.rkey = atomic.getRkey();
+			this.reserved = atomic.getReserved();
+
+			this.sendWR = sendWR;
+		}
+
 		@Override
-		public void setReserved(int reserved) {
-			super.setReserved(reserved);
-			postSendCall.setReserved(this, 12);
+		public void setRemote_addr(long remote_addr) {
+			checkAlignment(remote_addr);
+			super.setRemote_addr(remote_addr);
+			if (isAtomic(sendWR.getOpcode())){
+				sendWR.putLong(ATOMIC_REMOTEADDR_OFFSET, remote_addr);
+			}
 		}
-		
-		public void writeBack(ByteBuffer buffer) {
-			this.bufPosition = buffer.position();
-			buffer.putLong(getRemote_addr());
-			buffer.putInt(getRkey());
-			buffer.putInt(getReserved());			
+
+		@Override
+		public void setCompare_add(long compare_add) {
+			super.setCompare_add(compare_add);
+			if (isAtomic(sendWR.getOpcode())){
+				sendWR.putLong(ATOMIC_COMPAREADD_OFFSET, compare_add);
+			}
 		}
-		
-		public int getBufPosition() {
-			return bufPosition;
+
+		@Override
+		public void setSwap(long swap) {
+			super.setSwap(swap);
+			if (isAtomic(sendWR.getOpcode())){
+				sendWR.putLong(ATOMIC_SWAP_OFFSET, swap);
+			}
+		}
+
+		@Override
+		public void setRkey(int rkey) {
+			super.setRkey(rkey);
+			if (isAtomic(sendWR.getOpcode())){
+				sendWR.putInt(ATOMIC_RKEY_OFFSET, rkey);
+			}
+		}
+
+		public void writeBack(long address) {
+			MemoryUtils.putLong(address + ATOMIC_REMOTEADDR_OFFSET, getRemote_addr());
+			MemoryUtils.putLong(address + ATOMIC_COMPAREADD_OFFSET, getCompare_add());
+			MemoryUtils.putLong(address + ATOMIC_SWAP_OFFSET, getSwap());
+			MemoryUtils.putInt(address + ATOMIC_RKEY_OFFSET, getRkey());
+		}
+
+		void writeBack() {
+			sendWR.putLong(ATOMIC_REMOTEADDR_OFFSET, getRemote_addr());
+			sendWR.putLong(ATOMIC_COMPAREADD_OFFSET, getCompare_add());
+			sendWR.putLong(ATOMIC_SWAP_OFFSET, getSwap());
+			sendWR.putInt(ATOMIC_RKEY_OFFSET, getRkey());
+		}
+	}
+
+	public static class NatUd extends IbvSendWR.Ud implements UdMod {
+		private NatIbvSendWR sendWR;
+
+		public NatUd(NatIbvSendWR sendWR, Ud ud){
+			this.ah = ud.getAh();
+			this.remote_qpn = ud.getRemote_qpn();
+			this.remote_qkey = ud.getRemote_qkey();
+			this.reserved = ud.getReserved();
+
+			this.sendWR = sendWR;
+		}
+
+		@Override
+		public void setAh(IbvAh ah) {
+			boolean wasUd = sendWR.isUd();
+			super.setAh(ah);
+			if (isAtomic(sendWR.getOpcode())){
+				return;
+			}
+			if (sendWR.isUd()){
+				if (wasUd){
+					sendWR.putLong(UD_AH_OFFSET, objId(ah));
+				} else {
+					writeBack();
+				}
+			} else if (wasUd){
+				sendWR.natRdma.writeBack();
+			}
+		}
+
+		@Override
+		public void setRemote_qpn(int remote_qpn) {
+			super.setRemote_qpn(remote_qpn);
+			if (sendWR.isUd() && !isAtomic(sendWR.getOpcode())){
+				sendWR.putInt(UD_REMOTEQPN_OFFSET, remote_qpn);
+			}
+		}
+
+		@Override
+		public void setRemote_qkey(int remote_qkey) {
+			super.setRemote_qkey(remote_qkey);
+			if (sendWR.isUd() && !isAtomic(sendWR.getOpcode())){
+				sendWR.putInt(UD_REMOTEQKEY_OFFSET, remote_qkey);
+			}
+		}
+
+		public void writeBack(long address) {
+			MemoryUtils.putLong(address + UD_AH_OFFSET, objId(getAh()));
+			MemoryUtils.putInt(address + UD_REMOTEQPN_OFFSET, getRemote_qpn());
+			MemoryUtils.putInt(address + UD_REMOTEQKEY_OFFSET, getRemote_qkey());
+		}
+
+		void writeBack() {
+			sendWR.putLong(UD_AH_OFFSET, objId(getAh()));
+			sendWR.putInt(UD_REMOTEQPN_OFFSET, getRemote_qpn());
+			sendWR.putInt(UD_REMOTEQKEY_OFFSET, getRemote_qkey());
+		}
+
+		private static long objId(IbvAh ah) {
+			return ah != null ? ((NatIbvAh) ah).getObjId() : 0;
+		}
+	}
+
+	public static class NatBindMw extends IbvSendWR.BindMw implements BindMwMod {
+		private NatIbvSendWR sendWR;
+
+		public NatBindMw(NatIbvSendWR sendWR, BindMw bindMw){
+			IbvMwBindInfo bindInfo = bindMw.getBind_info();
+			this.mw = bindMw.getMw();
+			this.rkey = bindMw.getRkey();
+			this.bind_info = new IbvMwBindInfo(bindInfo.getMr(), bindInfo.getAddr(), bindInfo.getLength(), bindInfo.getMw_access_flags());
+
+			this.sendWR = sendWR;
+		}
+
+		@Override
+		public void setRkey(int rkey) {
+			super.setRkey(rkey);
+			sendWR.putInt(BINDMW_RKEY_OFFSET, rkey);
+		}
+
+		@Override
+		public void setAddr(long addr) {
+			bind_info.setAddr(addr);
+			sendWR.putLong(BINDMW_ADDR_OFFSET, addr);
+		}
+
+		@Override
+		public long getAddr() {
+			return bind_info.getAddr();
+		}
+
+		@Override
+		public void setLength(long length) {
+			bind_info.setLength(length);
+			sendWR.putLong(BINDMW_LENGTH_OFFSET, length);
+		}
+
+		@Override
+		public long getLength() {
+			return bind_info.getLength();
+		}
+
+		@Override
+		public void setMw_access_flags(int mw_access_flags) {
+			bind_info.setMw_access_flags(mw_access_flags);
+			sendWR.putInt(BINDMW_ACCESS_OFFSET, mw_access_flags);
+		}
+
+		@Override
+		public int getMw_access_flags() {
+			return bind_info.getMw_access_flags();
+		}
+
+		public void writeBack(long address) {
+			MemoryUtils.putLong(address + BINDMW_MW_OFFSET, objId(getMw()));
+			MemoryUtils.putInt(address + BINDMW_RKEY_OFFSET, getRkey());
+			MemoryUtils.putLong(address + BINDMW_MR_OFFSET, objId(bind_info.getMr()));
+			MemoryUtils.putLong(address + BINDMW_ADDR_OFFSET, bind_info.getAddr());
+			MemoryUtils.putLong(address + BINDMW_LENGTH_OFFSET, bind_info.getLength());
+			MemoryUtils.putInt(address + BINDMW_ACCESS_OFFSET, bind_info.getMw_access_flags());
+		}
+
+		private static long objId(IbvMw mw) {
+			return mw != null ? ((NatIbvMw) mw).getObjId() : 0;
+		}
+
+		static long objId(IbvMr mr) {
+			return mr != null ? ((NatIbvMr) mr).getObjId() : 0;
 		}
 	}
 }
@@ -21,24 +21,32 @@
 
 package com.ibm.disni.verbs.impl;
 
-import java.nio.ByteBuffer;
-
+import com.ibm.disni.util.MemoryUtils;
 import com.ibm.disni.verbs.IbvSge;
 import com.ibm.disni.verbs.SVCPostSend.SgeMod;
 
+//struct ibv_sge {
+//uint64_t                addr;
+//uint32_t                length;
+//uint32_t                lkey;
+//};
+
 public class NatIbvSge extends IbvSge implements SgeMod {
 	public static int CSIZE = 16;
+	public static int ADDR_OFFSET = 0;
+	public static int LENGTH_OFFSET = 8;
+	public static int LKEY_OFFSET = 12;
 	
-	private NatPostSendCall postSendCall;
+	private NatCommandBuffer cmdBuffer;
 	private int bufPosition;
 	
-	public NatIbvSge(NatPostSendCall postSendCall, IbvSge sge){
+	public NatIbvSge(NatCommandBuffer cmdBuffer, IbvSge sge){
 		this.addr = sge.getAddr();
 		this.length = sge.getLength();
 		this.lkey = sge.getLkey();
 		
 		this.bufPosition = 0;
-		this.postSendCall = postSendCall;
+		this.cmdBuffer = cmdBuffer;
 	}
 
 	public int getBufPosition() {
@@ -52,27 +60,24 @@ public class NatIbvSge extends IbvSge implements SgeMod {
 	@Override
 	public void setAddr(long addr) {
 		super.setAddr(addr);
-		postSendCall.setAddr(this, 0);
+		cmdBuffer.putLong(bufPosition + ADDR_OFFSET, addr);
 	}
 
 	@Override
 	public void setLength(int length) {
 		super.setLength(length);
-		postSendCall.setLength(this, 8);
+		cmdBuffer.putInt(bufPosition + LENGTH_OFFSET, length);
 	}
 
 	@Override
 	public void setLkey(int lkey) {
 		super.setLkey(lkey);
-		postSendCall.setLkey(this, 12);
+		cmdBuffer.putInt(bufPosition + LKEY_OFFSET, lkey);
 	}
 
-	public void writeBack(ByteBuffer buffer) {
-		this.bufPosition = buffer.position();
-		buffer.putLong(getAddr());
-		buffer.putInt(getLength());
-		buffer.putInt(getLkey());		
+	public static void writeBack(long address, IbvSge sge) {
+		MemoryUtils.putLong(address + ADDR_OFFSET, sge.getAddr());
+		MemoryUtils.putInt(address + LENGTH_OFFSET, sge.getLength());
+		MemoryUtils.putInt(address + LKEY_OFFSET, sge.getLkey());
 	}
-	
-	
 }
@@ -0,0 +1,237 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.util.MemBuf;
+import com.ibm.disni.util.MemoryUtils;
+
+//struct ibv_wc {
+//    uint64_t                wr_id;
+//    enum ibv_wc_status      status;
+//    enum ibv_wc_opcode      opcode;
+//    uint32_t                vendor_err;
+//    uint32_t                byte_len;
+//    uint32_t                imm_data;       /* in network byte order */
+//    uint32_t                qp_num;
+//    uint32_t                src_qp;
+//    int                     wc_flags;
+//    uint16_t                pkey_index;
+//    uint16_t                slid;
+//    uint8_t                 sl;
+//    uint8_t                 dlid_path_bits;
+//};
+
+/**
+ * A flyweight view of a single work completion slot inside the native buffer of a poll call.
+ *
+ * Fields are read lazily from native memory each time a getter is called, nothing is copied.
+ * The content of the view changes with every execution of the poll call owning the slot. Use clone()
+ * to obtain a private copy of the work completion.
+ */
+public class NatIbvWC extends IbvWC {
+	public static int WRID_OFFSET = 0;
+	public static int STATUS_OFFSET = 8;
+	public static int OPCODE_OFFSET = 12;
+	public static int VENDORERR_OFFSET = 16;
+	public static int BYTELEN_OFFSET = 20;
+	public static int IMMDATA_OFFSET = 24;
+	public static int QPNUM_OFFSET = 28;
+	public static int SRCQP_OFFSET = 32;
+	public static int WCFLAGS_OFFSET = 36;
+	public static int PKEYINDEX_OFFSET = 40;
+	public static int SLID_OFFSET = 42;
+	public static int SL_OFFSET = 44;
+	public static int DLIDPATHBITS_OFFSET = 45;
+
+	//slots of extended CQs are an ibv_wc followed by the completion timestamp
+	public static int TS_CSIZE = 56;
+	public static int COMPLETIONTS_OFFSET = 48;
+
+	private MemBuf cmd; //keeps the native buffer reachable while the view is in use
+	private long address;
+	private boolean timestamped;
+
+	public NatIbvWC(MemBuf cmd, int index) {
+		this(cmd, index, false);
+	}
+
+	public NatIbvWC(MemBuf cmd, int index, boolean timestamped) {
+		this.cmd = cmd;
+		this.timestamped = timestamped;
+		this.address = cmd.address() + index*slotSize(timestamped);
+	}
+
+	/**
+	 * The size of one completion slot in the native buffer of a poll call.
+	 */
+	public static int slotSize(boolean timestamped) {
+		return timestamped ? TS_CSIZE : IbvWC.CSIZE;
+	}
+
+	/**
+	 * Copies all fields of the completion slot into the given work completion object.
+	 *
+	 * @param wc the work completion to be updated.
+	 */
+	@Override
+	public void copyTo(IbvWC wc) {
+		wc.setWr_id(getWr_id());
+		wc.setStatus(getStatus());
+		wc.setOpcode(getOpcode());
+		wc.setVendor_err(getVendor_err());
+		wc.setByte_len(getByte_len());
+		wc.setImm_data(getImm_data());
+		wc.setQp_num(getQp_num());
+		wc.setSrc_qp(getSrc_qp());
+		wc.setWc_flags(getWc_flags());
+		wc.setPkey_index(getPkey_index());
+		wc.setSlid(getSlid());
+		wc.setSl(getSl());
+		wc.setDlid_path_bits(getDlid_path_bits());
+		wc.setCompletion_ts(getCompletion_ts());
+	}
+
+	public IbvWC clone() {
+		IbvWC wc = new IbvWC();
+		copyTo(wc);
+		wc.setErr(getErr());
+		return wc;
+	}
+
+	public long getWr_id() {
+		return MemoryUtils.getLong(address + WRID_OFFSET);
+	}
+
+	public void setWr_id(long wr_id) {
+		MemoryUtils.putLong(address + WRID_OFFSET, wr_id);
+	}
+
+	public int getStatus() {
+		return MemoryUtils.getInt(address + STATUS_OFFSET);
+	}
+
+	public void setStatus(int status) {
+		MemoryUtils.putInt(address + STATUS_OFFSET, status);
+	}
+
+	public int getOpcode() {
+		return MemoryUtils.getInt(address + OPCODE_OFFSET);
+	}
+
+	public void setOpcode(int opcode) {
+		MemoryUtils.putInt(address + OPCODE_OFFSET, opcode);
+	}
+
+	public int getVendor_err() {
+		return MemoryUtils.getInt(address + VENDORERR_OFFSET);
+	}
+
+	public void setVendor_err(int vendor_err) {
+		MemoryUtils.putInt(address + VENDORERR_OFFSET, vendor_err);
+	}
+
+	public int getByte_len() {
+		return MemoryUtils.getInt(address + BYTELEN_OFFSET);
+	}
+
+	public void setByte_len(int byte_len) {
+		MemoryUtils.putInt(address + BYTELEN_OFFSET, byte_len);
+	}
+
+	public int getImm_data() {
+		return MemoryUtils.getInt(address + IMMDATA_OFFSET);
+	}
+
+	public void setImm_data(int imm_data) {
+		MemoryUtils.putInt(address + IMMDATA_OFFSET, imm_data);
+	}
+
+	public int getQp_num() {
+		return MemoryUtils.getInt(address + QPNUM_OFFSET);
+	}
+
+	public void setQp_num(int qp_num) {
+		MemoryUtils.putInt(address + QPNUM_OFFSET, qp_num);
+	}
+
+	public int getSrc_qp() {
+		return MemoryUtils.getInt(address + SRCQP_OFFSET);
+	}
+
+	public void setSrc_qp(int src_qp) {
+		MemoryUtils.putInt(address + SRCQP_OFFSET, src_qp);
+	}
+
+	public int getWc_flags() {
+		return MemoryUtils.getInt(address + WCFLAGS_OFFSET);
+	}
+
+	public void setWc_flags(int wc_flags) {
+		MemoryUtils.putInt(address + WCFLAGS_OFFSET, wc_flags);
+	}
+
+	public short getPkey_index() {
+		return MemoryUtils.getShort(address + PKEYINDEX_OFFSET);
+	}
+
+	public void setPkey_index(short pkey_index) {
+		MemoryUtils.putShort(address + PKEYINDEX_OFFSET, pkey_index);
+	}
+
+	public short getSlid() {
+		return MemoryUtils.getShort(address + SLID_OFFSET);
+	}
+
+	public void setSlid(short slid) {
+		MemoryUtils.putShort(address + SLID_OFFSET, slid);
+	}
+
+	public short getSl() {
+		return (short) (MemoryUtils.getByte(address + SL_OFFSET) & 0xff);
+	}
+
+	public void setSl(short sl) {
+		MemoryUtils.putByte(address + SL_OFFSET, (byte) sl);
+	}
+
+	public short getDlid_path_bits() {
+		return (short) (MemoryUtils.getByte(address + DLIDPATHBITS_OFFSET) & 0xff);
+	}
+
+	public void setDlid_path_bits(short dlid_path_bits) {
+		MemoryUtils.putByte(address + DLIDPATHBITS_OFFSET, (byte) dlid_path_bits);
+	}
+
+	public long getCompletion_ts() {
+		if (!timestamped){
+			return 0;
+		}
+		return MemoryUtils.getLong(address + COMPLETIONTS_OFFSET);
+	}
+
+	public void setCompletion_ts(long completion_ts) {
+		if (timestamped){
+			MemoryUtils.putLong(address + COMPLETIONTS_OFFSET, completion_ts);
+		}
+	}
+}
@@ -22,7 +22,6 @@
 package com.ibm.disni.verbs.impl;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import com.ibm.disni.verbs.IbvCQ;
 import com.ibm.disni.verbs.IbvWC;
@@ -54,15 +53,27 @@ public class NatPollCqCall extends SVCPollCq {
 
 	private NatIbvCQ cq;
 	private IbvWC[] wcList;
+	private NatIbvWC[] wcViews;
 	private int ne;
 	
 	private MemBuf cmd;
+	private boolean timestamped;
 	private int csize;
 	private int result;
 	private boolean valid;
 	
 	public NatPollCqCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher,
 	                     MemoryAllocation memAlloc, IbvCQ cq, IbvWC[] wcList, int ne) {
+		this(verbs, nativeDispatcher, memAlloc, cq, wcList, wcList.length, ne);
+	}
+
+	public NatPollCqCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher,
+	                     MemoryAllocation memAlloc, IbvCQ cq, int ne) {
+		this(verbs, nativeDispatcher, memAlloc, cq, null, ne, ne);
+	}
+
+	private NatPollCqCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher,
+	                     MemoryAllocation memAlloc, IbvCQ cq, IbvWC[] wcList, int capacity, int ne) {
 		this.verbs = verbs;
 		this.nativeDispatcher = nativeDispatcher;
 		this.memAlloc = memAlloc;
@@ -71,30 +82,14 @@ public class NatPollCqCall extends SVCPollCq {
 		this.wcList = wcList;
 		this.ne = ne;
 
-		this.csize = wcList.length*IbvWC.CSIZE;
+		this.timestamped = cq.isTimestamped();
+		this.csize = capacity*NatIbvWC.slotSize(timestamped);
 		this.cmd = memAlloc.allocate(csize);
-		this.valid = true;
-	}
-	
-	private void update(IbvWC wc, ByteBuffer buffer) {
-		int initialPos = buffer.position();
-		wc.setWr_id(buffer.getLong());
-		wc.setStatus(buffer.getInt());
-		wc.setOpcode(buffer.getInt());
-		if (wc.getStatus() == IbvWC.IbvWcStatus.IBV_WC_SUCCESS.ordinal()){
-			wc.setVendor_err(buffer.getInt());
-			wc.setByte_len(buffer.getInt());
-			wc.setImm_data(buffer.getInt());
-			wc.setQp_num(buffer.getInt());
-			wc.setSrc_qp(buffer.getInt());
-			wc.setWc_flags(buffer.getInt());
-			wc.setPkey_index(buffer.getShort());
-			wc.setSlid(buffer.getShort());
-			wc.setSl(buffer.get());
-			wc.setDlid_path_bits(buffer.get());
+		this.wcViews = new NatIbvWC[capacity];
+		for (int i = 0; i < capacity; i++){
+			wcViews[i] = new NatIbvWC(cmd, i, timestamped);
 		}
-		int newPosition = initialPos + IbvWC.CSIZE;
-		buffer.position(newPosition);
+		this.valid = true;
 	}
 
 	@Override
@@ -103,13 +98,16 @@ public class NatPollCqCall extends SVCPollCq {
 		if (!cq.isOpen()) {
 			throw new IOException("Trying to poll closed CQ.");
 		}
-		this.result = nativeDispatcher._pollCQ(cq.getObjId(),  ne, cmd.address());
+		if (timestamped){
+			this.result = nativeDispatcher._pollCQEx(cq.getObjId(),  ne, cmd.address());
+		} else {
+			this.result = nativeDispatcher._pollCQ(cq.getObjId(),  ne, cmd.address());
+		}
 		if (result < 0){
 			throw new IOException("Polling CQ failed");
-		} else if (result > 0){
-			cmd.getBuffer().clear();
+		} else if (wcList != null){
 			for (int i = 0; i < result; i++){
-				update(wcList[i], cmd.getBuffer());
+				wcViews[i].copyTo(wcList[i]);
 			}
 		}
 		return this;
@@ -119,7 +117,15 @@ public class NatPollCqCall extends SVCPollCq {
 	@Override
 	public int getPolls() {
 		return result;
-	}	
+	}
+
+	@Override
+	public IbvWC getWC(int index) {
+		if (wcList != null){
+			return wcList[index];
+		}
+		return wcViews[index];
+	}
 
 	@Override
 	public boolean isValid() {
@@ -131,6 +137,7 @@ public class NatPollCqCall extends SVCPollCq {
 		if (cmd != null){
 			cmd.free();
 			cmd = null;
+			wcViews = null;
 		}		
 		this.valid = false;
 		return this;
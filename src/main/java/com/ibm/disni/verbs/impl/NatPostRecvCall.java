@@ -23,6 +23,7 @@ package com.ibm.disni.verbs.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 
 import com.ibm.disni.verbs.IbvQP;
@@ -31,16 +32,17 @@ import com.ibm.disni.verbs.IbvSge;
 import com.ibm.disni.verbs.SVCPostRecv;
 import com.ibm.disni.util.MemBuf;
 import com.ibm.disni.util.MemoryAllocation;
+import com.ibm.disni.util.MemoryUtils;
 
 
-public class NatPostRecvCall extends SVCPostRecv {
+public class NatPostRecvCall extends SVCPostRecv implements NatCommandBuffer {
 	private NativeDispatcher nativeDispatcher;
 	private RdmaVerbsNat verbs;
 	private MemoryAllocation memAlloc;
 	
 	private NatIbvQP qp;
 	private ArrayList<NatIbvRecvWR> wrNatList;
-	private ArrayList<IbvSge> sgeNatList;
+	private ArrayList<NatIbvSge> sgeNatList;
 	
 	private MemBuf cmd;
 	private boolean valid;
@@ -53,9 +55,18 @@ public class NatPostRecvCall extends SVCPostRecv {
 		this.qp = (NatIbvQP) qp;
 		
 		this.wrNatList = new ArrayList<NatIbvRecvWR>(wrList.size());
-		this.sgeNatList = new ArrayList<IbvSge>();
+		this.sgeNatList = new ArrayList<NatIbvSge>();
 		this.valid = false;
 
+		this.cmd = memAlloc.allocate(commandSize(wrList));
+		writeWrList(this, cmd.address(), wrList, wrNatList, sgeNatList);
+		this.valid = true;
+	}
+
+	/**
+	 * Computes the size of the native command buffer holding the given receive work requests.
+	 */
+	static int commandSize(List<IbvRecvWR> wrList) {
 		int size = 0;
 		for (IbvRecvWR recvWR : wrList) {
 			size += NatIbvRecvWR.CSIZE;
@@ -63,19 +74,29 @@ public class NatPostRecvCall extends SVCPostRecv {
 				size += recvWR.getSg_list().size()*NatIbvSge.CSIZE;
 			}
 		}
-		this.cmd = memAlloc.allocate(size);
-		setWrList(wrList);
+		return size;
 	}
-	
-	private void setWrList(List<IbvRecvWR> wrList) {
+
+	/**
+	 * Serializes a list of receive work requests into a native command buffer. Shared by the 
+	 * post-recv and post-srq-recv calls.
+	 */
+	static void writeWrList(NatCommandBuffer cmdBuffer, long address, List<IbvRecvWR> wrList, 
+			ArrayList<NatIbvRecvWR> wrNatList, ArrayList<NatIbvSge> sgeNatList) {
 		wrNatList.clear();
 		sgeNatList.clear();
-		cmd.getBuffer().clear();
-
 		long sgeOffset = wrList.size()*NatIbvRecvWR.CSIZE;
 		long wrOffset = NatIbvRecvWR.CSIZE;
 		for (IbvRecvWR recvWR : wrList){
-			NatIbvRecvWR natRecvWR = new NatIbvRecvWR(recvWR);
+			LinkedList<IbvSge> sg_list = new LinkedList<IbvSge>();
+			if (recvWR.getNum_sge() > 0) {
+				for (IbvSge sge : recvWR.getSg_list()){
+					NatIbvSge natSge = new NatIbvSge(cmdBuffer, sge);
+					sg_list.add(natSge);
+					sgeNatList.add(natSge);
+				}
+			}
+			NatIbvRecvWR natRecvWR = new NatIbvRecvWR(cmdBuffer, recvWR, sg_list);
 			natRecvWR.setNext(wrOffset);
 			wrNatList.add(natRecvWR);
 
@@ -83,26 +104,26 @@ public class NatPostRecvCall extends SVCPostRecv {
 
 			if (recvWR.getNum_sge() > 0) {
 				natRecvWR.setPtr_sge_list(sgeOffset);
-				sgeNatList.addAll(recvWR.getSg_list());
-				sgeOffset += recvWR.getSg_list().size()*NatIbvSge.CSIZE;
+				sgeOffset += sg_list.size()*NatIbvSge.CSIZE;
 			}
 		}
 		
 		for (NatIbvRecvWR natWR : wrNatList){
-			natWR.shiftAddress(cmd.address());
+			natWR.shiftAddress(address);
 		}
 		wrNatList.get(wrNatList.size() - 1).setNext(0);
 		
+		int position = 0;
 		for (NatIbvRecvWR natWR : wrNatList){
-			natWR.writeBack(cmd.getBuffer());
+			natWR.setBufPosition(position);
+			natWR.writeBack(address + position);
+			position += NatIbvRecvWR.CSIZE;
 		}
-		for (IbvSge sge : sgeNatList){
-			cmd.getBuffer().putLong(sge.getAddr());
-			cmd.getBuffer().putInt(sge.getLength());
-			cmd.getBuffer().putInt(sge.getLkey());
+		for (NatIbvSge sge : sgeNatList){
+			sge.setBufPosition(position);
+			NatIbvSge.writeBack(address + position, sge);
+			position += NatIbvSge.CSIZE;
 		}
-		
-		this.valid = true;
 	}	
 
 	@Override
@@ -134,4 +155,13 @@ public class NatPostRecvCall extends SVCPostRecv {
 		return wrNatList.get(index);
 	}
 
+	//---------------------
+
+	public void putLong(int position, long value) {
+		MemoryUtils.putLong(cmd.address() + position, value);
+	}
+
+	public void putInt(int position, int value) {
+		MemoryUtils.putInt(cmd.address() + position, value);
+	}
 }
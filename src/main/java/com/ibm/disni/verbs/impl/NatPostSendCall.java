@@ -30,12 +30,12 @@ import com.ibm.disni.verbs.IbvQP;
 import com.ibm.disni.verbs.IbvSendWR;
 import com.ibm.disni.verbs.IbvSge;
 import com.ibm.disni.verbs.SVCPostSend;
-import com.ibm.disni.verbs.impl.NatIbvSendWR.NatRdma;
 import com.ibm.disni.util.MemBuf;
 import com.ibm.disni.util.MemoryAllocation;
+import com.ibm.disni.util.MemoryUtils;
 
 
-public class NatPostSendCall extends SVCPostSend {
+public class NatPostSendCall extends SVCPostSend implements NatCommandBuffer {
 	private NativeDispatcher nativeDispatcher;
 	private RdmaVerbsNat verbs;
 	private MemoryAllocation memAlloc;
@@ -46,6 +46,8 @@ public class NatPostSendCall extends SVCPostSend {
 	
 	private MemBuf cmd;
 	private boolean valid;
+	private int numWr;
+	private int bindWrs;
 	
 	public NatPostSendCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher,
 	                       MemoryAllocation memAlloc, IbvQP qp, List<IbvSendWR> wrList) {
@@ -66,11 +68,31 @@ public class NatPostSendCall extends SVCPostSend {
 		setWrList(wrList);
 	}
 
+	public NatPostSendCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher,
+	                       MemoryAllocation memAlloc, IbvQP qp, int maxWr, int maxSge) throws IOException {
+		this(verbs, nativeDispatcher, memAlloc, qp, emptyWrList(maxWr, maxSge));
+	}
+
+	private static List<IbvSendWR> emptyWrList(int maxWr, int maxSge) throws IOException {
+		if (maxWr <= 0 || maxSge < 0){
+			throw new IOException("Invalid post send shape, maxWr " + maxWr + ", maxSge " + maxSge);
+		}
+		ArrayList<IbvSendWR> wrList = new ArrayList<IbvSendWR>(maxWr);
+		for (int i = 0; i < maxWr; i++){
+			LinkedList<IbvSge> sgList = new LinkedList<IbvSge>();
+			for (int j = 0; j < maxSge; j++){
+				sgList.add(new IbvSge());
+			}
+			IbvSendWR sendWR = new IbvSendWR();
+			sendWR.setSg_list(sgList);
+			wrList.add(sendWR);
+		}
+		return wrList;
+	}
+
 	private void setWrList(List<IbvSendWR> wrList) {
 		wrNatList.clear();
 		sgeNatList.clear();
-		cmd.getBuffer().clear();
-		
 		long sgeOffset = wrList.size()*NatIbvSendWR.CSIZE;
 		long wrOffset = NatIbvSendWR.CSIZE;
 		for (IbvSendWR sendWR : wrList){
@@ -81,8 +103,7 @@ public class NatPostSendCall extends SVCPostSend {
 				sgeNatList.add(natSge);
 			}
 			
-			NatRdma natRdma = new NatRdma(sendWR.getRdma(), this);
-			NatIbvSendWR natSendWR = new NatIbvSendWR(this, natRdma, sendWR, sg_list);
+			NatIbvSendWR natSendWR = new NatIbvSendWR(this, sendWR, sg_list);
 			natSendWR.setPtr_sge_list(sgeOffset);
 			natSendWR.setNext(wrOffset);
 			wrNatList.add(natSendWR);
@@ -96,13 +117,25 @@ public class NatPostSendCall extends SVCPostSend {
 		}
 		wrNatList.get(wrNatList.size() - 1).setNext(0);
 		
+		int position = 0;
 		for (NatIbvSendWR natWR : wrNatList){
-			natWR.writeBack(cmd.getBuffer());
+			natWR.setBufPosition(position);
+			natWR.writeBack(cmd.address() + position);
+			position += NatIbvSendWR.CSIZE;
 		}
 		for (NatIbvSge sge : sgeNatList){
-			sge.writeBack(cmd.getBuffer());
+			sge.setBufPosition(position);
+			NatIbvSge.writeBack(cmd.address() + position, sge);
+			position += NatIbvSge.CSIZE;
 		}
 		
+		this.numWr = wrNatList.size();
+		this.bindWrs = 0;
+		for (NatIbvSendWR natWR : wrNatList){
+			if (natWR.getOpcode() == IbvSendWR.IBV_WR_BIND_MW){
+				bindWrs++;
+			}
+		}
 		this.valid = true;
 	}
 
@@ -112,9 +145,18 @@ public class NatPostSendCall extends SVCPostSend {
 			throw new IOException("Trying to post send on closed QP");
 		}
 		nativeDispatcher._postSend(qp.getObjId(), cmd.address());
+		if (bindWrs > 0){
+			for (int i = 0; i < numWr; i++){
+				wrNatList.get(i).commitBind();
+			}
+		}
 		return this;
 	}
 
+	void bindCountChanged(int delta) {
+		bindWrs += delta;
+	}
+
 	@Override
 	public boolean isValid() {
 		return valid;
@@ -133,46 +175,39 @@ public class NatPostSendCall extends SVCPostSend {
 	public SendWRMod getWrMod(int index) throws IOException{
 		return wrNatList.get(index);
 	}
-	
-	//---------------------
-	
-	void setWr_id(NatIbvSendWR sendWR, int offset) {
-		int position = sendWR.getBufPosition() + offset;
-		cmd.getBuffer().putLong(position, sendWR.getWr_id());		
-	}
-	
-	public void setRemote_addr(NatRdma rdma, int offset) {
-		int position = rdma.getBufPosition() + offset;
-		cmd.getBuffer().putLong(position, rdma.getRemote_addr());
-	}
 
-	public void setRkey(NatRdma rdma, int offset) {
-		int position = rdma.getBufPosition() + offset;
-		cmd.getBuffer().putInt(position, rdma.getRkey());		
+	@Override
+	public SVCPostSend setNumWr(int numWr) throws IOException {
+		if (numWr <= 0 || numWr > wrNatList.size()){
+			throw new IOException("Number of work requests out of range, numWr " + numWr + ", maxWr " + wrNatList.size());
+		}
+		if (numWr != this.numWr){
+			if (this.numWr < wrNatList.size()){
+				wrNatList.get(this.numWr - 1).writeNext(cmd.address() + wrNatList.get(this.numWr).getBufPosition());
+			}
+			wrNatList.get(numWr - 1).writeNext(0);
+			this.numWr = numWr;
+		}
+		return this;
 	}
 
-	public void setReserved(NatRdma rdma, int offset) {
-		int position = rdma.getBufPosition() + offset;
-		cmd.getBuffer().putInt(position, rdma.getReserved());
+	@Override
+	public int getNumWr() {
+		return numWr;
 	}
 
-	public void setAddr(NatIbvSge sge, int offset) {
-		int position = sge.getBufPosition() + offset;
-		cmd.getBuffer().putLong(position, sge.getAddr());
+	@Override
+	public int getMaxWr() {
+		return wrNatList.size();
 	}
+	
+	//---------------------
 
-	public void setLength(NatIbvSge sge, int offset) {
-		int position = sge.getBufPosition() + offset;
-		cmd.getBuffer().putInt(position, sge.getLength());		
+	public void putLong(int position, long value) {
+		MemoryUtils.putLong(cmd.address() + position, value);
 	}
 
-	public void setLkey(NatIbvSge sge, int offset) {
-		int position = sge.getBufPosition() + offset;
-		cmd.getBuffer().putInt(position, sge.getLkey());	
+	public void putInt(int position, int value) {
+		MemoryUtils.putInt(cmd.address() + position, value);
 	}
-	
-	void setSend_flags(NatIbvSendWR sendWR, int offset) {
-		int position = sendWR.getBufPosition() + offset;
-		cmd.getBuffer().putInt(position, sendWR.getSend_flags());		
-	}	
 }
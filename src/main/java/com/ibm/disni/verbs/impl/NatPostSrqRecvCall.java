@@ -0,0 +1,130 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.disni.verbs.IbvRecvWR;
+import com.ibm.disni.verbs.IbvSrq;
+import com.ibm.disni.verbs.SVCPostRecv.RecvWRMod;
+import com.ibm.disni.verbs.SVCPostSrqRecv;
+import com.ibm.disni.util.MemBuf;
+import com.ibm.disni.util.MemoryAllocation;
+import com.ibm.disni.util.MemoryUtils;
+
+
+public class NatPostSrqRecvCall extends SVCPostSrqRecv implements NatCommandBuffer {
+	private NativeDispatcher nativeDispatcher;
+	private RdmaVerbsNat verbs;
+	private MemoryAllocation memAlloc;
+	
+	private NatIbvSrq srq;
+	private ArrayList<NatIbvRecvWR> wrNatList;
+	private ArrayList<NatIbvSge> sgeNatList;
+	
+	private MemBuf cmd;
+	private boolean valid;
+	private int numWr;
+	
+	public NatPostSrqRecvCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher,
+	                          MemoryAllocation memAlloc, IbvSrq srq, List<IbvRecvWR> wrList) {
+		this.verbs = verbs;
+		this.nativeDispatcher = nativeDispatcher;
+		this.memAlloc = memAlloc;
+		this.srq = (NatIbvSrq) srq;
+		
+		this.wrNatList = new ArrayList<NatIbvRecvWR>(wrList.size());
+		this.sgeNatList = new ArrayList<NatIbvSge>();
+		this.valid = false;
+
+		this.cmd = memAlloc.allocate(NatPostRecvCall.commandSize(wrList));
+		NatPostRecvCall.writeWrList(this, cmd.address(), wrList, wrNatList, sgeNatList);
+		this.numWr = wrNatList.size();
+		this.valid = true;
+	}
+
+	@Override
+	public SVCPostSrqRecv execute() throws IOException {
+		if (!srq.isOpen()) {
+			throw new IOException("Trying to post receive on closed SRQ");
+		}
+		nativeDispatcher._postSrqRecv(srq.getObjId(), cmd.address());
+		return this;
+	}
+
+	@Override
+	public boolean isValid() {
+		return valid;
+	}
+
+	@Override
+	public SVCPostSrqRecv free() {
+		if (cmd != null){
+			cmd.free();
+			cmd = null;
+		}		
+		this.valid = false;
+		return this;
+	}
+
+	@Override
+	public RecvWRMod getWrMod(int index) throws IOException {
+		return wrNatList.get(index);
+	}
+
+	@Override
+	public SVCPostSrqRecv setNumWr(int numWr) throws IOException {
+		if (numWr <= 0 || numWr > wrNatList.size()){
+			throw new IOException("Number of work requests out of range, numWr " + numWr + ", maxWr " + wrNatList.size());
+		}
+		if (numWr != this.numWr){
+			if (this.numWr < wrNatList.size()){
+				wrNatList.get(this.numWr - 1).writeNext(cmd.address() + wrNatList.get(this.numWr).getBufPosition());
+			}
+			wrNatList.get(numWr - 1).writeNext(0);
+			this.numWr = numWr;
+		}
+		return this;
+	}
+
+	@Override
+	public int getNumWr() {
+		return numWr;
+	}
+
+	@Override
+	public int getMaxWr() {
+		return wrNatList.size();
+	}
+
+	//---------------------
+
+	public void putLong(int position, long value) {
+		MemoryUtils.putLong(cmd.address() + position, value);
+	}
+
+	public void putInt(int position, int value) {
+		MemoryUtils.putInt(cmd.address() + position, value);
+	}
+}
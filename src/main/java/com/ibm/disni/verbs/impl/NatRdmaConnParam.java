@@ -0,0 +1,85 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni.verbs.impl;
+
+import java.nio.ByteBuffer;
+
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.RdmaConnParam;
+
+//struct jverbs_conn_param {
+//    uint8_t private_data_len;
+//    uint8_t responder_resources;
+//    uint8_t initiator_depth;
+//    uint8_t flow_control;
+//    uint8_t retry_count;
+//    uint8_t rnr_retry_count;
+//    uint8_t srq;
+//    uint32_t qp_num;
+//    uint8_t private_data[256];
+//};
+
+/**
+ * Connection properties of a CM event. The private data is copied out of the native event before it is acknowledged.
+ */
+public class NatRdmaConnParam extends RdmaConnParam {
+	public static int CSIZE = 268;
+	public static int PRIVATEDATALEN_OFFSET = 0;
+	public static int RESPONDERRESOURCES_OFFSET = 1;
+	public static int INITIATORDEPTH_OFFSET = 2;
+	public static int FLOWCONTROL_OFFSET = 3;
+	public static int RETRYCOUNT_OFFSET = 4;
+	public static int RNRRETRYCOUNT_OFFSET = 5;
+	public static int SRQ_OFFSET = 6;
+	public static int QPNUM_OFFSET = 8;
+	public static int PRIVATEDATA_OFFSET = 12;
+
+	private byte[] private_data;
+
+	public NatRdmaConnParam(long address) {
+		this.private_data_len = MemoryUtils.getByte(address + PRIVATEDATALEN_OFFSET);
+		this.responder_resources = MemoryUtils.getByte(address + RESPONDERRESOURCES_OFFSET);
+		this.initiator_depth = MemoryUtils.getByte(address + INITIATORDEPTH_OFFSET);
+		this.flow_control = MemoryUtils.getByte(address + FLOWCONTROL_OFFSET);
+		this.retry_count = MemoryUtils.getByte(address + RETRYCOUNT_OFFSET);
+		this.rnr_retry_count = MemoryUtils.getByte(address + RNRRETRYCOUNT_OFFSET);
+		this.srq = MemoryUtils.getByte(address + SRQ_OFFSET);
+		this.qp_num = MemoryUtils.getInt(address + QPNUM_OFFSET);
+		
+		int len = private_data_len & 0xff;
+		this.private_data = new byte[len];
+		for (int i = 0; i < len; i++){
+			private_data[i] = MemoryUtils.getByte(address + PRIVATEDATA_OFFSET + i);
+		}
+	}
+
+	/**
+	 * The private data of the event, or null if the remote side did not send any.
+	 */
+	public ByteBuffer getPrivateData() {
+		if (private_data.length == 0){
+			return null;
+		}
+		return ByteBuffer.wrap(private_data).asReadOnlyBuffer();
+	}
+}
@@ -22,19 +22,19 @@
 package com.ibm.disni.verbs.impl;
 
 import java.io.IOException;
-import java.util.HashMap;
 
+import com.ibm.disni.util.ConcurrentLongMap;
 import com.ibm.disni.verbs.RdmaEventChannel;
 
 
 public class NatRdmaEventChannel extends RdmaEventChannel implements NatObject {
-	private HashMap<Long, NatCmaIdPrivate> idMap;
+	private ConcurrentLongMap<NatCmaIdPrivate> idMap;
 	private long objId;
 	
 	public NatRdmaEventChannel(long objId, int fd) throws IOException {
 		super(fd);
 		this.objId = objId;
-		this.idMap = new HashMap<Long, NatCmaIdPrivate>();
+		this.idMap = new ConcurrentLongMap<NatCmaIdPrivate>();
 	}
 
 	public void addCmId(NatCmaIdPrivate cmId){
@@ -45,6 +45,14 @@ public class NatRdmaEventChannel extends RdmaEventChannel implements NatObject {
 		return this.idMap.get(natid);
 	}
 
+	public void removeCmId(NatCmaIdPrivate cmId){
+		this.idMap.remove(cmId.getObjId());
+	}
+
+	public int getCmIdCount(){
+		return idMap.size();
+	}
+
 	public long getObjId() {
 		return objId;
 	}
@@ -0,0 +1,65 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.verbs.impl;
+
+import com.ibm.disni.util.MemoryUtils;
+import com.ibm.disni.verbs.RdmaUdParam;
+
+//struct rdma_ud_param {
+//    const void *private_data;
+//    uint8_t private_data_len;
+//    struct ibv_ah_attr ah_attr;
+//    uint32_t qp_num;
+//    uint32_t qkey;
+//};
+
+/**
+ * The address handle attributes are kept as opaque native bytes, they are only ever passed back to ibv_create_ah.
+ */
+public class NatRdmaUdParam extends RdmaUdParam {
+	public static int CSIZE = 56;
+	public static int AHATTR_OFFSET = 16;
+	public static int AHATTR_SIZE = 32;
+	public static int QPNUM_OFFSET = 48;
+	public static int QKEY_OFFSET = 52;
+
+	private byte[] ah_attr;
+
+	public NatRdmaUdParam(long address) {
+		this.ah_attr = new byte[AHATTR_SIZE];
+		update(address);
+	}
+
+	public void update(long address) {
+		for (int i = 0; i < AHATTR_SIZE; i++){
+			ah_attr[i] = MemoryUtils.getByte(address + AHATTR_OFFSET + i);
+		}
+		this.qp_num = MemoryUtils.getInt(address + QPNUM_OFFSET);
+		this.qkey = MemoryUtils.getInt(address + QKEY_OFFSET);
+	}
+
+	public void writeAhAttr(long address) {
+		for (int i = 0; i < AHATTR_SIZE; i++){
+			MemoryUtils.putByte(address + i, ah_attr[i]);
+		}
+	}
+}
@@ -38,7 +38,7 @@ public class NatRegMrCall extends SVCRegMr {
 
 	private NatIbvPd pd;
 	private int access;
-	private int bufferCapacity;
+	private long bufferCapacity;
 	private MemBuf cmd;
 	private long userAddress;
 	
@@ -52,12 +52,12 @@ public class NatRegMrCall extends SVCRegMr {
 	}
 
 	public NatRegMrCall(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher, MemoryAllocation memAlloc,
-						IbvPd pd, long address, int length, int access) {
+						IbvPd pd, long address, long length, int access) {
 		set(verbs, nativeDispatcher, memAlloc, pd, address, length, access);
 	}
 
 	private void set(RdmaVerbsNat verbs, NativeDispatcher nativeDispatcher, MemoryAllocation memAlloc,
-					 IbvPd pd, long address, int length, int access) {
+					 IbvPd pd, long address, long length, int access) {
 		this.verbs = verbs;
 		this.nativeDispatcher = nativeDispatcher;
 		this.memAlloc = memAlloc;
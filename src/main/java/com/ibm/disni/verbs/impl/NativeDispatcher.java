@@ -30,7 +30,22 @@ import com.ibm.disni.util.DiSNILogger;
 
 public class NativeDispatcher {
 	private static final Logger logger = DiSNILogger.getLogger();
-	private static int JVERBS_VERSION = 32;
+	private static int JVERBS_VERSION = 43;
+
+	//struct identifiers, must match libdisni
+	private static final int STRUCT_SOCKADDR_IN = 0;
+	private static final int STRUCT_IBV_SGE = 1;
+	private static final int STRUCT_IBV_SEND_WR = 2;
+	private static final int STRUCT_IBV_RECV_WR = 3;
+	private static final int STRUCT_IBV_WC = 4;
+	private static final int STRUCT_RDMA_UD_PARAM = 5;
+	private static final int STRUCT_IBV_WC_TS = 6;
+	private static final int STRUCT_ASYNC_EVENT = 7;
+	private static final int STRUCT_IBV_DEVICE_ATTR = 8;
+	private static final int STRUCT_IBV_PORT_ATTR = 9;
+	private static final int STRUCT_IBV_QP_ATTR = 10;
+	private static final int STRUCT_CONN_PARAM = 11;
+	private static final int STRUCT_IBV_MW_BIND = 12;
 
 	static {
 	    System.loadLibrary("disni");
@@ -42,64 +57,212 @@ public class NativeDispatcher {
 			logger.info("jverbs outdated, version found " + _getVersion() + ", version required " + JVERBS_VERSION);
 			throw new IOException("jverbs outdated, version found " + _getVersion() + ", version required " + JVERBS_VERSION);
 		}
-		if (_getSockAddrInSize() != SockAddrIn.CSIZE){
-			logger.info("sock_addr_in size mismatch, jverbs size " + SockAddrIn.CSIZE + ", native size " +_getSockAddrInSize());
-			SockAddrIn.CSIZE = _getSockAddrInSize();
-		} else {
-			logger.info("sock_addr_in size match, jverbs size " + SockAddrIn.CSIZE + ", native size " +_getSockAddrInSize());
-		}
-		if (_getIbvRecvWRSize() != NatIbvRecvWR.CSIZE){
-			logger.info("IbvRecvWR size mismatch, jverbs size " + NatIbvRecvWR.CSIZE + ", native size " +_getIbvRecvWRSize());
-			NatIbvRecvWR.CSIZE = _getIbvRecvWRSize();
-		} else {
-			logger.info("IbvRecvWR size match, jverbs size " + NatIbvRecvWR.CSIZE + ", native size " +_getIbvRecvWRSize());
-		}
-		if (_getIbvSendWRSize() != NatIbvSendWR.CSIZE){
-			logger.info("IbvSendWR size mismatch, jverbs size " + NatIbvSendWR.CSIZE + ", native size " +_getIbvSendWRSize());
-			NatIbvSendWR.CSIZE = _getIbvSendWRSize();
-		} else {
-			logger.info("IbvSendWR size match, jverbs size " + NatIbvSendWR.CSIZE + ", native size " +_getIbvSendWRSize());
-		}
-		if (_getIbvWCSize() != IbvWC.CSIZE){
-			logger.info("IbvWC size mismatch, jverbs size " + IbvWC.CSIZE + ", native size " +_getIbvWCSize());
-			IbvWC.CSIZE = _getIbvWCSize();
-		} else {
-			logger.info("IbvWC size match, jverbs size " + IbvWC.CSIZE + ", native size " +_getIbvWCSize());
-		}
-		if (_getIbvSgeSize() != NatIbvSge.CSIZE){
-			logger.info("IbvSge size mismatch, jverbs size " + NatIbvSge.CSIZE + ", native size " +_getIbvSgeSize());
-			NatIbvSge.CSIZE = _getIbvSgeSize();
-		} else {
-			logger.info("IbvSge size match, jverbs size " + NatIbvSge.CSIZE + ", native size " +_getIbvSgeSize());
-		}
+		verifyStructLayouts();
+	}
 
-		if (_getRemoteAddressOffset() != NatIbvSendWR.REMOTEADDR_OFFSET){
-			logger.info("Remote addr offset mismatch, jverbs size " + NatIbvSendWR.REMOTEADDR_OFFSET + ", native size " +_getRemoteAddressOffset());
-			NatIbvSendWR.REMOTEADDR_OFFSET = _getRemoteAddressOffset();
-		} else {
-			logger.info("Remote addr offset match, jverbs size " + NatIbvSendWR.REMOTEADDR_OFFSET + ", native size " +_getRemoteAddressOffset());
+	private void verifyStructLayouts() throws IOException {
+		int[] layout = getStructLayout(STRUCT_SOCKADDR_IN, "sockaddr_in", 4);
+		SockAddrIn.CSIZE = verifyField("sockaddr_in size", SockAddrIn.CSIZE, layout[0]);
+		SockAddrIn.SINFAMILY_OFFSET = verifyField("sockaddr_in.sin_family offset", SockAddrIn.SINFAMILY_OFFSET, layout[1]);
+		SockAddrIn.SINPORT_OFFSET = verifyField("sockaddr_in.sin_port offset", SockAddrIn.SINPORT_OFFSET, layout[2]);
+		SockAddrIn.SINADDR_OFFSET = verifyField("sockaddr_in.sin_addr offset", SockAddrIn.SINADDR_OFFSET, layout[3]);
+
+		layout = getStructLayout(STRUCT_IBV_SGE, "ibv_sge", 4);
+		NatIbvSge.CSIZE = verifyField("IbvSge size", NatIbvSge.CSIZE, layout[0]);
+		NatIbvSge.ADDR_OFFSET = verifyField("IbvSge.addr offset", NatIbvSge.ADDR_OFFSET, layout[1]);
+		NatIbvSge.LENGTH_OFFSET = verifyField("IbvSge.length offset", NatIbvSge.LENGTH_OFFSET, layout[2]);
+		NatIbvSge.LKEY_OFFSET = verifyField("IbvSge.lkey offset", NatIbvSge.LKEY_OFFSET, layout[3]);
+
+		layout = getStructLayout(STRUCT_IBV_SEND_WR, "ibv_send_wr", 23);
+		NatIbvSendWR.CSIZE = verifyField("IbvSendWR size", NatIbvSendWR.CSIZE, layout[0]);
+		NatIbvSendWR.WRID_OFFSET = verifyField("IbvSendWR.wr_id offset", NatIbvSendWR.WRID_OFFSET, layout[1]);
+		NatIbvSendWR.NEXT_OFFSET = verifyField("IbvSendWR.next offset", NatIbvSendWR.NEXT_OFFSET, layout[2]);
+		NatIbvSendWR.SGLIST_OFFSET = verifyField("IbvSendWR.sg_list offset", NatIbvSendWR.SGLIST_OFFSET, layout[3]);
+		NatIbvSendWR.NUMSGE_OFFSET = verifyField("IbvSendWR.num_sge offset", NatIbvSendWR.NUMSGE_OFFSET, layout[4]);
+		NatIbvSendWR.OPCODE_OFFSET = verifyField("IbvSendWR.opcode offset", NatIbvSendWR.OPCODE_OFFSET, layout[5]);
+		NatIbvSendWR.SENDFLAGS_OFFSET = verifyField("IbvSendWR.send_flags offset", NatIbvSendWR.SENDFLAGS_OFFSET, layout[6]);
+		NatIbvSendWR.IMMDATA_OFFSET = verifyField("IbvSendWR.imm_data offset", NatIbvSendWR.IMMDATA_OFFSET, layout[7]);
+		NatIbvSendWR.REMOTEADDR_OFFSET = verifyField("IbvSendWR.wr.rdma.remote_addr offset", NatIbvSendWR.REMOTEADDR_OFFSET, layout[8]);
+		NatIbvSendWR.RKEY_OFFSET = verifyField("IbvSendWR.wr.rdma.rkey offset", NatIbvSendWR.RKEY_OFFSET, layout[9]);
+		NatIbvSendWR.ATOMIC_REMOTEADDR_OFFSET = verifyField("IbvSendWR.wr.atomic.remote_addr offset", NatIbvSendWR.ATOMIC_REMOTEADDR_OFFSET, layout[10]);
+		NatIbvSendWR.ATOMIC_COMPAREADD_OFFSET = verifyField("IbvSendWR.wr.atomic.compare_add offset", NatIbvSendWR.ATOMIC_COMPAREADD_OFFSET, layout[11]);
+		NatIbvSendWR.ATOMIC_SWAP_OFFSET = verifyField("IbvSendWR.wr.atomic.swap offset", NatIbvSendWR.ATOMIC_SWAP_OFFSET, layout[12]);
+		NatIbvSendWR.ATOMIC_RKEY_OFFSET = verifyField("IbvSendWR.wr.atomic.rkey offset", NatIbvSendWR.ATOMIC_RKEY_OFFSET, layout[13]);
+		NatIbvSendWR.UD_AH_OFFSET = verifyField("IbvSendWR.wr.ud.ah offset", NatIbvSendWR.UD_AH_OFFSET, layout[14]);
+		NatIbvSendWR.UD_REMOTEQPN_OFFSET = verifyField("IbvSendWR.wr.ud.remote_qpn offset", NatIbvSendWR.UD_REMOTEQPN_OFFSET, layout[15]);
+		NatIbvSendWR.UD_REMOTEQKEY_OFFSET = verifyField("IbvSendWR.wr.ud.remote_qkey offset", NatIbvSendWR.UD_REMOTEQKEY_OFFSET, layout[16]);
+		NatIbvSendWR.BINDMW_MW_OFFSET = verifyField("IbvSendWR.bind_mw.mw offset", NatIbvSendWR.BINDMW_MW_OFFSET, layout[17]);
+		NatIbvSendWR.BINDMW_RKEY_OFFSET = verifyField("IbvSendWR.bind_mw.rkey offset", NatIbvSendWR.BINDMW_RKEY_OFFSET, layout[18]);
+		NatIbvSendWR.BINDMW_MR_OFFSET = verifyField("IbvSendWR.bind_mw.bind_info.mr offset", NatIbvSendWR.BINDMW_MR_OFFSET, layout[19]);
+		NatIbvSendWR.BINDMW_ADDR_OFFSET = verifyField("IbvSendWR.bind_mw.bind_info.addr offset", NatIbvSendWR.BINDMW_ADDR_OFFSET, layout[20]);
+		NatIbvSendWR.BINDMW_LENGTH_OFFSET = verifyField("IbvSendWR.bind_mw.bind_info.length offset", NatIbvSendWR.BINDMW_LENGTH_OFFSET, layout[21]);
+		NatIbvSendWR.BINDMW_ACCESS_OFFSET = verifyField("IbvSendWR.bind_mw.bind_info.mw_access_flags offset", NatIbvSendWR.BINDMW_ACCESS_OFFSET, layout[22]);
+
+		layout = getStructLayout(STRUCT_IBV_RECV_WR, "ibv_recv_wr", 5);
+		NatIbvRecvWR.CSIZE = verifyField("IbvRecvWR size", NatIbvRecvWR.CSIZE, layout[0]);
+		NatIbvRecvWR.WRID_OFFSET = verifyField("IbvRecvWR.wr_id offset", NatIbvRecvWR.WRID_OFFSET, layout[1]);
+		NatIbvRecvWR.NEXT_OFFSET = verifyField("IbvRecvWR.next offset", NatIbvRecvWR.NEXT_OFFSET, layout[2]);
+		NatIbvRecvWR.SGLIST_OFFSET = verifyField("IbvRecvWR.sg_list offset", NatIbvRecvWR.SGLIST_OFFSET, layout[3]);
+		NatIbvRecvWR.NUMSGE_OFFSET = verifyField("IbvRecvWR.num_sge offset", NatIbvRecvWR.NUMSGE_OFFSET, layout[4]);
+
+		layout = getStructLayout(STRUCT_IBV_WC, "ibv_wc", 14);
+		IbvWC.CSIZE = verifyField("IbvWC size", IbvWC.CSIZE, layout[0]);
+		NatIbvWC.WRID_OFFSET = verifyField("IbvWC.wr_id offset", NatIbvWC.WRID_OFFSET, layout[1]);
+		NatIbvWC.STATUS_OFFSET = verifyField("IbvWC.status offset", NatIbvWC.STATUS_OFFSET, layout[2]);
+		NatIbvWC.OPCODE_OFFSET = verifyField("IbvWC.opcode offset", NatIbvWC.OPCODE_OFFSET, layout[3]);
+		NatIbvWC.VENDORERR_OFFSET = verifyField("IbvWC.vendor_err offset", NatIbvWC.VENDORERR_OFFSET, layout[4]);
+		NatIbvWC.BYTELEN_OFFSET = verifyField("IbvWC.byte_len offset", NatIbvWC.BYTELEN_OFFSET, layout[5]);
+		NatIbvWC.IMMDATA_OFFSET = verifyField("IbvWC.imm_data offset", NatIbvWC.IMMDATA_OFFSET, layout[6]);
+		NatIbvWC.QPNUM_OFFSET = verifyField("IbvWC.qp_num offset", NatIbvWC.QPNUM_OFFSET, layout[7]);
+		NatIbvWC.SRCQP_OFFSET = verifyField("IbvWC.src_qp offset", NatIbvWC.SRCQP_OFFSET, layout[8]);
+		NatIbvWC.WCFLAGS_OFFSET = verifyField("IbvWC.wc_flags offset", NatIbvWC.WCFLAGS_OFFSET, layout[9]);
+		NatIbvWC.PKEYINDEX_OFFSET = verifyField("IbvWC.pkey_index offset", NatIbvWC.PKEYINDEX_OFFSET, layout[10]);
+		NatIbvWC.SLID_OFFSET = verifyField("IbvWC.slid offset", NatIbvWC.SLID_OFFSET, layout[11]);
+		NatIbvWC.SL_OFFSET = verifyField("IbvWC.sl offset", NatIbvWC.SL_OFFSET, layout[12]);
+		NatIbvWC.DLIDPATHBITS_OFFSET = verifyField("IbvWC.dlid_path_bits offset", NatIbvWC.DLIDPATHBITS_OFFSET, layout[13]);
+
+		layout = getStructLayout(STRUCT_RDMA_UD_PARAM, "rdma_ud_param", 5);
+		NatRdmaUdParam.CSIZE = verifyField("RdmaUdParam size", NatRdmaUdParam.CSIZE, layout[0]);
+		NatRdmaUdParam.AHATTR_OFFSET = verifyField("RdmaUdParam.ah_attr offset", NatRdmaUdParam.AHATTR_OFFSET, layout[1]);
+		NatRdmaUdParam.AHATTR_SIZE = verifyField("RdmaUdParam.ah_attr size", NatRdmaUdParam.AHATTR_SIZE, layout[2]);
+		NatRdmaUdParam.QPNUM_OFFSET = verifyField("RdmaUdParam.qp_num offset", NatRdmaUdParam.QPNUM_OFFSET, layout[3]);
+		NatRdmaUdParam.QKEY_OFFSET = verifyField("RdmaUdParam.qkey offset", NatRdmaUdParam.QKEY_OFFSET, layout[4]);
+
+		layout = getStructLayout(STRUCT_IBV_WC_TS, "jverbs_wc_ts", 2);
+		NatIbvWC.TS_CSIZE = verifyField("IbvWC timestamped size", NatIbvWC.TS_CSIZE, layout[0]);
+		NatIbvWC.COMPLETIONTS_OFFSET = verifyField("IbvWC.completion_ts offset", NatIbvWC.COMPLETIONTS_OFFSET, layout[1]);
+
+		layout = getStructLayout(STRUCT_ASYNC_EVENT, "jverbs_async_event", 4);
+		NatIbvAsyncEvent.CSIZE = verifyField("IbvAsyncEvent size", NatIbvAsyncEvent.CSIZE, layout[0]);
+		NatIbvAsyncEvent.EVENTTYPE_OFFSET = verifyField("IbvAsyncEvent.event_type offset", NatIbvAsyncEvent.EVENTTYPE_OFFSET, layout[1]);
+		NatIbvAsyncEvent.ELEMENT_OFFSET = verifyField("IbvAsyncEvent.element offset", NatIbvAsyncEvent.ELEMENT_OFFSET, layout[2]);
+		NatIbvAsyncEvent.OBJID_OFFSET = verifyField("IbvAsyncEvent.obj_id offset", NatIbvAsyncEvent.OBJID_OFFSET, layout[3]);
+
+		layout = getStructLayout(STRUCT_IBV_DEVICE_ATTR, "ibv_device_attr", 24);
+		NatIbvDeviceAttr.CSIZE = verifyField("IbvDeviceAttr size", NatIbvDeviceAttr.CSIZE, layout[0]);
+		NatIbvDeviceAttr.MAXMRSIZE_OFFSET = verifyField("IbvDeviceAttr.max_mr_size offset", NatIbvDeviceAttr.MAXMRSIZE_OFFSET, layout[1]);
+		NatIbvDeviceAttr.PAGESIZECAP_OFFSET = verifyField("IbvDeviceAttr.page_size_cap offset", NatIbvDeviceAttr.PAGESIZECAP_OFFSET, layout[2]);
+		NatIbvDeviceAttr.VENDORID_OFFSET = verifyField("IbvDeviceAttr.vendor_id offset", NatIbvDeviceAttr.VENDORID_OFFSET, layout[3]);
+		NatIbvDeviceAttr.VENDORPARTID_OFFSET = verifyField("IbvDeviceAttr.vendor_part_id offset", NatIbvDeviceAttr.VENDORPARTID_OFFSET, layout[4]);
+		NatIbvDeviceAttr.HWVER_OFFSET = verifyField("IbvDeviceAttr.hw_ver offset", NatIbvDeviceAttr.HWVER_OFFSET, layout[5]);
+		NatIbvDeviceAttr.MAXQP_OFFSET = verifyField("IbvDeviceAttr.max_qp offset", NatIbvDeviceAttr.MAXQP_OFFSET, layout[6]);
+		NatIbvDeviceAttr.MAXQPWR_OFFSET = verifyField("IbvDeviceAttr.max_qp_wr offset", NatIbvDeviceAttr.MAXQPWR_OFFSET, layout[7]);
+		NatIbvDeviceAttr.DEVICECAPFLAGS_OFFSET = verifyField("IbvDeviceAttr.device_cap_flags offset", NatIbvDeviceAttr.DEVICECAPFLAGS_OFFSET, layout[8]);
+		NatIbvDeviceAttr.MAXSGE_OFFSET = verifyField("IbvDeviceAttr.max_sge offset", NatIbvDeviceAttr.MAXSGE_OFFSET, layout[9]);
+		NatIbvDeviceAttr.MAXSGERD_OFFSET = verifyField("IbvDeviceAttr.max_sge_rd offset", NatIbvDeviceAttr.MAXSGERD_OFFSET, layout[10]);
+		NatIbvDeviceAttr.MAXCQ_OFFSET = verifyField("IbvDeviceAttr.max_cq offset", NatIbvDeviceAttr.MAXCQ_OFFSET, layout[11]);
+		NatIbvDeviceAttr.MAXCQE_OFFSET = verifyField("IbvDeviceAttr.max_cqe offset", NatIbvDeviceAttr.MAXCQE_OFFSET, layout[12]);
+		NatIbvDeviceAttr.MAXMR_OFFSET = verifyField("IbvDeviceAttr.max_mr offset", NatIbvDeviceAttr.MAXMR_OFFSET, layout[13]);
+		NatIbvDeviceAttr.MAXPD_OFFSET = verifyField("IbvDeviceAttr.max_pd offset", NatIbvDeviceAttr.MAXPD_OFFSET, layout[14]);
+		NatIbvDeviceAttr.MAXQPRDATOM_OFFSET = verifyField("IbvDeviceAttr.max_qp_rd_atom offset", NatIbvDeviceAttr.MAXQPRDATOM_OFFSET, layout[15]);
+		NatIbvDeviceAttr.MAXQPINITRDATOM_OFFSET = verifyField("IbvDeviceAttr.max_qp_init_rd_atom offset", NatIbvDeviceAttr.MAXQPINITRDATOM_OFFSET, layout[16]);
+		NatIbvDeviceAttr.ATOMICCAP_OFFSET = verifyField("IbvDeviceAttr.atomic_cap offset", NatIbvDeviceAttr.ATOMICCAP_OFFSET, layout[17]);
+		NatIbvDeviceAttr.MAXMW_OFFSET = verifyField("IbvDeviceAttr.max_mw offset", NatIbvDeviceAttr.MAXMW_OFFSET, layout[18]);
+		NatIbvDeviceAttr.MAXAH_OFFSET = verifyField("IbvDeviceAttr.max_ah offset", NatIbvDeviceAttr.MAXAH_OFFSET, layout[19]);
+		NatIbvDeviceAttr.MAXSRQ_OFFSET = verifyField("IbvDeviceAttr.max_srq offset", NatIbvDeviceAttr.MAXSRQ_OFFSET, layout[20]);
+		NatIbvDeviceAttr.MAXSRQWR_OFFSET = verifyField("IbvDeviceAttr.max_srq_wr offset", NatIbvDeviceAttr.MAXSRQWR_OFFSET, layout[21]);
+		NatIbvDeviceAttr.MAXSRQSGE_OFFSET = verifyField("IbvDeviceAttr.max_srq_sge offset", NatIbvDeviceAttr.MAXSRQSGE_OFFSET, layout[22]);
+		NatIbvDeviceAttr.PHYSPORTCNT_OFFSET = verifyField("IbvDeviceAttr.phys_port_cnt offset", NatIbvDeviceAttr.PHYSPORTCNT_OFFSET, layout[23]);
+
+		layout = getStructLayout(STRUCT_IBV_PORT_ATTR, "ibv_port_attr", 13);
+		NatIbvPortAttr.CSIZE = verifyField("IbvPortAttr size", NatIbvPortAttr.CSIZE, layout[0]);
+		NatIbvPortAttr.STATE_OFFSET = verifyField("IbvPortAttr.state offset", NatIbvPortAttr.STATE_OFFSET, layout[1]);
+		NatIbvPortAttr.MAXMTU_OFFSET = verifyField("IbvPortAttr.max_mtu offset", NatIbvPortAttr.MAXMTU_OFFSET, layout[2]);
+		NatIbvPortAttr.ACTIVEMTU_OFFSET = verifyField("IbvPortAttr.active_mtu offset", NatIbvPortAttr.ACTIVEMTU_OFFSET, layout[3]);
+		NatIbvPortAttr.GIDTBLLEN_OFFSET = verifyField("IbvPortAttr.gid_tbl_len offset", NatIbvPortAttr.GIDTBLLEN_OFFSET, layout[4]);
+		NatIbvPortAttr.PORTCAPFLAGS_OFFSET = verifyField("IbvPortAttr.port_cap_flags offset", NatIbvPortAttr.PORTCAPFLAGS_OFFSET, layout[5]);
+		NatIbvPortAttr.MAXMSGSZ_OFFSET = verifyField("IbvPortAttr.max_msg_sz offset", NatIbvPortAttr.MAXMSGSZ_OFFSET, layout[6]);
+		NatIbvPortAttr.LID_OFFSET = verifyField("IbvPortAttr.lid offset", NatIbvPortAttr.LID_OFFSET, layout[7]);
+		NatIbvPortAttr.SMLID_OFFSET = verifyField("IbvPortAttr.sm_lid offset", NatIbvPortAttr.SMLID_OFFSET, layout[8]);
+		NatIbvPortAttr.ACTIVEWIDTH_OFFSET = verifyField("IbvPortAttr.active_width offset", NatIbvPortAttr.ACTIVEWIDTH_OFFSET, layout[9]);
+		NatIbvPortAttr.ACTIVESPEED_OFFSET = verifyField("IbvPortAttr.active_speed offset", NatIbvPortAttr.ACTIVESPEED_OFFSET, layout[10]);
+		NatIbvPortAttr.PHYSSTATE_OFFSET = verifyField("IbvPortAttr.phys_state offset", NatIbvPortAttr.PHYSSTATE_OFFSET, layout[11]);
+		NatIbvPortAttr.LINKLAYER_OFFSET = verifyField("IbvPortAttr.link_layer offset", NatIbvPortAttr.LINKLAYER_OFFSET, layout[12]);
+
+		layout = getStructLayout(STRUCT_IBV_QP_ATTR, "ibv_qp_attr", 26);
+		NatIbvQpAttr.CSIZE = verifyField("IbvQpAttr size", NatIbvQpAttr.CSIZE, layout[0]);
+		NatIbvQpAttr.QPSTATE_OFFSET = verifyField("IbvQpAttr.qp_state offset", NatIbvQpAttr.QPSTATE_OFFSET, layout[1]);
+		NatIbvQpAttr.CURQPSTATE_OFFSET = verifyField("IbvQpAttr.cur_qp_state offset", NatIbvQpAttr.CURQPSTATE_OFFSET, layout[2]);
+		NatIbvQpAttr.PATHMTU_OFFSET = verifyField("IbvQpAttr.path_mtu offset", NatIbvQpAttr.PATHMTU_OFFSET, layout[3]);
+		NatIbvQpAttr.PATHMIGSTATE_OFFSET = verifyField("IbvQpAttr.path_mig_state offset", NatIbvQpAttr.PATHMIGSTATE_OFFSET, layout[4]);
+		NatIbvQpAttr.QKEY_OFFSET = verifyField("IbvQpAttr.qkey offset", NatIbvQpAttr.QKEY_OFFSET, layout[5]);
+		NatIbvQpAttr.RQPSN_OFFSET = verifyField("IbvQpAttr.rq_psn offset", NatIbvQpAttr.RQPSN_OFFSET, layout[6]);
+		NatIbvQpAttr.SQPSN_OFFSET = verifyField("IbvQpAttr.sq_psn offset", NatIbvQpAttr.SQPSN_OFFSET, layout[7]);
+		NatIbvQpAttr.DESTQPNUM_OFFSET = verifyField("IbvQpAttr.dest_qp_num offset", NatIbvQpAttr.DESTQPNUM_OFFSET, layout[8]);
+		NatIbvQpAttr.QPACCESSFLAGS_OFFSET = verifyField("IbvQpAttr.qp_access_flags offset", NatIbvQpAttr.QPACCESSFLAGS_OFFSET, layout[9]);
+		NatIbvQpAttr.CAP_OFFSET = verifyField("IbvQpAttr.cap offset", NatIbvQpAttr.CAP_OFFSET, layout[10]);
+		NatIbvQpAttr.AHATTR_OFFSET = verifyField("IbvQpAttr.ah_attr offset", NatIbvQpAttr.AHATTR_OFFSET, layout[11]);
+		NatIbvQpAttr.ALTAHATTR_OFFSET = verifyField("IbvQpAttr.alt_ah_attr offset", NatIbvQpAttr.ALTAHATTR_OFFSET, layout[12]);
+		NatIbvQpAttr.PKEYINDEX_OFFSET = verifyField("IbvQpAttr.pkey_index offset", NatIbvQpAttr.PKEYINDEX_OFFSET, layout[13]);
+		NatIbvQpAttr.ALTPKEYINDEX_OFFSET = verifyField("IbvQpAttr.alt_pkey_index offset", NatIbvQpAttr.ALTPKEYINDEX_OFFSET, layout[14]);
+		NatIbvQpAttr.ENSQDASYNCNOTIFY_OFFSET = verifyField("IbvQpAttr.en_sqd_async_notify offset", NatIbvQpAttr.ENSQDASYNCNOTIFY_OFFSET, layout[15]);
+		NatIbvQpAttr.SQDRAINING_OFFSET = verifyField("IbvQpAttr.sq_draining offset", NatIbvQpAttr.SQDRAINING_OFFSET, layout[16]);
+		NatIbvQpAttr.MAXRDATOMIC_OFFSET = verifyField("IbvQpAttr.max_rd_atomic offset", NatIbvQpAttr.MAXRDATOMIC_OFFSET, layout[17]);
+		NatIbvQpAttr.MAXDESTRDATOMIC_OFFSET = verifyField("IbvQpAttr.max_dest_rd_atomic offset", NatIbvQpAttr.MAXDESTRDATOMIC_OFFSET, layout[18]);
+		NatIbvQpAttr.MINRNRTIMER_OFFSET = verifyField("IbvQpAttr.min_rnr_timer offset", NatIbvQpAttr.MINRNRTIMER_OFFSET, layout[19]);
+		NatIbvQpAttr.PORTNUM_OFFSET = verifyField("IbvQpAttr.port_num offset", NatIbvQpAttr.PORTNUM_OFFSET, layout[20]);
+		NatIbvQpAttr.TIMEOUT_OFFSET = verifyField("IbvQpAttr.timeout offset", NatIbvQpAttr.TIMEOUT_OFFSET, layout[21]);
+		NatIbvQpAttr.RETRYCNT_OFFSET = verifyField("IbvQpAttr.retry_cnt offset", NatIbvQpAttr.RETRYCNT_OFFSET, layout[22]);
+		NatIbvQpAttr.RNRRETRY_OFFSET = verifyField("IbvQpAttr.rnr_retry offset", NatIbvQpAttr.RNRRETRY_OFFSET, layout[23]);
+		NatIbvQpAttr.ALTPORTNUM_OFFSET = verifyField("IbvQpAttr.alt_port_num offset", NatIbvQpAttr.ALTPORTNUM_OFFSET, layout[24]);
+		NatIbvQpAttr.ALTTIMEOUT_OFFSET = verifyField("IbvQpAttr.alt_timeout offset", NatIbvQpAttr.ALTTIMEOUT_OFFSET, layout[25]);
+
+		layout = getStructLayout(STRUCT_CONN_PARAM, "jverbs_conn_param", 10);
+		NatRdmaConnParam.CSIZE = verifyField("RdmaConnParam size", NatRdmaConnParam.CSIZE, layout[0]);
+		NatRdmaConnParam.PRIVATEDATALEN_OFFSET = verifyField("RdmaConnParam.private_data_len offset", NatRdmaConnParam.PRIVATEDATALEN_OFFSET, layout[1]);
+		NatRdmaConnParam.RESPONDERRESOURCES_OFFSET = verifyField("RdmaConnParam.responder_resources offset", NatRdmaConnParam.RESPONDERRESOURCES_OFFSET, layout[2]);
+		NatRdmaConnParam.INITIATORDEPTH_OFFSET = verifyField("RdmaConnParam.initiator_depth offset", NatRdmaConnParam.INITIATORDEPTH_OFFSET, layout[3]);
+		NatRdmaConnParam.FLOWCONTROL_OFFSET = verifyField("RdmaConnParam.flow_control offset", NatRdmaConnParam.FLOWCONTROL_OFFSET, layout[4]);
+		NatRdmaConnParam.RETRYCOUNT_OFFSET = verifyField("RdmaConnParam.retry_count offset", NatRdmaConnParam.RETRYCOUNT_OFFSET, layout[5]);
+		NatRdmaConnParam.RNRRETRYCOUNT_OFFSET = verifyField("RdmaConnParam.rnr_retry_count offset", NatRdmaConnParam.RNRRETRYCOUNT_OFFSET, layout[6]);
+		NatRdmaConnParam.SRQ_OFFSET = verifyField("RdmaConnParam.srq offset", NatRdmaConnParam.SRQ_OFFSET, layout[7]);
+		NatRdmaConnParam.QPNUM_OFFSET = verifyField("RdmaConnParam.qp_num offset", NatRdmaConnParam.QPNUM_OFFSET, layout[8]);
+		NatRdmaConnParam.PRIVATEDATA_OFFSET = verifyField("RdmaConnParam.private_data offset", NatRdmaConnParam.PRIVATEDATA_OFFSET, layout[9]);
+
+		layout = getStructLayout(STRUCT_IBV_MW_BIND, "ibv_mw_bind", 7);
+		NatIbvMwBind.CSIZE = verifyField("IbvMwBind size", NatIbvMwBind.CSIZE, layout[0]);
+		NatIbvMwBind.WRID_OFFSET = verifyField("IbvMwBind.wr_id offset", NatIbvMwBind.WRID_OFFSET, layout[1]);
+		NatIbvMwBind.SENDFLAGS_OFFSET = verifyField("IbvMwBind.send_flags offset", NatIbvMwBind.SENDFLAGS_OFFSET, layout[2]);
+		NatIbvMwBind.MR_OFFSET = verifyField("IbvMwBind.bind_info.mr offset", NatIbvMwBind.MR_OFFSET, layout[3]);
+		NatIbvMwBind.ADDR_OFFSET = verifyField("IbvMwBind.bind_info.addr offset", NatIbvMwBind.ADDR_OFFSET, layout[4]);
+		NatIbvMwBind.LENGTH_OFFSET = verifyField("IbvMwBind.bind_info.length offset", NatIbvMwBind.LENGTH_OFFSET, layout[5]);
+		NatIbvMwBind.ACCESS_OFFSET = verifyField("IbvMwBind.bind_info.mw_access_flags offset", NatIbvMwBind.ACCESS_OFFSET, layout[6]);
+	}
+
+	private int[] getStructLayout(int struct, String name, int fields) throws IOException {
+		int[] layout = new int[fields];
+		int ret = _getStructLayout(struct, layout);
+		if (ret != fields){
+			logger.info(name + " layout mismatch, jverbs fields " + fields + ", native fields " + ret);
+			throw new IOException(name + " layout mismatch, jverbs fields " + fields + ", native fields " + ret);
 		}
-		if (_getRKeyOffset() != NatIbvSendWR.RKEY_OFFSET){
-			logger.info("Rkey offset mismatch, jverbs size " + NatIbvSendWR.RKEY_OFFSET + ", native size " +_getRKeyOffset());
-			NatIbvSendWR.RKEY_OFFSET = _getRKeyOffset();
+		return layout;
+	}
+
+	private static int verifyField(String name, int jverbsValue, int nativeValue) {
+		if (jverbsValue != nativeValue){
+			logger.info(name + " mismatch, jverbs " + jverbsValue + ", native " + nativeValue);
 		} else {
-			logger.info("Rkey offset match, jverbs size " + NatIbvSendWR.RKEY_OFFSET + ", native size " +_getRKeyOffset());
+			logger.debug(name + " match, jverbs " + jverbsValue + ", native " + nativeValue);
 		}
+		return nativeValue;
 	}
 
 	//rdmacm
 	public native long _createEventChannel() throws IOException;
 	public native long _createId(long channel, short rdma_ps) throws IOException;
-	public native long _createQP(long id, long pd, long sendcq, long recvcq, int qptype, int maxsendwr, int maxrecvwr,
+	public native long _createQP(long id, long pd, long sendcq, long recvcq, long srq, int qptype, int maxsendwr, int maxrecvwr,
 								 int maxinline) throws IOException;
 	public native void _bindAddr(long id, long addr) throws IOException;
 	public native void _listen(long id, int backlog)  throws IOException;
 	public native void _resolveAddr(long id, long src, long dst, int timeout) throws IOException;
 	public native void _resolveRoute(long id, int timeout) throws IOException;
-	public native int _getCmEvent(long channel, long listenid, long clientid, int timeout);
-	public native void _connect(long id, int retrycount, int rnrretrycount, long privdataaddr, byte privdatalen)
+	public native int _getCmEvent(long channel, long listenid, long clientid, long udparam, long connparam, int timeout);
+	public native void _connect(long id, int retrycount, int rnrretrycount, int responderresources, int initiatordepth, int flowcontrol, 
+			long privdataaddr, byte privdatalen)
 		throws IOException;
-	public native void _accept(long id, int retrycount, int rnrretrycount) throws IOException;
+	public native void _accept(long id, int retrycount, int rnrretrycount, int responderresources, int initiatordepth, int flowcontrol, 
+			int qpnum, long privdataaddr, byte privdatalen) throws IOException;
 	public native int _ackCmEvent(int cmEvent);
 	public native int _disconnect(long id);
 	public native int _destroyEventChannel(long fd);
@@ -113,8 +276,9 @@ public class NativeDispatcher {
 	public native long _allocPd(long context) throws IOException;
 	public native long _createCompChannel(long context) throws IOException;
 	public native long _createCQ(long context, long compChannel, int ncqe, int comp_vector) throws IOException;
-	public native int _modifyQP(long qp, long attr) throws IOException;
-	public native long _regMr(long pd, long addr, int len, int access, long lkey, long rkey, long handle) throws IOException;
+	public native int _modifyQP(long qp, long attr, int attrMask) throws IOException;
+	public native int _queryQP(long qp, long attr, int attrMask) throws IOException;
+	public native long _regMr(long pd, long addr, long len, int access, long lkey, long rkey, long handle) throws IOException;
 	public native int _queryOdpSupport(long context);
 	public native int _expPrefetchMr(long handle, long addr, int len) throws IOException;
 	public native void _deregMr(long handle) throws IOException;
@@ -122,11 +286,35 @@ public class NativeDispatcher {
 	public native void _postRecv(long qp, long wrList) throws IOException;
 	public native int _getCqEvent(long compChannel, int timeout) throws IOException;
 	public native int _pollCQ(long cq, int ne, long wclist) throws IOException;
+
+	public native long _createCQEx(long context, long compChannel, int ncqe, int comp_vector, int wcFlags) throws IOException;
+
+	public native int _pollCQEx(long cq, int ne, long wclist) throws IOException;
+
+	public native long _queryRtValues(long context) throws IOException;
+
+	public native long _queryCoreClock(long context) throws IOException;
+
+	public native int _getAsyncEvent(long context, long event, int timeout) throws IOException;
+
+	public native int _queryDevice(long context, long attr) throws IOException;
+
+	public native int _queryPort(long context, int port, long attr) throws IOException;
 	public native int _reqNotifyCQ(long cq, int solicited_only) throws IOException;
 	public native int _ackCqEvent(long cq, int nevents);
+	public native int _modifyCQ(long cq, int count, int period) throws IOException;
 	public native int _destroyCompChannel(long fd);
 	public native int _deallocPd(long handle);
 	public native int _destroyCQ(long handle);
+	public native long _createSrq(long pd, int maxwr, int maxsge, int srqlimit) throws IOException;
+	public native void _modifySrq(long srq, int srqlimit) throws IOException;
+	public native void _postSrqRecv(long srq, long wrList) throws IOException;
+	public native int _destroySrq(long srq);
+	public native long _createAh(long pd, long ahattr) throws IOException;
+	public native int _destroyAh(long ah);
+	public native long _allocMw(long pd, int type, long rkey) throws IOException;
+	public native int _bindMw(long qp, long mw, long bind) throws IOException;
+	public native int _deallocMw(long mw);
 
 	//field lookup
 	public native long _getContext(long id) throws IOException;
@@ -136,13 +324,7 @@ public class NativeDispatcher {
 	public native int _getPdHandle(long objId) throws IOException;
 
 	//struct verification
-	public native int _getSockAddrInSize();
-	public native int _getIbvRecvWRSize();
-	public native int _getIbvSendWRSize();
-	public native int _getIbvSgeSize();
-	public native int _getIbvWCSize();
-	public native int _getRemoteAddressOffset();
-	public native int _getRKeyOffset();
+	public native int _getStructLayout(int struct, int[] layout);
 
 	//version
 	public native int _getVersion();
@@ -80,7 +80,7 @@ public class RdmaCmNat extends RdmaCm {
 		
 		NatCmaIdPrivate idPriv = null;
 		if (objId >= 0) {
-			idPriv = new NatCmaIdPrivate(objId, cmChannel, nativeDispatcher);
+			idPriv = new NatCmaIdPrivate(objId, rdma_ps, cmChannel, nativeDispatcher);
 			channelImpl.addCmId(idPriv);
 		}
 
@@ -106,7 +106,15 @@ public class RdmaCmNat extends RdmaCm {
 		if (!natRecvCq.isOpen()) {
 			throw new IOException("Trying to create a QP with closed receive CQ");
 		}
-		long objId = nativeDispatcher._createQP(idPriv.getObjId(), natPd.getObjId(), natSendCq.getObjId(), natRecvCq.getObjId(), attr.getQp_type(), attr.cap().getMax_send_wr(), attr.cap().getMax_recv_wr(), attr.cap().getMax_inline_data());
+		long srqObjId = 0;
+		if (attr.getSrq() != null) {
+			NatIbvSrq natSrq = (NatIbvSrq) attr.getSrq();
+			if (!natSrq.isOpen()) {
+				throw new IOException("Trying to create a QP with closed SRQ");
+			}
+			srqObjId = natSrq.getObjId();
+		}
+		long objId = nativeDispatcher._createQP(idPriv.getObjId(), natPd.getObjId(), natSendCq.getObjId(), natRecvCq.getObjId(), srqObjId, attr.getQp_type(), attr.cap().getMax_send_wr(), attr.cap().getMax_recv_wr(), attr.cap().getMax_inline_data());
 		logger.info("createQP, objId " + objId + ", send_wr size " + attr.cap().getMax_send_wr() + ", recv_wr_size " + attr.cap().getMax_recv_wr());
 		
 		NatIbvQP qp = null;
@@ -128,7 +136,7 @@ public class RdmaCmNat extends RdmaCm {
         
         SockAddrIn addr = new SockAddrIn(_sin_family, _sin_addr, _sin_port);
         MemBuf sockBuf = memAlloc.allocate(SockAddrIn.CSIZE);
-        addr.writeBack(sockBuf.getBuffer());
+        addr.writeBack(sockBuf.address());
         NatCmaIdPrivate idPriv = (NatCmaIdPrivate) id;
         if (!idPriv.isOpen()) {
             throw new IOException("Trying to bind() using a closed ID");
@@ -156,14 +164,24 @@ public class RdmaCmNat extends RdmaCm {
         InetSocketAddress _dst = (InetSocketAddress) destination;
         SockAddrIn dst = new SockAddrIn(SockAddrIn.AF_INET, NetUtils.getIntIPFromInetAddress(_dst.getAddress()), NetUtils.hostToNetworkByteOrder((short) _dst.getPort()));
         MemBuf dstBuf = memAlloc.allocate(SockAddrIn.CSIZE);
-        dst.writeBack(dstBuf.getBuffer());
+        dst.writeBack(dstBuf.address());
+        MemBuf srcBuf = null;
+        if (source != null) {
+            InetSocketAddress _src = (InetSocketAddress) source;
+            SockAddrIn src = new SockAddrIn(SockAddrIn.AF_INET, NetUtils.getIntIPFromInetAddress(_src.getAddress()), NetUtils.hostToNetworkByteOrder((short) 0));
+            srcBuf = memAlloc.allocate(SockAddrIn.CSIZE);
+            src.writeBack(srcBuf.address());
+        }
         NatCmaIdPrivate idPriv = (NatCmaIdPrivate) id;
         if (!idPriv.isOpen()) {
             throw new IOException("Trying to resolve address with closed ID");
         }
-        nativeDispatcher._resolveAddr(idPriv.getObjId(), 0, dstBuf.address(), timeout);
+        nativeDispatcher._resolveAddr(idPriv.getObjId(), srcBuf != null ? srcBuf.address() : 0, dstBuf.address(), timeout);
         logger.info("resolveAddr, addres " + destination.toString());
         dstBuf.free();
+        if (srcBuf != null) {
+            srcBuf.free();
+        }
         
         return;
 	}
@@ -185,12 +203,14 @@ public class RdmaCmNat extends RdmaCm {
 		NatRdmaEventChannel channelImpl = (NatRdmaEventChannel) cmChannel;
 		RdmaCmEvent cmEvent = null;
 		
-		MemBuf memBuf = memAlloc.allocate(2*8);
+		MemBuf memBuf = memAlloc.allocate(2*8 + NatRdmaUdParam.CSIZE + NatRdmaConnParam.CSIZE);
+		long connParamAddress = memBuf.address() + 16 + NatRdmaUdParam.CSIZE;
 		ByteBuffer buf = memBuf.getBuffer();
 		if (!channelImpl.isOpen()) {
 			throw new IOException("Trying to get CM event on closed channel.");
 		}
-		int event = nativeDispatcher._getCmEvent(channelImpl.getObjId(), memBuf.address(), memBuf.address() + 8, timeout);
+		int event = nativeDispatcher._getCmEvent(channelImpl.getObjId(), memBuf.address(), memBuf.address() + 8, memBuf.address() + 16, 
+				connParamAddress, timeout);
 		
 		if (event >= 0){
 			long _listenId = buf.getLong();
@@ -198,11 +218,22 @@ public class RdmaCmNat extends RdmaCm {
 			NatCmaIdPrivate idPriv = channelImpl.getCmId(_listenId);
 			NatCmaIdPrivate clientId = channelImpl.getCmId(_clientId);
 			if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST.ordinal()){
-				clientId = new NatCmaIdPrivate(_clientId, channelImpl, nativeDispatcher);
+				clientId = new NatCmaIdPrivate(_clientId, idPriv.getPs(), channelImpl, nativeDispatcher);
 				clientId.setVerbs(idPriv.getVerbs());
 				channelImpl.addCmId(clientId);
 			} 
-			cmEvent = new RdmaCmEvent(event, idPriv, clientId);
+			NatRdmaUdParam udParam = null;
+			if (event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ESTABLISHED.ordinal() && clientId != null && clientId.getPs() == RDMA_PS_UDP){
+				udParam = new NatRdmaUdParam(memBuf.address() + 16);
+			}
+			if (udParam != null){
+				cmEvent = new RdmaCmEvent(event, idPriv, clientId, udParam);
+			} else if (hasConnParam(event) && clientId != null && clientId.getPs() != RDMA_PS_UDP){
+				NatRdmaConnParam connParam = new NatRdmaConnParam(connParamAddress);
+				cmEvent = new RdmaCmEvent(event, idPriv, clientId, connParam, connParam.getPrivateData());
+			} else {
+				cmEvent = new RdmaCmEvent(event, idPriv, clientId);
+			}
 		}
 		
 		memBuf.free();
@@ -210,6 +241,13 @@ public class RdmaCmNat extends RdmaCm {
 		return cmEvent;
 	}
 
+	private static boolean hasConnParam(int event) {
+		return event == RdmaCmEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST.ordinal()
+				|| event == RdmaCmEvent.EventType.RDMA_CM_EVENT_CONNECT_RESPONSE.ordinal()
+				|| event == RdmaCmEvent.EventType.RDMA_CM_EVENT_ESTABLISHED.ordinal()
+				|| event == RdmaCmEvent.EventType.RDMA_CM_EVENT_REJECTED.ordinal();
+	}
+
 	@Override
 	public void connect(RdmaCmId id, RdmaConnParam connParam)
 			throws IOException {
@@ -217,8 +255,9 @@ public class RdmaCmNat extends RdmaCm {
 		if (!idPriv.isOpen()) {
 			throw new IOException("Trying to call connect() with closed ID");
 		}
-		nativeDispatcher._connect(idPriv.getObjId(), connParam.getRetry_count(),
-				connParam.getRnr_retry_count(), connParam.getPrivate_data(), connParam.getPrivate_data_len());
+		nativeDispatcher._connect(idPriv.getObjId(), connParam.getRetry_count(), connParam.getRnr_retry_count(), 
+				connParam.getResponder_resources() & 0xff, connParam.getInitiator_depth() & 0xff, connParam.getFlow_control(), 
+				connParam.getPrivate_data(), connParam.getPrivate_data_len());
 		logger.info("connect, id " + id.getPs());
 		
 		return;
@@ -231,7 +270,9 @@ public class RdmaCmNat extends RdmaCm {
 		if (!idPriv.isOpen()) {
 			throw new IOException("Trying to call accept() with closed ID");
 		}
-		nativeDispatcher._accept(idPriv.getObjId(), connParam.getRetry_count(), connParam.getRnr_retry_count());
+		nativeDispatcher._accept(idPriv.getObjId(), connParam.getRetry_count(), connParam.getRnr_retry_count(), 
+				connParam.getResponder_resources() & 0xff, connParam.getInitiator_depth() & 0xff, connParam.getFlow_control(), 
+				connParam.getQp_num(), connParam.getPrivate_data(), connParam.getPrivate_data_len());
 		logger.info("accept, id " + id.getPs());
 		
 		return;
@@ -274,6 +315,8 @@ public class RdmaCmNat extends RdmaCm {
 		}
 		idPriv.close();
 		int ret = nativeDispatcher._destroyCmId(idPriv.getObjId());
+		//the native id may be reused by a later id once destroyed
+		((NatRdmaEventChannel) idPriv.getCmChannel()).removeCmId(idPriv);
 		return ret;
 	}
 
@@ -301,8 +344,7 @@ public class RdmaCmNat extends RdmaCm {
 		int ret = nativeDispatcher._getSrcAddr(idPriv.getObjId(), sockBuf.address());
 		InetSocketAddress socketAddress = null;
 		if (ret == 0){
-			sockBuf.getBuffer().clear();
-			srcAddr.update(sockBuf.getBuffer());
+			srcAddr.update(sockBuf.address());
 			
 			ByteBuffer translater = ByteBuffer.allocate(4);
 			translater.order(ByteOrder.BIG_ENDIAN);
@@ -333,8 +375,7 @@ public class RdmaCmNat extends RdmaCm {
 		int ret = nativeDispatcher._getDstAddr(idPriv.getObjId(), sockBuf.address());
 		InetSocketAddress socketAddress = null;
 		if (ret == 0){
-			sockBuf.getBuffer().clear();
-			dstAddr.update(sockBuf.getBuffer());
+			dstAddr.update(sockBuf.address());
 			
 			ByteBuffer translater = ByteBuffer.allocate(4);
 			translater.order(ByteOrder.BIG_ENDIAN);
@@ -27,25 +27,36 @@ import java.util.List;
 
 import org.slf4j.Logger;
 
+import com.ibm.disni.verbs.IbvAh;
+import com.ibm.disni.verbs.IbvAsyncEvent;
 import com.ibm.disni.verbs.IbvCQ;
 import com.ibm.disni.verbs.IbvCompChannel;
 import com.ibm.disni.verbs.IbvContext;
+import com.ibm.disni.verbs.IbvDeviceAttr;
 import com.ibm.disni.verbs.IbvMr;
+import com.ibm.disni.verbs.IbvMw;
+import com.ibm.disni.verbs.IbvMwBindInfo;
 import com.ibm.disni.verbs.IbvPd;
+import com.ibm.disni.verbs.IbvPortAttr;
 import com.ibm.disni.verbs.IbvQP;
 import com.ibm.disni.verbs.IbvQpAttr;
 import com.ibm.disni.verbs.IbvRecvWR;
 import com.ibm.disni.verbs.IbvSendWR;
+import com.ibm.disni.verbs.IbvSrq;
 import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.verbs.RdmaUdParam;
 import com.ibm.disni.verbs.RdmaVerbs;
 import com.ibm.disni.verbs.SVCDeregMr;
 import com.ibm.disni.verbs.SVCPollCq;
 import com.ibm.disni.verbs.SVCPostRecv;
 import com.ibm.disni.verbs.SVCPostSend;
+import com.ibm.disni.verbs.SVCPostSrqRecv;
 import com.ibm.disni.verbs.SVCRegMr;
 import com.ibm.disni.verbs.SVCReqNotify;
 import com.ibm.disni.util.DiSNILogger;
+import com.ibm.disni.util.MemBuf;
 import com.ibm.disni.util.MemoryAllocation;
+import com.ibm.disni.util.MemoryUtils;
 
 
 public class RdmaVerbsNat extends RdmaVerbs {
@@ -92,6 +103,81 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		return channel;
 	}
 
+	public IbvCQ createCQ(IbvContext context, IbvCompChannel compChannel,
+			int ncqe, int comp_vector, int wcFlags) throws IOException {
+		NatIbvContext natContext = (NatIbvContext) context;
+		NatIbvCompChannel natCompChannel = (NatIbvCompChannel) compChannel;
+		if (!natContext.isOpen()) {
+			throw new IOException("Trying to create CQ with closed context.");
+		}
+		if (!natCompChannel.isOpen()) {
+			throw new IOException("Trying to create CQ with closed completion channel.");
+		}
+		long objId = nativeDispatcher._createCQEx(natContext.getObjId(), natCompChannel.getObjId(), ncqe, comp_vector, wcFlags);
+		logger.info("createCQEx, objId " + objId + ", ncqe " + ncqe + ", wcFlags " + wcFlags);
+		
+		NatIbvCQ cq = null;
+		if (objId >= 0){
+			cq = new NatIbvCQ(objId, context, compChannel, 0, wcFlags);
+		}
+		return cq;
+	}
+
+	public long queryRtValues(IbvContext context) throws IOException {
+		NatIbvContext natContext = (NatIbvContext) context;
+		if (!natContext.isOpen()) {
+			throw new IOException("Trying to query clock on closed context.");
+		}
+		return nativeDispatcher._queryRtValues(natContext.getObjId());
+	}
+
+	public long queryCoreClock(IbvContext context) throws IOException {
+		NatIbvContext natContext = (NatIbvContext) context;
+		if (!natContext.isOpen()) {
+			throw new IOException("Trying to query clock on closed context.");
+		}
+		return nativeDispatcher._queryCoreClock(natContext.getObjId());
+	}
+
+	public IbvDeviceAttr queryDevice(IbvContext context) throws IOException {
+		NatIbvContext natContext = (NatIbvContext) context;
+		if (!natContext.isOpen()) {
+			throw new IOException("Trying to query device on closed context.");
+		}
+		MemBuf memBuf = memAlloc.allocate(NatIbvDeviceAttr.CSIZE);
+		nativeDispatcher._queryDevice(natContext.getObjId(), memBuf.address());
+		NatIbvDeviceAttr attr = new NatIbvDeviceAttr(memBuf.address());
+		memBuf.free();
+		return attr;
+	}
+
+	public IbvPortAttr queryPort(IbvContext context, int port) throws IOException {
+		NatIbvContext natContext = (NatIbvContext) context;
+		if (!natContext.isOpen()) {
+			throw new IOException("Trying to query port on closed context.");
+		}
+		MemBuf memBuf = memAlloc.allocate(NatIbvPortAttr.CSIZE);
+		nativeDispatcher._queryPort(natContext.getObjId(), port, memBuf.address());
+		NatIbvPortAttr attr = new NatIbvPortAttr(memBuf.address());
+		memBuf.free();
+		return attr;
+	}
+
+	public IbvAsyncEvent getAsyncEvent(IbvContext context, int timeout) throws IOException {
+		NatIbvContext natContext = (NatIbvContext) context;
+		if (!natContext.isOpen()) {
+			throw new IOException("Trying to get async event on closed context.");
+		}
+		MemBuf memBuf = memAlloc.allocate(NatIbvAsyncEvent.CSIZE);
+		NatIbvAsyncEvent asyncEvent = null;
+		int event = nativeDispatcher._getAsyncEvent(natContext.getObjId(), memBuf.address(), timeout);
+		if (event >= 0){
+			asyncEvent = NatIbvAsyncEvent.read(memBuf.address());
+		}
+		memBuf.free();
+		return asyncEvent;
+	}
+
 	public IbvCQ createCQ(IbvContext context, IbvCompChannel compChannel,
 			int ncqe, int comp_vector) throws IOException {
 		NatIbvContext natContext = (NatIbvContext) context;
@@ -118,8 +204,11 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		if (!qp.isOpen()) {
 			throw new IOException("Trying to modify closed QP");
 		}
-		int ret = nativeDispatcher._modifyQP(natQP.getObjId(), (long) 0);
-		logger.info("modifyQP, qpnum " + qp.getQp_num());
+		MemBuf memBuf = memAlloc.allocate(NatIbvQpAttr.CSIZE);
+		NatIbvQpAttr.writeBack(memBuf.address(), attr);
+		int ret = nativeDispatcher._modifyQP(natQP.getObjId(), memBuf.address(), attr.getQpAttrMask());
+		memBuf.free();
+		logger.info("modifyQP, qpnum " + qp.getQp_num() + ", mask " + attr.getQpAttrMask());
 		
 		if (ret >= 0){
 			return qp;
@@ -127,11 +216,24 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		return null;
 	}
 
+	public IbvQpAttr queryQP(IbvQP qp, int attrMask) throws IOException {
+		NatIbvQP natQP = (NatIbvQP) qp;
+		if (!qp.isOpen()) {
+			throw new IOException("Trying to query closed QP");
+		}
+		MemBuf memBuf = memAlloc.allocate(NatIbvQpAttr.CSIZE);
+		MemoryUtils.setMemory(memBuf.address(), NatIbvQpAttr.CSIZE, (byte) 0);
+		nativeDispatcher._queryQP(natQP.getObjId(), memBuf.address(), attrMask);
+		NatIbvQpAttr attr = new NatIbvQpAttr(memBuf.address(), attrMask);
+		memBuf.free();
+		return attr;
+	}
+
 	public SVCRegMr regMr(IbvPd pd, ByteBuffer buffer, int access) {
 		return new NatRegMrCall(this, nativeDispatcher, memAlloc, pd, buffer, access);
 	}
 
-	public SVCRegMr regMr(IbvPd pd, long address, int length, int access) {
+	public SVCRegMr regMr(IbvPd pd, long address, long length, int access) {
 		return new NatRegMrCall(this, nativeDispatcher, memAlloc, pd, address, length, access);
 
 	}
@@ -153,10 +255,95 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		return new NatPostSendCall(this, nativeDispatcher, memAlloc, qp, wrList);
 	}
 
+	public SVCPostSend postSend(IbvQP qp, int maxWr, int maxSge) throws IOException {
+		return new NatPostSendCall(this, nativeDispatcher, memAlloc, qp, maxWr, maxSge);
+	}
+
 	public SVCPostRecv postRecv(IbvQP qp, List<IbvRecvWR> wrList, List<IbvRecvWR> badwrList) {
 		return new NatPostRecvCall(this, nativeDispatcher, memAlloc, qp, wrList);
 	}
 
+	public IbvSrq createSrq(IbvPd pd, int maxWr, int maxSge, int srqLimit) throws IOException {
+		NatIbvPd natPd = (NatIbvPd) pd;
+		if (!natPd.isOpen()) {
+			throw new IOException("Trying to create SRQ with closed PD.");
+		}
+		long objId = nativeDispatcher._createSrq(natPd.getObjId(), maxWr, maxSge, srqLimit);
+		logger.info("createSrq, objId " + objId + ", maxWr " + maxWr + ", maxSge " + maxSge + ", srqLimit " + srqLimit);
+
+		if (objId < 0){
+			throw new IOException("Failed to create SRQ, maxWr " + maxWr + ", maxSge " + maxSge + ", srqLimit " + srqLimit);
+		}
+		return new NatIbvSrq(objId, pd, maxWr, maxSge);
+	}
+
+	public void modifySrq(IbvSrq srq, int srqLimit) throws IOException {
+		NatIbvSrq natSrq = (NatIbvSrq) srq;
+		if (!natSrq.isOpen()) {
+			throw new IOException("Trying to modify closed SRQ.");
+		}
+		nativeDispatcher._modifySrq(natSrq.getObjId(), srqLimit);
+	}
+
+	public SVCPostSrqRecv postSrqRecv(IbvSrq srq, List<IbvRecvWR> wrList) {
+		return new NatPostSrqRecvCall(this, nativeDispatcher, memAlloc, srq, wrList);
+	}
+
+	public IbvAh createAh(IbvPd pd, RdmaUdParam udParam) throws IOException {
+		NatIbvPd natPd = (NatIbvPd) pd;
+		NatRdmaUdParam natUdParam = (NatRdmaUdParam) udParam;
+		if (!natPd.isOpen()) {
+			throw new IOException("Trying to create address handle with closed PD.");
+		}
+		MemBuf ahAttr = memAlloc.allocate(NatRdmaUdParam.AHATTR_SIZE);
+		natUdParam.writeAhAttr(ahAttr.address());
+		long objId = nativeDispatcher._createAh(natPd.getObjId(), ahAttr.address());
+		ahAttr.free();
+		logger.info("createAh, objId " + objId + ", remote qpn " + udParam.getQp_num());
+
+		NatIbvAh ah = null;
+		if (objId >= 0){
+			ah = new NatIbvAh(objId, pd);
+		}
+		return ah;
+	}
+
+	public IbvMw allocMw(IbvPd pd, int type) throws IOException {
+		NatIbvPd natPd = (NatIbvPd) pd;
+		if (!natPd.isOpen()) {
+			throw new IOException("Trying to allocate memory window with closed PD.");
+		}
+		MemBuf rkey = memAlloc.allocate(4);
+		long objId = nativeDispatcher._allocMw(natPd.getObjId(), type, rkey.address());
+		NatIbvMw mw = null;
+		if (objId >= 0){
+			mw = new NatIbvMw(objId, pd, type, MemoryUtils.getInt(rkey.address()));
+			logger.info("allocMw, objId " + objId + ", type " + type + ", rkey " + mw.getRkey());
+		}
+		rkey.free();
+		return mw;
+	}
+
+	public int bindMw(IbvQP qp, IbvMw mw, long wr_id, int send_flags, IbvMwBindInfo bindInfo) throws IOException {
+		NatIbvQP natQP = (NatIbvQP) qp;
+		NatIbvMw natMw = (NatIbvMw) mw;
+		if (!natQP.isOpen()) {
+			throw new IOException("Trying to bind memory window on closed QP.");
+		}
+		if (!natMw.isOpen()) {
+			throw new IOException("Trying to bind closed memory window.");
+		}
+		if (natMw.getType() != IbvMw.IBV_MW_TYPE_1) {
+			throw new IOException("Type 2 memory windows are bound with an IBV_WR_BIND_MW work request.");
+		}
+		MemBuf bind = memAlloc.allocate(NatIbvMwBind.CSIZE);
+		NatIbvMwBind.writeBack(bind.address(), wr_id, send_flags, bindInfo);
+		int rkey = nativeDispatcher._bindMw(natQP.getObjId(), natMw.getObjId(), bind.address());
+		bind.free();
+		natMw.setRkey(rkey);
+		return rkey;
+	}
+
 	public boolean getCqEvent(IbvCompChannel compChannel, IbvCQ cq, int timeout) throws IOException {
 		NatIbvCompChannel natChannel = (NatIbvCompChannel) compChannel;
 		if (!natChannel.isOpen()) {
@@ -170,6 +357,10 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		return new NatPollCqCall(this, nativeDispatcher, memAlloc, cq, wcList, ne);
 	}
 
+	public SVCPollCq pollCQ(IbvCQ cq, int ne) {
+		return new NatPollCqCall(this, nativeDispatcher, memAlloc, cq, ne);
+	}
+
 	public SVCReqNotify reqNotifyCQ(IbvCQ cq, boolean solicited_only) {
 		return new NatReqNotifyCall(this, nativeDispatcher, cq, solicited_only);
 	}
@@ -183,6 +374,14 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		return ret;
 	}
 
+	public int modifyCQ(IbvCQ cq, int count, int period) throws IOException {
+		NatIbvCQ natCQ = (NatIbvCQ) cq;
+		if (!cq.isOpen()) {
+			throw new IOException("Trying to modify closed CQ.");
+		}
+		return nativeDispatcher._modifyCQ(natCQ.getObjId(), count, period);
+	}
+
 	public int destroyCompChannel(IbvCompChannel compChannel) throws IOException {
 		logger.info("destroyCompChannel, compChannel " + compChannel.getFd());
 		NatIbvCompChannel compChannelImpl = (NatIbvCompChannel) compChannel;
@@ -217,4 +416,37 @@ public class RdmaVerbsNat extends RdmaVerbs {
 		int ret = nativeDispatcher._destroyCQ(cqImpl.getObjId());
 		return ret;
 	}
+
+	@Override
+	public int destroySrq(IbvSrq srq) throws IOException {
+		NatIbvSrq srqImpl = (NatIbvSrq) srq;
+		logger.info("destroySrq, srq " + srqImpl.getObjId());
+		if (!srqImpl.isOpen()) {
+			throw new IOException("Trying to destroy already destroyed SRQ.");
+		}
+		srqImpl.close();
+		int ret = nativeDispatcher._destroySrq(srqImpl.getObjId());
+		return ret;
+	}
+
+	@Override
+	public int deallocMw(IbvMw mw) throws IOException {
+		NatIbvMw mwImpl = (NatIbvMw) mw;
+		if (!mwImpl.isOpen()) {
+			throw new IOException("Trying to deallocate already deallocated memory window.");
+		}
+		mwImpl.close();
+		int ret = nativeDispatcher._deallocMw(mwImpl.getObjId());
+		return ret;
+	}
+
+	public int destroyAh(IbvAh ah) throws IOException {
+		NatIbvAh ahImpl = (NatIbvAh) ah;
+		if (!ahImpl.isOpen()) {
+			throw new IOException("Trying to destroy already destroyed address handle.");
+		}
+		ahImpl.close();
+		int ret = nativeDispatcher._destroyAh(ahImpl.getObjId());
+		return ret;
+	}
 }
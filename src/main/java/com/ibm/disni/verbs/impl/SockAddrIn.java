@@ -21,12 +21,24 @@
 
 package com.ibm.disni.verbs.impl;
 
-import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import com.ibm.disni.util.MemoryUtils;
+
+//struct sockaddr_in {
+//sa_family_t             sin_family;
+//in_port_t               sin_port;
+//struct in_addr          sin_addr;
+//unsigned char           sin_zero[8];
+//};
+
 public class SockAddrIn {
 	public static short AF_INET = 2;
 	public static int CSIZE = 28;
+	public static int SINFAMILY_OFFSET = 0;
+	public static int SINPORT_OFFSET = 2;
+	public static int SINADDR_OFFSET = 4;
+	private static final boolean nativeIsLittleEndian = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
 	
 	protected short sin_family;
 	protected int sin_addr;
@@ -50,18 +62,17 @@ public class SockAddrIn {
 		sin_zero = new byte[8];
 	}
 	
-	public void writeBack(ByteBuffer buffer) {
-		buffer.putShort(sin_family);
-		buffer.putShort(sin_port);
-		buffer.order(ByteOrder.LITTLE_ENDIAN);
-		buffer.putInt(sin_addr);
-		buffer.order(ByteOrder.nativeOrder());
+	public void writeBack(long address) {
+		MemoryUtils.setMemory(address, CSIZE, (byte) 0);
+		MemoryUtils.putShort(address + SINFAMILY_OFFSET, sin_family);
+		MemoryUtils.putShort(address + SINPORT_OFFSET, sin_port);
+		MemoryUtils.putInt(address + SINADDR_OFFSET, nativeIsLittleEndian ? sin_addr : Integer.reverseBytes(sin_addr));
 	}
 
-	public void update(ByteBuffer buffer) {
-		sin_family = buffer.getShort();
-		sin_port = buffer.getShort();
-		sin_addr = buffer.getInt();
+	public void update(long address) {
+		sin_family = MemoryUtils.getShort(address + SINFAMILY_OFFSET);
+		sin_port = MemoryUtils.getShort(address + SINPORT_OFFSET);
+		sin_addr = MemoryUtils.getInt(address + SINADDR_OFFSET);
 	}
 
 	public int size() {
@@ -0,0 +1,216 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+import junit.framework.TestCase;
+
+import com.ibm.disni.verbs.IbvMr;
+
+public class RdmaRegistrationCacheTest extends TestCase {
+	private static final long ADDRESS = 0x100000L;
+	private static final int LENGTH = 8192;
+	private static final int PAGE = 4096;
+	private static final int ACCESS = IbvMr.IBV_ACCESS_LOCAL_WRITE;
+
+	private static class TestCache extends RdmaRegistrationCache {
+		int registrations;
+		int deregistrations;
+
+		TestCache(long maxPinnedBytes) {
+			super(null, maxPinnedBytes);
+		}
+
+		@Override
+		IbvMr registerMemory(long address, long length, int access) {
+			registrations++;
+			return null;
+		}
+
+		@Override
+		void deregisterMemory(IbvMr mr) {
+			deregistrations++;
+		}
+	}
+
+	public void testCollectedBufferIsNotReused() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		Object buffer = new Object();
+		WeakReference<Object> ref = new WeakReference<Object>(buffer);
+		RdmaRegistrationCache.Region first = cache.acquireRegion(buffer, ADDRESS, LENGTH, ACCESS);
+		cache.release(first);
+		assertSame(first, cache.acquireRegion(buffer, ADDRESS, LENGTH, ACCESS));
+		cache.release(first);
+		assertEquals(1, cache.getHits());
+
+		buffer = null;
+		collect(ref, cache);
+		assertEquals(1, cache.getInvalidations());
+		assertEquals(1, cache.deregistrations);
+		assertEquals(0, cache.getPinnedBytes());
+
+		//a new buffer at the same address must not be served by the stale registration
+		Object reallocated = new Object();
+		RdmaRegistrationCache.Region second = cache.acquireRegion(reallocated, ADDRESS, LENGTH, ACCESS);
+		assertNotSame(first, second);
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.registrations);
+		cache.release(second);
+	}
+
+	public void testCollectedBufferWhileInUse() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		Object buffer = new Object();
+		WeakReference<Object> ref = new WeakReference<Object>(buffer);
+		RdmaRegistrationCache.Region first = cache.acquireRegion(buffer, ADDRESS, LENGTH, ACCESS);
+
+		buffer = null;
+		collect(ref, cache);
+		assertEquals(0, cache.deregistrations);
+		Object reallocated = new Object();
+		RdmaRegistrationCache.Region second = cache.acquireRegion(reallocated, ADDRESS, LENGTH, ACCESS);
+		assertNotSame(first, second);
+
+		cache.release(first);
+		assertEquals(1, cache.deregistrations);
+		assertEquals(LENGTH, cache.getPinnedBytes());
+		cache.release(second);
+	}
+
+	public void testUntrackedRegionIsReused() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		RdmaRegistrationCache.Region first = cache.acquireRegion(null, ADDRESS, LENGTH, ACCESS);
+		cache.release(first);
+		assertSame(first, cache.acquireRegion(null, ADDRESS + 64, 64, ACCESS));
+		cache.release(first);
+		assertEquals(1, cache.registrations);
+	}
+
+	public void testMergeAdjacent() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		RdmaRegistrationCache.Region first = cache.acquireRegion(null, ADDRESS, PAGE, ACCESS);
+		cache.release(first);
+		RdmaRegistrationCache.Region merged = cache.acquireRegion(null, ADDRESS + PAGE, PAGE, ACCESS);
+		assertEquals(ADDRESS, merged.start);
+		assertEquals(ADDRESS + 2*PAGE, merged.end);
+		assertEquals(1, cache.getMerges());
+		assertEquals(1, cache.deregistrations);
+		assertEquals(2*PAGE, cache.getPinnedBytes());
+		assertSame(merged, cache.acquireRegion(null, ADDRESS + 100, PAGE, ACCESS));
+		cache.release(merged);
+		cache.release(merged);
+	}
+
+	public void testMergeOverlapping() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		RdmaRegistrationCache.Region first = cache.acquireRegion(null, ADDRESS, 2*PAGE, ACCESS);
+		cache.release(first);
+		RdmaRegistrationCache.Region merged = cache.acquireRegion(null, ADDRESS + PAGE, 2*PAGE, ACCESS);
+		assertNotSame(first, merged);
+		assertEquals(ADDRESS, merged.start);
+		assertEquals(ADDRESS + 3*PAGE, merged.end);
+		assertEquals(1, cache.getMerges());
+		assertEquals(3*PAGE, cache.getPinnedBytes());
+		cache.release(merged);
+	}
+
+	public void testNoMergeWithRegionInUse() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		RdmaRegistrationCache.Region first = cache.acquireRegion(null, ADDRESS, PAGE, ACCESS);
+		RdmaRegistrationCache.Region second = cache.acquireRegion(null, ADDRESS + PAGE, PAGE, ACCESS);
+		assertNotSame(first, second);
+		assertEquals(0, cache.getMerges());
+		assertEquals(0, cache.deregistrations);
+		assertEquals(2*PAGE, cache.getPinnedBytes());
+		cache.release(first);
+		cache.release(second);
+	}
+
+	public void testRefCountedRelease() throws Exception {
+		TestCache cache = new TestCache(0);
+		RdmaRegistrationCache.Region region = cache.acquireRegion(null, ADDRESS, PAGE, ACCESS);
+		assertSame(region, cache.acquireRegion(null, ADDRESS, PAGE, ACCESS));
+		assertEquals(2, region.refCount);
+		cache.release(region);
+		assertEquals(0, cache.deregistrations);
+		assertEquals(PAGE, cache.getPinnedBytes());
+		cache.release(region);
+		assertEquals(1, cache.deregistrations);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(0, cache.getPinnedBytes());
+	}
+
+	public void testEvictLeastRecentlyUsed() throws Exception {
+		TestCache cache = new TestCache(3*PAGE);
+		long a = ADDRESS;
+		long b = ADDRESS + 2*PAGE;
+		long c = ADDRESS + 4*PAGE;
+		long d = ADDRESS + 6*PAGE;
+		cache.release(cache.acquireRegion(null, a, PAGE, ACCESS));
+		cache.release(cache.acquireRegion(null, b, PAGE, ACCESS));
+		cache.release(cache.acquireRegion(null, c, PAGE, ACCESS));
+		//touch a, b becomes the least recently used region
+		cache.release(cache.acquireRegion(null, a, PAGE, ACCESS));
+		assertEquals(0, cache.getEvictions());
+		assertEquals(3*PAGE, cache.getPinnedBytes());
+
+		cache.release(cache.acquireRegion(null, d, PAGE, ACCESS));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(3*PAGE, cache.getPinnedBytes());
+		long hits = cache.getHits();
+		cache.release(cache.acquireRegion(null, a, PAGE, ACCESS));
+		cache.release(cache.acquireRegion(null, c, PAGE, ACCESS));
+		assertEquals(hits + 2, cache.getHits());
+		long misses = cache.getMisses();
+		cache.release(cache.acquireRegion(null, b, PAGE, ACCESS));
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	public void testAccessMismatch() throws Exception {
+		TestCache cache = new TestCache(1 << 20);
+		int remote = ACCESS | IbvMr.IBV_ACCESS_REMOTE_READ;
+		RdmaRegistrationCache.Region local = cache.acquireRegion(null, ADDRESS, PAGE, ACCESS);
+		cache.release(local);
+		RdmaRegistrationCache.Region stronger = cache.acquireRegion(null, ADDRESS, PAGE, remote);
+		assertNotSame(local, stronger);
+		assertEquals(remote, stronger.access);
+		assertEquals(2, cache.registrations);
+		assertEquals(0, cache.getMerges());
+		//weaker rights are served by the stronger region
+		assertSame(stronger, cache.acquireRegion(null, ADDRESS, PAGE, ACCESS));
+		assertEquals(2, cache.registrations);
+		cache.release(stronger);
+		cache.release(stronger);
+	}
+
+	private static void collect(WeakReference<Object> ref, RdmaRegistrationCache cache) throws IOException, InterruptedException {
+		for (int i = 0; i < 100 && cache.getInvalidations() == 0; i++){
+			System.gc();
+			Thread.sleep(10);
+			cache.purge();
+		}
+		assertNull(ref.get());
+	}
+}
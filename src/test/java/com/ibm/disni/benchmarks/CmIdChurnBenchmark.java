@@ -0,0 +1,106 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.benchmarks;
+
+import java.io.IOException;
+
+import com.ibm.disni.RdmaEndpoint;
+import com.ibm.disni.RdmaEndpointFactory;
+import com.ibm.disni.RdmaEndpointGroup;
+import com.ibm.disni.RdmaPassiveEndpointGroup;
+import com.ibm.disni.verbs.RdmaCmId;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Creates and closes endpoints in rounds and reports the rate and the heap in use after every round. 
+ * With a bounded CM id registry both stay flat over time. Needs librdmacm but no connected peer.
+ */
+public class CmIdChurnBenchmark implements RdmaEndpointFactory<CmIdChurnBenchmark.ChurnEndpoint> {
+	private final RdmaPassiveEndpointGroup<ChurnEndpoint> group;
+	private final int batch;
+	private final int rounds;
+
+	public CmIdChurnBenchmark(int batch, int rounds) throws IOException {
+		this.batch = batch;
+		this.rounds = rounds;
+		this.group = new RdmaPassiveEndpointGroup<ChurnEndpoint>(1000, 16, 1, 32);
+		this.group.init(this);
+	}
+
+	@Override
+	public ChurnEndpoint createEndpoint(RdmaCmId idPriv, boolean serverSide) throws IOException {
+		return new ChurnEndpoint(group, idPriv, serverSide);
+	}
+
+	private void run() throws Exception {
+		System.out.println("CmIdChurnBenchmark, batch " + batch + ", rounds " + rounds);
+		ChurnEndpoint[] endpoints = new ChurnEndpoint[batch];
+		Runtime runtime = Runtime.getRuntime();
+		for (int r = 0; r < rounds; r++){
+			long start = System.nanoTime();
+			for (int i = 0; i < batch; i++){
+				endpoints[i] = group.createEndpoint();
+			}
+			for (int i = 0; i < batch; i++){
+				endpoints[i].close();
+				endpoints[i] = null;
+			}
+			long time = System.nanoTime() - start;
+			System.gc();
+			long heap = runtime.totalMemory() - runtime.freeMemory();
+			System.out.println("CmIdChurnBenchmark, round " + r + ", " + (batch*1000000000.0/time) + " endpoints/s, heap used " + heap/1024 + " KB");
+		}
+		group.close();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		options.addOption(Option.builder("s").desc("endpoints per round").hasArg().type(Number.class).build());
+		options.addOption(Option.builder("k").desc("number of rounds").hasArg().type(Number.class).build());
+		int batch = 10000;
+		int rounds = 20;
+		try {
+			CommandLine line = new DefaultParser().parse(options, args);
+			if (line.hasOption("s")) {
+				batch = ((Number) line.getParsedOptionValue("s")).intValue();
+			}
+			if (line.hasOption("k")) {
+				rounds = ((Number) line.getParsedOptionValue("k")).intValue();
+			}
+		} catch (ParseException e) {
+			new HelpFormatter().printHelp("CmIdChurnBenchmark", options);
+			System.exit(-1);
+		}
+
+		CmIdChurnBenchmark benchmark = new CmIdChurnBenchmark(batch, rounds);
+		benchmark.run();
+	}
+
+	public static class ChurnEndpoint extends RdmaEndpoint {
+		public ChurnEndpoint(RdmaEndpointGroup<? extends RdmaEndpoint> group, RdmaCmId idPriv, boolean serverSide) throws IOException {
+			super(group, idPriv, serverSide);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.benchmarks;
+
+import java.nio.ByteBuffer;
+
+import com.ibm.disni.util.MemBuf;
+import com.ibm.disni.util.MemoryAllocation;
+import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.verbs.impl.NatIbvWC;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Compares the cost of decoding work completions through the ByteBuffer decode loop the poll call used 
+ * to run, by copying them into IbvWC objects, and by reading them through the flyweight completion views. 
+ * Runs without RDMA hardware, the completion buffer is filled with synthetic completions.
+ */
+public class CompletionDecodeBenchmark {
+	private static final int WARMUP_ROUNDS = 5;
+
+	private final int batch;
+	private final int loop;
+	private final MemBuf cmd;
+	private final NatIbvWC[] views;
+	private final IbvWC[] wcList;
+
+	public CompletionDecodeBenchmark(int batch, int loop) {
+		this.batch = batch;
+		this.loop = loop;
+		this.cmd = MemoryAllocation.getInstance().allocate(batch*IbvWC.CSIZE);
+		this.views = new NatIbvWC[batch];
+		this.wcList = new IbvWC[batch];
+		for (int i = 0; i < batch; i++){
+			views[i] = new NatIbvWC(cmd, i);
+			views[i].setWr_id(i);
+			views[i].setStatus(IbvWC.IbvWcStatus.IBV_WC_SUCCESS.ordinal());
+			views[i].setOpcode(IbvWC.IbvWcOpcode.IBV_WC_RECV.getOpcode());
+			views[i].setByte_len(64);
+			views[i].setQp_num(i % 16);
+			wcList[i] = new IbvWC();
+		}
+	}
+
+	/**
+	 * The decode loop of the copying poll call before the completion views, the baseline.
+	 */
+	private static void update(IbvWC wc, ByteBuffer buffer) {
+		int initialPos = buffer.position();
+		wc.setWr_id(buffer.getLong());
+		wc.setStatus(buffer.getInt());
+		wc.setOpcode(buffer.getInt());
+		if (wc.getStatus() == IbvWC.IbvWcStatus.IBV_WC_SUCCESS.ordinal()){
+			wc.setVendor_err(buffer.getInt());
+			wc.setByte_len(buffer.getInt());
+			wc.setImm_data(buffer.getInt());
+			wc.setQp_num(buffer.getInt());
+			wc.setSrc_qp(buffer.getInt());
+			wc.setWc_flags(buffer.getInt());
+			wc.setPkey_index(buffer.getShort());
+			wc.setSlid(buffer.getShort());
+			wc.setSl(buffer.get());
+			wc.setDlid_path_bits(buffer.get());
+		}
+		int newPosition = initialPos + IbvWC.CSIZE;
+		buffer.position(newPosition);
+	}
+
+	private long bufferLoop() {
+		long sum = 0;
+		ByteBuffer buffer = cmd.getBuffer();
+		for (int l = 0; l < loop; l++){
+			buffer.clear();
+			for (int i = 0; i < batch; i++){
+				update(wcList[i], buffer);
+			}
+			for (int i = 0; i < batch; i++){
+				IbvWC wc = wcList[i];
+				sum += wc.getQp_num() + wc.getWr_id() + wc.getByte_len() + wc.getStatus();
+			}
+		}
+		return sum;
+	}
+
+	private long copyLoop() {
+		long sum = 0;
+		for (int l = 0; l < loop; l++){
+			for (int i = 0; i < batch; i++){
+				views[i].copyTo(wcList[i]);
+			}
+			for (int i = 0; i < batch; i++){
+				IbvWC wc = wcList[i];
+				sum += wc.getQp_num() + wc.getWr_id() + wc.getByte_len() + wc.getStatus();
+			}
+		}
+		return sum;
+	}
+
+	private long viewLoop() {
+		long sum = 0;
+		for (int l = 0; l < loop; l++){
+			for (int i = 0; i < batch; i++){
+				IbvWC wc = views[i];
+				sum += wc.getQp_num() + wc.getWr_id() + wc.getByte_len() + wc.getStatus();
+			}
+		}
+		return sum;
+	}
+
+	private void run() {
+		System.out.println("CompletionDecodeBenchmark, batch " + batch + ", loop " + loop);
+		long sink = 0;
+		for (int i = 0; i < WARMUP_ROUNDS; i++){
+			sink += bufferLoop();
+			sink += copyLoop();
+			sink += viewLoop();
+		}
+
+		long start = System.nanoTime();
+		sink += bufferLoop();
+		long bufferTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		sink += copyLoop();
+		long copyTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		sink += viewLoop();
+		long viewTime = System.nanoTime() - start;
+
+		long completions = ((long) batch) * loop;
+		System.out.println("CompletionDecodeBenchmark, buffer decode (baseline) " + ((double) bufferTime) / completions + " ns/completion");
+		System.out.println("CompletionDecodeBenchmark, copy decode " + ((double) copyTime) / completions + " ns/completion");
+		System.out.println("CompletionDecodeBenchmark, view decode " + ((double) viewTime) / completions + " ns/completion");
+		System.out.println("CompletionDecodeBenchmark, checksum " + sink);
+		cmd.free();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		options.addOption(Option.builder("s").desc("completions per poll").hasArg().type(Number.class).build());
+		options.addOption(Option.builder("k").desc("number of iterations").hasArg().type(Number.class).build());
+		int batch = 16;
+		int loop = 1000000;
+		try {
+			CommandLine line = new DefaultParser().parse(options, args);
+			if (line.hasOption("s")) {
+				batch = ((Number) line.getParsedOptionValue("s")).intValue();
+			}
+			if (line.hasOption("k")) {
+				loop = ((Number) line.getParsedOptionValue("k")).intValue();
+			}
+		} catch (ParseException e) {
+			new HelpFormatter().printHelp("CompletionDecodeBenchmark", options);
+			System.exit(-1);
+		}
+
+		CompletionDecodeBenchmark benchmark = new CompletionDecodeBenchmark(batch, loop);
+		benchmark.run();
+	}
+}
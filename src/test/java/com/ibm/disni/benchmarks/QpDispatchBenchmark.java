@@ -0,0 +1,156 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.disni.util.ConcurrentLongMap;
+import com.ibm.disni.util.MemBuf;
+import com.ibm.disni.util.MemoryAllocation;
+import com.ibm.disni.verbs.IbvWC;
+import com.ibm.disni.verbs.impl.NatIbvWC;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Compares the cost of looking up the endpoint of a work completion in a boxed ConcurrentHashMap against the 
+ * primitive-keyed ConcurrentLongMap used by RdmaCqProcessor. Runs without RDMA hardware, completions are synthetic 
+ * and spread over the given number of registered QPs with random 24 bit QP numbers.
+ */
+public class QpDispatchBenchmark {
+	private static final int WARMUP_ROUNDS = 5;
+
+	private final int qps;
+	private final int batch;
+	private final int loop;
+	private final MemBuf cmd;
+	private final NatIbvWC[] views;
+	private final ConcurrentHashMap<Integer, Object> boxedMap;
+	private final ConcurrentLongMap<Object> longMap;
+
+	public QpDispatchBenchmark(int qps, int batch, int loop) {
+		this.qps = qps;
+		this.batch = batch;
+		this.loop = loop;
+		this.boxedMap = new ConcurrentHashMap<Integer, Object>();
+		this.longMap = new ConcurrentLongMap<Object>();
+		Random random = new Random(7);
+		int[] qpNums = new int[qps];
+		for (int i = 0; i < qps; i++){
+			int qpNum = random.nextInt(1 << 24);
+			while (longMap.containsKey(qpNum)){
+				qpNum = random.nextInt(1 << 24);
+			}
+			Object endpoint = new Object();
+			qpNums[i] = qpNum;
+			boxedMap.put(qpNum, endpoint);
+			longMap.put(qpNum, endpoint);
+		}
+		this.cmd = MemoryAllocation.getInstance().allocate(batch*IbvWC.CSIZE);
+		this.views = new NatIbvWC[batch];
+		for (int i = 0; i < batch; i++){
+			views[i] = new NatIbvWC(cmd, i);
+			views[i].setQp_num(qpNums[random.nextInt(qps)]);
+		}
+	}
+
+	private long boxedLoop() {
+		long sum = 0;
+		for (int l = 0; l < loop; l++){
+			for (int i = 0; i < batch; i++){
+				Integer qpNum = views[i].getQp_num();
+				Object endpoint = boxedMap.get(qpNum);
+				if (endpoint != null){
+					sum++;
+				}
+			}
+		}
+		return sum;
+	}
+
+	private long primitiveLoop() {
+		long sum = 0;
+		for (int l = 0; l < loop; l++){
+			for (int i = 0; i < batch; i++){
+				Object endpoint = longMap.get(views[i].getQp_num());
+				if (endpoint != null){
+					sum++;
+				}
+			}
+		}
+		return sum;
+	}
+
+	private void run() {
+		System.out.println("QpDispatchBenchmark, qps " + qps + ", batch " + batch + ", loop " + loop);
+		long sink = 0;
+		for (int i = 0; i < WARMUP_ROUNDS; i++){
+			sink += boxedLoop();
+			sink += primitiveLoop();
+		}
+
+		long start = System.nanoTime();
+		sink += boxedLoop();
+		long boxedTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		sink += primitiveLoop();
+		long primitiveTime = System.nanoTime() - start;
+
+		long completions = ((long) batch) * loop;
+		System.out.println("QpDispatchBenchmark, boxed lookup " + ((double) boxedTime) / completions + " ns/completion");
+		System.out.println("QpDispatchBenchmark, primitive lookup " + ((double) primitiveTime) / completions + " ns/completion");
+		System.out.println("QpDispatchBenchmark, checksum " + sink);
+		cmd.free();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		options.addOption(Option.builder("q").desc("number of registered QPs").hasArg().type(Number.class).build());
+		options.addOption(Option.builder("s").desc("completions per poll").hasArg().type(Number.class).build());
+		options.addOption(Option.builder("k").desc("number of iterations").hasArg().type(Number.class).build());
+		int qps = 10000;
+		int batch = 4096;
+		int loop = 10000;
+		try {
+			CommandLine line = new DefaultParser().parse(options, args);
+			if (line.hasOption("q")) {
+				qps = ((Number) line.getParsedOptionValue("q")).intValue();
+			}
+			if (line.hasOption("s")) {
+				batch = ((Number) line.getParsedOptionValue("s")).intValue();
+			}
+			if (line.hasOption("k")) {
+				loop = ((Number) line.getParsedOptionValue("k")).intValue();
+			}
+		} catch (ParseException e) {
+			new HelpFormatter().printHelp("QpDispatchBenchmark", options);
+			System.exit(-1);
+		}
+
+		QpDispatchBenchmark benchmark = new QpDispatchBenchmark(qps, batch, loop);
+		benchmark.run();
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.examples;
+
+import com.ibm.disni.CmdLineCommon;
+import com.ibm.disni.RdmaActiveEndpointGroup;
+import com.ibm.disni.RdmaAsyncEndpoint;
+import com.ibm.disni.RdmaEndpointFactory;
+import com.ibm.disni.verbs.*;
+import org.apache.commons.cli.ParseException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncClient implements RdmaEndpointFactory<AsyncClient.CustomClientEndpoint> {
+	private RdmaActiveEndpointGroup<AsyncClient.CustomClientEndpoint> endpointGroup;
+	private String host;
+	private int port;
+
+	public AsyncClient.CustomClientEndpoint createEndpoint(RdmaCmId idPriv, boolean serverSide) throws IOException {
+		return new AsyncClient.CustomClientEndpoint(endpointGroup, idPriv, serverSide);
+	}
+
+	public void run() throws Exception {
+		endpointGroup = new RdmaActiveEndpointGroup<AsyncClient.CustomClientEndpoint>(1000, false, 128, 4, 128);
+		endpointGroup.init(this);
+		AsyncClient.CustomClientEndpoint endpoint = endpointGroup.createEndpoint();
+
+		InetAddress ipAddress = InetAddress.getByName(host);
+		InetSocketAddress address = new InetSocketAddress(ipAddress, port);
+		endpoint.connect(address, 1000);
+		InetSocketAddress _addr = (InetSocketAddress) endpoint.getDstAddr();
+		System.out.println("AsyncClient::client connected, address " + _addr.toString());
+
+		//the receive posted in init() completes with the RDMA information of the server
+		endpoint.getServerMessage().get();
+		ByteBuffer recvBuf = endpoint.getRecvBuf();
+		recvBuf.clear();
+		long addr = recvBuf.getLong();
+		int length = recvBuf.getInt();
+		int lkey = recvBuf.getInt();
+		System.out.println("AsyncClient::receiving rdma information, addr " + addr + ", length " + length + ", key " + lkey);
+
+		//issue all reads at once, the endpoint batches them and only signals the last work request of a batch
+		ByteBuffer dataBuf = endpoint.getDataBuf();
+		int reads = 10;
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[reads];
+		for (int i = 0; i < reads; i++){
+			ByteBuffer slice = dataBuf.duplicate();
+			slice.position(i*length).limit((i + 1)*length);
+			futures[i] = endpoint.read(slice, addr, lkey);
+		}
+		CompletableFuture.allOf(futures).get();
+		for (int i = 0; i < reads; i++){
+			ByteBuffer slice = dataBuf.duplicate();
+			slice.position(i*length).limit((i + 1)*length);
+			System.out.println("AsyncClient::read memory from server: " + slice.slice().asCharBuffer().toString());
+		}
+
+		//signal the server that we are done
+		ByteBuffer sendBuf = endpoint.getSendBuf();
+		sendBuf.clear();
+		endpoint.send(sendBuf).get();
+
+		endpoint.close();
+		System.out.println("AsyncClient::endpoint closed");
+		endpointGroup.close();
+	}
+
+	public void launch(String[] args) throws Exception {
+		CmdLineCommon cmdLine = new CmdLineCommon("AsyncClient");
+
+		try {
+			cmdLine.parse(args);
+		} catch (ParseException e) {
+			cmdLine.printHelp();
+			System.exit(-1);
+		}
+		host = cmdLine.getIp();
+		port = cmdLine.getPort();
+
+		this.run();
+	}
+
+	public static void main(String[] args) throws Exception {
+		AsyncClient simpleClient = new AsyncClient();
+		simpleClient.launch(args);
+	}
+
+	public static class CustomClientEndpoint extends RdmaAsyncEndpoint {
+		private ByteBuffer dataBuf;
+		private ByteBuffer sendBuf;
+		private ByteBuffer recvBuf;
+		private CompletableFuture<Integer> serverMessage;
+
+		public CustomClientEndpoint(RdmaActiveEndpointGroup<? extends CustomClientEndpoint> group, RdmaCmId idPriv, boolean serverSide) throws IOException {
+			super(group, idPriv, serverSide);
+			this.dataBuf = ByteBuffer.allocateDirect(1000);
+			this.sendBuf = ByteBuffer.allocateDirect(100);
+			this.recvBuf = ByteBuffer.allocateDirect(100);
+		}
+
+		//register the buffers and post the receive before the connection is established
+		public void init() throws IOException {
+			super.init();
+			register(dataBuf);
+			register(sendBuf);
+			register(recvBuf);
+			this.serverMessage = recv(recvBuf);
+		}
+
+		public ByteBuffer getDataBuf() {
+			return dataBuf;
+		}
+
+		public ByteBuffer getSendBuf() {
+			return sendBuf;
+		}
+
+		public ByteBuffer getRecvBuf() {
+			return recvBuf;
+		}
+
+		public CompletableFuture<Integer> getServerMessage() {
+			return serverMessage;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.ibm.disni.examples;
+
+import com.ibm.disni.CmdLineCommon;
+import com.ibm.disni.RdmaActiveEndpointGroup;
+import com.ibm.disni.RdmaAsyncEndpoint;
+import com.ibm.disni.RdmaEndpointFactory;
+import com.ibm.disni.RdmaServerEndpoint;
+import com.ibm.disni.verbs.*;
+import org.apache.commons.cli.ParseException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncServer implements RdmaEndpointFactory<AsyncServer.CustomServerEndpoint> {
+	private RdmaActiveEndpointGroup<AsyncServer.CustomServerEndpoint> endpointGroup;
+	private String host;
+	private int port;
+
+	public AsyncServer.CustomServerEndpoint createEndpoint(RdmaCmId idPriv, boolean serverSide) throws IOException {
+		return new AsyncServer.CustomServerEndpoint(endpointGroup, idPriv, serverSide);
+	}
+
+	public void run() throws Exception {
+		//create a EndpointGroup. Async endpoints are active endpoints, the group delivers their completions.
+		endpointGroup = new RdmaActiveEndpointGroup<CustomServerEndpoint>(1000, false, 128, 4, 128);
+		endpointGroup.init(this);
+		RdmaServerEndpoint<AsyncServer.CustomServerEndpoint> serverEndpoint = endpointGroup.createServerEndpoint();
+
+		InetAddress ipAddress = InetAddress.getByName(host);
+		InetSocketAddress address = new InetSocketAddress(ipAddress, port);
+		serverEndpoint.bind(address, 10);
+		System.out.println("AsyncServer::server bound to address" + address.toString());
+
+		AsyncServer.CustomServerEndpoint endpoint = serverEndpoint.accept();
+		System.out.println("AsyncServer::connection accepted ");
+
+		//tell the client where to read from
+		ByteBuffer dataBuf = endpoint.getDataBuf();
+		ByteBuffer sendBuf = endpoint.getSendBuf();
+		IbvMr dataMr = endpoint.getDataMr();
+		dataBuf.asCharBuffer().put("This is an async RDMA/read on stag " + dataMr.getLkey() + " !");
+		dataBuf.clear();
+		sendBuf.putLong(dataMr.getAddr());
+		sendBuf.putInt(dataMr.getLength());
+		sendBuf.putInt(dataMr.getLkey());
+		sendBuf.clear();
+
+		//no work requests or wr_ids, the future completes once the message has been sent
+		System.out.println("AsyncServer::sending message");
+		endpoint.send(sendBuf).get();
+
+		//the receive was posted in init(), wait for the final message of the client
+		int length = endpoint.getFinalMessage().get();
+		System.out.println("AsyncServer::final message, length " + length);
+
+		endpoint.close();
+		serverEndpoint.close();
+		endpointGroup.close();
+	}
+
+	public void launch(String[] args) throws Exception {
+		CmdLineCommon cmdLine = new CmdLineCommon("AsyncServer");
+
+		try {
+			cmdLine.parse(args);
+		} catch (ParseException e) {
+			cmdLine.printHelp();
+			System.exit(-1);
+		}
+		host = cmdLine.getIp();
+		port = cmdLine.getPort();
+
+		this.run();
+	}
+
+	public static void main(String[] args) throws Exception {
+		AsyncServer simpleServer = new AsyncServer();
+		simpleServer.launch(args);
+	}
+
+	public static class CustomServerEndpoint extends RdmaAsyncEndpoint {
+		private ByteBuffer dataBuf;
+		private IbvMr dataMr;
+		private ByteBuffer sendBuf;
+		private ByteBuffer recvBuf;
+		private CompletableFuture<Integer> finalMessage;
+
+		public CustomServerEndpoint(RdmaActiveEndpointGroup<CustomServerEndpoint> endpointGroup, RdmaCmId idPriv, boolean serverSide) throws IOException {
+			super(endpointGroup, idPriv, serverSide);
+			this.dataBuf = ByteBuffer.allocateDirect(100);
+			this.sendBuf = ByteBuffer.allocateDirect(100);
+			this.recvBuf = ByteBuffer.allocateDirect(100);
+		}
+
+		//register the buffers and post the receive before the connection is established
+		public void init() throws IOException{
+			super.init();
+			this.dataMr = register(dataBuf);
+			register(sendBuf);
+			register(recvBuf);
+			this.finalMessage = recv(recvBuf);
+		}
+
+		public ByteBuffer getDataBuf() {
+			return dataBuf;
+		}
+
+		public IbvMr getDataMr() {
+			return dataMr;
+		}
+
+		public ByteBuffer getSendBuf() {
+			return sendBuf;
+		}
+
+		public CompletableFuture<Integer> getFinalMessage() {
+			return finalMessage;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * DiSNI: Direct Storage and Networking Interface
+ *
+ * Author: Patrick Stuedi <stu@zurich.ibm.com>
+ *
+ * Copyright (C) 2016-2018, IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.ibm.disni.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+public class ConcurrentLongMapTest extends TestCase {
+
+	public void testPutRemoveReput() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<String>();
+		assertNull(map.put(42, "a"));
+		assertEquals("a", map.get(42));
+		assertEquals("a", map.put(42, "b"));
+		assertEquals(1, map.size());
+		assertEquals("b", map.remove(42));
+		assertNull(map.get(42));
+		assertFalse(map.containsKey(42));
+		assertNull(map.remove(42));
+		assertTrue(map.isEmpty());
+		assertNull(map.put(42, "c"));
+		assertEquals("c", map.get(42));
+		assertEquals(1, map.size());
+	}
+
+	public void testZeroKey() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<String>();
+		assertNull(map.get(0));
+		assertNull(map.put(0, "zero"));
+		assertNull(map.put(1, "one"));
+		assertEquals("zero", map.get(0));
+		assertEquals(2, map.size());
+		assertEquals("zero", map.remove(0));
+		assertNull(map.get(0));
+		assertEquals("one", map.get(1));
+		assertEquals(1, map.size());
+	}
+
+	public void testNullValue() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<String>();
+		try {
+			map.put(1, null);
+			fail("null value accepted");
+		} catch (NullPointerException e) {
+		}
+	}
+
+	public void testCollidingKeys() {
+		ConcurrentLongMap<Long> map = new ConcurrentLongMap<Long>();
+		for (long key = 1; key <= 1000; key++){
+			map.put(key << 32, key);
+		}
+		for (long key = 1; key <= 1000; key += 2){
+			map.remove(key << 32);
+		}
+		for (long key = 1; key <= 1000; key++){
+			assertEquals(key % 2 == 0 ? Long.valueOf(key) : null, map.get(key << 32));
+		}
+		assertEquals(500, map.size());
+	}
+
+	public void testRebuildOnChurn() {
+		ConcurrentLongMap<Long> map = new ConcurrentLongMap<Long>();
+		for (long key = 1; key <= 8; key++){
+			map.put(key, key);
+		}
+		int capacity = map.capacity();
+		//insert and remove a fresh key at a time, cleared slots must be reclaimed
+		for (long key = 100; key < 100000; key++){
+			map.put(key, key);
+			assertEquals(Long.valueOf(key), map.remove(key));
+		}
+		assertTrue("table grew to " + map.capacity(), map.capacity() <= capacity*2);
+		assertEquals(8, map.size());
+		for (long key = 1; key <= 8; key++){
+			assertEquals(Long.valueOf(key), map.get(key));
+		}
+	}
+
+	public void testValuesSnapshot() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<String>();
+		map.put(0, "zero");
+		map.put(1, "one");
+		map.put(2, "two");
+		ArrayList<String> values = map.values();
+		assertEquals(3, values.size());
+		assertTrue(values.contains("zero"));
+		assertTrue(values.contains("one"));
+		assertTrue(values.contains("two"));
+		map.remove(1);
+		map.put(3, "three");
+		assertEquals(3, values.size());
+		assertTrue(values.contains("one"));
+		assertFalse(values.contains("three"));
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertTrue(map.values().isEmpty());
+		assertEquals(3, values.size());
+	}
+
+	public void testLookupDuringRebuild() throws Exception {
+		final ConcurrentLongMap<Long> map = new ConcurrentLongMap<Long>();
+		map.put(7, 7L);
+		final AtomicBoolean missed = new AtomicBoolean(false);
+		final AtomicBoolean done = new AtomicBoolean(false);
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!done.get()){
+					if (map.get(7) == null){
+						missed.set(true);
+					}
+				}
+			}
+		});
+		reader.start();
+		for (long key = 100; key < 200000; key++){
+			map.put(key, key);
+			if (key % 3 != 0){
+				map.remove(key);
+			}
+		}
+		done.set(true);
+		reader.join();
+		assertFalse(missed.get());
+	}
+}